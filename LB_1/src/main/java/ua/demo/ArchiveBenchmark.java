@@ -0,0 +1,125 @@
+package ua.demo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import ua.hotel_managment.*;
+
+/**
+ * Books three years of stays with invoices in a hotel of 300 rooms, then moves
+ * to a date 2.5 years later and lets a {@link ReservationArchive} move the past
+ * stays to disk. Prints the heap before and after, the size of the segments,
+ * and the time of random week-long queries of single rooms over the archived
+ * years: in memory before archiving, then from disk with a cold and a warm
+ * block cache.
+ */
+public class ArchiveBenchmark {
+
+	private static final int ROOMS = 300;
+	private static final int DAYS = 3 * 365;
+	private static final int QUERIES = 5_000;
+
+	public static void main(String[] args) throws IOException {
+		LocalDate today = LocalDate.now();
+		Random random = new Random(17);
+		List<Guest> guests = new ArrayList<>();
+		for (int i = 0; i < 20_000; i++) {
+			guests.add(Guest.create("Guest", "Number" + i, "guest" + i + "@example.com", today));
+		}
+		Hotel hotel = Hotel.create();
+		for (int number = 1; number <= ROOMS; number++) {
+			hotel.addRoom(Room.create(number, number % 4 == 0 ? "Suite" : "Double", 2, 1200 + number % 7 * 100));
+		}
+		Service breakfast = Service.create("Breakfast", 150);
+		for (Room room : hotel.getRooms()) {
+			LocalDate start = today.plusDays(1 + random.nextInt(3));
+			while (start.isBefore(today.plusDays(DAYS))) {
+				LocalDate end = start.plusDays(1 + random.nextInt(6));
+				Reservation reservation = Reservation.create(guests.get(random.nextInt(guests.size())), room, start, end);
+				if (random.nextInt(3) == 0) {
+					reservation.addService(breakfast);
+				}
+				hotel.book(reservation);
+				hotel.addInvoice(Invoice.create(reservation, end));
+				start = end.plusDays(random.nextInt(2));
+			}
+		}
+		HotelStatistics statistics = HotelStatistics.attach(hotel);
+		ReservationIndex index = ReservationIndex.attach(hotel);
+		guests = null;
+		int booked = hotel.getReservations().size();
+		System.out.println("=== TIERED STORAGE BENCHMARK (" + ROOMS + " rooms, " + booked + " stays with invoices) ===\n");
+
+		LocalDate later = today.plusDays(DAYS - 180);
+		int[] rooms = new int[QUERIES];
+		LocalDate[] starts = new LocalDate[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			rooms[i] = 1 + random.nextInt(ROOMS);
+			starts[i] = today.plusDays(random.nextInt(DAYS - 240));
+		}
+		long start = System.nanoTime();
+		long found = 0;
+		for (int i = 0; i < QUERIES; i++) {
+			found += index.query().roomNumber(rooms[i]).overlapping(starts[i], starts[i].plusDays(7)).count();
+		}
+		System.out.printf("in memory, query:    %8.1f us per query (%d stays found)%n",
+				(System.nanoTime() - start) / 1e3 / QUERIES, found);
+		double revenue = statistics.getRoomRevenue(YearMonth.from(today.plusDays(100)));
+		long heapBefore = usedMemory();
+
+		Path directory = Files.createTempDirectory("archive");
+		Clock clock = Clock.offset(Clock.systemDefaultZone(), Duration.ofDays(DAYS - 180));
+		start = System.nanoTime();
+		ReservationArchive archive = ReservationArchive.builder(directory).clock(clock).interval(Duration.ofDays(1))
+				.attach(hotel);
+		int migrated = archive.migrate(); // the first migration, unless the background thread started it
+		System.out.printf("%nmigrated %d stays to %s in %.0f ms (this call: %d)%n", archive.getMigratedCount(),
+				later.minus(ReservationArchive.DEFAULT_AGE), (System.nanoTime() - start) / 1e6, migrated);
+		long heapAfter = usedMemory();
+		System.out.printf("heap: %.1f MB before, %.1f MB after; %d stays left in memory%n", heapBefore / 1e6,
+				heapAfter / 1e6, hotel.getReservations().size());
+		System.out.printf("disk: %d segments, %.1f MB encoded, %.1f MB compressed (%.1f bytes per stay), "
+				+ "revenue kept: %b%n", archive.getSegmentCount(), archive.getRawSize() / 1e6,
+				archive.getDiskSize() / 1e6, (double) archive.getDiskSize() / archive.getArchivedCount(),
+				statistics.getRoomRevenue(YearMonth.from(today.plusDays(100))) == revenue);
+
+		for (String pass : new String[] { "archive, cold cache:", "archive, warm cache:" }) {
+			long reads = archive.getBlockReadCount();
+			long hits = archive.getCacheHits();
+			long misses = archive.getCacheMisses();
+			start = System.nanoTime();
+			found = 0;
+			for (int i = 0; i < QUERIES; i++) {
+				found += archive.find(rooms[i], starts[i], starts[i].plusDays(7)).size();
+			}
+			long requests = archive.getCacheHits() - hits + archive.getCacheMisses() - misses;
+			System.out.printf("%-20s %8.1f us per query (%d stays found), %d blocks read, hit rate %.1f%%%n", pass,
+					(System.nanoTime() - start) / 1e3 / QUERIES, found, archive.getBlockReadCount() - reads,
+					100.0 * (archive.getCacheHits() - hits) / requests);
+		}
+		System.out.println("\n" + archive);
+		archive.close();
+		try (var files = Files.list(directory)) {
+			for (Path file : files.toList()) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,138 @@
+package ua.demo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import ua.hotel_managment.*;
+import ua.util.RingBuffer;
+
+/**
+ * Measures the cost of auditing setter calls: {@code Room.setPrice} without an
+ * audit trail, with an {@link AuditTrail} (records go through the ring to a
+ * background writer), and with a record written to the file inside the setter.
+ * With the trail, changes come in bursts that fit the ring, so the setter time
+ * is the cost of publishing; a sustained flood is limited by the writer instead.
+ * Then overloads a small ring from several threads with both overflow policies.
+ */
+public class AuditBenchmark {
+
+	private static final int CALLS = 5_000_000;
+	private static final int SYNC_CALLS = 200_000;
+	private static final int BURST = 16_384;
+	private static final int THREADS = 4;
+
+	public static void main(String[] args) throws Exception {
+		Path dir = Files.createTempDirectory("audit");
+		Room room = Room.create(101, "Double", 2, 500);
+		System.out.println("=== AUDIT TRAIL BENCHMARK ===\n");
+		for (int round = 1; round <= 2; round++) {
+			System.out.printf("round %d%n", round);
+			System.out.printf("  no trail:        %5.1f ns per setPrice%n", setPrices(room, CALLS));
+			Path file = dir.resolve("audit-" + round + ".log");
+			try (AuditTrail trail = AuditTrail.start(file)) {
+				long setterNanos = 0;
+				long start = System.nanoTime();
+				for (int i = 0; i < CALLS; i += BURST) {
+					long burst = System.nanoTime();
+					setPrices(room, BURST);
+					setterNanos += System.nanoTime() - burst;
+					while (trail.getBacklog() > 0) {
+						// one CPU is enough for the writer, spinning would compete with it
+						Thread.yield();
+					}
+				}
+				long total = System.nanoTime() - start;
+				int calls = (CALLS + BURST - 1) / BURST * BURST;
+				System.out.printf("  ring trail:      %5.1f ns per setPrice in bursts of %d, %5.1f ns per record"
+						+ " written (%d written, %d dropped)%n", (double) setterNanos / calls, BURST,
+						(double) total / calls, trail.getWrittenCount(), trail.getDroppedCount());
+			}
+			System.out.printf("  ring alone:      %5.1f ns per claim, fill and publish%n", ringAlone());
+			System.out.printf("  synchronous:     %5.1f ns per setPrice (one write per record)%n",
+					synchronous(room, dir.resolve("sync-" + round + ".log")));
+		}
+		System.out.println();
+		overload(dir.resolve("block.log"), AuditTrail.Overflow.BLOCK);
+		overload(dir.resolve("drop.log"), AuditTrail.Overflow.DROP);
+		System.out.println("\nlast lines of " + dir.resolve("audit-2.log") + ":");
+		List<String> lines = Files.readAllLines(dir.resolve("audit-2.log"));
+		lines.subList(lines.size() - 2, lines.size()).forEach(line -> System.out.println("  " + line));
+	}
+
+	private static double setPrices(Room room, int calls) {
+		long start = System.nanoTime();
+		for (int i = 0; i < calls; i++) {
+			room.setPrice(400 + (i & 127));
+		}
+		return (double) (System.nanoTime() - start) / calls;
+	}
+
+	/** Publishing into a ring drained by the same thread, so no writer shares the CPU. */
+	private static double ringAlone() {
+		RingBuffer<long[]> ring = new RingBuffer<>(BURST, () -> new long[3], true);
+		long[] sum = new long[1];
+		long nanos = 0;
+		for (int i = 0; i < CALLS; i += BURST) {
+			long start = System.nanoTime();
+			for (int j = 0; j < BURST; j++) {
+				long sequence = ring.tryNext();
+				long[] entry = ring.get(sequence);
+				entry[0] = j;
+				entry[1] = i;
+				entry[2] = System.currentTimeMillis();
+				ring.publish(sequence);
+			}
+			nanos += System.nanoTime() - start;
+			ring.drain(entry -> sum[0] += entry[0], BURST);
+		}
+		return sum[0] == 0 ? 0 : (double) nanos / ((CALLS + BURST - 1) / BURST * BURST);
+	}
+
+	/** The setter followed by writing its record to the file, as a synchronous trail would. */
+	private static double synchronous(Room room, Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND)) {
+			long start = System.nanoTime();
+			for (int i = 0; i < SYNC_CALLS; i++) {
+				double old = room.getPrice();
+				room.setPrice(400 + (i & 127));
+				String line = Instant.now() + "\tRoom(" + room.getRoomNumber() + ")\tprice\t" + old + "\t"
+						+ room.getPrice() + "\n";
+				channel.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+			}
+			return (double) (System.nanoTime() - start) / SYNC_CALLS;
+		}
+	}
+
+	/** Several threads change rooms as fast as they can into a ring of 1024 entries. */
+	private static void overload(Path file, AuditTrail.Overflow overflow) throws Exception {
+		try (AuditTrail trail = AuditTrail.start(file, 1024, overflow)) {
+			List<Thread> threads = new ArrayList<>();
+			long start = System.nanoTime();
+			for (int t = 0; t < THREADS; t++) {
+				Room room = Room.create(200 + t, "Single", 1, 300);
+				Thread thread = new Thread(() -> setPrices(room, CALLS / THREADS));
+				threads.add(thread);
+				thread.start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			double nanos = (double) (System.nanoTime() - start) / CALLS;
+			while (trail.getBacklog() > 0) {
+				Thread.sleep(1);
+			}
+			System.out.printf("overload %-5s %d threads: %5.1f ns per setPrice, %d recorded, %d written, %d dropped%n",
+					overflow, THREADS, nanos, trail.getRecordedCount(), trail.getWrittenCount(),
+					trail.getDroppedCount());
+		}
+	}
+}
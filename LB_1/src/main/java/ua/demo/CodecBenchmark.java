@@ -0,0 +1,104 @@
+package ua.demo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import ua.hotel_managment.*;
+
+/**
+ * Compares {@link BinaryCodec} with Java serialization on a batch of invoices:
+ * encoded size, encoding and decoding time.
+ */
+public class CodecBenchmark {
+
+	private static final int INVOICES = 50_000;
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) throws IOException, ClassNotFoundException {
+		List<Invoice> invoices = createInvoices();
+		ByteBuffer buffer = ByteBuffer.allocate(64 * 1024 * 1024);
+		BinaryCodec codec = new BinaryCodec();
+
+		System.out.println("=== BINARY CODEC BENCHMARK (" + INVOICES + " invoices) ===\n");
+		for (int round = 1; round <= ROUNDS; round++) {
+			buffer.clear();
+			codec.reset();
+			long start = System.nanoTime();
+			codec.writeHeader(buffer);
+			for (Invoice invoice : invoices) {
+				codec.encode(invoice, buffer);
+			}
+			long encodeTime = System.nanoTime() - start;
+			int binarySize = buffer.position();
+
+			buffer.flip();
+			codec.reset();
+			start = System.nanoTime();
+			codec.readHeader(buffer);
+			int decoded = 0;
+			while (codec.decodeNext(buffer) != null) {
+				decoded++;
+			}
+			long decodeTime = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+				for (Invoice invoice : invoices) {
+					out.writeObject(invoice);
+				}
+			}
+			long serializeTime = System.nanoTime() - start;
+			byte[] serialized = bytes.toByteArray();
+
+			start = System.nanoTime();
+			try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+				for (int i = 0; i < INVOICES; i++) {
+					in.readObject();
+				}
+			}
+			long deserializeTime = System.nanoTime() - start;
+
+			System.out.printf("round %d: binary %,d bytes (%.1f B/invoice), encode %.1f ms, decode %.1f ms (%d)%n",
+					round, binarySize, (double) binarySize / INVOICES, encodeTime / 1e6, decodeTime / 1e6, decoded);
+			System.out.printf("         java   %,d bytes (%.1f B/invoice), encode %.1f ms, decode %.1f ms%n",
+					serialized.length, (double) serialized.length / INVOICES,
+					serializeTime / 1e6, deserializeTime / 1e6);
+		}
+	}
+
+	private static List<Invoice> createInvoices() {
+		Random random = new Random(42);
+		String[] types = { "Single", "Double", "Suite", "Family" };
+		String[] services = { "Breakfast", "Cleaning", "Spa", "Parking", "Laundry" };
+		String[] names = { "John", "Alice", "Olena", "Taras", "Emma", "Mykola", "Sara", "Ivan" };
+		LocalDate today = LocalDate.now();
+		List<Room> rooms = new ArrayList<>();
+		for (int i = 1; i <= 500; i++) {
+			rooms.add(Room.create(i, types[i % types.length], 1 + i % 4, 400 + 50 * (i % 10)));
+		}
+		List<Invoice> invoices = new ArrayList<>(INVOICES);
+		for (int i = 0; i < INVOICES; i++) {
+			Guest guest = Guest.create(names[random.nextInt(names.length)], "Surname" + random.nextInt(1000),
+					"guest" + i + "@example.com", today);
+			int start = random.nextInt(180);
+			Reservation reservation = Reservation.create(guest, rooms.get(random.nextInt(rooms.size())),
+					today.plusDays(start), today.plusDays(start + 1 + random.nextInt(10)));
+			for (int s = random.nextInt(5); s > 0; s--) {
+				reservation.addService(Service.create(services[random.nextInt(services.length)], 50));
+			}
+			Invoice invoice = Invoice.create(reservation, today.plusDays(start));
+			invoice.calculateTotalAmount();
+			invoices.add(invoice);
+		}
+		return invoices;
+	}
+}
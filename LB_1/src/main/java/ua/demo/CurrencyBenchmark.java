@@ -0,0 +1,104 @@
+package ua.demo;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import ua.hotel_managment.*;
+
+/**
+ * Converts the invoices of a busy day (200,000 invoices with up to five services
+ * each) into the currencies of the guests: the way it is done without
+ * currency support, recomputing every total from the room and services and
+ * converting it with {@link BigDecimal}, and with
+ * {@link InvoiceCurrencyConverter#convertTotals}. Then measures cached
+ * single conversions, as an invoice list page shows them, before and after
+ * a rate update.
+ */
+public class CurrencyBenchmark {
+
+	private static final int INVOICES = 200_000;
+	private static final Currency BASE = Currency.getInstance("UAH");
+	private static final Currency[] BILLED = { BASE, Currency.getInstance("EUR"), Currency.getInstance("USD"),
+			Currency.getInstance("GBP"), Currency.getInstance("PLN"), Currency.getInstance("JPY") };
+
+	public static void main(String[] args) {
+		LocalDate today = LocalDate.now();
+		Random random = new Random(42);
+		Guest guest = Guest.create("John", "Doe", "john.doe@example.com", today);
+		List<Service> services = List.of(Service.create("Spa", 900), Service.create("Breakfast", 350),
+				Service.create("Parking", 200), Service.create("Transfer", 1200), Service.create("Laundry", 150));
+		List<Room> rooms = new ArrayList<>();
+		for (int number = 1; number <= 500; number++) {
+			rooms.add(Room.create(number, "Double", 2, 1500 + number % 20 * 100));
+		}
+		List<Invoice> invoices = new ArrayList<>(INVOICES);
+		List<Currency> currencies = new ArrayList<>(INVOICES);
+		for (int i = 0; i < INVOICES; i++) {
+			Reservation reservation = Reservation.create(guest, rooms.get(i % rooms.size()), today.plusDays(1),
+					today.plusDays(2 + i % 5));
+			for (int s = random.nextInt(6); s > 0; s--) {
+				reservation.addService(services.get(random.nextInt(services.size())));
+			}
+			Invoice invoice = Invoice.create(reservation, today);
+			invoice.calculateTotalAmount();
+			invoices.add(invoice);
+			currencies.add(BILLED[random.nextInt(BILLED.length)]);
+		}
+		RateTable rates = RateTable.create(BASE);
+		rates.update(Map.of(BILLED[1], 0.0217, BILLED[2], 0.0241, BILLED[3], 0.0189, BILLED[4], 0.0972,
+				BILLED[5], 3.64));
+		InvoiceCurrencyConverter converter = InvoiceCurrencyConverter.create(rates, INVOICES);
+
+		System.out.println("=== END-OF-DAY CURRENCY RUN (" + INVOICES + " invoices) ===\n");
+		for (int round = 1; round <= 3; round++) {
+			long start = System.nanoTime();
+			long naiveSum = 0;
+			for (int i = 0; i < INVOICES; i++) {
+				naiveSum += naive(invoices.get(i), currencies.get(i), rates.current());
+			}
+			long naiveNanos = System.nanoTime() - start;
+			start = System.nanoTime();
+			long[] converted = converter.convertTotals(invoices, currencies);
+			long batchNanos = System.nanoTime() - start;
+			long batchSum = 0;
+			for (long amount : converted) {
+				batchSum += amount;
+			}
+			System.out.printf("round %d: per-invoice walk + BigDecimal %6.1f ms, primitive batch %5.1f ms%s%n", round,
+					naiveNanos / 1e6, batchNanos / 1e6, naiveSum == batchSum ? "" : "  (SUMS DIFFER)");
+		}
+
+		System.out.println();
+		for (int pass = 1; pass <= 3; pass++) {
+			if (pass == 3) {
+				rates.setRate(BILLED[1], 0.0219);
+			}
+			long start = System.nanoTime();
+			for (int i = 0; i < INVOICES; i++) {
+				converter.convert(invoices.get(i), currencies.get(i));
+			}
+			System.out.printf("display pass %d%s: %5.1f ms, %s%n", pass, pass == 3 ? " (after a rate update)" : "",
+					(System.nanoTime() - start) / 1e6, converter);
+		}
+		System.out.println("\ne.g. " + converter.getTotal(invoices.get(0)) + " = "
+				+ converter.convert(invoices.get(0), BILLED[1]) + " = " + converter.convert(invoices.get(0), BILLED[5]));
+	}
+
+	/** Recomputes the total from the reservation and converts it exactly. */
+	private static long naive(Invoice invoice, Currency currency, RateTable.Version rates) {
+		Reservation reservation = invoice.getReservation();
+		BigDecimal total = BigDecimal.valueOf(reservation.getRoom().getPrice());
+		for (Service service : reservation.getServices()) {
+			total = total.add(BigDecimal.valueOf(service.getPrice()));
+		}
+		int digits = Math.max(currency.getDefaultFractionDigits(), 0);
+		return total.multiply(BigDecimal.valueOf(rates.getRate(currency))).setScale(digits, RoundingMode.HALF_EVEN)
+				.movePointRight(digits).longValueExact();
+	}
+}
@@ -0,0 +1,174 @@
+package ua.demo;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import ua.hotel_managment.*;
+
+/**
+ * Searches duplicates among generated guests (1,000,000 by default, or the number
+ * given as the first argument), 5% of which are copies of other guests with a
+ * typo in a name, or the email's local part in upper case or without dots.
+ * Compares a full pairwise check of a 10,000-guest sample with {@link DuplicateDetector},
+ * then runs the detector on all guests and reports how many planted copies it found.
+ */
+public class DuplicateBenchmark {
+
+	private static final String[] FIRST_NAMES = { "John", "Maria", "Olena", "Andriy", "Taras", "Anna", "Petro",
+			"Emily", "Iryna", "David", "Oksana", "James", "Sofia", "Mykola", "Robert", "Kateryna", "Daniel", "Yulia" };
+	private static final String[] SYLLABLES = { "ko", "val", "en", "shev", "chen", "bon", "dar", "mel", "nyk",
+			"kra", "tka", "smi", "th", "son", "ler", "gar", "ci", "wil", "ol", "iy", "tay", "lor", "ber", "man" };
+	private static final String[] DOMAINS = { "gmail.com", "ukr.net", "example.com", "outlook.com", "i.ua",
+			"yahoo.com", "meta.ua", "proton.me" };
+	private static final int SAMPLE = 10_000;
+
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		Random random = new Random(42);
+		List<Guest> guests = new ArrayList<>(count);
+		Set<Long> planted = new HashSet<>();
+		createGuests(guests, planted, count, random);
+		DuplicateDetector detector = DuplicateDetector.create();
+
+		System.out.println("=== DUPLICATE GUESTS BENCHMARK (" + count + " guests) ===\n");
+		List<Guest> sample = guests.subList(0, Math.min(SAMPLE, count));
+		long start = System.nanoTime();
+		int pairwise = pairwise(sample, detector.getMinScore());
+		long pairwiseMillis = (System.nanoTime() - start) / 1_000_000;
+		start = System.nanoTime();
+		int blocked = detector.find(sample).size();
+		long blockedMillis = (System.nanoTime() - start) / 1_000_000;
+		System.out.printf("sample of %d: every pair %d ms (%d pairs), blocks %d ms (%d pairs)%n", sample.size(),
+				pairwiseMillis, pairwise, blockedMillis, blocked);
+		System.out.printf("every pair of all guests would take about %d s%n%n",
+				pairwiseMillis * ((long) count * count / ((long) sample.size() * sample.size())) / 1000);
+
+		start = System.nanoTime();
+		List<DuplicateCandidate> candidates = detector.find(guests);
+		long millis = (System.nanoTime() - start) / 1_000_000;
+		Map<Guest, Integer> positions = new IdentityHashMap<>(count);
+		for (int i = 0; i < count; i++) {
+			positions.put(guests.get(i), i);
+		}
+		int found = 0;
+		for (DuplicateCandidate candidate : candidates) {
+			if (planted.contains(pairKey(positions.get(candidate.getFirst()), positions.get(candidate.getSecond())))) {
+				found++;
+			}
+		}
+		System.out.printf("all guests: %d ms, %d candidates, %d of %d planted copies found (%.1f%%)%n", millis,
+				candidates.size(), found, planted.size(), 100.0 * found / planted.size());
+		for (int i = 0; i < Math.min(5, candidates.size()); i++) {
+			System.out.println(candidates.get(candidates.size() * i / 5));
+		}
+	}
+
+	private static void createGuests(List<Guest> guests, Set<Long> planted, int count, Random random) {
+		LocalDate today = LocalDate.now();
+		for (int i = 0; i < count; i++) {
+			if (i > 0 && random.nextInt(20) == 0) {
+				int original = random.nextInt(i);
+				guests.add(copy(guests.get(original), random, today));
+				planted.add(pairKey(original, i));
+				continue;
+			}
+			String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+			StringBuilder last = new StringBuilder();
+			for (int s = 3 + random.nextInt(3); s > 0; s--) {
+				last.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+			}
+			last.setCharAt(0, Character.toUpperCase(last.charAt(0)));
+			String lowerFirst = first.toLowerCase(Locale.ROOT);
+			String lowerLast = last.toString().toLowerCase(Locale.ROOT);
+			String local = switch (random.nextInt(3)) {
+				case 0 -> lowerFirst + "." + lowerLast;
+				case 1 -> lowerFirst.charAt(0) + lowerLast + (1950 + random.nextInt(60));
+				default -> lowerLast + "_" + lowerFirst.substring(0, 3) + random.nextInt(100);
+			};
+			String email = local + "@" + DOMAINS[random.nextInt(DOMAINS.length)];
+			guests.add(Guest.create(first, last.toString(), email, today));
+		}
+	}
+
+	/** Copies a guest with one small change, as a second registration would look. */
+	private static Guest copy(Guest original, Random random, LocalDate today) {
+		String first = original.getFirstName();
+		String last = original.getLastName();
+		String email = original.getEmail();
+		int at = email.indexOf('@');
+		switch (random.nextInt(4)) {
+			case 0 -> {
+				int typo = 1 + random.nextInt(first.length() - 1);
+				first = first.substring(0, typo) + first.substring(typo + 1);
+			}
+			case 1 -> {
+				int typo = 1 + random.nextInt(last.length() - 1);
+				last = last.substring(0, typo) + last.charAt(typo) + last.substring(typo);
+			}
+			case 2 -> email = email.substring(0, at).toUpperCase(Locale.ROOT) + email.substring(at);
+			default -> email = email.substring(0, at).replace(".", "") + email.substring(at);
+		}
+		return Guest.create(first, last, email, today);
+	}
+
+	/**
+	 * Counts the pairs the detector would report by comparing every guest with
+	 * every other, with the same trigram lists the detector builds.
+	 */
+	private static int pairwise(List<Guest> guests, double minScore) {
+		long[][] names = new long[guests.size()][];
+		long[][] emails = new long[guests.size()][];
+		for (int i = 0; i < names.length; i++) {
+			Guest guest = guests.get(i);
+			names[i] = trigrams(guest.getFirstName() + " " + guest.getLastName());
+			emails[i] = trigrams(guest.getEmail());
+		}
+		int pairs = 0;
+		for (int i = 0; i < names.length; i++) {
+			for (int j = i + 1; j < names.length; j++) {
+				if (0.6 * dice(names[i], names[j]) + 0.4 * dice(emails[i], emails[j]) >= minScore) {
+					pairs++;
+				}
+			}
+		}
+		return pairs;
+	}
+
+	private static long[] trigrams(String value) {
+		String padded = " " + value.toLowerCase(Locale.ROOT) + " ";
+		long[] grams = new long[padded.length() - 2];
+		for (int i = 0; i < grams.length; i++) {
+			grams[i] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+		}
+		Arrays.sort(grams);
+		return grams;
+	}
+
+	private static double dice(long[] a, long[] b) {
+		int common = 0;
+		for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+			if (a[i] == b[j]) {
+				common++;
+				i++;
+				j++;
+			} else if (a[i] < b[j]) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		return 2.0 * common / (a.length + b.length);
+	}
+
+	private static long pairKey(int a, int b) {
+		return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+	}
+}
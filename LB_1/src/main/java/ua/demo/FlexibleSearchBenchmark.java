@@ -0,0 +1,98 @@
+package ua.demo;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import ua.hotel_managment.*;
+
+/**
+ * Searches the cheapest 4-night stay for 2 people over a 90-day horizon in a
+ * 1,000-room hotel: by testing every room and start date with
+ * {@link Hotel#isAvailable}, and with {@link FlexibleDateSearch}.
+ */
+public class FlexibleSearchBenchmark {
+
+	private static final int ROOMS = 1000;
+	private static final int HORIZON = 90;
+	private static final int NIGHTS = 4;
+	private static final int LIMIT = 10;
+
+	public static void main(String[] args) {
+		LocalDate today = LocalDate.now();
+		Hotel hotel = createHotel(today);
+		FlexibleDateSearch search = FlexibleDateSearch.create(hotel);
+		LocalDate to = today.plusDays(HORIZON);
+
+		System.out.println("=== FLEXIBLE DATES BENCHMARK (" + ROOMS + " rooms, " + HORIZON + " days) ===\n");
+		for (int round = 1; round <= 3; round++) {
+			long start = System.nanoTime();
+			List<Object[]> naive = null;
+			for (int i = 0; i < 10; i++) {
+				naive = naive(hotel, today, to);
+			}
+			long naiveMicros = (System.nanoTime() - start) / 10_000;
+
+			start = System.nanoTime();
+			List<StayOption> fast = null;
+			for (int i = 0; i < 100; i++) {
+				fast = search.findCheapest(today, to, NIGHTS, 2, null, LIMIT);
+			}
+			long fastMicros = (System.nanoTime() - start) / 100_000;
+
+			System.out.printf("every room and date: %6d us%n", naiveMicros);
+			System.out.printf("sliding window:      %6d us (same result: %b)%n%n", fastMicros,
+					same(naive, fast));
+		}
+		System.out.println("cheapest: " + search.findCheapest(today, to, NIGHTS, 2, null, 3));
+	}
+
+	private static Hotel createHotel(LocalDate today) {
+		Random random = new Random(42);
+		Hotel hotel = Hotel.create();
+		Guest guest = Guest.create("John", "Doe", "john.doe@example.com", today);
+		for (int i = 1; i <= ROOMS; i++) {
+			Room room = Room.create(i, i % 3 == 0 ? "Suite" : "Double", 1 + i % 4, 400 + random.nextInt(50) * 10);
+			hotel.addRoom(room);
+			for (int day = random.nextInt(5); day < HORIZON + 30; ) {
+				int nights = 1 + random.nextInt(6);
+				hotel.book(Reservation.create(guest, room, today.plusDays(day), today.plusDays(day + nights)));
+				day += nights + random.nextInt(8);
+			}
+		}
+		return hotel;
+	}
+
+	/** Builds the candidate list the way callers did before: one availability check per room and date. */
+	private static List<Object[]> naive(Hotel hotel, LocalDate from, LocalDate to) {
+		List<Object[]> found = new ArrayList<>();
+		for (Room room : hotel.getRooms()) {
+			if (room.getCapacity() < 2) {
+				continue;
+			}
+			for (LocalDate start = from; !start.plusDays(NIGHTS).isAfter(to); start = start.plusDays(1)) {
+				if (hotel.isAvailable(room, start, start.plusDays(NIGHTS))) {
+					found.add(new Object[] { room, start });
+				}
+			}
+		}
+		found.sort(Comparator.<Object[]>comparingDouble(option -> ((Room) option[0]).getPrice())
+				.thenComparing(option -> (LocalDate) option[1])
+				.thenComparingInt(option -> ((Room) option[0]).getRoomNumber()));
+		return found.subList(0, Math.min(LIMIT, found.size()));
+	}
+
+	private static boolean same(List<Object[]> naive, List<StayOption> options) {
+		if (naive.size() != options.size()) {
+			return false;
+		}
+		for (int i = 0; i < naive.size(); i++) {
+			if (naive.get(i)[0] != options.get(i).getRoom() || !naive.get(i)[1].equals(options.get(i).getStartDate())) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
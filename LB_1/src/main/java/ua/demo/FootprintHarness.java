@@ -0,0 +1,79 @@
+package ua.demo;
+
+import java.time.LocalDate;
+import java.util.function.IntFunction;
+
+import ua.hotel_managment.*;
+
+/**
+ * Measures the heap retained by populations of guests, reservations and rooms
+ * (1,000,000 objects each by default, or the number given as the first argument)
+ * and compares it with a budget per object. The objects are built the way imports
+ * build them: every name, room type and date is a separate instance, as if parsed
+ * from text. Reservations share one guest and one room, so only the reservation
+ * itself is counted.
+ * <p>
+ * Exits with status 1 if a population exceeds its budget, so it can run as
+ * a regression check in a build.
+ */
+public class FootprintHarness {
+
+	private static final String[] FIRST_NAMES = { "Olena", "Andriy", "John", "Maria", "Taras", "Anna", "Petro",
+			"Emily", "Iryna", "David", "Oksana", "James" };
+	private static final String[] LAST_NAMES = { "Smith", "Kovalenko", "Shevchenko", "Bondarenko", "Miller",
+			"Tkachenko", "Garcia", "Melnyk", "Brown", "Kravchenko" };
+	private static final String[] ROOM_TYPES = { "Single", "Double", "Suite", "Family" };
+
+	/** Budgets in bytes per object, including the objects it alone refers to. */
+	private static final int GUEST_BUDGET = 120;
+	private static final int RESERVATION_BUDGET = 48;
+	private static final int ROOM_BUDGET = 48;
+
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		LocalDate today = LocalDate.now();
+		Guest guest = Guest.create("John", "Doe", "john.doe@example.com", today);
+		Room room = Room.create(1, "Double", 2, 500);
+
+		System.out.println("=== MEMORY FOOTPRINT (" + count + " objects per population) ===\n");
+		boolean passed = true;
+		passed &= report("Guest", count, GUEST_BUDGET, i -> Guest.create(copy(FIRST_NAMES[i % FIRST_NAMES.length]),
+				copy(LAST_NAMES[i % LAST_NAMES.length]), "guest" + i + "@example.com", today.plusDays(i % 30)));
+		passed &= report("Reservation", count, RESERVATION_BUDGET, i -> Reservation.create(guest, room,
+				today.plusDays(i % 300), today.plusDays(i % 300 + 1 + i % 7)));
+		passed &= report("Room", count, ROOM_BUDGET, i -> Room.create(i + 1, copy(ROOM_TYPES[i % ROOM_TYPES.length]),
+				1 + i % 4, 400 + i % 50 * 10));
+		System.out.println(passed ? "\nall populations within budget" : "\nBUDGET EXCEEDED");
+		if (!passed) {
+			System.exit(1);
+		}
+	}
+
+	/** Builds a population, measures the heap it retains and prints it. */
+	private static boolean report(String name, int count, int budget, IntFunction<Object> factory) {
+		Object[] population = new Object[count];
+		long before = usedMemory();
+		for (int i = 0; i < count; i++) {
+			population[i] = factory.apply(i);
+		}
+		long retained = usedMemory() - before;
+		double perObject = (double) retained / count;
+		System.out.printf("%-12s %6.1f bytes per object, %6.1f MB per 1M objects (budget %d bytes)%s%n", name,
+				perObject, perObject * 1_000_000 / (1 << 20), budget, perObject > budget ? "  OVER BUDGET" : "");
+		// keep the population reachable until it is measured
+		return population[count - 1] != null && perObject <= budget;
+	}
+
+	/** Returns an equal string that is a separate instance, as parsing would create it. */
+	private static String copy(String value) {
+		return new String(value.toCharArray());
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,92 @@
+package ua.demo;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import ua.hotel_managment.*;
+import ua.util.FieldWriter;
+import ua.util.LazyFormat;
+
+/**
+ * Measures bytes allocated per formatted invoice: nested {@code toString()}
+ * against {@link FieldWriter} into a reused {@link StringBuilder} or {@link ByteBuffer},
+ * and a disabled log call with {@link LazyFormat}.
+ */
+public class FormatBenchmark {
+
+	private static final int ITERATIONS = 1_000_000;
+	private static final Logger LOGGER = Logger.getLogger(FormatBenchmark.class.getName());
+
+	public static void main(String[] args) {
+		LocalDate today = LocalDate.now();
+		Guest guest = Guest.create("John", "Doe", "john.doe@example.com", today);
+		Room room = Room.create(101, "Double", 2, 750.0);
+		Reservation reservation = Reservation.create(guest, room, today, today.plusDays(3));
+		Invoice invoice = Invoice.create(reservation, today);
+		invoice.calculateTotalAmount();
+		LOGGER.setLevel(Level.INFO);
+
+		StringBuilder sb = new StringBuilder(512);
+		ByteBuffer buffer = ByteBuffer.allocate(512);
+		FieldWriter toBuilder = FieldWriter.to(sb).exclude("services");
+		FieldWriter toBuffer = FieldWriter.to(buffer).exclude("services");
+
+		System.out.println("=== FORMATTING BENCHMARK ===");
+		toBuilder.write(invoice);
+		System.out.println("same text as toString(): " + sb.toString().equals(invoice.toString()) + "\n");
+
+		for (int round = 1; round <= 3; round++) {
+			long length = 0;
+			long before = allocatedBytes();
+			for (int i = 0; i < ITERATIONS; i++) {
+				length += invoice.toString().length();
+			}
+			report("toString()", before, length);
+
+			length = 0;
+			before = allocatedBytes();
+			for (int i = 0; i < ITERATIONS; i++) {
+				sb.setLength(0);
+				toBuilder.write(invoice);
+				length += sb.length();
+			}
+			report("FieldWriter -> StringBuilder", before, length);
+
+			length = 0;
+			before = allocatedBytes();
+			for (int i = 0; i < ITERATIONS; i++) {
+				buffer.clear();
+				toBuffer.write(invoice);
+				length += buffer.position();
+			}
+			report("FieldWriter -> ByteBuffer", before, length);
+
+			before = allocatedBytes();
+			for (int i = 0; i < ITERATIONS; i++) {
+				LOGGER.log(Level.FINE, "Issued {0}", LazyFormat.of(invoice));
+			}
+			report("disabled log, LazyFormat", before, 0);
+
+			before = allocatedBytes();
+			for (int i = 0; i < ITERATIONS; i++) {
+				LOGGER.fine("Issued " + invoice);
+			}
+			report("disabled log, concatenation", before, 0);
+			System.out.println();
+		}
+	}
+
+	private static void report(String name, long before, long length) {
+		long allocated = allocatedBytes() - before;
+		System.out.printf("%-30s %8.1f bytes allocated per invoice (%d chars)%n",
+				name, (double) allocated / ITERATIONS, length / ITERATIONS);
+	}
+
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getCurrentThreadAllocatedBytes();
+	}
+}
@@ -0,0 +1,110 @@
+package ua.demo;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import ua.hotel_managment.*;
+
+/**
+ * Autocompletes typed prefixes over a guest list (1,000,000 guests by default,
+ * or the number given as the first argument): by filtering every guest with
+ * {@code startsWith}, and with {@link GuestIndex}. Also measures building the
+ * index and the heap it takes.
+ */
+public class GuestIndexBenchmark {
+
+	private static final String[] LAST_NAMES = { "Smith", "Johnson", "Kovalenko", "Shevchenko", "Bondarenko",
+			"Miller", "Tkachenko", "Garcia", "Melnyk", "Brown", "Kravchenko", "Wilson", "Oliynyk", "Taylor" };
+	private static final String[] FIRST_NAMES = { "Olena", "Andriy", "John", "Maria", "Taras", "Anna", "Petro",
+			"Emily", "Iryna", "David", "Oksana", "James" };
+	private static final String[] PREFIXES = { "s", "Ko", "mel", "shev", "ann", "j", "tkachenko7", "OLENA.b",
+			"brown12", "x" };
+	private static final int LIMIT = 10;
+
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+		List<Guest> guests = createGuests(count);
+
+		System.out.println("=== GUEST AUTOCOMPLETE BENCHMARK (" + count + " guests) ===\n");
+		long before = usedMemory();
+		long start = System.nanoTime();
+		GuestIndex index = GuestIndex.create();
+		index.addAll(guests);
+		long buildMillis = (System.nanoTime() - start) / 1_000_000;
+		long indexBytes = usedMemory() - before;
+		System.out.printf("build: %d ms, index heap: %d MB (%.1f bytes per guest)%n%n", buildMillis,
+				indexBytes >> 20, (double) indexBytes / count);
+
+		for (int round = 1; round <= 3; round++) {
+			start = System.nanoTime();
+			for (String prefix : PREFIXES) {
+				linear(guests, prefix);
+			}
+			long linearMicros = (System.nanoTime() - start) / 1000 / PREFIXES.length;
+
+			start = System.nanoTime();
+			for (int i = 0; i < 1000; i++) {
+				for (String prefix : PREFIXES) {
+					index.suggest(prefix, LIMIT);
+				}
+			}
+			double indexMicros = (System.nanoTime() - start) / 1000.0 / 1000 / PREFIXES.length;
+
+			System.out.printf("filter every guest: %8d us per prefix%n", linearMicros);
+			System.out.printf("prefix index:       %8.1f us per prefix%n%n", indexMicros);
+		}
+
+		// renames go through the setters and are visible right away
+		Guest renamed = guests.get(count / 2);
+		renamed.setLastName("Zelenko");
+		System.out.println("after rename: " + names(index.suggest(GuestIndex.Field.LAST_NAME, "zelen", LIMIT)));
+		System.out.println("suggest \"ko\": " + names(index.suggest("ko", 5)));
+	}
+
+	private static List<Guest> createGuests(int count) {
+		Random random = new Random(42);
+		LocalDate today = LocalDate.now();
+		List<Guest> guests = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+			String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)] + (i % 100 == 0 ? "" : Integer.toString(i % 97));
+			String email = first.toLowerCase(Locale.ROOT) + "." + last.toLowerCase(Locale.ROOT) + i + "@example.com";
+			guests.add(Guest.create(first, last, email, today));
+		}
+		return guests;
+	}
+
+	/** Collects the guests the way callers did before: one pass over all of them, then a sort. */
+	private static List<Guest> linear(List<Guest> guests, String prefix) {
+		String lower = prefix.toLowerCase(Locale.ROOT);
+		List<Guest> found = new ArrayList<>();
+		for (Guest guest : guests) {
+			if (guest.getLastName().toLowerCase(Locale.ROOT).startsWith(lower)
+					|| guest.getFirstName().toLowerCase(Locale.ROOT).startsWith(lower)
+					|| guest.getEmail().toLowerCase(Locale.ROOT).startsWith(lower)) {
+				found.add(guest);
+			}
+		}
+		found.sort((a, b) -> a.getLastName().compareToIgnoreCase(b.getLastName()));
+		return found.subList(0, Math.min(LIMIT, found.size()));
+	}
+
+	private static List<String> names(List<Guest> guests) {
+		List<String> names = new ArrayList<>();
+		for (Guest guest : guests) {
+			names.add(guest.getFirstName() + " " + guest.getLastName());
+		}
+		return names;
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
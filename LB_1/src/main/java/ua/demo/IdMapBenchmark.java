@@ -0,0 +1,190 @@
+package ua.demo;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+
+import ua.hotel_managment.*;
+import ua.util.IdGenerator;
+import ua.util.IntIntMap;
+import ua.util.LongObjectMap;
+
+/**
+ * Looks up 500,000 reservations in maps keyed by the reservation itself
+ * ({@code HashMap}, which hashes the guest, room and dates on every call, and
+ * {@code IdentityHashMap}) and by its id ({@code HashMap<Long, ...>} and
+ * {@link LongObjectMap}); shows what a setter does to a {@code HashMap} key;
+ * measures the heap of the id-keyed maps and of {@code HashMap<Integer, Integer>}
+ * against {@link IntIntMap}; and compares {@link IdGenerator} with a shared
+ * {@link AtomicLong} on four threads.
+ */
+public class IdMapBenchmark {
+
+	private static final int COUNT = 500_000;
+	private static final int LOOKUPS = 2_000_000;
+	private static final int RUNS = 5;
+
+	public static void main(String[] args) throws InterruptedException {
+		LocalDate today = LocalDate.now();
+		List<Guest> guests = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++) {
+			guests.add(Guest.create("Guest", "Number" + i, "guest" + i + "@example.com", today));
+		}
+		List<Room> rooms = new ArrayList<>();
+		for (int number = 1; number <= 1_000; number++) {
+			rooms.add(Room.create(number, "Double", 2, 1500));
+		}
+		Reservation[] reservations = new Reservation[COUNT];
+		for (int i = 0; i < COUNT; i++) {
+			reservations[i] = Reservation.create(guests.get(i % guests.size()), rooms.get(i % rooms.size()),
+					today.plusDays(1 + i / rooms.size()), today.plusDays(2 + i / rooms.size()));
+		}
+		System.out.println("=== ID-KEYED MAPS BENCHMARK (" + COUNT + " reservations, " + LOOKUPS + " lookups) ===\n");
+		lookups(reservations);
+
+		System.out.println();
+		long before = usedMemory();
+		Map<Long, Reservation> boxedOnly = new HashMap<>();
+		for (Reservation reservation : reservations) {
+			boxedOnly.put(reservation.getId(), reservation);
+		}
+		long boxedBytes = usedMemory() - before;
+		before = usedMemory();
+		LongObjectMap<Reservation> primitiveOnly = new LongObjectMap<>();
+		for (Reservation reservation : reservations) {
+			primitiveOnly.put(reservation.getId(), reservation);
+		}
+		long primitiveBytes = usedMemory() - before;
+		System.out.printf("HashMap<Long, Reservation>: %5.1f bytes per entry, LongObjectMap: %5.1f (%d, %d)%n",
+				(double) boxedBytes / COUNT, (double) primitiveBytes / COUNT, boxedOnly.size(), primitiveOnly.size());
+		boxedOnly = null;
+		primitiveOnly = null;
+
+		Random random = new Random(7);
+		int[] keys = random.ints(COUNT, 1, Integer.MAX_VALUE).toArray();
+		before = usedMemory();
+		Map<Integer, Integer> boxedInts = new HashMap<>();
+		for (int i = 0; i < COUNT; i++) {
+			boxedInts.put(keys[i], keys[i] * 31);
+		}
+		long boxedIntBytes = usedMemory() - before;
+		before = usedMemory();
+		IntIntMap ints = new IntIntMap(-1);
+		for (int i = 0; i < COUNT; i++) {
+			ints.put(keys[i], keys[i] * 31);
+		}
+		long intBytes = usedMemory() - before;
+		long start = System.nanoTime();
+		long sum = 0;
+		for (int run = 0; run < RUNS; run++) {
+			for (int key : keys) {
+				sum += boxedInts.get(key);
+			}
+		}
+		long boxedIntNanos = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int run = 0; run < RUNS; run++) {
+			for (int key : keys) {
+				sum -= ints.get(key);
+			}
+		}
+		long intNanos = System.nanoTime() - start;
+		System.out.printf("HashMap<Integer, Integer>:  %5.1f bytes per entry, %4.1f ns per get; "
+				+ "IntIntMap: %5.1f bytes, %4.1f ns%s%n", (double) boxedIntBytes / COUNT,
+				(double) boxedIntNanos / RUNS / COUNT, (double) intBytes / COUNT, (double) intNanos / RUNS / COUNT,
+				sum == 0 ? "" : " (SUMS DIFFER)");
+
+		System.out.println();
+		IdGenerator generator = new IdGenerator(IdGenerator.DEFAULT_BLOCK_SIZE);
+		AtomicLong counter = new AtomicLong();
+		for (int round = 1; round <= 2; round++) {
+			long atomicNanos = generate(() -> counter.incrementAndGet());
+			long generatorNanos = generate(() -> generator.next());
+			System.out.printf("round %d, 4 threads x 5M ids: shared AtomicLong %5.1f ns per id, "
+					+ "IdGenerator %4.1f ns%n", round, atomicNanos / 20e6, generatorNanos / 20e6);
+		}
+	}
+
+	/** Times lookups of random reservations in maps keyed by reservation and by id, then changes a key. */
+	private static void lookups(Reservation[] reservations) {
+		Map<Reservation, Reservation> byValue = new HashMap<>();
+		Map<Reservation, Reservation> byIdentity = new IdentityHashMap<>();
+		Map<Long, Reservation> boxed = new HashMap<>();
+		LongObjectMap<Reservation> primitive = new LongObjectMap<>();
+		for (Reservation reservation : reservations) {
+			byValue.put(reservation, reservation);
+			byIdentity.put(reservation, reservation);
+			boxed.put(reservation.getId(), reservation);
+			primitive.put(reservation.getId(), reservation);
+		}
+		long[] ids = new long[reservations.length];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = reservations[i].getId();
+		}
+		int[] order = new Random(42).ints(LOOKUPS, 0, COUNT).toArray();
+		lookup("HashMap<Reservation, ?>        ", order, i -> byValue.get(reservations[i]) == reservations[i]);
+		lookup("IdentityHashMap<Reservation, ?>", order, i -> byIdentity.get(reservations[i]) == reservations[i]);
+		lookup("HashMap<Long, Reservation>     ", order, i -> boxed.get(reservations[i].getId()) == reservations[i]);
+		lookup("LongObjectMap<Reservation>     ", order, i -> primitive.get(reservations[i].getId()) == reservations[i]);
+		System.out.println("by an id at hand, e.g. from a replication entry:");
+		lookup("HashMap<Long, Reservation>     ", order, i -> boxed.get(ids[i]) != null);
+		lookup("LongObjectMap<Reservation>     ", order, i -> primitive.get(ids[i]) != null);
+
+		Reservation moved = reservations[123];
+		moved.setEndDate(moved.getEndDate().plusDays(1));
+		System.out.printf("%nafter setEndDate on a key: HashMap finds it: %b, contains %d entries; "
+				+ "LongObjectMap finds it: %b%n", byValue.get(moved) != null, byValue.size(),
+				primitive.get(moved.getId()) == moved);
+	}
+
+	private static void lookup(String name, int[] order, IntPredicate get) {
+		long best = Long.MAX_VALUE;
+		int found = 0;
+		for (int run = 0; run < RUNS; run++) {
+			found = 0;
+			long start = System.nanoTime();
+			for (int index : order) {
+				if (get.test(index)) {
+					found++;
+				}
+			}
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		System.out.printf("%s %6.1f ns per lookup%s%n", name, (double) best / order.length,
+				found == order.length ? "" : " (MISSED " + (order.length - found) + ")");
+	}
+
+	/** Generates 5,000,000 ids on each of four threads and returns the elapsed time. */
+	private static long generate(Runnable next) throws InterruptedException {
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				for (int n = 0; n < 5_000_000; n++) {
+					next.run();
+				}
+			});
+		}
+		long start = System.nanoTime();
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,86 @@
+package ua.demo;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import ua.hotel_managment.*;
+
+/**
+ * Generates CSV and JSON-lines files with guests and bookings
+ * (with a few broken rows) and measures {@link BulkImporter} throughput.
+ */
+public class ImportBenchmark {
+
+	private static final int ROWS = 2_000_000;
+	private static final int ROOMS = 1000;
+
+	public static void main(String[] args) throws IOException {
+		Path csv = Files.createTempFile("guests", ".csv");
+		Path json = Files.createTempFile("guests", ".jsonl");
+		try {
+			write(csv, false);
+			write(json, true);
+			System.out.println("=== BULK IMPORT BENCHMARK (" + ROWS + " rows) ===\n");
+			for (int round = 1; round <= 3; round++) {
+				for (Path file : new Path[] { csv, json }) {
+					Hotel hotel = createHotel();
+					long[] guests = new long[1];
+					BulkImporter importer = BulkImporter.create(hotel, batch -> guests[0] += batch.size());
+					ImportReport report = importer.importFile(file);
+					System.out.println(file.getFileName().toString().endsWith(".csv") ? "csv:  " + report
+							: "json: " + report);
+					if (round == 3) {
+						System.out.println("      first errors: " + report.getErrors().subList(0, 3));
+					}
+				}
+			}
+		} finally {
+			Files.deleteIfExists(csv);
+			Files.deleteIfExists(json);
+		}
+	}
+
+	private static Hotel createHotel() {
+		Hotel hotel = Hotel.create();
+		for (int i = 1; i <= ROOMS; i++) {
+			hotel.addRoom(Room.create(i, i % 2 == 0 ? "Double" : "Single", 1 + i % 2, 500));
+		}
+		return hotel;
+	}
+
+	/** Every 10th row is a booking; every 1000th row is broken. */
+	private static void write(Path file, boolean json) throws IOException {
+		LocalDate base = LocalDate.of(2020, 1, 1);
+		try (BufferedWriter out = Files.newBufferedWriter(file)) {
+			if (!json) {
+				out.write("firstName,lastName,email,checkInDate,roomNumber,startDate,endDate\n");
+			}
+			for (int i = 0; i < ROWS; i++) {
+				String email = i % 1000 == 999 ? "broken-email" : "guest" + i + "@example.com";
+				LocalDate checkIn = base.plusDays(i % 2000);
+				boolean booking = i % 10 == 0;
+				// one booking per room and 10-row block: 2 nights each, rooms cycle every 10k rows
+				int room = 1 + (i / 10) % ROOMS;
+				LocalDate start = base.plusDays((long) (i / (10 * ROOMS)) * 2);
+				if (json) {
+					out.write("{\"firstName\":\"Name" + i + "\",\"lastName\":\"Surname\",\"email\":\"" + email
+							+ "\",\"checkInDate\":\"" + checkIn + "\"");
+					if (booking) {
+						out.write(",\"roomNumber\":" + room + ",\"startDate\":\"" + start
+								+ "\",\"endDate\":\"" + start.plusDays(2) + "\"");
+					}
+					out.write("}\n");
+				} else {
+					out.write("Name" + i + ",Surname," + email + "," + checkIn);
+					if (booking) {
+						out.write("," + room + "," + start + "," + start.plusDays(2));
+					}
+					out.write("\n");
+				}
+			}
+		}
+	}
+}
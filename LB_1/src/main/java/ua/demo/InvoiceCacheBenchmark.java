@@ -0,0 +1,112 @@
+package ua.demo;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import ua.hotel_managment.*;
+
+/**
+ * Compares folio views that recompute the invoice total every time
+ * with folio views served from {@link InvoiceTotalCache}.
+ * Requests are skewed: a few reservations are viewed much more often than others,
+ * and 1% of the requests add a service, which invalidates the cached total.
+ */
+public class InvoiceCacheBenchmark {
+
+	private static final int RESERVATIONS = 100_000;
+	private static final int CACHE_SIZE = 10_000;
+	private static final int VIEWS = 2_000_000;
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) {
+		List<Reservation> reservations = createReservations();
+		int[] requests = createRequests();
+
+		System.out.println("=== INVOICE TOTAL CACHE BENCHMARK ===");
+		System.out.println(RESERVATIONS + " reservations, cache size " + CACHE_SIZE + ", " + VIEWS + " views\n");
+
+		for (int round = 1; round <= ROUNDS; round++) {
+			long start = System.nanoTime();
+			double recomputed = run(reservations, requests, null);
+			long recomputeTime = System.nanoTime() - start;
+
+			InvoiceTotalCache cache = InvoiceTotalCache.create(CACHE_SIZE);
+			start = System.nanoTime();
+			double cached = run(reservations, requests, cache);
+			long cacheTime = System.nanoTime() - start;
+
+			System.out.printf("round %d: recompute %6.1f ms, cached %6.1f ms (x%.2f), same totals: %b%n",
+					round, recomputeTime / 1e6, cacheTime / 1e6, (double) recomputeTime / cacheTime,
+					Math.abs(recomputed - cached) < 1e-3);
+			if (round == ROUNDS) {
+				System.out.printf("%s, hit rate %.1f%%%n", cache,
+						100.0 * cache.getHits() / (cache.getHits() + cache.getMisses()));
+			}
+		}
+	}
+
+	/**
+	 * Serves all folio views and returns the sum of totals.
+	 * Every hundredth request adds a service to the reservation instead of viewing it.
+	 * Services are removed again afterwards, so every round starts from the same data.
+	 */
+	private static double run(List<Reservation> reservations, int[] requests, InvoiceTotalCache cache) {
+		Service minibar = Service.create("Minibar", 5);
+		List<Reservation> changed = new ArrayList<>();
+		double sum = 0;
+		for (int i = 0; i < requests.length; i++) {
+			Reservation reservation = reservations.get(requests[i]);
+			if (i % 100 == 0) {
+				reservation.addService(minibar);
+				changed.add(reservation);
+				continue;
+			}
+			sum += cache == null ? folioTotal(reservation) : cache.getTotal(reservation);
+		}
+		for (Reservation reservation : changed) {
+			reservation.getServices().remove(reservation.getServices().size() - 1);
+		}
+		return sum;
+	}
+
+	/** Folio view without cache: the same computation as {@link Invoice#calculateTotalAmount()}. */
+	private static double folioTotal(Reservation reservation) {
+		double total = reservation.getRoom().getPrice();
+		for (Service service : reservation.getServices()) {
+			total += service.getPrice();
+		}
+		return total;
+	}
+
+	private static List<Reservation> createReservations() {
+		Random random = new Random(42);
+		String[] names = { "Breakfast", "Cleaning", "Spa", "Parking", "Laundry", "Transfer" };
+		LocalDate today = LocalDate.now();
+		List<Reservation> reservations = new ArrayList<>(RESERVATIONS);
+		for (int i = 0; i < RESERVATIONS; i++) {
+			Guest guest = Guest.create("Guest" + i, "Test", "guest" + i + "@example.com", today);
+			Room room = Room.create(1 + i % 1000, "Double", 2, 500 + i % 300);
+			Reservation reservation = Reservation.create(guest, room, today.plusDays(i % 90),
+					today.plusDays(i % 90 + 1 + random.nextInt(7)));
+			int services = random.nextInt(9);
+			for (int s = 0; s < services; s++) {
+				reservation.addService(Service.create(names[random.nextInt(names.length)], 10 + random.nextInt(200)));
+			}
+			reservations.add(reservation);
+		}
+		return reservations;
+	}
+
+	/** Skewed requests: index = n * u^4 for uniform u favours low indexes. */
+	private static int[] createRequests() {
+		Random random = new Random(7);
+		int[] requests = new int[VIEWS];
+		for (int i = 0; i < VIEWS; i++) {
+			double u = random.nextDouble();
+			requests[i] = (int) (RESERVATIONS * u * u * u * u);
+		}
+		return requests;
+	}
+}
@@ -0,0 +1,164 @@
+package ua.demo;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import ua.hotel_managment.*;
+
+/**
+ * Keeps a few million reservations alive, either as heap objects or in a
+ * {@link ReservationLedger}, runs the same allocation-heavy workload next to them
+ * and reports the garbage collection pauses, heap usage and scan cost of both models.
+ * <p>
+ * Run with a fixed heap to get comparable numbers, e.g.
+ * {@code java -Xmx2g ua.demo.LedgerBenchmark 3000000}.
+ */
+public class LedgerBenchmark {
+
+	private static final int GUESTS = 50_000;
+	private static final int ROOMS = 2_000;
+	private static final int CHURN_ROUNDS = 4_000_000;
+
+	private static volatile long maxPauseMillis;
+	private static volatile long pauseMillis;
+	private static volatile int pauses;
+	private static volatile Object sink;
+
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+		listenToGc();
+		LocalDate today = LocalDate.now();
+		Guest[] guests = new Guest[GUESTS];
+		for (int i = 0; i < GUESTS; i++) {
+			guests[i] = Guest.create("Name" + i, "Surname", "guest" + i + "@example.com", today);
+		}
+		Room[] rooms = new Room[ROOMS];
+		for (int i = 0; i < ROOMS; i++) {
+			rooms[i] = Room.create(i + 1, i % 2 == 0 ? "Double" : "Single", 1 + i % 2, 500);
+		}
+		Service breakfast = Service.create("Breakfast", 150);
+
+		System.out.println("=== RESERVATION LEDGER BENCHMARK (" + count + " reservations) ===\n");
+
+		List<Reservation> heap = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			heap.add(reservation(i, guests, rooms, breakfast, today));
+		}
+		run("heap objects", () -> scan(heap));
+		heap.clear();
+		System.gc();
+
+		ReservationLedger ledger = ReservationLedger.create();
+		for (int i = 0; i < count; i++) {
+			ledger.append(reservation(i, guests, rooms, breakfast, today));
+		}
+		System.gc();
+		System.out.printf("ledger off-heap memory: %d MB%n", ledger.offHeapBytes() >> 20);
+		run("off-heap ledger", () -> scan(ledger));
+	}
+
+	private static Reservation reservation(int i, Guest[] guests, Room[] rooms, Service breakfast, LocalDate today) {
+		LocalDate start = today.plusDays(i % 365);
+		Reservation reservation = Reservation.create(guests[i % GUESTS], rooms[i % ROOMS], start,
+				start.plusDays(1 + i % 7));
+		if (i % 3 == 0) {
+			reservation.addService(breakfast);
+		}
+		return reservation;
+	}
+
+	/** Sums the nights and service revenue of all reservations. */
+	private static long scan(List<Reservation> reservations) {
+		long total = 0;
+		for (Reservation reservation : reservations) {
+			total += reservation.getEndDate().toEpochDay() - reservation.getStartDate().toEpochDay();
+			for (Service service : reservation.getServices()) {
+				total += service.getPrice();
+			}
+		}
+		return total;
+	}
+
+	/** Same as {@link #scan(List)} over the ledger rows. */
+	private static long scan(ReservationLedger ledger) {
+		long total = 0;
+		ReservationLedger.Cursor cursor = ledger.cursor();
+		while (cursor.next()) {
+			if (cursor.getStatus() == ReservationLedger.Status.BOOKED) {
+				total += cursor.getEndDay() - cursor.getStartDay() + cursor.getServicesTotal();
+			}
+		}
+		return total;
+	}
+
+	private static void run(String name, LongSupplier scan) {
+		// a full collection has to mark every live object, so its pause grows with the live set
+		long gcStart = System.nanoTime();
+		System.gc();
+		long fullGcMillis = (System.nanoTime() - gcStart) / 1_000_000;
+		Runtime runtime = Runtime.getRuntime();
+		long used = runtime.totalMemory() - runtime.freeMemory();
+
+		long before = allocatedBytes();
+		long start = System.nanoTime();
+		long checksum = scan.getAsLong();
+		long scanNanos = System.nanoTime() - start;
+		long scanBytes = allocatedBytes() - before;
+
+		pauses = 0;
+		pauseMillis = 0;
+		maxPauseMillis = 0;
+		// medium-lived objects that survive a few young collections and reach the old generation
+		Object[] window = new Object[100_000];
+		start = System.nanoTime();
+		for (int i = 0; i < CHURN_ROUNDS; i++) {
+			window[i % window.length] = new long[16 + i % 64];
+			if (i % 1024 == 0) {
+				sink = new byte[64 * 1024];
+			}
+		}
+		long churnMillis = (System.nanoTime() - start) / 1_000_000;
+
+		System.out.println(name + ":");
+		System.out.printf("  live heap after GC:   %d MB%n", used >> 20);
+		System.out.printf("  full GC pause:        %d ms%n", fullGcMillis);
+		System.out.printf("  scan:                 %d ms, %d bytes allocated (checksum %d)%n",
+				scanNanos / 1_000_000, scanBytes, checksum);
+		System.out.printf("  churn workload:       %d ms, %d GC pauses, %d ms total, %d ms max%n%n",
+				churnMillis, pauses, pauseMillis, maxPauseMillis);
+	}
+
+	private static void listenToGc() {
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			((NotificationEmitter) gc).addNotificationListener((notification, handback) -> {
+				if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+					return;
+				}
+				GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+						.from((CompositeData) notification.getUserData());
+				// concurrent cycles run next to the application and don't stop it
+				if (info.getGcName().contains("Concurrent")) {
+					return;
+				}
+				long duration = info.getGcInfo().getDuration();
+				pauses++;
+				pauseMillis += duration;
+				maxPauseMillis = Math.max(maxPauseMillis, duration);
+			}, null, null);
+		}
+	}
+
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getCurrentThreadAllocatedBytes();
+	}
+}
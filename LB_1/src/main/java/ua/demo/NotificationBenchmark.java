@@ -0,0 +1,112 @@
+package ua.demo;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import ua.hotel_managment.*;
+
+/**
+ * Books reservations in a hotel whose guests get an email for every booking,
+ * through a {@link LocalSmtpServer} that answers every connection after 20 ms,
+ * like a remote relay. Sends the confirmation inline with each booking, then
+ * through a {@link GuestNotifier}; then makes the server reject messages to show
+ * the retries, and floods a small queue to show the overflow counters.
+ */
+public class NotificationBenchmark {
+
+	private static final int GUESTS = 500;
+	private static final int STAYS_PER_GUEST = 4;
+
+	public static void main(String[] args) throws IOException {
+		LocalDate today = LocalDate.now();
+		List<Guest> guests = new ArrayList<>();
+		for (int i = 0; i < GUESTS; i++) {
+			guests.add(Guest.create("Guest", "Number" + i, "guest" + i + "@example.com", today));
+		}
+		try (LocalSmtpServer server = LocalSmtpServer.start()) {
+			server.setLatency(Duration.ofMillis(20));
+			SmtpTransport smtp = SmtpTransport.create(server.getAddress(), "reservations@hotel.example");
+			System.out.println("=== GUEST NOTIFICATION BENCHMARK (SMTP relay with 20 ms latency) ===\n");
+
+			Hotel hotel = newHotel();
+			int inline = 100;
+			long start = System.nanoTime();
+			for (int i = 0; i < inline; i++) {
+				Reservation reservation = reserve(hotel, guests.get(i), i, today);
+				hotel.book(reservation);
+				smtp.send(List.of(new GuestNotification(guests.get(i).getEmail(), "Guest",
+						List.of("Booked: room " + reservation.getRoom().getRoomNumber()))));
+			}
+			System.out.printf("inline:   %6.2f ms per booking (%d bookings, %d messages, %d connections)%n",
+					(System.nanoTime() - start) / 1e6 / inline, inline, server.getMessageCount(),
+					server.getConnectionCount());
+
+			hotel = newHotel();
+			int messages = server.getMessageCount();
+			long connections = server.getConnectionCount();
+			GuestNotifier notifier = GuestNotifier.builder(smtp).window(Duration.ofMillis(200)).attach(hotel);
+			int bookings = 0;
+			start = System.nanoTime();
+			for (int stay = 0; stay < STAYS_PER_GUEST; stay++) {
+				for (int i = 0; i < GUESTS; i++) {
+					Reservation reservation = reserve(hotel, guests.get(i), stay * GUESTS + i, today);
+					hotel.book(reservation);
+					bookings++;
+					if (stay == 0 && i % 5 == 0) {
+						reservation.setEndDate(reservation.getEndDate().plusDays(1));
+						hotel.updateReservation(reservation);
+					}
+				}
+			}
+			long bookNanos = System.nanoTime() - start;
+			notifier.close();
+			long totalNanos = System.nanoTime() - start;
+			System.out.printf("notifier: %6.4f ms per booking (%d bookings); all delivered after %.0f ms: "
+					+ "%d messages over %d connections%n", bookNanos / 1e6 / bookings, bookings, totalNanos / 1e6,
+					server.getMessageCount() - messages, server.getConnectionCount() - connections);
+			System.out.println("  " + notifier);
+			System.out.println("  e.g. \"" + server.getMessages().get(server.getMessageCount() - 1).getSubject()
+					+ "\"");
+
+			server.setLatency(Duration.ZERO);
+			server.failNext(3);
+			hotel = newHotel();
+			notifier = GuestNotifier.builder(smtp).window(Duration.ZERO).batchSize(10)
+					.retries(5, Duration.ofMillis(20)).attach(hotel);
+			for (int i = 0; i < 100; i++) {
+				hotel.book(reserve(hotel, guests.get(i), i, today));
+			}
+			notifier.close();
+			System.out.println("\nserver rejecting 3 messages:\n  " + notifier + "\n  last failure: "
+					+ notifier.getLastFailure().getMessage());
+
+			server.setLatency(Duration.ofMillis(20));
+			hotel = newHotel();
+			notifier = GuestNotifier.builder(smtp).window(Duration.ZERO).capacity(100).batchSize(1).workers(1)
+					.attach(hotel);
+			start = System.nanoTime();
+			for (int i = 0; i < GUESTS * STAYS_PER_GUEST; i++) {
+				hotel.book(reserve(hotel, guests.get(i % GUESTS), i, today));
+			}
+			System.out.printf("%nqueue of 100 events, one worker, %d bookings in %.1f ms:%n  %s%n",
+					GUESTS * STAYS_PER_GUEST, (System.nanoTime() - start) / 1e6, notifier);
+			notifier.close();
+		}
+	}
+
+	private static Hotel newHotel() {
+		Hotel hotel = Hotel.create();
+		for (int number = 1; number <= GUESTS * STAYS_PER_GUEST; number++) {
+			hotel.addRoom(Room.create(number, "Double", 2, 1500));
+		}
+		return hotel;
+	}
+
+	private static Reservation reserve(Hotel hotel, Guest guest, int index, LocalDate today) {
+		return Reservation.create(guest, hotel.findRoom(index + 1), today.plusDays(1 + index % 7),
+				today.plusDays(3 + index % 7));
+	}
+}
@@ -0,0 +1,143 @@
+package ua.demo;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import ua.hotel_managment.*;
+
+/**
+ * Runs reporting queries over a hotel of 2,000 rooms booked for a year
+ * (about 240,000 reservations), written as loops over {@link Hotel#getReservations()}
+ * and as {@link ReservationQuery}s over a {@link ReservationIndex}, and prints
+ * the plan of every query.
+ */
+public class QueryBenchmark {
+
+	private static final int ROOMS = 2_000;
+	private static final String[] TYPES = { "Single", "Double", "Suite", "Family" };
+	private static final int RUNS = 20;
+
+	public static void main(String[] args) {
+		LocalDate today = LocalDate.now();
+		Hotel hotel = Hotel.create();
+		Random random = new Random(42);
+		List<Guest> guests = new ArrayList<>();
+		for (int i = 0; i < 20_000; i++) {
+			guests.add(Guest.create("Guest", "Number" + i, "guest" + i + "@example.com", today));
+		}
+		Service spa = Service.create("Spa", 40);
+		Service breakfast = Service.create("Breakfast", 15);
+		for (int number = 1; number <= ROOMS; number++) {
+			Room room = Room.create(number, TYPES[number % TYPES.length], 1 + number % 4, 300 + number % 20 * 25);
+			hotel.addRoom(room);
+			for (int day = 1; day < 365;) {
+				int nights = 1 + random.nextInt(3);
+				Reservation reservation = Reservation.create(guests.get(random.nextInt(guests.size())), room,
+						today.plusDays(day), today.plusDays(day + nights));
+				if (random.nextInt(4) == 0) {
+					reservation.addService(random.nextBoolean() ? spa : breakfast);
+				}
+				hotel.book(reservation);
+				day += nights;
+			}
+		}
+		ReservationIndex index = ReservationIndex.attach(hotel);
+		LocalDate from = today.plusDays(100);
+		LocalDate to = today.plusDays(107);
+		Guest guest = guests.get(123);
+		System.out.println("=== RESERVATION QUERY BENCHMARK (" + hotel.getReservations().size() + " reservations) ===");
+
+		compare("suites with spa in a week", () -> {
+			List<Reservation> result = new ArrayList<>();
+			for (Reservation reservation : hotel.getReservations()) {
+				if (reservation.getStartDate().isBefore(to) && from.isBefore(reservation.getEndDate())
+						&& reservation.getRoom().getType().equals("Suite") && hasService(reservation, "Spa")) {
+					result.add(reservation);
+				}
+			}
+			return result.size();
+		}, index.query().overlapping(from, to).roomType("Suite").withService("Spa"));
+
+		compare("stays of a guest by email", () -> {
+			int count = 0;
+			for (Reservation reservation : hotel.getReservations()) {
+				if (reservation.getGuest().getEmail().equalsIgnoreCase("GUEST123@example.com")) {
+					count++;
+				}
+			}
+			return count;
+		}, index.query().guestEmail("GUEST123@example.com"));
+
+		compare("one room in a week", () -> {
+			int count = 0;
+			for (Reservation reservation : hotel.getReservations()) {
+				if (reservation.getRoom().getRoomNumber() == 777 && reservation.getStartDate().isBefore(to)
+						&& from.isBefore(reservation.getEndDate())) {
+					count++;
+				}
+			}
+			return count;
+		}, index.query().roomNumber(777).overlapping(from, to));
+
+		compare("guest's stays in a room type", () -> {
+			int count = 0;
+			for (Reservation reservation : hotel.getReservations()) {
+				if (reservation.getGuest() == guest && reservation.getRoom().getType().equals("Double")) {
+					count++;
+				}
+			}
+			return count;
+		}, index.query().guest(guest).roomType("Double"));
+
+		compare("totals between 500 and 600 (scan)", () -> {
+			int count = 0;
+			for (Reservation reservation : hotel.getReservations()) {
+				double total = reservation.getRoom().getPrice();
+				for (Service service : reservation.getServices()) {
+					total += service.getPrice();
+				}
+				if (total >= 500 && total <= 600) {
+					count++;
+				}
+			}
+			return count;
+		}, index.query().priceBetween(500, 600));
+
+		compare("same, parallel scan", () -> (int) index.query().priceBetween(500, 600).count(),
+				index.query().priceBetween(500, 600).parallel());
+	}
+
+	private static void compare(String name, Supplier<Integer> loop, ReservationQuery query) {
+		int expected = loop.get();
+		long actual = query.count();
+		long loopNanos = time(() -> loop.get());
+		long queryNanos = time(() -> (int) query.count());
+		System.out.printf("%n%s: %d reservations%s%n  loop %8.3f ms, query %8.3f ms%n", name, actual,
+				actual == expected ? "" : " (LOOP FOUND " + expected + ")", loopNanos / 1e6, queryNanos / 1e6);
+		for (String line : query.explain().split("\n")) {
+			System.out.println("  | " + line);
+		}
+	}
+
+	private static long time(Supplier<Integer> run) {
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < RUNS; i++) {
+			long start = System.nanoTime();
+			run.get();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	private static boolean hasService(Reservation reservation, String name) {
+		for (Service service : reservation.getServices()) {
+			if (service.getName().equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,121 @@
+package ua.demo;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+import ua.hotel_managment.*;
+
+/**
+ * Runs a primary hotel or a read replica in its own JVM:
+ * <pre>
+ * java ua.demo.ReplicationDemo primary 7400 &amp;
+ * java ua.demo.ReplicationDemo replica 7400 &amp;
+ * java ua.demo.ReplicationDemo replica 7400
+ * </pre>
+ * The address is a TCP port on localhost, or a path of a Unix domain socket
+ * (e.g. {@code /tmp/hotel.sock}). The primary books, changes and cancels random
+ * reservations; every process prints its number of reservations, a checksum of
+ * their nights and, for replicas, the replication lag once per second.
+ * An optional third argument is the running time in seconds.
+ */
+public class ReplicationDemo {
+
+	private static final int ROOMS = 200;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 2) {
+			System.out.println("usage: ReplicationDemo primary|replica <port or socket path> [seconds]");
+			return;
+		}
+		SocketAddress address = args[1].startsWith("/")
+				? UnixDomainSocketAddress.of(args[1])
+				: new InetSocketAddress("localhost", Integer.parseInt(args[1]));
+		long seconds = args.length > 2 ? Long.parseLong(args[2]) : 30;
+		if (args[0].equals("primary")) {
+			runPrimary(address, seconds);
+		} else {
+			runReplica(address, seconds);
+		}
+	}
+
+	private static void runPrimary(SocketAddress address, long seconds) throws IOException, InterruptedException {
+		LocalDate today = LocalDate.now();
+		Hotel hotel = Hotel.create();
+		for (int i = 1; i <= ROOMS; i++) {
+			hotel.addRoom(Room.create(i, i % 2 == 0 ? "Double" : "Single", 1 + i % 2, 500 + i));
+		}
+		ChangeLog log = ChangeLog.attach(hotel);
+		Random random = new Random();
+		Service breakfast = Service.create("Breakfast", 150);
+		try (ReplicationServer server = ReplicationServer.start(log, address)) {
+			System.out.println("primary: serving on " + server.getAddress());
+			long end = System.currentTimeMillis() + seconds * 1000;
+			long report = System.currentTimeMillis() + 1000;
+			while (System.currentTimeMillis() < end) {
+				change(hotel, random, breakfast, today);
+				if (System.currentTimeMillis() >= report) {
+					report += 1000;
+					System.out.printf("primary: %s, log at %d, %d replicas%n", summary(hotel),
+							log.getLastSequence(), server.getReplicaCount());
+				}
+				Thread.sleep(0, 200_000);
+			}
+			// let the replicas catch up before the server stops
+			Thread.sleep(2000);
+			System.out.printf("primary: final %s, log at %d%n", summary(hotel), log.getLastSequence());
+		}
+	}
+
+	/** Books a random free stay, or changes or cancels a random reservation. */
+	private static void change(Hotel hotel, Random random, Service breakfast, LocalDate today) {
+		List<Reservation> booked = hotel.getReservations();
+		int action = random.nextInt(10);
+		if (action == 0 && !booked.isEmpty()) {
+			hotel.cancel(booked.get(random.nextInt(booked.size())));
+		} else if (action == 1 && !booked.isEmpty()) {
+			Reservation reservation = booked.get(random.nextInt(booked.size()));
+			reservation.addService(breakfast);
+			hotel.updateReservation(reservation);
+		} else {
+			Room room = hotel.findRoom(1 + random.nextInt(ROOMS));
+			LocalDate start = today.plusDays(random.nextInt(365));
+			LocalDate end = start.plusDays(1 + random.nextInt(5));
+			if (hotel.isAvailable(room, start, end)) {
+				Guest guest = Guest.create("Name" + random.nextInt(1000), "Surname", "guest@example.com", today);
+				hotel.book(Reservation.create(guest, room, start, end));
+			}
+		}
+	}
+
+	private static void runReplica(SocketAddress address, long seconds) throws IOException, InterruptedException {
+		try (HotelReplica replica = HotelReplica.connect(address)) {
+			long end = System.currentTimeMillis() + seconds * 1000;
+			while (System.currentTimeMillis() < end && replica.getFailure() == null) {
+				Thread.sleep(1000);
+				System.out.printf("replica %d: %s, applied %d, lag %d entries / %d ms, connected %b, reconnects %d%n",
+						ProcessHandle.current().pid(), summary(replica.getHotel()), replica.getAppliedSequence(),
+						replica.getLagEntries(), replica.getLagMillis(), replica.isConnected(),
+						replica.getReconnects());
+			}
+			if (replica.getFailure() != null) {
+				System.out.println("replica stopped: " + replica.getFailure());
+			}
+		}
+	}
+
+	private static String summary(Hotel hotel) {
+		long nights = 0;
+		int services = 0;
+		List<Reservation> reservations = hotel.getReservations();
+		for (Reservation reservation : reservations) {
+			nights += reservation.getEndDate().toEpochDay() - reservation.getStartDate().toEpochDay();
+			services += reservation.getServices().size();
+		}
+		return reservations.size() + " reservations, " + nights + " nights, " + services + " services";
+	}
+}
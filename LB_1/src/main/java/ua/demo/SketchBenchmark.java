@@ -0,0 +1,167 @@
+package ua.demo;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import ua.hotel_managment.*;
+import ua.util.HeavyHitters;
+
+/**
+ * Feeds two years of stays of a large hotel chain, split over two shards, into
+ * {@link GuestAnalytics} and into exact counters: sets of e-mails per month,
+ * maps of service counts per room type and the sorted invoice totals. Prints
+ * the errors of the sketches against the exact numbers, the memory of both,
+ * and checks that merging the shards gives the same answers as one stream.
+ */
+public class SketchBenchmark {
+
+	private static final int STAYS = 400_000;
+	private static final int GUESTS = 150_000;
+	private static final int ROOMS = 2_000;
+	private static final int SERVICES = 500;
+
+	public static void main(String[] args) {
+		LocalDate today = LocalDate.now();
+		Random random = new Random(23);
+		String[] types = { "Single", "Double", "Suite", "Family" };
+		List<Room> rooms = new ArrayList<>();
+		for (int number = 1; number <= ROOMS; number++) {
+			rooms.add(Room.create(number, types[number % types.length], 2, 800 + number % 9 * 150));
+		}
+		List<Service> services = new ArrayList<>();
+		for (int i = 0; i < SERVICES; i++) {
+			services.add(Service.create("Service " + i, 50 + i % 20 * 25));
+		}
+
+		GuestAnalytics[] shards = { new GuestAnalytics(), new GuestAnalytics() };
+		GuestAnalytics single = new GuestAnalytics();
+		Map<YearMonth, Set<String>> exactGuests = new HashMap<>();
+		Map<String, Map<String, Integer>> exactServices = new HashMap<>();
+		double[] exactTotals = new double[STAYS];
+		for (int i = 0; i < STAYS; i++) {
+			// a few guests come often, most come once or twice
+			int guestNumber = (int) (GUESTS * Math.pow(random.nextDouble(), 2));
+			Guest guest = Guest.create("Guest", "Number" + guestNumber, "guest" + guestNumber + "@example.com", today);
+			LocalDate start = today.plusDays(1 + random.nextInt(730));
+			LocalDate end = start.plusDays(1 + random.nextInt(10));
+			Room room = rooms.get(random.nextInt(ROOMS));
+			Reservation reservation = Reservation.create(guest, room, start, end);
+			for (int s = random.nextInt(4); s > 0; s--) {
+				// Zipf-like popularity of services
+				reservation.addService(services.get((int) (SERVICES * Math.pow(random.nextDouble(), 3))));
+			}
+			Invoice invoice = Invoice.create(reservation, end);
+			invoice.calculateTotalAmount();
+			GuestAnalytics shard = shards[i % 2];
+			shard.reservationBooked(reservation);
+			shard.invoiceChanged(invoice);
+			single.reservationBooked(reservation);
+			single.invoiceChanged(invoice);
+
+			for (YearMonth month = YearMonth.from(start); !month.isAfter(YearMonth.from(end.minusDays(1)));
+					month = month.plusMonths(1)) {
+				exactGuests.computeIfAbsent(month, m -> new HashSet<>()).add(guest.getEmail());
+			}
+			Map<String, Integer> counts = exactServices.computeIfAbsent(room.getType(), t -> new HashMap<>());
+			for (Service service : reservation.getServices()) {
+				counts.merge(service.getName(), 1, Integer::sum);
+			}
+			exactTotals[i] = invoice.getTotalAmount();
+			// the analytics forget what they counted once the stay leaves the hotel
+			shard.reservationArchived(reservation, List.of(invoice));
+			single.reservationArchived(reservation, List.of(invoice));
+		}
+		System.out.println("=== SKETCH BENCHMARK (" + STAYS + " stays, " + GUESTS + " guests, " + SERVICES
+				+ " services) ===\n");
+
+		GuestAnalytics merged = new GuestAnalytics();
+		merged.merge(shards[0]);
+		merged.merge(shards[1]);
+
+		double worstMonth = 0;
+		for (Map.Entry<YearMonth, Set<String>> entry : exactGuests.entrySet()) {
+			worstMonth = Math.max(worstMonth, relativeError(merged.getUniqueGuests(entry.getKey()),
+					entry.getValue().size()));
+		}
+		Set<String> allGuests = new HashSet<>();
+		exactGuests.values().forEach(allGuests::addAll);
+		YearMonth first = YearMonth.from(today);
+		YearMonth last = first.plusMonths(26);
+		long allEstimate = merged.getUniqueGuests(first, last);
+		System.out.printf("unique guests: %d months, worst monthly error %.2f%%; all months: %d estimated, "
+				+ "%d exact (%.2f%%)%n", exactGuests.size(), 100 * worstMonth, allEstimate, allGuests.size(),
+				100 * relativeError(allEstimate, allGuests.size()));
+
+		int topHits = 0;
+		int topChecked = 0;
+		double worstCount = 0;
+		for (String type : types) {
+			Map<String, Integer> counts = exactServices.get(type);
+			List<String> exactTop = counts.entrySet().stream()
+					.sorted(Map.Entry.<String, Integer>comparingByValue().reversed()).limit(GuestAnalytics.DEFAULT_TOP_K)
+					.map(Map.Entry::getKey).toList();
+			for (HeavyHitters.Entry entry : merged.getTopServices(type)) {
+				topChecked++;
+				if (exactTop.contains(entry.getItem())) {
+					topHits++;
+				}
+				worstCount = Math.max(worstCount, relativeError(entry.getCount(), counts.get(entry.getItem())));
+			}
+		}
+		System.out.printf("top services: %d of %d reported services in the exact top %d, worst count error %.2f%%%n",
+				topHits, topChecked, GuestAnalytics.DEFAULT_TOP_K, 100 * worstCount);
+		System.out.println("  overall: " + merged.getTopServices().subList(0, 5));
+
+		Arrays.sort(exactTotals);
+		StringBuilder quantiles = new StringBuilder();
+		for (double q : new double[] { 0.01, 0.25, 0.5, 0.9, 0.99, 0.999 }) {
+			double exact = exactTotals[(int) Math.min(STAYS - 1, q * STAYS)];
+			double estimate = merged.getInvoiceTotalQuantile(q);
+			quantiles.append(String.format(" p%s %.0f/%.0f", q * 100, estimate, exact));
+		}
+		System.out.println("invoice totals (estimated/exact):" + quantiles);
+
+		boolean same = merged.getUniqueGuests(first, last) == single.getUniqueGuests(first, last)
+				&& names(merged.getTopServices()).equals(names(single.getTopServices()))
+				&& merged.getInvoiceCount() == single.getInvoiceCount();
+		System.out.printf("merged shards match one stream: %b (median %.0f vs %.0f)%n", same,
+				merged.getInvoiceTotalQuantile(0.5), single.getInvoiceTotalQuantile(0.5));
+
+		long withExact = usedMemory();
+		exactGuests = null;
+		exactServices = null;
+		allGuests = null;
+		long withoutExact = usedMemory();
+		shards = null;
+		single = null;
+		long withoutShards = usedMemory();
+		System.out.printf("%nmemory: exact counters %.1f MB; one analytics %.0f KB measured, %.0f KB of sketches%n",
+				(withExact - withoutExact) / 1e6, (withoutExact - withoutShards) / 3 / 1e3,
+				merged.getSketchSizeInBytes() / 1e3);
+		System.out.println(merged);
+	}
+
+	private static List<String> names(List<HeavyHitters.Entry> entries) {
+		return entries.stream().map(HeavyHitters.Entry::getItem).toList();
+	}
+
+	private static double relativeError(long estimate, long exact) {
+		return Math.abs(estimate - exact) / (double) exact;
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,135 @@
+package ua.demo;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import ua.hotel_managment.*;
+import ua.util.TimingWheel;
+import ua.util.VirtualClock;
+
+/**
+ * Schedules the hold, no-show and check-out timers of 1,000,000 reservations
+ * (3,000,000 timers over a year) with a {@link ScheduledThreadPoolExecutor} and
+ * with a {@link TimingWheel}, cancels a third of them, and measures time and heap.
+ * Then fast-forwards a hotel with {@link ReservationTimers} by a year on a
+ * {@link VirtualClock}.
+ */
+public class TimerBenchmark {
+
+	private static final int RESERVATIONS = 1_000_000;
+	private static final long YEAR_SECONDS = 365L * 24 * 3600;
+
+	public static void main(String[] args) throws InterruptedException {
+		long[] delays = new long[3 * RESERVATIONS];
+		Random random = new Random(42);
+		for (int i = 0; i < delays.length; i++) {
+			delays[i] = i % 3 == 0 ? 15 * 60 : 1 + (long) (random.nextDouble() * YEAR_SECONDS);
+		}
+		System.out.println("=== RESERVATION TIMERS BENCHMARK (" + delays.length + " timers) ===\n");
+		for (int round = 1; round <= 2; round++) {
+			executor(delays);
+			wheel(delays);
+			System.out.println();
+		}
+		hotel();
+	}
+
+	private static void executor(long[] delays) {
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+		executor.setRemoveOnCancelPolicy(true);
+		Runnable task = () -> { };
+		long before = usedMemory();
+		long start = System.nanoTime();
+		List<ScheduledFuture<?>> futures = new ArrayList<>(delays.length);
+		for (long delay : delays) {
+			futures.add(executor.schedule(task, delay, TimeUnit.SECONDS));
+		}
+		long scheduleNanos = System.nanoTime() - start;
+		long bytes = usedMemory() - before;
+		start = System.nanoTime();
+		for (int i = 0; i < futures.size(); i += 3) {
+			futures.get(i).cancel(false);
+		}
+		long cancelNanos = System.nanoTime() - start;
+		System.out.printf("executor: schedule %4d ns, cancel %5d ns, %4d MB%n", scheduleNanos / delays.length,
+				cancelNanos / (delays.length / 3), bytes >> 20);
+		executor.shutdownNow();
+	}
+
+	private static void wheel(long[] delays) {
+		TimingWheel<Runnable> wheel = new TimingWheel<>(0);
+		Runnable task = () -> { };
+		long before = usedMemory();
+		long start = System.nanoTime();
+		List<TimingWheel.Timeout<Runnable>> timeouts = new ArrayList<>(delays.length);
+		for (long delay : delays) {
+			timeouts.add(wheel.schedule(task, delay));
+		}
+		long scheduleNanos = System.nanoTime() - start;
+		long bytes = usedMemory() - before;
+		start = System.nanoTime();
+		for (int i = 0; i < timeouts.size(); i += 3) {
+			wheel.cancel(timeouts.get(i));
+		}
+		long cancelNanos = System.nanoTime() - start;
+		start = System.nanoTime();
+		List<TimingWheel.Timeout<Runnable>> expired = new ArrayList<>();
+		int count = 0;
+		for (long day = 1; day <= 366; day++) {
+			count += wheel.advanceTo(day * 24 * 3600, expired);
+			expired.clear();
+		}
+		long advanceMillis = (System.nanoTime() - start) / 1_000_000;
+		System.out.printf("wheel:    schedule %4d ns, cancel %5d ns, %4d MB, a year day by day in %d ms (%d expired)%n",
+				scheduleNanos / delays.length, cancelNanos / (delays.length / 3), bytes >> 20, advanceMillis, count);
+	}
+
+	/** Books rooms for a year with a few unpaid holds and runs the year on a virtual clock. */
+	private static void hotel() {
+		VirtualClock clock = VirtualClock.create();
+		Hotel hotel = Hotel.create();
+		ReservationTimers timers = ReservationTimers.attach(hotel, clock);
+		LocalDate today = LocalDate.now(clock);
+		Guest guest = Guest.create("John", "Doe", "john.doe@example.com", today);
+		Random random = new Random(7);
+		int booked = 0;
+		for (int number = 1; number <= 200; number++) {
+			Room room = Room.create(number, "Double", 2, 500);
+			hotel.addRoom(room);
+			for (int day = 1; day < 360; day += 2 + random.nextInt(4)) {
+				Reservation reservation = Reservation.create(guest, room, today.plusDays(day), today.plusDays(day + 2));
+				hotel.book(reservation);
+				booked++;
+				if (random.nextInt(10) != 0) {
+					timers.confirm(reservation);
+					if (random.nextInt(20) != 0) {
+						timers.checkIn(reservation);
+					}
+				}
+			}
+		}
+		long start = System.nanoTime();
+		int expired = 0;
+		for (int hour = 0; hour < 366 * 24; hour++) {
+			clock.advance(Duration.ofHours(1));
+			expired += timers.runDue();
+		}
+		long millis = (System.nanoTime() - start) / 1_000_000;
+		System.out.printf("hotel: %d reservations, a year hour by hour on a virtual clock in %d ms, %d timers expired,"
+				+ " %d reservations left%n", booked, millis, expired, hotel.getReservations().size());
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,71 @@
+package ua.demo;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+
+import ua.hotel_managment.*;
+
+/**
+ * Compares the validation of guests and rooms as it was written in the setters
+ * (regex email check, {@code trim()}, {@code LocalDate.now()} on every call)
+ * with the compiled {@link ua.util.FieldRule} checks used by the setters now.
+ */
+public class ValidationBenchmark {
+
+	private static final int ITERATIONS = 2_000_000;
+
+	public static void main(String[] args) {
+		LocalDate today = LocalDate.now();
+		String[] emails = new String[1024];
+		for (int i = 0; i < emails.length; i++) {
+			emails[i] = "guest" + i + "@example.com";
+		}
+
+		System.out.println("=== VALIDATION BENCHMARK (" + ITERATIONS + " guests and rooms) ===\n");
+		for (int round = 1; round <= 3; round++) {
+			long checksum = 0;
+			long before = allocatedBytes();
+			long start = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				checksum += legacyGuest("John", "Doe", emails[i & 1023], today) ? 1 : 0;
+				checksum += legacyRoom(1 + (i & 255), "Double", 2, 750.0) ? 1 : 0;
+			}
+			report("legacy setter checks", start, before, checksum);
+
+			checksum = 0;
+			before = allocatedBytes();
+			start = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				checksum += Guest.create("John", "Doe", emails[i & 1023], today).getFirstName().length();
+				checksum += Room.create(1 + (i & 255), "Double", 2, 750.0).getCapacity();
+			}
+			report("compiled rules (create)", start, before, checksum);
+			System.out.println();
+		}
+	}
+
+	/** The checks of the original {@link Guest} setters. */
+	private static boolean legacyGuest(String firstName, String lastName, String email, LocalDate checkIn) {
+		return firstName != null && !firstName.trim().isEmpty()
+				&& lastName != null && !lastName.trim().isEmpty()
+				&& email != null && email.matches("^[\\w.-]+@[\\w.-]+\\.[a-z]{2,}$")
+				&& checkIn != null && !checkIn.isBefore(LocalDate.now());
+	}
+
+	/** The checks of the original {@link Room} setters. */
+	private static boolean legacyRoom(int number, String type, int capacity, double price) {
+		return number > 0 && type != null && !type.trim().isEmpty() && capacity > 0 && price > 0;
+	}
+
+	private static void report(String name, long start, long before, long checksum) {
+		long elapsed = System.nanoTime() - start;
+		long allocated = allocatedBytes() - before;
+		System.out.printf("%-26s %6.1f ns/pair, %7.1f bytes allocated/pair (checksum %d)%n",
+				name, (double) elapsed / ITERATIONS, (double) allocated / ITERATIONS, checksum);
+	}
+
+	private static long allocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getCurrentThreadAllocatedBytes();
+	}
+}
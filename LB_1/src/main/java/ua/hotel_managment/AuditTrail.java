@@ -0,0 +1,460 @@
+package ua.hotel_managment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import ua.util.RingBuffer;
+import ua.util.Utils;
+
+/**
+ * Audit trail of every change made through the setters of rooms, guests,
+ * reservations, invoices and services, appended to a file.
+ * <p>
+ * A setter doesn't write the record itself: it fills a preallocated entry of a
+ * {@link RingBuffer} with the entity, the field, the old and new value and the time,
+ * which takes a few tens of nanoseconds and allocates nothing for primitive,
+ * string and date fields. Values that can still change, such as a reservation's
+ * guest, room or list of services, are described as text when the change is
+ * recorded, so the line shows them as they were at the change. A background thread
+ * takes the entries in batches and appends one line per change to the file:
+ * <pre>
+ * 2026-10-19T10:15:30.123Z	Room#17(101)	price	500.0	550.0
+ * </pre>
+ * Entities are written as their kind, id (identity hash code for services,
+ * which have no id) and key (room number, email, service name, or room number
+ * and start date), as they are when the line is written. Constructors assign
+ * through the setters, so a new entity appears as its fields changing from
+ * {@code -} (not set).
+ * <p>
+ * When changes come faster than the file takes them and the ring fills up,
+ * the {@link Overflow} policy decides: setters either wait for room, or the
+ * change is dropped and counted.
+ * <p>
+ * One trail is active at a time; when none is, a setter only reads one
+ * volatile field. Thread-safe.
+ */
+public class AuditTrail implements AutoCloseable {
+
+	/** Default number of entries of the ring. */
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private static final int BATCH = 1024;
+	private static final int SPINS = 100;
+	private static final long IDLE_NANOS = 100_000;
+
+	/** What a setter does when the ring is full. */
+	public enum Overflow {
+		/** Wait until the background thread frees an entry. */
+		BLOCK,
+		/** Drop the change and count it, see {@link AuditTrail#getDroppedCount()}. */
+		DROP
+	}
+
+	/** How a field's values are stored in an entry and written. */
+	enum Kind {
+		/** An object, captured with {@link AuditTrail#capture} and written with {@link AuditTrail#describe}. */
+		OBJECT,
+		/** An {@code int}. */
+		INT,
+		/** A {@code double}, stored as its bits. */
+		DOUBLE,
+		/** A date, stored as an epoch day. */
+		DAY
+	}
+
+	/** Audited fields. */
+	enum Field {
+		ROOM_NUMBER("roomNumber", Kind.INT),
+		ROOM_TYPE("type", Kind.OBJECT),
+		ROOM_CAPACITY("capacity", Kind.INT),
+		ROOM_PRICE("price", Kind.DOUBLE),
+		GUEST_FIRST_NAME("firstName", Kind.OBJECT),
+		GUEST_LAST_NAME("lastName", Kind.OBJECT),
+		GUEST_EMAIL("email", Kind.OBJECT),
+		GUEST_CHECK_IN_DATE("checkInDate", Kind.DAY),
+		RESERVATION_GUEST("guest", Kind.OBJECT),
+		RESERVATION_ROOM("room", Kind.OBJECT),
+		RESERVATION_START_DATE("startDate", Kind.DAY),
+		RESERVATION_END_DATE("endDate", Kind.DAY),
+		RESERVATION_SERVICES("services", Kind.OBJECT),
+		RESERVATION_SERVICE_ADDED("service+", Kind.OBJECT),
+		INVOICE_RESERVATION("reservation", Kind.OBJECT),
+		INVOICE_ISSUE_DATE("issueDate", Kind.OBJECT),
+		SERVICE_NAME("name", Kind.OBJECT),
+		SERVICE_PRICE("price", Kind.INT);
+
+		final String name;
+		final Kind kind;
+
+		Field(String name, Kind kind) {
+			this.name = name;
+			this.kind = kind;
+		}
+	}
+
+	/** Entry of the ring; values of primitive fields are kept in {@code oldBits} and {@code newBits}. */
+	static final class Change {
+		Object entity;
+		Field field;
+		Object oldValue;
+		Object newValue;
+		long oldBits;
+		long newBits;
+		long timestamp;
+	}
+
+	private static volatile AuditTrail active;
+
+	private final RingBuffer<Change> ring;
+	private final Overflow overflow;
+	private final FileChannel file;
+	private final LongAdder dropped = new LongAdder();
+	private final StringBuilder batch = new StringBuilder(BATCH * 64);
+	private final Thread writer;
+
+	private volatile boolean closed;
+	private volatile long written;
+	private int lines; // lines in the batch
+	private long stampMillis = -1; // time of the last written change
+	private String stamp; // and its text
+	private volatile IOException failure;
+
+	private AuditTrail(FileChannel file, int capacity, Overflow overflow) {
+		this.ring = new RingBuffer<>(capacity, Change::new, true);
+		this.overflow = overflow;
+		this.file = file;
+		this.writer = Utils.startDaemon("audit-trail", this::run);
+	}
+
+	/**
+	 * Starts auditing into a file with the default capacity, waiting for room when it is full.
+	 *
+	 * @param file the audit file; created if needed, and appended to
+	 * @return the active trail
+	 * @throws IOException           if the file can't be opened
+	 * @throws NullPointerException  if {@code file} is {@code null}
+	 * @throws IllegalStateException if another trail is active
+	 * @see #start(Path, int, Overflow)
+	 */
+	public static AuditTrail start(Path file) throws IOException {
+		return start(file, DEFAULT_CAPACITY, Overflow.BLOCK);
+	}
+
+	/**
+	 * Starts auditing every setter call into a file.
+	 *
+	 * @param file     the audit file; created if needed, and appended to
+	 * @param capacity number of changes the ring holds, a power of two
+	 * @param overflow what setters do when the ring is full
+	 * @return the active trail
+	 * @throws IOException              if the file can't be opened
+	 * @throws NullPointerException     if {@code file} or {@code overflow} is {@code null}
+	 * @throws IllegalArgumentException if {@code capacity} is not a positive power of two
+	 * @throws IllegalStateException    if another trail is active
+	 */
+	public static synchronized AuditTrail start(Path file, int capacity, Overflow overflow) throws IOException {
+		if (!Utils.validateObject(file) || !Utils.validateObject(overflow)) {
+			throw new NullPointerException("File and overflow policy can't be null.");
+		}
+		if (!Utils.validatePositiveNumber(capacity) || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a positive power of two.");
+		}
+		if (active != null) {
+			throw new IllegalStateException("Another audit trail is active.");
+		}
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND);
+		AuditTrail trail = new AuditTrail(channel, capacity, overflow);
+		active = trail;
+		return trail;
+	}
+
+	/**
+	 * Returns the active trail.
+	 *
+	 * @return the trail, or {@code null}
+	 */
+	public static AuditTrail getActive() {
+		return active;
+	}
+
+	/**
+	 * Records a change of an object-valued field. Called by the setters.
+	 *
+	 * @param entity   the changed entity
+	 * @param field    the field
+	 * @param oldValue the previous value
+	 * @param newValue the new value
+	 */
+	static void changed(Object entity, Field field, Object oldValue, Object newValue) {
+		AuditTrail trail = active;
+		if (trail != null) {
+			trail.publish(entity, field, capture(oldValue), capture(newValue), 0, 0);
+		}
+	}
+
+	/**
+	 * Records a change of a primitive field. Called by the setters.
+	 *
+	 * @param entity  the changed entity
+	 * @param field   the field
+	 * @param oldBits the previous value, as described by the field's {@link Kind}
+	 * @param newBits the new value
+	 */
+	static void changed(Object entity, Field field, long oldBits, long newBits) {
+		AuditTrail trail = active;
+		if (trail != null) {
+			trail.publish(entity, field, null, null, oldBits, newBits);
+		}
+	}
+
+	/**
+	 * Returns the number of changes recorded, including those not yet written.
+	 *
+	 * @return number of changes
+	 */
+	public long getRecordedCount() {
+		return ring.getClaimedCount();
+	}
+
+	/**
+	 * Returns the number of changes appended to the file.
+	 *
+	 * @return number of written changes
+	 */
+	public long getWrittenCount() {
+		return written;
+	}
+
+	/**
+	 * Returns the number of changes lost because the ring was full
+	 * (with {@link Overflow#DROP}) or the file failed.
+	 *
+	 * @return number of dropped changes
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Returns the number of changes waiting to be written.
+	 *
+	 * @return backlog size
+	 */
+	public int getBacklog() {
+		return ring.size();
+	}
+
+	/**
+	 * Returns the error that stopped writing to the file.
+	 * Later changes are dropped, so setters never wait for a broken file.
+	 *
+	 * @return the error, or {@code null}
+	 */
+	public IOException getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Stops auditing: writes the remaining changes, forces the file to the
+	 * disk and closes it. Changes made by setters running at the same time
+	 * may be lost. Does nothing if the trail is already closed.
+	 *
+	 * @throws IOException if the file can't be written or closed
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (AuditTrail.class) {
+			if (closed) {
+				return;
+			}
+			if (active == this) {
+				active = null;
+			}
+			closed = true;
+		}
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			if (failure == null) {
+				file.force(false);
+			}
+		} finally {
+			file.close();
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private void publish(Object entity, Field field, Object oldValue, Object newValue, long oldBits, long newBits) {
+		long sequence = ring.tryNext();
+		for (int attempt = 0; sequence < 0; attempt++) {
+			if (overflow == Overflow.DROP || closed) {
+				dropped.increment();
+				return;
+			}
+			if (attempt < SPINS) {
+				Thread.onSpinWait();
+			} else {
+				LockSupport.parkNanos(IDLE_NANOS);
+			}
+			sequence = ring.tryNext();
+		}
+		Change change = ring.get(sequence);
+		change.entity = entity;
+		change.field = field;
+		change.oldValue = oldValue;
+		change.newValue = newValue;
+		change.oldBits = oldBits;
+		change.newBits = newBits;
+		change.timestamp = System.currentTimeMillis();
+		ring.publish(sequence);
+	}
+
+	/** Body of the background thread: writes batches until closed and drained. */
+	private void run() {
+		while (true) {
+			// read before draining, so changes published before close are written
+			boolean last = closed;
+			if (ring.drain(this::append, BATCH) > 0) {
+				flush();
+			} else if (last) {
+				return;
+			} else {
+				LockSupport.parkNanos(IDLE_NANOS);
+			}
+		}
+	}
+
+	/** Appends the line of a change to the batch and clears the entry. */
+	private void append(Change change) {
+		int start = batch.length();
+		try {
+			if (change.timestamp != stampMillis) {
+				stampMillis = change.timestamp;
+				stamp = Instant.ofEpochMilli(stampMillis).toString();
+			}
+			batch.append(stamp).append('\t');
+			appendEscaped(describe(change.entity));
+			batch.append('\t');
+			batch.append(change.field.name).append('\t');
+			appendValue(change.field.kind, change.oldValue, change.oldBits);
+			batch.append('\t');
+			appendValue(change.field.kind, change.newValue, change.newBits);
+			batch.append('\n');
+			lines++;
+		} catch (RuntimeException e) {
+			// e.g. a value's toString() failed; the writer must keep going
+			batch.setLength(start);
+			dropped.increment();
+		}
+		change.entity = null;
+		change.oldValue = null;
+		change.newValue = null;
+	}
+
+	private void appendValue(Kind kind, Object value, long bits) {
+		switch (kind) {
+		case INT -> batch.append((int) bits);
+		case DOUBLE -> batch.append(Double.longBitsToDouble(bits));
+		// a date field that wasn't set yet holds day 0, which no hotel record has
+		case DAY -> batch.append(bits == 0 ? "-" : LocalDate.ofEpochDay(bits).toString());
+		default -> appendEscaped(value == null ? "-" : describe(value));
+		}
+	}
+
+	private void appendEscaped(String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '\t' -> batch.append("\\t");
+			case '\n' -> batch.append("\\n");
+			case '\\' -> batch.append("\\\\");
+			default -> batch.append(c);
+			}
+		}
+	}
+
+	/** Writes the batch to the file, or drops it once the file has failed. */
+	private void flush() {
+		int count = lines;
+		lines = 0;
+		if (failure != null) {
+			batch.setLength(0);
+			dropped.add(count);
+			return;
+		}
+		ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(batch));
+		batch.setLength(0);
+		try {
+			while (bytes.hasRemaining()) {
+				file.write(bytes);
+			}
+			written += count;
+		} catch (IOException e) {
+			failure = e;
+			dropped.add(count);
+		}
+	}
+
+	/**
+	 * Returns a value that the writer can read later: immutable values as they are,
+	 * other values (entities, lists of services) as their description now.
+	 *
+	 * @param value the value, may be {@code null}
+	 * @return the value or its description
+	 */
+	static Object capture(Object value) {
+		if (value == null || value instanceof String || value instanceof LocalDate) {
+			return value;
+		}
+		return describe(value);
+	}
+
+	/**
+	 * Describes an entity by kind, id and key; other values by {@code toString()}.
+	 * Entities may be under construction, so parts of the key may be missing.
+	 *
+	 * @param value the value
+	 * @return the description
+	 */
+	static String describe(Object value) {
+		String key;
+		long id;
+		if (value instanceof Room room) {
+			key = String.valueOf(room.getRoomNumber());
+			id = room.getId();
+		} else if (value instanceof Guest guest) {
+			key = String.valueOf(guest.getEmail());
+			id = guest.getId();
+		} else if (value instanceof Reservation reservation) {
+			Room room = reservation.getRoom();
+			key = (room == null ? "-" : String.valueOf(room.getRoomNumber())) + " "
+					+ (reservation.getStartDay() == 0 ? "-" : reservation.getStartDate());
+			id = reservation.getId();
+		} else if (value instanceof Invoice invoice) {
+			key = String.valueOf(invoice.getIssueDate());
+			id = invoice.getId();
+		} else if (value instanceof Service service) {
+			// services have no id
+			return "Service@" + Integer.toHexString(System.identityHashCode(service)) + "(" + service.getName() + ")";
+		} else {
+			return value.toString();
+		}
+		return value.getClass().getSimpleName() + "#" + id + "(" + key + ")";
+	}
+}
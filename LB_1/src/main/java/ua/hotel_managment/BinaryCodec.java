@@ -0,0 +1,439 @@
+package ua.hotel_managment;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ua.util.Utils;
+
+/**
+ * Compact binary codec for {@link Guest}, {@link Room}, {@link Service},
+ * {@link Reservation} and {@link Invoice}.
+ * <p>
+ * A stream starts with a header (magic bytes and schema version) followed by records.
+ * Each record is a type tag, the length of its body in 4 bytes, and the body.
+ * Integers are zigzag varints, dates are epoch days, prices are fixed-point
+ * numbers with two decimal places. Strings go through a string table: the first
+ * occurrence is written inline and gets the next index, later occurrences are
+ * written as the index only, so repeated room types, service names and guest
+ * names cost one or two bytes.
+ * <p>
+ * Every record carries its length, so the decoder skips records of types it
+ * doesn't know and ignores fields appended to the end of a record: such additions
+ * keep the schema version and stay readable by older readers. The guest, room and
+ * services nested in a record have no lengths of their own, so any other layout
+ * change needs a new schema version, and streams of a newer version than
+ * {@link #SCHEMA_VERSION} are rejected.
+ * <p>
+ * The string tables make a codec stateful: use one instance per stream and
+ * direction, and call {@link #reset()} when starting a new stream.
+ * Encoding writes straight into the given buffer without intermediate objects.
+ */
+public class BinaryCodec {
+
+	/** Current schema version written to headers. */
+	public static final int SCHEMA_VERSION = 1;
+
+	static final byte TAG_GUEST = 1;
+	static final byte TAG_ROOM = 2;
+	static final byte TAG_SERVICE = 3;
+	static final byte TAG_RESERVATION = 4;
+	static final byte TAG_INVOICE = 5;
+
+	private static final byte MAGIC_0 = 'H';
+	private static final byte MAGIC_1 = 'B';
+
+	/** Strings after this many distinct ones are written inline without a table entry. */
+	static final int MAX_STRING_TABLE = 1 << 16;
+
+	/** Prices are stored in hundredths. */
+	private static final double PRICE_SCALE = 100.0;
+
+	private final Map<String, Integer> writtenStrings = new HashMap<>();
+	private final List<String> readStrings = new ArrayList<>();
+	private char[] chars = new char[64];
+
+	/**
+	 * Constructs a codec with empty string tables.
+	 */
+	public BinaryCodec() {
+	}
+
+	/**
+	 * Clears the string tables before a new stream.
+	 */
+	public void reset() {
+		writtenStrings.clear();
+		readStrings.clear();
+	}
+
+	/**
+	 * Writes the stream header with the current schema version.
+	 *
+	 * @param out the target buffer
+	 */
+	public void writeHeader(ByteBuffer out) {
+		out.put(MAGIC_0).put(MAGIC_1);
+		writeVarLong(out, SCHEMA_VERSION);
+	}
+
+	/**
+	 * Reads the stream header.
+	 *
+	 * @param in the source buffer
+	 * @return the schema version of the stream
+	 * @throws IllegalArgumentException if the header is invalid or the version is newer than {@link #SCHEMA_VERSION}
+	 */
+	public int readHeader(ByteBuffer in) {
+		if (in.get() != MAGIC_0 || in.get() != MAGIC_1) {
+			throw new IllegalArgumentException("Not a binary hotel stream.");
+		}
+		int streamVersion = (int) readVarLong(in);
+		if (streamVersion < 1 || streamVersion > SCHEMA_VERSION) {
+			throw new IllegalArgumentException("Unsupported schema version " + streamVersion);
+		}
+		return streamVersion;
+	}
+
+	/**
+	 * Writes one record with any supported domain object. If the buffer is too
+	 * small, the strings of the record are taken out of the string table again,
+	 * so the record can be encoded anew into a larger buffer.
+	 *
+	 * @param value the object to encode
+	 * @param out   the target buffer
+	 * @throws NullPointerException     if {@code value} is {@code null}
+	 * @throws IllegalArgumentException if the object's type isn't supported
+	 * @throws java.nio.BufferOverflowException if the buffer is too small
+	 */
+	public void encode(Object value, ByteBuffer out) {
+		if (!Utils.validateObject(value)) {
+			throw new NullPointerException("Value can't be null.");
+		}
+		byte tag;
+		if (value instanceof Guest) {
+			tag = TAG_GUEST;
+		} else if (value instanceof Room) {
+			tag = TAG_ROOM;
+		} else if (value instanceof Service) {
+			tag = TAG_SERVICE;
+		} else if (value instanceof Reservation) {
+			tag = TAG_RESERVATION;
+		} else if (value instanceof Invoice) {
+			tag = TAG_INVOICE;
+		} else {
+			throw new IllegalArgumentException("Unsupported type " + value.getClass().getName());
+		}
+		int tableSize = writtenStrings.size();
+		try {
+			out.put(tag);
+			int lengthPosition = out.position();
+			out.putInt(0);
+			switch (tag) {
+				case TAG_GUEST -> writeGuest((Guest) value, out);
+				case TAG_ROOM -> writeRoom((Room) value, out);
+				case TAG_SERVICE -> writeService((Service) value, out);
+				case TAG_RESERVATION -> writeReservation((Reservation) value, out);
+				default -> writeInvoice((Invoice) value, out);
+			}
+			out.putInt(lengthPosition, out.position() - lengthPosition - 4);
+		} catch (BufferOverflowException e) {
+			// the reader never sees this record, so it must not see references to its strings
+			writtenStrings.values().removeIf(index -> index >= tableSize);
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads one record.
+	 *
+	 * @param in the source buffer
+	 * @return the decoded object
+	 * @throws IllegalArgumentException if the record is invalid
+	 * @throws BufferUnderflowException if the buffer ends inside the record
+	 */
+	public Object decode(ByteBuffer in) {
+		byte tag = in.get();
+		int length = in.getInt();
+		int end = in.position() + length;
+		Object value = switch (tag) {
+			case TAG_GUEST -> readGuest(in);
+			case TAG_ROOM -> readRoom(in);
+			case TAG_SERVICE -> readService(in);
+			case TAG_RESERVATION -> readReservation(in);
+			case TAG_INVOICE -> readInvoice(in);
+			default -> null;
+		};
+		// skip fields appended by newer writers, or a record of unknown type
+		in.position(end);
+		return value;
+	}
+
+	/**
+	 * Reads the next record, skipping records of types this version doesn't know.
+	 *
+	 * @param in the source buffer
+	 * @return the decoded object, or {@code null} if no records are left
+	 */
+	public Object decodeNext(ByteBuffer in) {
+		while (in.hasRemaining()) {
+			Object value = decode(in);
+			if (value != null) {
+				return value;
+			}
+		}
+		return null;
+	}
+
+	/** Writes the guest's fields without a record header. */
+	void writeGuest(Guest guest, ByteBuffer out) {
+		writeString(out, guest.getFirstName());
+		writeString(out, guest.getLastName());
+		writeString(out, guest.getEmail());
+		writeDate(out, guest.getCheckInDate());
+	}
+
+	/** Reads the guest's fields written by {@link #writeGuest}. */
+	Guest readGuest(ByteBuffer in) {
+		String firstName = readString(in);
+		String lastName = readString(in);
+		String email = readString(in);
+		LocalDate checkInDate = readDate(in);
+		return Guest.restore(firstName, lastName, email, checkInDate);
+	}
+
+	/** Writes the room's fields without a record header. */
+	void writeRoom(Room room, ByteBuffer out) {
+		writeVarLong(out, room.getRoomNumber());
+		writeString(out, room.getType());
+		writeVarLong(out, room.getCapacity());
+		writePrice(out, room.getPrice());
+	}
+
+	/** Reads the room's fields written by {@link #writeRoom}. */
+	Room readRoom(ByteBuffer in) {
+		int roomNumber = (int) readVarLong(in);
+		String type = readString(in);
+		int capacity = (int) readVarLong(in);
+		double price = readPrice(in);
+		return new Room(roomNumber, type, capacity, price);
+	}
+
+	/** Writes the service's fields without a record header. */
+	void writeService(Service service, ByteBuffer out) {
+		writeString(out, service.getName());
+		writeVarLong(out, service.getPrice());
+	}
+
+	/** Reads the service's fields written by {@link #writeService}. */
+	Service readService(ByteBuffer in) {
+		String name = readString(in);
+		int price = (int) readVarLong(in);
+		return new Service(name, price);
+	}
+
+	/** Writes the reservation with its guest, room and services. */
+	void writeReservation(Reservation reservation, ByteBuffer out) {
+		writeGuest(reservation.getGuest(), out);
+		writeRoom(reservation.getRoom(), out);
+		writeDate(out, reservation.getStartDate());
+		writeDate(out, reservation.getEndDate());
+		List<Service> services = reservation.services();
+		writeVarLong(out, services.size());
+		for (int i = 0; i < services.size(); i++) {
+			writeService(services.get(i), out);
+		}
+	}
+
+	/** Reads the reservation written by {@link #writeReservation}. */
+	Reservation readReservation(ByteBuffer in) {
+		Guest guest = readGuest(in);
+		Room room = readRoom(in);
+		LocalDate startDate = readDate(in);
+		LocalDate endDate = readDate(in);
+		int count = (int) readVarLong(in);
+		if (count < 0 || count > in.remaining()) {
+			throw new IllegalArgumentException("Invalid number of services " + count);
+		}
+		List<Service> services = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			services.add(readService(in));
+		}
+		return Reservation.restore(guest, room, startDate, endDate, services);
+	}
+
+	/** Writes the invoice with its reservation. */
+	void writeInvoice(Invoice invoice, ByteBuffer out) {
+		writeReservation(invoice.getReservation(), out);
+		writeInvoiceFields(invoice, out);
+	}
+
+	/** Reads the invoice written by {@link #writeInvoice}. */
+	Invoice readInvoice(ByteBuffer in) {
+		return readInvoiceFields(readReservation(in), in);
+	}
+
+	/** Writes the invoice's own fields, for a reader that knows its reservation. */
+	void writeInvoiceFields(Invoice invoice, ByteBuffer out) {
+		writePrice(out, invoice.getTotalAmount());
+		writeDate(out, invoice.getIssueDate());
+	}
+
+	/** Reads the fields written by {@link #writeInvoiceFields} into an invoice of the reservation. */
+	Invoice readInvoiceFields(Reservation reservation, ByteBuffer in) {
+		double totalAmount = readPrice(in);
+		LocalDate issueDate = readDate(in);
+		return Invoice.restore(reservation, totalAmount, issueDate);
+	}
+
+	/**
+	 * Writes a string as a table reference: {@code index + 1} for a known
+	 * string, or 0 followed by the UTF-8 length and bytes for a new one.
+	 * When the table is full, new strings are written after -1 and aren't added.
+	 * A new string is added only after its bytes were written.
+	 */
+	private void writeString(ByteBuffer out, String value) {
+		Integer index = writtenStrings.get(value);
+		if (index != null) {
+			writeVarLong(out, index + 1L);
+			return;
+		}
+		boolean added = writtenStrings.size() < MAX_STRING_TABLE;
+		writeVarLong(out, added ? 0 : -1);
+		writeVarLong(out, utf8Length(value));
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				out.put((byte) c);
+			} else if (c < 0x800) {
+				out.put((byte) (0xC0 | (c >> 6)));
+				out.put((byte) (0x80 | (c & 0x3F)));
+			} else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+					&& Character.isLowSurrogate(value.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, value.charAt(++i));
+				out.put((byte) (0xF0 | (codePoint >> 18)));
+				out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+				out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+				out.put((byte) (0x80 | (codePoint & 0x3F)));
+			} else {
+				out.put((byte) (0xE0 | (c >> 12)));
+				out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+				out.put((byte) (0x80 | (c & 0x3F)));
+			}
+		}
+		if (added) {
+			writtenStrings.put(value, writtenStrings.size());
+		}
+	}
+
+	/** Reads a string written by {@link #writeString}. */
+	private String readString(ByteBuffer in) {
+		long reference = readVarLong(in);
+		if (reference > 0) {
+			if (reference > readStrings.size()) {
+				throw new IllegalArgumentException("Unknown string reference " + reference);
+			}
+			return readStrings.get((int) reference - 1);
+		}
+		int length = (int) readVarLong(in);
+		if (length < 0 || length > in.remaining()) {
+			throw new IllegalArgumentException("Invalid string length " + length);
+		}
+		if (chars.length < length) {
+			chars = new char[Math.max(length, chars.length * 2)];
+		}
+		int count = 0;
+		int end = in.position() + length;
+		while (in.position() < end) {
+			int b = in.get() & 0xFF;
+			if (b < 0x80) {
+				chars[count++] = (char) b;
+			} else if (b < 0xE0) {
+				chars[count++] = (char) (((b & 0x1F) << 6) | (in.get() & 0x3F));
+			} else if (b < 0xF0) {
+				chars[count++] = (char) (((b & 0x0F) << 12) | ((in.get() & 0x3F) << 6) | (in.get() & 0x3F));
+			} else {
+				int codePoint = ((b & 0x07) << 18) | ((in.get() & 0x3F) << 12)
+						| ((in.get() & 0x3F) << 6) | (in.get() & 0x3F);
+				chars[count++] = Character.highSurrogate(codePoint);
+				chars[count++] = Character.lowSurrogate(codePoint);
+			}
+		}
+		String value = new String(chars, 0, count);
+		if (reference == 0) {
+			readStrings.add(value);
+		}
+		return value;
+	}
+
+	/** Returns the number of UTF-8 bytes of the string. */
+	private static int utf8Length(String value) {
+		int length = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+					&& Character.isLowSurrogate(value.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	/** Writes a date as its epoch day. */
+	private static void writeDate(ByteBuffer out, LocalDate date) {
+		writeVarLong(out, date.toEpochDay());
+	}
+
+	/** Reads a date written by {@link #writeDate}. */
+	private static LocalDate readDate(ByteBuffer in) {
+		return LocalDate.ofEpochDay(readVarLong(in));
+	}
+
+	/** Writes a price as a fixed-point number of hundredths. */
+	private static void writePrice(ByteBuffer out, double price) {
+		writeVarLong(out, Math.round(price * PRICE_SCALE));
+	}
+
+	/** Reads a price written by {@link #writePrice}. */
+	private static double readPrice(ByteBuffer in) {
+		return readVarLong(in) / PRICE_SCALE;
+	}
+
+	/**
+	 * Writes a signed value as a zigzag varint: 7 bits per byte, small
+	 * absolute values take one byte.
+	 */
+	static void writeVarLong(ByteBuffer out, long value) {
+		long zigzag = (value << 1) ^ (value >> 63);
+		while ((zigzag & ~0x7FL) != 0) {
+			out.put((byte) ((zigzag & 0x7F) | 0x80));
+			zigzag >>>= 7;
+		}
+		out.put((byte) zigzag);
+	}
+
+	/** Reads a zigzag varint written by {@link #writeVarLong}. */
+	static long readVarLong(ByteBuffer in) {
+		long zigzag = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = in.get();
+			zigzag |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return (zigzag >>> 1) ^ -(zigzag & 1);
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint.");
+	}
+}
@@ -0,0 +1,652 @@
+package ua.hotel_managment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import ua.util.Utils;
+
+/**
+ * Bulk import of guests and reservations from CSV or line-delimited JSON files.
+ * <p>
+ * Every line is one row. A CSV row has the columns
+ * {@code firstName,lastName,email,checkInDate[,roomNumber,startDate,endDate]};
+ * a header line starting with {@code firstName} is skipped. A JSON row is a flat
+ * object with the same keys, e.g.
+ * {@code {"firstName":"John","lastName":"Doe","email":"john@example.com","checkInDate":"2025-01-01"}}.
+ * Rows without the room columns import only the guest. Dates are ISO
+ * ({@code yyyy-MM-dd}); past dates are accepted, since imported data is historical.
+ * <p>
+ * The file is memory-mapped and split into line-aligned chunks. The chunks are
+ * parsed and validated in parallel by a hand-written parser that reads bytes from
+ * the mapping directly. Parsed chunks are handed to the model in file order, one
+ * batch per chunk: guests go to the guest sink, reservations are booked in the hotel.
+ * Invalid or conflicting rows are recorded in the {@link ImportReport} and don't
+ * stop the import.
+ */
+public class BulkImporter {
+
+	/** Input file format. */
+	public enum Format {
+		/** Comma-separated values; fields may be quoted with {@code "}. */
+		CSV,
+		/** One flat JSON object per line. */
+		JSON_LINES;
+
+		/**
+		 * Chooses the format by the file's extension: {@code .csv} is CSV, anything else is JSON lines.
+		 *
+		 * @param file the input file
+		 * @return the format
+		 */
+		public static Format of(Path file) {
+			return file.getFileName().toString().toLowerCase().endsWith(".csv") ? CSV : JSON_LINES;
+		}
+	}
+
+	/** Default size of a chunk in bytes. */
+	public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+	private static final int FIELDS = 7;
+	private static final byte[][] KEYS = {
+			ascii("firstName"), ascii("lastName"), ascii("email"), ascii("checkInDate"),
+			ascii("roomNumber"), ascii("startDate"), ascii("endDate") };
+
+	private final Hotel hotel;
+	private final Consumer<List<Guest>> guestSink;
+	private final int chunkSize;
+	private final int threads;
+
+	/**
+	 * Constructs an importer.
+	 *
+	 * @param hotel     the hotel where reservations are booked
+	 * @param guestSink receives the imported guests batch by batch, may be {@code null}
+	 * @param chunkSize nominal chunk size in bytes (positive number)
+	 * @param threads   number of parser threads (positive number)
+	 * @throws NullPointerException     if {@code hotel} is {@code null}
+	 * @throws IllegalArgumentException if {@code chunkSize} or {@code threads} isn't positive
+	 */
+	public BulkImporter(Hotel hotel, Consumer<List<Guest>> guestSink, int chunkSize, int threads) {
+		if (!Utils.validateObject(hotel)) {
+			throw new NullPointerException("Hotel can't be null.");
+		}
+		if (!Utils.validatePositiveNumber(chunkSize) || !Utils.validatePositiveNumber(threads)) {
+			throw new IllegalArgumentException("Chunk size and threads must be positive.");
+		}
+		this.hotel = hotel;
+		this.guestSink = guestSink;
+		this.chunkSize = chunkSize;
+		this.threads = threads;
+	}
+
+	/**
+	 * Factory method for creating an importer with default chunk size
+	 * and one parser thread per processor.
+	 *
+	 * @param hotel     the hotel where reservations are booked
+	 * @param guestSink receives the imported guests, may be {@code null}
+	 * @return a new {@code BulkImporter} instance
+	 */
+	public static BulkImporter create(Hotel hotel, Consumer<List<Guest>> guestSink) {
+		return new BulkImporter(hotel, guestSink, DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Imports the file, choosing the format by its extension.
+	 *
+	 * @param file the input file
+	 * @return the import report
+	 * @throws IOException if the file can't be read
+	 */
+	public ImportReport importFile(Path file) throws IOException {
+		return importFile(file, Format.of(file));
+	}
+
+	/**
+	 * Imports the file.
+	 *
+	 * @param file   the input file
+	 * @param format the file format
+	 * @return the import report
+	 * @throws IOException if the file can't be read
+	 */
+	public ImportReport importFile(Path file, Format format) throws IOException {
+		long start = System.nanoTime();
+		ImportReport report = new ImportReport();
+		Map<Integer, Room> rooms = new HashMap<>();
+		for (Room room : hotel.getRooms()) {
+			rooms.put(room.getRoomNumber(), room);
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			report.setBytes(size);
+			List<Future<Chunk>> chunks = new ArrayList<>();
+			for (long[] range : split(channel, size)) {
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]);
+				boolean first = range[0] == 0;
+				chunks.add(executor.submit(() -> new Chunk(buffer, format, rooms, first).parse()));
+			}
+			long line = 1;
+			for (Future<Chunk> future : chunks) {
+				Chunk chunk = future.get();
+				apply(chunk, line, report);
+				line += chunk.lines;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Import interrupted.", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Import failed.", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		report.sortErrors();
+		report.setNanos(System.nanoTime() - start);
+		return report;
+	}
+
+	/**
+	 * Splits the file into ranges of about {@link #chunkSize} bytes that end after a line break.
+	 *
+	 * @param channel the file
+	 * @param size    the file size
+	 * @return list of {@code [start, end)} ranges
+	 * @throws IOException if the file can't be read
+	 */
+	private List<long[]> split(FileChannel channel, long size) throws IOException {
+		List<long[]> ranges = new ArrayList<>();
+		long start = 0;
+		while (start < size) {
+			long end = Math.min(size, start + chunkSize);
+			while (end < size) {
+				MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, end,
+						Math.min(64 * 1024, size - end));
+				int newline = -1;
+				for (int i = 0; i < window.limit(); i++) {
+					if (window.get(i) == '\n') {
+						newline = i;
+						break;
+					}
+				}
+				if (newline >= 0) {
+					end += newline + 1;
+					break;
+				}
+				end += window.limit();
+			}
+			ranges.add(new long[] { start, end });
+			start = end;
+		}
+		return ranges;
+	}
+
+	/**
+	 * Hands one parsed chunk to the model. Chunks are applied in file order.
+	 *
+	 * @param chunk     the parsed chunk
+	 * @param firstLine line number of the chunk's first line
+	 * @param report    the report to update
+	 */
+	private void apply(Chunk chunk, long firstLine, ImportReport report) {
+		report.addRows(chunk.rows);
+		if (guestSink != null && !chunk.guests.isEmpty()) {
+			guestSink.accept(chunk.guests);
+		}
+		report.addGuests(chunk.guests.size());
+		for (int i = 0; i < chunk.errorLines.size(); i++) {
+			report.addError(firstLine + chunk.errorLines.get(i), chunk.errorMessages.get(i));
+		}
+		long booked = 0;
+		synchronized (hotel) {
+			for (int i = 0; i < chunk.reservations.size(); i++) {
+				try {
+					hotel.book(chunk.reservations.get(i));
+					booked++;
+				} catch (IllegalStateException e) {
+					report.addError(firstLine + chunk.reservationLines.get(i), e.getMessage());
+				}
+			}
+		}
+		report.addReservations(booked);
+	}
+
+	/**
+	 * Parser of one line-aligned chunk. Reads bytes from the mapping and creates
+	 * strings only for names and emails; numbers and dates are parsed in place.
+	 */
+	private static final class Chunk {
+
+		private final ByteBuffer buffer;
+		private final Format format;
+		private final Map<Integer, Room> rooms;
+		private final boolean firstChunk;
+
+		// field boundaries of the current row, reused for every row
+		private final int[] fieldStart = new int[FIELDS];
+		private final int[] fieldEnd = new int[FIELDS];
+		private final boolean[] fieldEscaped = new boolean[FIELDS];
+		private byte[] scratch = new byte[256];
+
+		final List<Guest> guests = new ArrayList<>();
+		final List<Reservation> reservations = new ArrayList<>();
+		final List<Long> reservationLines = new ArrayList<>();
+		final List<Long> errorLines = new ArrayList<>();
+		final List<String> errorMessages = new ArrayList<>();
+		long lines;
+		long rows;
+
+		Chunk(ByteBuffer buffer, Format format, Map<Integer, Room> rooms, boolean firstChunk) {
+			this.buffer = buffer;
+			this.format = format;
+			this.rooms = rooms;
+			this.firstChunk = firstChunk;
+		}
+
+		/**
+		 * Parses all lines of the chunk.
+		 *
+		 * @return this chunk
+		 */
+		Chunk parse() {
+			int position = 0;
+			int limit = buffer.limit();
+			while (position < limit) {
+				int end = position;
+				while (end < limit && buffer.get(end) != '\n') {
+					end++;
+				}
+				int lineEnd = end > position && buffer.get(end - 1) == '\r' ? end - 1 : end;
+				long line = lines++;
+				if (!isBlank(position, lineEnd)) {
+					parseRow(position, lineEnd, line);
+				}
+				position = end + 1;
+			}
+			return this;
+		}
+
+		private void parseRow(int start, int end, long line) {
+			for (int i = 0; i < FIELDS; i++) {
+				fieldStart[i] = -1;
+			}
+			try {
+				if (format == Format.CSV) {
+					splitCsv(start, end);
+					if (line == 0 && firstChunk && equalsIgnoreCase(0, KEYS[0])) {
+						return; // header
+					}
+				} else {
+					splitJson(start, end);
+				}
+				rows++;
+				Guest guest = Guest.restore(text(0), text(1), text(2), date(3));
+				if (fieldStart[4] < 0 && fieldStart[5] < 0 && fieldStart[6] < 0) {
+					guests.add(guest);
+					return;
+				}
+				Room room = rooms.get(number(4));
+				if (room == null) {
+					throw new IllegalArgumentException("Unknown room " + number(4));
+				}
+				Reservation reservation = Reservation.restore(guest, room, date(5), date(6), new ArrayList<>());
+				guests.add(guest);
+				reservations.add(reservation);
+				reservationLines.add(line);
+			} catch (IllegalArgumentException | NullPointerException | DateTimeException e) {
+				errorLines.add(line);
+				errorMessages.add(e.getMessage());
+			}
+		}
+
+		/** Finds up to {@value #FIELDS} comma-separated fields; quotes allow commas inside. */
+		private void splitCsv(int start, int end) {
+			int field = 0;
+			int position = start;
+			while (position <= end && field < FIELDS) {
+				boolean quoted = position < end && buffer.get(position) == '"';
+				int fieldFrom = quoted ? position + 1 : position;
+				int fieldTo;
+				boolean escaped = false;
+				if (quoted) {
+					int p = fieldFrom;
+					while (true) {
+						if (p >= end) {
+							throw new IllegalArgumentException("Unterminated quote");
+						}
+						if (buffer.get(p) == '"') {
+							if (p + 1 < end && buffer.get(p + 1) == '"') {
+								escaped = true;
+								p += 2;
+								continue;
+							}
+							break;
+						}
+						p++;
+					}
+					fieldTo = p;
+					position = p + 1;
+				} else {
+					int p = fieldFrom;
+					while (p < end && buffer.get(p) != ',') {
+						p++;
+					}
+					fieldTo = p;
+					position = p;
+				}
+				if (fieldTo > fieldFrom || quoted) {
+					fieldStart[field] = fieldFrom;
+					fieldEnd[field] = fieldTo;
+					fieldEscaped[field] = escaped;
+				}
+				field++;
+				position++; // skip the comma
+			}
+		}
+
+		/** Finds the values of known keys in a flat JSON object. */
+		private void splitJson(int start, int end) {
+			int p = skipSpaces(start, end);
+			if (p >= end || buffer.get(p) != '{') {
+				throw new IllegalArgumentException("Expected a JSON object");
+			}
+			p = skipSpaces(p + 1, end);
+			if (p < end && buffer.get(p) == '}') {
+				return;
+			}
+			while (true) {
+				if (p >= end || buffer.get(p) != '"') {
+					throw new IllegalArgumentException("Expected a key");
+				}
+				int keyStart = p + 1;
+				p = skipString(keyStart, end);
+				int field = key(keyStart, p);
+				p = skipSpaces(p + 1, end);
+				if (p >= end || buffer.get(p) != ':') {
+					throw new IllegalArgumentException("Expected ':'");
+				}
+				p = skipSpaces(p + 1, end);
+				int valueStart;
+				int valueEnd;
+				boolean escaped = false;
+				if (p < end && buffer.get(p) == '"') {
+					valueStart = p + 1;
+					valueEnd = skipString(valueStart, end);
+					for (int i = valueStart; i < valueEnd; i++) {
+						if (buffer.get(i) == '\\') {
+							escaped = true;
+							break;
+						}
+					}
+					p = valueEnd + 1;
+				} else {
+					valueStart = p;
+					while (p < end && buffer.get(p) != ',' && buffer.get(p) != '}' && buffer.get(p) != ' ') {
+						p++;
+					}
+					valueEnd = p;
+					if (equalsAscii(valueStart, valueEnd, "null")) {
+						valueStart = -1;
+					}
+				}
+				if (field >= 0 && valueStart >= 0) {
+					fieldStart[field] = valueStart;
+					fieldEnd[field] = valueEnd;
+					fieldEscaped[field] = escaped;
+				}
+				p = skipSpaces(p, end);
+				if (p < end && buffer.get(p) == ',') {
+					p = skipSpaces(p + 1, end);
+				} else if (p < end && buffer.get(p) == '}') {
+					return;
+				} else {
+					throw new IllegalArgumentException("Expected ',' or '}'");
+				}
+			}
+		}
+
+		/** Returns the position of the closing quote of a JSON string. */
+		private int skipString(int from, int end) {
+			for (int p = from; p < end; p++) {
+				byte b = buffer.get(p);
+				if (b == '\\') {
+					p++;
+				} else if (b == '"') {
+					return p;
+				}
+			}
+			throw new IllegalArgumentException("Unterminated string");
+		}
+
+		private int skipSpaces(int from, int end) {
+			while (from < end && (buffer.get(from) == ' ' || buffer.get(from) == '\t')) {
+				from++;
+			}
+			return from;
+		}
+
+		/** Returns the field index of a JSON key, or -1 for unknown keys. */
+		private int key(int start, int end) {
+			for (int i = 0; i < KEYS.length; i++) {
+				byte[] key = KEYS[i];
+				if (end - start == key.length) {
+					int j = 0;
+					while (j < key.length && buffer.get(start + j) == key[j]) {
+						j++;
+					}
+					if (j == key.length) {
+						return i;
+					}
+				}
+			}
+			return -1;
+		}
+
+		/** Decodes a field as a UTF-8 string, unescaping CSV quotes or JSON escapes. */
+		private String text(int field) {
+			int start = fieldStart[field];
+			if (start < 0) {
+				return null;
+			}
+			int end = fieldEnd[field];
+			if (scratch.length < end - start) {
+				scratch = new byte[Math.max(end - start, scratch.length * 2)];
+			}
+			int length = 0;
+			for (int p = start; p < end; p++) {
+				byte b = buffer.get(p);
+				if (fieldEscaped[field]) {
+					if (format == Format.CSV && b == '"') {
+						p++; // "" stands for "
+					} else if (format == Format.JSON_LINES && b == '\\') {
+						b = buffer.get(++p);
+						switch (b) {
+							case 'n':
+								b = '\n';
+								break;
+							case 't':
+								b = '\t';
+								break;
+							case 'r':
+								b = '\r';
+								break;
+							case 'b':
+								b = '\b';
+								break;
+							case 'f':
+								b = '\f';
+								break;
+							case '"':
+							case '\\':
+							case '/':
+								break;
+							case 'u':
+								int c = unicodeEscape(p + 1, end);
+								p += 4;
+								if (Character.isHighSurrogate((char) c) && p + 2 < end && buffer.get(p + 1) == '\\'
+										&& buffer.get(p + 2) == 'u') {
+									int low = unicodeEscape(p + 3, end);
+									if (Character.isLowSurrogate((char) low)) {
+										c = Character.toCodePoint((char) c, (char) low);
+										p += 6;
+									}
+								}
+								length = putUtf8(c, length);
+								continue;
+							default:
+								throw new IllegalArgumentException("Invalid escape \\" + (char) b + " in " + name(field));
+						}
+					}
+				}
+				scratch[length++] = b;
+			}
+			return new String(scratch, 0, length, StandardCharsets.UTF_8);
+		}
+
+		/** Parses the four hex digits of a JSON {@code \\u} escape. */
+		private int unicodeEscape(int from, int end) {
+			if (from + 4 > end) {
+				throw new IllegalArgumentException("Truncated \\u escape");
+			}
+			return Integer.parseInt(asciiString(from, from + 4), 16);
+		}
+
+		/**
+		 * Writes a code point from a JSON escape into the scratch as UTF-8;
+		 * a surrogate without its pair becomes U+FFFD.
+		 */
+		private int putUtf8(int c, int length) {
+			if (Character.isSurrogate((char) c) && c <= 0xFFFF) {
+				c = 0xFFFD;
+			}
+			if (c < 0x80) {
+				scratch[length++] = (byte) c;
+			} else if (c < 0x800) {
+				scratch[length++] = (byte) (0xC0 | (c >> 6));
+				scratch[length++] = (byte) (0x80 | (c & 0x3F));
+			} else if (c < 0x10000) {
+				scratch[length++] = (byte) (0xE0 | (c >> 12));
+				scratch[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				scratch[length++] = (byte) (0x80 | (c & 0x3F));
+			} else {
+				scratch[length++] = (byte) (0xF0 | (c >> 18));
+				scratch[length++] = (byte) (0x80 | ((c >> 12) & 0x3F));
+				scratch[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				scratch[length++] = (byte) (0x80 | (c & 0x3F));
+			}
+			return length;
+		}
+
+		/** Parses a field as a non-negative decimal integer. */
+		private int number(int field) {
+			int start = fieldStart[field];
+			if (start < 0) {
+				throw new NullPointerException(name(field) + " is missing");
+			}
+			int end = fieldEnd[field];
+			if (end == start || end - start > 9) {
+				throw new IllegalArgumentException("Invalid " + name(field));
+			}
+			int value = 0;
+			for (int p = start; p < end; p++) {
+				int digit = buffer.get(p) - '0';
+				if (digit < 0 || digit > 9) {
+					throw new IllegalArgumentException("Invalid " + name(field));
+				}
+				value = value * 10 + digit;
+			}
+			return value;
+		}
+
+		/** Parses a field as an ISO date {@code yyyy-MM-dd}. */
+		private LocalDate date(int field) {
+			int start = fieldStart[field];
+			if (start < 0) {
+				throw new NullPointerException(name(field) + " is missing");
+			}
+			if (fieldEnd[field] - start != 10 || buffer.get(start + 4) != '-' || buffer.get(start + 7) != '-') {
+				throw new IllegalArgumentException("Invalid " + name(field) + ", expected yyyy-MM-dd");
+			}
+			return LocalDate.of(digits(start, 4, field), digits(start + 5, 2, field), digits(start + 8, 2, field));
+		}
+
+		private int digits(int start, int count, int field) {
+			int value = 0;
+			for (int p = start; p < start + count; p++) {
+				int digit = buffer.get(p) - '0';
+				if (digit < 0 || digit > 9) {
+					throw new IllegalArgumentException("Invalid " + name(field));
+				}
+				value = value * 10 + digit;
+			}
+			return value;
+		}
+
+		private boolean isBlank(int start, int end) {
+			for (int p = start; p < end; p++) {
+				byte b = buffer.get(p);
+				if (b != ' ' && b != '\t') {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean equalsIgnoreCase(int field, byte[] key) {
+			int start = fieldStart[field];
+			if (start < 0 || fieldEnd[field] - start != key.length) {
+				return false;
+			}
+			for (int i = 0; i < key.length; i++) {
+				if (Character.toLowerCase(buffer.get(start + i)) != Character.toLowerCase(key[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean equalsAscii(int start, int end, String text) {
+			if (end - start != text.length()) {
+				return false;
+			}
+			for (int i = 0; i < text.length(); i++) {
+				if (buffer.get(start + i) != text.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private String asciiString(int start, int end) {
+			StringBuilder sb = new StringBuilder(end - start);
+			for (int p = start; p < end; p++) {
+				sb.append((char) buffer.get(p));
+			}
+			return sb.toString();
+		}
+
+		private static String name(int field) {
+			return new String(KEYS[field], StandardCharsets.US_ASCII);
+		}
+	}
+
+	private static byte[] ascii(String text) {
+		return text.getBytes(StandardCharsets.US_ASCII);
+	}
+}
@@ -0,0 +1,349 @@
+package ua.hotel_managment;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ua.util.Utils;
+
+/**
+ * Ordered log of the changes of a {@link Hotel}, used to feed read replicas
+ * (see {@link ReplicationServer} and {@link HotelReplica}).
+ * <p>
+ * Every change becomes an entry with the next sequence number, starting with 1.
+ * Rooms, reservations and invoices get log ids in the order they first appear,
+ * so later entries (changes, cancellations) refer to them by id. Entries are
+ * encoded with {@link BinaryCodec} and are self-contained: a replica can start
+ * reading at any sequence number it has not applied yet, as long as the entry
+ * is still in the log.
+ * <p>
+ * When attached, the log first records the current state of the hotel
+ * (rooms, reservations and invoices), so replicas started later get everything.
+ * Entries are kept in memory until they are dropped with {@link #truncate(long)},
+ * or automatically once there are more than {@link #setRetention(int) retained}
+ * entries. A replica that needs a dropped entry gets an error from the
+ * {@link ReplicationServer} and must be recreated.
+ */
+public class ChangeLog implements HotelListener {
+
+	static final byte ROOM_ADDED = 1;
+	static final byte ROOM_CHANGED = 2;
+	static final byte RESERVATION_BOOKED = 3;
+	static final byte RESERVATION_CHANGED = 4;
+	static final byte RESERVATION_CANCELLED = 5;
+	static final byte INVOICE_CHANGED = 6;
+
+	private List<byte[]> entries = new ArrayList<>();
+	private long[] timestamps = new long[1024];
+	private long firstSequence = 1; // sequence number of entries.get(0)
+	private int retention = Integer.MAX_VALUE;
+
+	private final Map<Room, Long> roomIds = new IdentityHashMap<>();
+	private final Map<Reservation, Long> reservationIds = new IdentityHashMap<>();
+	private final Map<Invoice, Long> invoiceIds = new IdentityHashMap<>();
+	private long nextReservationId = 1;
+	private long nextInvoiceId = 1;
+
+	private final BinaryCodec codec = new BinaryCodec();
+	private ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+	/**
+	 * Constructs an empty log. Use {@link #attach(Hotel)} to follow a hotel.
+	 */
+	public ChangeLog() {
+	}
+
+	/**
+	 * Creates a log with the current state of the hotel and keeps
+	 * recording every later change.
+	 *
+	 * @param hotel the hotel to follow
+	 * @return the log, registered as a listener of the hotel
+	 * @throws NullPointerException if {@code hotel} is {@code null}
+	 */
+	public static ChangeLog attach(Hotel hotel) {
+		if (!Utils.validateObject(hotel)) {
+			throw new NullPointerException("Hotel can't be null.");
+		}
+		ChangeLog log = new ChangeLog();
+		synchronized (hotel) {
+			for (Room room : hotel.getRooms()) {
+				log.roomAdded(room);
+			}
+			for (Reservation reservation : hotel.getReservations()) {
+				log.reservationBooked(reservation);
+			}
+			for (Invoice invoice : hotel.getInvoices()) {
+				log.invoiceChanged(invoice);
+			}
+			hotel.addListener(log);
+		}
+		return log;
+	}
+
+	/**
+	 * Records a new room.
+	 *
+	 * @param room the added room
+	 */
+	@Override
+	public synchronized void roomAdded(Room room) {
+		long id = roomIds.size() + 1L;
+		roomIds.put(room, id);
+		append(ROOM_ADDED, id, room);
+	}
+
+	/**
+	 * Records the new values of a room.
+	 *
+	 * @param room the changed room
+	 */
+	@Override
+	public synchronized void roomChanged(Room room) {
+		Long id = roomIds.get(room);
+		if (id != null) {
+			append(ROOM_CHANGED, id, room);
+		}
+	}
+
+	/**
+	 * Records a booked reservation with the id of its room.
+	 *
+	 * @param reservation the booked reservation
+	 */
+	@Override
+	public synchronized void reservationBooked(Reservation reservation) {
+		Long roomId = roomIds.get(reservation.getRoom());
+		if (roomId == null || reservationIds.containsKey(reservation)) {
+			return;
+		}
+		long id = nextReservationId++;
+		reservationIds.put(reservation, id);
+		append(RESERVATION_BOOKED, id, roomId, reservation);
+	}
+
+	/**
+	 * Records the new dates and services of a reservation.
+	 *
+	 * @param reservation the changed reservation
+	 */
+	@Override
+	public synchronized void reservationChanged(Reservation reservation) {
+		Long id = reservationIds.get(reservation);
+		if (id != null) {
+			append(RESERVATION_CHANGED, id, 0, reservation);
+		}
+	}
+
+	/**
+	 * Records a cancellation.
+	 *
+	 * @param reservation the cancelled reservation
+	 */
+	@Override
+	public synchronized void reservationCancelled(Reservation reservation) {
+		Long id = reservationIds.remove(reservation);
+		if (id != null) {
+			append(RESERVATION_CANCELLED, id, 0, null);
+		}
+	}
+
+	/**
+	 * Forgets the log ids of the archived reservation and its invoices. Nothing
+	 * is recorded: replicas keep them, as the stay is not cancelled.
+	 *
+	 * @param reservation the archived reservation
+	 * @param invoices    its invoices
+	 */
+	@Override
+	public synchronized void reservationArchived(Reservation reservation, List<Invoice> invoices) {
+		reservationIds.remove(reservation);
+		for (Invoice invoice : invoices) {
+			invoiceIds.remove(invoice);
+		}
+	}
+
+	/**
+	 * Records an invoice with the id of its reservation and its total.
+	 *
+	 * @param invoice the added or recalculated invoice
+	 */
+	@Override
+	public synchronized void invoiceChanged(Invoice invoice) {
+		Long reservationId = reservationIds.get(invoice.getReservation());
+		if (reservationId == null) {
+			return;
+		}
+		Long id = invoiceIds.get(invoice);
+		if (id == null) {
+			id = nextInvoiceId++;
+			invoiceIds.put(invoice, id);
+		}
+		while (true) {
+			try {
+				buffer.clear();
+				buffer.put(INVOICE_CHANGED);
+				BinaryCodec.writeVarLong(buffer, id);
+				BinaryCodec.writeVarLong(buffer, reservationId);
+				BinaryCodec.writeVarLong(buffer, invoice.getIssueDate().toEpochDay());
+				buffer.putDouble(invoice.getTotalAmount());
+				break;
+			} catch (BufferOverflowException e) {
+				buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+			}
+		}
+		store();
+	}
+
+	/**
+	 * Returns the sequence number of the last entry.
+	 *
+	 * @return the last sequence number, 0 if nothing was recorded
+	 */
+	public synchronized long getLastSequence() {
+		return firstSequence - 1 + entries.size();
+	}
+
+	/**
+	 * Returns the sequence number of the oldest entry still in the log.
+	 *
+	 * @return the first sequence number, {@code getLastSequence() + 1} if the log is empty
+	 */
+	public synchronized long getFirstSequence() {
+		return firstSequence;
+	}
+
+	/**
+	 * Drops the entries before the given sequence number, e.g. once every replica
+	 * has applied them. Replicas that still need them can't catch up any more.
+	 *
+	 * @param sequence the sequence number of the first entry to keep
+	 * @return number of dropped entries
+	 * @throws IllegalArgumentException if {@code sequence} is after {@code getLastSequence() + 1}
+	 */
+	public synchronized int truncate(long sequence) {
+		if (sequence > getLastSequence() + 1) {
+			throw new IllegalArgumentException("Can't truncate after the last entry " + getLastSequence() + ".");
+		}
+		if (sequence <= firstSequence) {
+			return 0;
+		}
+		int dropped = (int) (sequence - firstSequence);
+		int kept = entries.size() - dropped;
+		entries = new ArrayList<>(entries.subList(dropped, entries.size()));
+		long[] newTimestamps = new long[Math.max(1024, Integer.highestOneBit(Math.max(kept, 1)) * 2)];
+		System.arraycopy(timestamps, dropped, newTimestamps, 0, kept);
+		timestamps = newTimestamps;
+		firstSequence = sequence;
+		return dropped;
+	}
+
+	/**
+	 * Sets how many of the newest entries the log keeps. Older entries are dropped
+	 * in batches, so the log holds at most half as many entries more.
+	 *
+	 * @param maxEntries number of entries to keep, {@link Integer#MAX_VALUE} (the default) to keep all
+	 * @throws IllegalArgumentException if {@code maxEntries} is not positive
+	 */
+	public synchronized void setRetention(int maxEntries) {
+		if (!Utils.validatePositiveNumber(maxEntries)) {
+			throw new IllegalArgumentException("Retention must be positive.");
+		}
+		retention = maxEntries;
+		trim();
+	}
+
+	/**
+	 * Returns the encoded entry with the given sequence number.
+	 *
+	 * @param sequence the sequence number
+	 * @return the entry bytes, or {@code null} if the entry was dropped
+	 */
+	synchronized byte[] entry(long sequence) {
+		return sequence < firstSequence ? null : entries.get((int) (sequence - firstSequence));
+	}
+
+	/**
+	 * Returns the time when the entry was recorded.
+	 *
+	 * @param sequence the sequence number of an entry still in the log
+	 * @return milliseconds since the epoch
+	 */
+	synchronized long timestamp(long sequence) {
+		return timestamps[(int) (sequence - firstSequence)];
+	}
+
+	/**
+	 * Waits until the log has an entry with the given sequence number.
+	 *
+	 * @param sequence      the awaited sequence number
+	 * @param timeoutMillis maximal waiting time
+	 * @return {@code true} if the entry exists
+	 * @throws InterruptedException if the thread was interrupted
+	 */
+	synchronized boolean awaitEntry(long sequence, long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while (getLastSequence() < sequence) {
+			long left = deadline - System.currentTimeMillis();
+			if (left <= 0) {
+				return false;
+			}
+			wait(left);
+		}
+		return true;
+	}
+
+	/**
+	 * Encodes an entry of a room, or of a reservation with an optional room id.
+	 */
+	private void append(byte type, long id, long roomId, Object value) {
+		while (true) {
+			try {
+				buffer.clear();
+				buffer.put(type);
+				BinaryCodec.writeVarLong(buffer, id);
+				if (type == RESERVATION_BOOKED) {
+					BinaryCodec.writeVarLong(buffer, roomId);
+				}
+				if (value != null) {
+					// a fresh string table keeps every entry readable on its own
+					codec.reset();
+					codec.encode(value, buffer);
+				}
+				break;
+			} catch (BufferOverflowException e) {
+				buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+			}
+		}
+		store();
+	}
+
+	private void append(byte type, long id, Room room) {
+		append(type, id, 0, room);
+	}
+
+	/** Stores the buffer's content as the next entry and wakes up the waiting readers. */
+	private void store() {
+		buffer.flip();
+		byte[] entry = new byte[buffer.remaining()];
+		buffer.get(entry);
+		if (entries.size() == timestamps.length) {
+			timestamps = Arrays.copyOf(timestamps, timestamps.length * 2);
+		}
+		timestamps[entries.size()] = System.currentTimeMillis();
+		entries.add(entry);
+		trim();
+		notifyAll();
+	}
+
+	/** Drops the oldest entries once there are half again as many as retained. */
+	private void trim() {
+		if (entries.size() - retention > retention / 2) {
+			truncate(getLastSequence() + 1 - retention);
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package ua.hotel_managment;
+
+/**
+ * Two guests that a {@link DuplicateDetector} considers the same person,
+ * with the similarity score of their names and emails.
+ */
+public class DuplicateCandidate {
+
+	private final Guest first;
+	private final Guest second;
+	private final double score;
+
+	/**
+	 * Constructs a new {@code DuplicateCandidate}. Used by {@link DuplicateDetector}.
+	 *
+	 * @param first  the guest that comes first in the checked list
+	 * @param second the other guest
+	 * @param score  similarity from 0 to 1
+	 */
+	DuplicateCandidate(Guest first, Guest second, double score) {
+		this.first = first;
+		this.second = second;
+		this.score = score;
+	}
+
+	/** @return the guest that comes first in the checked list */
+	public Guest getFirst() { return first; }
+
+	/** @return the other guest */
+	public Guest getSecond() { return second; }
+
+	/** @return similarity of the two guests, from 0 to 1 */
+	public double getScore() { return score; }
+
+	/**
+	 * Returns a string representation of the candidate.
+	 *
+	 * @return formatted string with both guests and the score
+	 */
+	@Override
+	public String toString() {
+		return String.format("DuplicateCandidate [%s %s <%s> ~ %s %s <%s>, score=%.3f]",
+				first.getFirstName(), first.getLastName(), first.getEmail(),
+				second.getFirstName(), second.getLastName(), second.getEmail(), score);
+	}
+}
@@ -0,0 +1,355 @@
+package ua.hotel_managment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import ua.util.Utils;
+
+/**
+ * Finds guests that are probably the same person entered several times with
+ * small differences ("Jon Doe" and "John Doe", or the email in another case).
+ * <p>
+ * Comparing every pair of guests doesn't scale, so guests are first grouped into
+ * blocks by three keys, and only guests of the same block are compared:
+ * <ul>
+ * <li>the Soundex codes of the last and the first name,</li>
+ * <li>the email domain (lower case) with the Soundex code of the last name,</li>
+ * <li>the email address in lower case.</li>
+ * </ul>
+ * A key is a 40-bit hash packed with the guest's position into one {@code long},
+ * so a pass is a parallel sort of a primitive array; hash collisions only merge
+ * blocks. A block larger than {@value #MAX_BLOCK} guests is sorted by name and every
+ * guest is compared only with its next {@value #WINDOW} neighbours.
+ * <p>
+ * Two guests are compared by the overlap of the character trigrams of their
+ * names and of their emails (Dice coefficient), weighted 0.6 and 0.4.
+ * Blocks are compared in parallel; a pair found by several keys is reported once.
+ */
+public class DuplicateDetector {
+
+	/** Guests are packed into the low 24 bits of a key. */
+	private static final int MAX_GUESTS = 1 << 24;
+
+	/** Blocks up to this size are compared pair by pair. */
+	private static final int MAX_BLOCK = 32;
+
+	/** Neighbours compared with every guest of a larger block. */
+	private static final int WINDOW = 16;
+
+	private static final double NAME_WEIGHT = 0.6;
+	private static final double EMAIL_WEIGHT = 0.4;
+
+	private static final int NAME_KEY = 0;
+	private static final int DOMAIN_KEY = 1;
+	private static final int EMAIL_KEY = 2;
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/** Soundex digits of the letters A to Z; 0 for vowels, H, W and Y. */
+	private static final String SOUNDEX = "01230120022455012623010202";
+
+	private final double minScore;
+
+	/**
+	 * Constructs a new {@code DuplicateDetector}.
+	 *
+	 * @param minScore the lowest score of a reported pair, greater than 0 and at most 1
+	 * @throws IllegalArgumentException if {@code minScore} is out of range
+	 */
+	public DuplicateDetector(double minScore) {
+		if (!Utils.validatePositiveNumber(minScore) || minScore > 1) {
+			throw new IllegalArgumentException("Minimal score must be in (0, 1].");
+		}
+		this.minScore = minScore;
+	}
+
+	/**
+	 * Factory method for creating a {@code DuplicateDetector} that reports pairs
+	 * with a score of at least 0.8.
+	 *
+	 * @return a new {@code DuplicateDetector} instance
+	 */
+	public static DuplicateDetector create() {
+		return new DuplicateDetector(0.8);
+	}
+
+	/**
+	 * Factory method for creating a new {@code DuplicateDetector}.
+	 *
+	 * @param minScore the lowest score of a reported pair, greater than 0 and at most 1
+	 * @return a new {@code DuplicateDetector} instance
+	 * @throws IllegalArgumentException if {@code minScore} is out of range
+	 */
+	public static DuplicateDetector create(double minScore) {
+		return new DuplicateDetector(minScore);
+	}
+
+	/**
+	 * Returns the lowest score of a reported pair.
+	 *
+	 * @return the minimal score
+	 */
+	public double getMinScore() {
+		return minScore;
+	}
+
+	/**
+	 * Finds the probable duplicates among the guests.
+	 *
+	 * @param guests the guests to check; must not change during the search
+	 * @return merge candidates, the highest score first
+	 * @throws NullPointerException     if the list or a guest is {@code null}
+	 * @throws IllegalArgumentException if there are more than 16,777,216 guests
+	 */
+	public List<DuplicateCandidate> find(List<Guest> guests) {
+		if (!Utils.validateObject(guests)) {
+			throw new NullPointerException("Guests can't be null.");
+		}
+		if (guests.size() > MAX_GUESTS) {
+			throw new IllegalArgumentException("At most " + MAX_GUESTS + " guests can be checked at once.");
+		}
+		Guest[] array = guests.toArray(new Guest[0]);
+		for (Guest guest : array) {
+			if (!Utils.validateObject(guest)) {
+				throw new NullPointerException("Guest can't be null.");
+			}
+		}
+
+		List<Match> matches = new ArrayList<>();
+		for (int key = NAME_KEY; key <= EMAIL_KEY; key++) {
+			matches.addAll(findInBlocks(array, key));
+		}
+		return toCandidates(array, matches);
+	}
+
+	/** Groups the guests by one key and compares the guests of every block. */
+	private List<Match> findInBlocks(Guest[] guests, int key) {
+		long[] packed = new long[guests.length];
+		IntStream.range(0, guests.length).parallel()
+				.forEach(i -> packed[i] = (blockKey(guests[i], key) & ~(MAX_GUESTS - 1L)) | i);
+		Arrays.parallelSort(packed);
+
+		// start and end of every block with at least two guests
+		int[] bounds = new int[16];
+		int count = 0;
+		for (int start = 0; start < packed.length; ) {
+			int end = start + 1;
+			while (end < packed.length && (packed[end] ^ packed[start]) >>> 24 == 0) {
+				end++;
+			}
+			if (end - start > 1) {
+				if (count + 2 > bounds.length) {
+					bounds = Arrays.copyOf(bounds, bounds.length * 2);
+				}
+				bounds[count++] = start;
+				bounds[count++] = end;
+			}
+			start = end;
+		}
+		int[] blocks = bounds;
+		return IntStream.range(0, count / 2).parallel()
+				.mapToObj(block -> compareBlock(guests, packed, blocks[2 * block], blocks[2 * block + 1]))
+				.flatMap(List::stream)
+				.collect(Collectors.toList());
+	}
+
+	/** Compares the guests of {@code packed[from, to)}. */
+	private List<Match> compareBlock(Guest[] guests, long[] packed, int from, int to) {
+		int size = to - from;
+		int[] members = new int[size];
+		for (int i = 0; i < size; i++) {
+			members[i] = (int) (packed[from + i] & (MAX_GUESTS - 1));
+		}
+		int window = size;
+		if (size > MAX_BLOCK) {
+			members = sortByName(guests, members);
+			window = WINDOW;
+		}
+		long[][] names = new long[size][];
+		long[][] emails = new long[size][];
+		List<Match> found = null;
+		for (int i = 0; i < size; i++) {
+			for (int j = i + 1; j < size && j <= i + window; j++) {
+				Guest a = guests[members[i]];
+				Guest b = guests[members[j]];
+				if (a == b) {
+					continue;
+				}
+				if (names[i] == null) {
+					names[i] = trigrams(a.getFirstName() + ' ' + a.getLastName());
+					emails[i] = trigrams(a.getEmail());
+				}
+				if (names[j] == null) {
+					names[j] = trigrams(b.getFirstName() + ' ' + b.getLastName());
+					emails[j] = trigrams(b.getEmail());
+				}
+				// the shorter list bounds the common trigrams: skip pairs that can't reach the score
+				if (NAME_WEIGHT * maxDice(names[i], names[j]) + EMAIL_WEIGHT * maxDice(emails[i], emails[j]) < minScore) {
+					continue;
+				}
+				double score = NAME_WEIGHT * dice(names[i], names[j], (minScore - EMAIL_WEIGHT) / NAME_WEIGHT);
+				score += EMAIL_WEIGHT * dice(emails[i], emails[j], (minScore - score) / EMAIL_WEIGHT);
+				if (score >= minScore) {
+					if (found == null) {
+						found = new ArrayList<>();
+					}
+					found.add(new Match(members[i], members[j], score));
+				}
+			}
+		}
+		return found == null ? Collections.emptyList() : found;
+	}
+
+	private static int[] sortByName(Guest[] guests, int[] members) {
+		return Arrays.stream(members).boxed()
+				.sorted(Comparator.<Integer, String>comparing(i -> guests[i].getLastName(), GuestIndex::compareFolded)
+						.thenComparing(i -> guests[i].getFirstName(), GuestIndex::compareFolded))
+				.mapToInt(Integer::intValue)
+				.toArray();
+	}
+
+	/** Removes the pairs found by several keys and orders the rest by score. */
+	private static List<DuplicateCandidate> toCandidates(Guest[] guests, List<Match> matches) {
+		matches.sort(Comparator.comparingLong((Match match) -> match.pair));
+		List<Match> unique = new ArrayList<>(matches.size());
+		for (Match match : matches) {
+			if (unique.isEmpty() || unique.get(unique.size() - 1).pair != match.pair) {
+				unique.add(match);
+			}
+		}
+		unique.sort(Comparator.comparingDouble((Match match) -> -match.score)
+				.thenComparingLong(match -> match.pair));
+		List<DuplicateCandidate> result = new ArrayList<>(unique.size());
+		for (Match match : unique) {
+			result.add(new DuplicateCandidate(guests[(int) (match.pair >>> 24)],
+					guests[(int) (match.pair & (MAX_GUESTS - 1))], match.score));
+		}
+		return result;
+	}
+
+	/** Returns a 64-bit hash of the guest's blocking key; the low 24 bits are replaced by the caller. */
+	private static long blockKey(Guest guest, int key) {
+		String email = guest.getEmail();
+		int at = email.lastIndexOf('@');
+		long hash = FNV_OFFSET;
+		switch (key) {
+			case NAME_KEY -> hash = mix(((long) soundex(guest.getLastName()) << 32) | soundex(guest.getFirstName()));
+			case DOMAIN_KEY -> {
+				hash = hash(hash, email, at + 1, email.length());
+				hash = mix(hash ^ soundex(guest.getLastName()));
+			}
+			default -> hash = mix(hash(hash, email, 0, email.length()));
+		}
+		return hash;
+	}
+
+	/** FNV-1a of the lower-cased characters {@code [from, to)}. */
+	private static long hash(long hash, String value, int from, int to) {
+		for (int i = from; i < to; i++) {
+			hash = (hash ^ Character.toLowerCase(value.charAt(i))) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/** Spreads all bits of the value over the high bits used by the blocks. */
+	private static long mix(long value) {
+		value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+		value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return value ^ (value >>> 33);
+	}
+
+	/**
+	 * Returns the Soundex code of a name: its first letter and three digits for
+	 * the following consonants, packed as {@code letter << 12 | digits}.
+	 * Letters outside A-Z don't add digits.
+	 *
+	 * @param name the name
+	 * @return the packed code, 0 if the name has no letter
+	 */
+	static int soundex(String name) {
+		int code = 0;
+		int digits = 0;
+		char last = 0;
+		for (int i = 0; i < name.length() && digits < 3; i++) {
+			char c = Character.toUpperCase(name.charAt(i));
+			if (!Character.isLetter(c)) {
+				continue;
+			}
+			char digit = c >= 'A' && c <= 'Z' ? SOUNDEX.charAt(c - 'A') : '0';
+			if (code == 0) {
+				code = c << 12;
+			} else if (digit != '0' && digit != last) {
+				code |= (digit - '0') << (8 - 4 * digits++);
+			}
+			// H and W don't separate consonants with the same code, vowels do
+			if (c != 'H' && c != 'W') {
+				last = digit;
+			}
+		}
+		return code;
+	}
+
+	/** Returns the sorted trigrams of the lower-cased value padded with a space on both sides. */
+	private static long[] trigrams(String value) {
+		String padded = ' ' + GuestIndex.fold(value) + ' ';
+		long[] grams = new long[Math.max(padded.length() - 2, 0)];
+		for (int i = 0; i < grams.length; i++) {
+			grams[i] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+		}
+		Arrays.sort(grams);
+		return grams;
+	}
+
+	/** Highest possible Dice coefficient of two trigram lists of these sizes. */
+	private static double maxDice(long[] a, long[] b) {
+		return a.length + b.length == 0 ? 1 : 2.0 * Math.min(a.length, b.length) / (a.length + b.length);
+	}
+
+	/**
+	 * Dice coefficient of two sorted trigram lists: 2 * common / (size a + size b).
+	 * Stops early and returns 0 once the result can't reach {@code minimum}.
+	 */
+	private static double dice(long[] a, long[] b, double minimum) {
+		int total = a.length + b.length;
+		if (total == 0) {
+			return 1;
+		}
+		int needed = (int) Math.ceil(minimum * total / 2 - 1e-9);
+		int common = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length && j < b.length) {
+			if (common + Math.min(a.length - i, b.length - j) < needed) {
+				return 0;
+			}
+			if (a[i] == b[j]) {
+				common++;
+				i++;
+				j++;
+			} else if (a[i] < b[j]) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		return 2.0 * common / total;
+	}
+
+	/** A pair of guest positions (lower one in the high bits) and its score. */
+	private static final class Match {
+
+		final long pair;
+		final double score;
+
+		Match(int a, int b, double score) {
+			this.pair = a < b ? ((long) a << 24) | b : ((long) b << 24) | a;
+			this.score = score;
+		}
+	}
+}
@@ -0,0 +1,249 @@
+package ua.hotel_managment;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import ua.util.Utils;
+
+/**
+ * Answers "any N nights between these dates, cheapest first" for all rooms
+ * that fit the guests.
+ * <p>
+ * The occupied nights of the matching rooms are copied into one flat array under
+ * the hotel's lock. Then every room is scanned once: a window of N nights slides
+ * over the horizon, keeping the number of occupied nights inside the window as
+ * a running sum, so each start date costs O(1) instead of building and checking
+ * a {@link Reservation}. A room has one price per night, so all free windows of
+ * a room cost the same: a room stops after {@code limit} free windows, and rooms
+ * that can't beat the kept options are not scanned at all.
+ * <p>
+ * Rooms are scanned in parallel in slices; every slice keeps a bounded heap
+ * of its best options, and the heaps are merged at the end.
+ */
+public class FlexibleDateSearch {
+
+	/** Number of rooms scanned by one parallel task. */
+	private static final int ROOMS_PER_TASK = 64;
+
+	private final Hotel hotel;
+
+	/**
+	 * Constructs a new {@code FlexibleDateSearch} for the given hotel.
+	 *
+	 * @param hotel the hotel whose rooms are searched
+	 * @throws NullPointerException if {@code hotel} is {@code null}
+	 */
+	public FlexibleDateSearch(Hotel hotel) {
+		if (!Utils.validateObject(hotel)) {
+			throw new NullPointerException("Hotel can't be null.");
+		}
+		this.hotel = hotel;
+	}
+
+	/**
+	 * Factory method for creating a new {@code FlexibleDateSearch}.
+	 *
+	 * @param hotel the hotel whose rooms are searched
+	 * @return a new {@code FlexibleDateSearch} instance
+	 */
+	public static FlexibleDateSearch create(Hotel hotel) {
+		return new FlexibleDateSearch(hotel);
+	}
+
+	/**
+	 * Finds the cheapest free stays of {@code nights} consecutive nights inside
+	 * {@code [from, to)}. Options are ordered by total price, then by start date,
+	 * then by room number.
+	 *
+	 * @param from     the earliest first night
+	 * @param to       the latest check-out date
+	 * @param nights   length of the stay (positive number)
+	 * @param people   number of guests; rooms with a smaller capacity are skipped (positive number)
+	 * @param roomType the required room type (case-insensitive), or {@code null} for any type
+	 * @param limit    maximal number of options to return (positive number)
+	 * @return up to {@code limit} options, cheapest first
+	 * @throws NullPointerException     if a date is {@code null}
+	 * @throws IllegalArgumentException if a number is not positive or {@code to} is not after {@code from}
+	 */
+	public List<StayOption> findCheapest(LocalDate from, LocalDate to, int nights, int people,
+			String roomType, int limit) {
+		if (!Utils.validateObject(from) || !Utils.validateObject(to)) {
+			throw new NullPointerException("Dates can't be null.");
+		}
+		if (!to.isAfter(from)) {
+			throw new IllegalArgumentException("End of the horizon must be after its start.");
+		}
+		if (!Utils.validatePositiveNumber(nights) || !Utils.validatePositiveNumber(people)
+				|| !Utils.validatePositiveNumber(limit)) {
+			throw new IllegalArgumentException("Nights, people and limit must be positive.");
+		}
+		long firstDay = from.toEpochDay();
+		int horizon = (int) (to.toEpochDay() - firstDay);
+		if (nights > horizon) {
+			return new ArrayList<>();
+		}
+
+		List<Room> rooms = new ArrayList<>();
+		byte[] occupied;
+		synchronized (hotel) {
+			for (Room room : hotel.getRooms()) {
+				if (room.getCapacity() >= people
+						&& (roomType == null || roomType.equalsIgnoreCase(room.getType()))) {
+					rooms.add(room);
+				}
+			}
+			rooms.sort(Comparator.comparingInt(Room::getRoomNumber));
+			occupied = new byte[rooms.size() * horizon];
+			for (int r = 0; r < rooms.size(); r++) {
+				for (Reservation booked : hotel.reservationsOf(rooms.get(r))) {
+					long start = Math.max(booked.getStartDay() - firstDay, 0);
+					long end = Math.min(booked.getEndDay() - firstDay, horizon);
+					for (long day = start; day < end; day++) {
+						occupied[r * horizon + (int) day] = 1;
+					}
+				}
+			}
+		}
+
+		int tasks = (rooms.size() + ROOMS_PER_TASK - 1) / ROOMS_PER_TASK;
+		Candidates best = IntStream.range(0, tasks).parallel()
+				.mapToObj(task -> scan(rooms, occupied, horizon, nights, limit, task * ROOMS_PER_TASK,
+						Math.min(rooms.size(), (task + 1) * ROOMS_PER_TASK)))
+				.reduce(Candidates::merge)
+				.orElseGet(() -> new Candidates(limit));
+
+		List<StayOption> result = new ArrayList<>(best.size);
+		for (int i = 0; i < best.size; i++) {
+			LocalDate start = from.plusDays(best.start[i]);
+			result.add(new StayOption(rooms.get(best.room[i]), start, start.plusDays(nights), best.cost[i]));
+		}
+		result.sort(Comparator.comparingDouble(StayOption::getTotalPrice)
+				.thenComparing(StayOption::getStartDate)
+				.thenComparingInt(option -> option.getRoom().getRoomNumber()));
+		return result;
+	}
+
+	/**
+	 * Slides the window over rooms {@code [fromRoom, toRoom)}.
+	 *
+	 * @return the best options of these rooms
+	 */
+	private static Candidates scan(List<Room> rooms, byte[] occupied, int horizon, int nights, int limit,
+			int fromRoom, int toRoom) {
+		Candidates best = new Candidates(limit);
+		for (int r = fromRoom; r < toRoom; r++) {
+			double nightPrice = rooms.get(r).getPrice();
+			// every window of a room costs the same, so a room that can't beat the
+			// worst kept option is skipped without scanning
+			if (best.size == limit && nightPrice * nights > best.cost[0]) {
+				continue;
+			}
+			int base = r * horizon;
+			int busy = 0;
+			int found = 0;
+			for (int day = 0; day < horizon && found < limit; day++) {
+				busy += occupied[base + day];
+				if (day >= nights) {
+					busy -= occupied[base + day - nights];
+				}
+				if (day >= nights - 1 && busy == 0) {
+					best.offer(nightPrice * nights, day - nights + 1, r);
+					found++;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Bounded max-heap of options in primitive arrays. The root is the worst kept
+	 * option, so a better one replaces it in O(log k).
+	 */
+	private static final class Candidates {
+
+		private final double[] cost;
+		private final int[] start;
+		private final int[] room;
+		private int size;
+
+		Candidates(int limit) {
+			cost = new double[limit];
+			start = new int[limit];
+			room = new int[limit];
+		}
+
+		void offer(double optionCost, int optionStart, int optionRoom) {
+			if (size < cost.length) {
+				set(size, optionCost, optionStart, optionRoom);
+				siftUp(size++);
+			} else if (compare(optionCost, optionStart, optionRoom, 0) < 0) {
+				set(0, optionCost, optionStart, optionRoom);
+				siftDown(0);
+			}
+		}
+
+		Candidates merge(Candidates other) {
+			for (int i = 0; i < other.size; i++) {
+				offer(other.cost[i], other.start[i], other.room[i]);
+			}
+			return this;
+		}
+
+		private void set(int i, double optionCost, int optionStart, int optionRoom) {
+			cost[i] = optionCost;
+			start[i] = optionStart;
+			room[i] = optionRoom;
+		}
+
+		/** Orders by cost, then start, then room; negative if the option is better than entry {@code i}. */
+		private int compare(double optionCost, int optionStart, int optionRoom, int i) {
+			int result = Double.compare(optionCost, cost[i]);
+			if (result == 0) {
+				result = Integer.compare(optionStart, start[i]);
+			}
+			return result != 0 ? result : Integer.compare(optionRoom, room[i]);
+		}
+
+		private void siftUp(int i) {
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				if (compare(cost[i], start[i], room[i], parent) <= 0) {
+					return;
+				}
+				swap(i, parent);
+				i = parent;
+			}
+		}
+
+		private void siftDown(int i) {
+			while (true) {
+				int worst = i;
+				for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+					if (compare(cost[child], start[child], room[child], worst) > 0) {
+						worst = child;
+					}
+				}
+				if (worst == i) {
+					return;
+				}
+				swap(i, worst);
+				i = worst;
+			}
+		}
+
+		private void swap(int i, int j) {
+			double c = cost[i];
+			cost[i] = cost[j];
+			cost[j] = c;
+			int s = start[i];
+			start[i] = start[j];
+			start[j] = s;
+			int r = room[i];
+			room[i] = room[j];
+			room[j] = r;
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package ua.hotel_managment;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a group allocation: the chosen rooms, how many people
+ * go to each of them and the total price per night.
+ */
+public class GroupAllocation {
+
+	private final GroupRequest request;
+	private final List<Room> rooms;
+	private final int[] occupants;
+	private final double totalPrice;
+	private final boolean optimal;
+
+	/**
+	 * Constructs a new {@code GroupAllocation}. Used by {@link GroupAllocator}.
+	 *
+	 * @param request    the request this allocation answers
+	 * @param rooms      the chosen rooms
+	 * @param occupants  number of people per chosen room
+	 * @param totalPrice sum of the rooms' prices
+	 * @param optimal    {@code true} if the search finished within its budget
+	 */
+	GroupAllocation(GroupRequest request, List<Room> rooms, int[] occupants, double totalPrice, boolean optimal) {
+		this.request = request;
+		this.rooms = Collections.unmodifiableList(rooms);
+		this.occupants = occupants;
+		this.totalPrice = totalPrice;
+		this.optimal = optimal;
+	}
+
+	/** @return the request this allocation answers */
+	public GroupRequest getRequest() { return request; }
+
+	/** @return unmodifiable list of the chosen rooms */
+	public List<Room> getRooms() { return rooms; }
+
+	/**
+	 * Returns how many people are placed in the i-th chosen room.
+	 *
+	 * @param index index of the room in {@link #getRooms()}
+	 * @return number of people in the room
+	 */
+	public int getOccupants(int index) { return occupants[index]; }
+
+	/** @return sum of the chosen rooms' prices */
+	public double getTotalPrice() { return totalPrice; }
+
+	/**
+	 * Returns whether the allocation is proven to be the cheapest one.
+	 * If the search budget ran out, the best allocation found so far is returned
+	 * and this method returns {@code false}.
+	 *
+	 * @return {@code true} if the allocation has minimal total price
+	 */
+	public boolean isOptimal() { return optimal; }
+
+	/**
+	 * Returns a string representation of the allocation.
+	 *
+	 * @return formatted string with allocation details
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("GroupAllocation [rooms=");
+		for (int i = 0; i < rooms.size(); i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(rooms.get(i).getRoomNumber()).append('x').append(occupants[i]);
+		}
+		return sb.append(", totalPrice=").append(totalPrice)
+				.append(", optimal=").append(optimal).append(']').toString();
+	}
+}
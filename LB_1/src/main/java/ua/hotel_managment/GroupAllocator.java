@@ -0,0 +1,249 @@
+package ua.hotel_managment;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import ua.util.Utils;
+
+/**
+ * Picks a set of free rooms for a group so that the rooms' capacity covers
+ * the party at minimal total price, and books them atomically.
+ * <p>
+ * Free rooms with equal usable capacity and price are merged into one class,
+ * so hotels with thousands of rooms usually produce only a few dozen classes.
+ * Classes are sorted by price per place, and a depth-first branch and bound
+ * (which starts with the greedy solution) searches how many rooms to take
+ * from each class. The search stops after a bounded number of steps and
+ * returns the best allocation found so far.
+ */
+public class GroupAllocator {
+
+	/** Default number of search steps. */
+	public static final int DEFAULT_SEARCH_BUDGET = 100_000;
+
+	private final Hotel hotel;
+	private final int searchBudget;
+
+	// search state, valid during a single allocate() call under the hotel's lock
+	private int[] classCapacity;
+	private double[] classPrice;
+	private int[] classCount;
+	private int[] chosen;
+	private int[] bestChosen;
+	private double bestCost;
+	private int steps;
+	private int minPerRoom;
+	private int partySize;
+
+	/**
+	 * Constructs a new {@code GroupAllocator} for the given hotel.
+	 *
+	 * @param hotel        the hotel whose rooms are allocated
+	 * @param searchBudget maximal number of search steps (positive number)
+	 * @throws NullPointerException     if {@code hotel} is {@code null}
+	 * @throws IllegalArgumentException if {@code searchBudget} is not positive
+	 */
+	public GroupAllocator(Hotel hotel, int searchBudget) {
+		if (!Utils.validateObject(hotel)) {
+			throw new NullPointerException("Hotel can't be null.");
+		}
+		if (!Utils.validatePositiveNumber(searchBudget)) {
+			throw new IllegalArgumentException("Search budget must be positive.");
+		}
+		this.hotel = hotel;
+		this.searchBudget = searchBudget;
+	}
+
+	/**
+	 * Factory method for creating a {@code GroupAllocator} with the default search budget.
+	 *
+	 * @param hotel the hotel whose rooms are allocated
+	 * @return a new {@code GroupAllocator} instance
+	 */
+	public static GroupAllocator create(Hotel hotel) {
+		return new GroupAllocator(hotel, DEFAULT_SEARCH_BUDGET);
+	}
+
+	/**
+	 * Finds the cheapest set of free rooms for the group without booking them.
+	 *
+	 * @param request the group request
+	 * @return the allocation, or {@code null} if the free rooms can't hold the group
+	 * @throws NullPointerException if {@code request} is {@code null}
+	 */
+	public GroupAllocation allocate(GroupRequest request) {
+		if (!Utils.validateObject(request)) {
+			throw new NullPointerException("Request can't be null.");
+		}
+		// the search state is guarded by the hotel's lock as well
+		synchronized (hotel) {
+			return search(request);
+		}
+	}
+
+	/**
+	 * Runs the search for {@link #allocate(GroupRequest)}. Must hold the hotel's lock.
+	 *
+	 * @param request the group request
+	 * @return the allocation, or {@code null} if the group can't be placed
+	 */
+	private GroupAllocation search(GroupRequest request) {
+		List<Room> candidates = new ArrayList<>();
+		for (Room room : hotel.findAvailableRooms(request.getStartDate(), request.getEndDate())) {
+			if (request.accepts(room)) {
+				candidates.add(room);
+			}
+		}
+		candidates.sort(Comparator
+				.comparingDouble((Room room) -> room.getPrice() / request.usableCapacity(room))
+				.thenComparingInt(request::usableCapacity)
+				.thenComparingDouble(Room::getPrice));
+
+		List<List<Room>> classes = groupIntoClasses(candidates, request);
+		int n = classes.size();
+		classCapacity = new int[n];
+		classPrice = new double[n];
+		classCount = new int[n];
+		for (int i = 0; i < n; i++) {
+			Room first = classes.get(i).get(0);
+			classCapacity[i] = request.usableCapacity(first);
+			classPrice[i] = first.getPrice();
+			classCount[i] = classes.get(i).size();
+		}
+		chosen = new int[n];
+		bestChosen = null;
+		bestCost = Double.POSITIVE_INFINITY;
+		steps = 0;
+		minPerRoom = request.getMinPerRoom();
+		partySize = request.getPartySize();
+
+		search(0, partySize, 0, 0.0);
+		if (bestChosen == null) {
+			return null;
+		}
+		List<Room> rooms = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			rooms.addAll(classes.get(i).subList(0, bestChosen[i]));
+		}
+		return new GroupAllocation(request, rooms, distribute(rooms, request), bestCost, steps <= searchBudget);
+	}
+
+	/**
+	 * Books the rooms of the allocation for the given guest.
+	 * Either all rooms are booked, or none of them is.
+	 *
+	 * @param allocation the allocation to book
+	 * @param guest      the guest responsible for the group
+	 * @return the booked reservations, one per room
+	 * @throws NullPointerException  if any argument is {@code null}
+	 * @throws IllegalStateException if some room was booked by someone else meanwhile
+	 */
+	public List<Reservation> book(GroupAllocation allocation, Guest guest) {
+		if (!Utils.validateObject(allocation)) {
+			throw new NullPointerException("Allocation can't be null.");
+		}
+		LocalDate startDate = allocation.getRequest().getStartDate();
+		LocalDate endDate = allocation.getRequest().getEndDate();
+		List<Reservation> reservations = new ArrayList<>();
+		for (Room room : allocation.getRooms()) {
+			reservations.add(new Reservation(guest, room, startDate, endDate));
+		}
+		hotel.bookAll(reservations);
+		return reservations;
+	}
+
+	/**
+	 * Finds the cheapest set of free rooms and books it in one step,
+	 * so no other booking can take the chosen rooms in between.
+	 *
+	 * @param request the group request
+	 * @param guest   the guest responsible for the group
+	 * @return the booked reservations, or {@code null} if the group can't be placed
+	 * @throws NullPointerException if any argument is {@code null}
+	 */
+	public List<Reservation> allocateAndBook(GroupRequest request, Guest guest) {
+		synchronized (hotel) {
+			GroupAllocation allocation = allocate(request);
+			return allocation == null ? null : book(allocation, guest);
+		}
+	}
+
+	/**
+	 * Depth-first branch and bound over room classes.
+	 *
+	 * @param index  current class
+	 * @param need   people still without a room
+	 * @param rooms  number of rooms taken so far
+	 * @param cost   price of the rooms taken so far
+	 */
+	private void search(int index, int need, int rooms, double cost) {
+		steps++;
+		if (need <= 0) {
+			if (cost < bestCost && rooms * minPerRoom <= partySize) {
+				bestCost = cost;
+				bestChosen = chosen.clone();
+			}
+			return;
+		}
+		if (index == classCount.length || steps > searchBudget) {
+			return;
+		}
+		// classes are sorted by price per place, so no cheaper place remains
+		if (cost + need * (classPrice[index] / classCapacity[index]) >= bestCost) {
+			return;
+		}
+		int max = Math.min(classCount[index], (need + classCapacity[index] - 1) / classCapacity[index]);
+		for (int k = max; k >= 0; k--) {
+			chosen[index] = k;
+			search(index + 1, need - k * classCapacity[index], rooms + k, cost + k * classPrice[index]);
+		}
+		chosen[index] = 0;
+	}
+
+	/**
+	 * Groups sorted rooms with the same usable capacity and price.
+	 *
+	 * @param sorted  rooms sorted by price per place, capacity and price
+	 * @param request the group request
+	 * @return list of room classes
+	 */
+	private static List<List<Room>> groupIntoClasses(List<Room> sorted, GroupRequest request) {
+		List<List<Room>> classes = new ArrayList<>();
+		List<Room> current = null;
+		for (Room room : sorted) {
+			if (current == null
+					|| request.usableCapacity(current.get(0)) != request.usableCapacity(room)
+					|| current.get(0).getPrice() != room.getPrice()) {
+				current = new ArrayList<>();
+				classes.add(current);
+			}
+			current.add(room);
+		}
+		return classes;
+	}
+
+	/**
+	 * Spreads the party over the chosen rooms: each room gets the minimum,
+	 * the rest fills the rooms up to their usable capacity.
+	 *
+	 * @param rooms   the chosen rooms
+	 * @param request the group request
+	 * @return number of people per room
+	 */
+	private static int[] distribute(List<Room> rooms, GroupRequest request) {
+		int[] occupants = new int[rooms.size()];
+		int left = request.getPartySize();
+		for (int i = 0; i < occupants.length; i++) {
+			occupants[i] = request.getMinPerRoom();
+			left -= occupants[i];
+		}
+		for (int i = 0; i < occupants.length && left > 0; i++) {
+			int extra = Math.min(left, request.usableCapacity(rooms.get(i)) - occupants[i]);
+			occupants[i] += extra;
+			left -= extra;
+		}
+		return occupants;
+	}
+}
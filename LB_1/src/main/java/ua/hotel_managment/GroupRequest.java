@@ -0,0 +1,118 @@
+package ua.hotel_managment;
+
+import java.time.LocalDate;
+
+import ua.util.Utils;
+
+/**
+ * Describes a group booking request, e.g. "40 people, 2-3 per room, 5 nights".
+ * The room type is optional; {@code null} means any type is accepted.
+ */
+public class GroupRequest {
+
+	private final int partySize;
+	private final LocalDate startDate;
+	private final LocalDate endDate;
+	private final int minPerRoom;
+	private final int maxPerRoom;
+	private final String roomType;
+
+	/**
+	 * Constructs a new {@code GroupRequest}.
+	 *
+	 * @param partySize  number of people in the group (positive number)
+	 * @param startDate  the first night of the stay
+	 * @param endDate    the check-out date (after {@code startDate})
+	 * @param minPerRoom minimal number of people placed in one room (positive number)
+	 * @param maxPerRoom maximal number of people placed in one room (not less than {@code minPerRoom})
+	 * @param roomType   the required room type, or {@code null} for any type
+	 * @throws IllegalArgumentException if any value is invalid
+	 * @throws NullPointerException     if a date is {@code null}
+	 */
+	public GroupRequest(int partySize, LocalDate startDate, LocalDate endDate,
+			int minPerRoom, int maxPerRoom, String roomType) {
+		if (!Utils.validatePositiveNumber(partySize)) {
+			throw new IllegalArgumentException("Party size must be positive.");
+		}
+		if (!Utils.validateObject(startDate) || !Utils.validateObject(endDate)) {
+			throw new NullPointerException("Dates can't be null.");
+		}
+		if (!endDate.isAfter(startDate)) {
+			throw new IllegalArgumentException("End date must be after start date.");
+		}
+		if (!Utils.validatePositiveNumber(minPerRoom) || maxPerRoom < minPerRoom) {
+			throw new IllegalArgumentException("Invalid number of people per room.");
+		}
+		this.partySize = partySize;
+		this.startDate = startDate;
+		this.endDate = endDate;
+		this.minPerRoom = minPerRoom;
+		this.maxPerRoom = maxPerRoom;
+		this.roomType = roomType;
+	}
+
+	/**
+	 * Factory method for creating a new {@code GroupRequest} for any room type.
+	 *
+	 * @param partySize  number of people in the group
+	 * @param startDate  the first night of the stay
+	 * @param endDate    the check-out date
+	 * @param minPerRoom minimal number of people in one room
+	 * @param maxPerRoom maximal number of people in one room
+	 * @return a new {@code GroupRequest} instance
+	 */
+	public static GroupRequest create(int partySize, LocalDate startDate, LocalDate endDate,
+			int minPerRoom, int maxPerRoom) {
+		return new GroupRequest(partySize, startDate, endDate, minPerRoom, maxPerRoom, null);
+	}
+
+	/** @return number of people in the group */
+	public int getPartySize() { return partySize; }
+
+	/** @return the first night of the stay */
+	public LocalDate getStartDate() { return startDate; }
+
+	/** @return the check-out date */
+	public LocalDate getEndDate() { return endDate; }
+
+	/** @return minimal number of people in one room */
+	public int getMinPerRoom() { return minPerRoom; }
+
+	/** @return maximal number of people in one room */
+	public int getMaxPerRoom() { return maxPerRoom; }
+
+	/** @return the required room type, or {@code null} for any type */
+	public String getRoomType() { return roomType; }
+
+	/**
+	 * Checks if the room can be used for this group at all.
+	 *
+	 * @param room the room to check
+	 * @return {@code true} if the room fits the type and the minimal occupancy
+	 */
+	boolean accepts(Room room) {
+		return room.getCapacity() >= minPerRoom
+				&& (roomType == null || roomType.equalsIgnoreCase(room.getType()));
+	}
+
+	/**
+	 * Returns how many people of this group can be placed in the room.
+	 *
+	 * @param room the room
+	 * @return the room's capacity limited by {@link #getMaxPerRoom()}
+	 */
+	int usableCapacity(Room room) {
+		return Math.min(room.getCapacity(), maxPerRoom);
+	}
+
+	/**
+	 * Returns a string representation of the group request.
+	 *
+	 * @return formatted string with request details
+	 */
+	@Override
+	public String toString() {
+		return "GroupRequest [partySize=" + partySize + ", startDate=" + startDate + ", endDate=" + endDate
+				+ ", perRoom=" + minPerRoom + "-" + maxPerRoom + ", roomType=" + roomType + "]";
+	}
+}
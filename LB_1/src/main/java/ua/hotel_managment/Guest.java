@@ -1,20 +1,61 @@
 package ua.hotel_managment;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
 import java.time.LocalDate;
 import java.util.Objects;
 
+import ua.util.FieldRule;
+import ua.util.FieldWriter;
+import ua.util.FieldFormattable;
+import ua.util.IdGenerator;
+import ua.util.StringDictionary;
 import ua.util.Utils;
 
 /**
  * Represents a hotel guest with personal details and a check-in date.
  * Provides validation for all fields through setters.
  */
-public class Guest {
+public class Guest implements Serializable, FieldFormattable {
+	
+	private static final long serialVersionUID = 1L;
+
+	/** Serialized form of the original fields, with the check-in date as a {@code LocalDate}. */
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("firstName", String.class),
+			new ObjectStreamField("lastName", String.class),
+			new ObjectStreamField("email", String.class),
+			new ObjectStreamField("checkInDate", LocalDate.class) };
+
+	/** First and last names repeat across guests, so guests share one instance of each. */
+	private static final StringDictionary NAMES = new StringDictionary(1 << 20);
+
+	private static final FieldRule FIRST_NAME = FieldRule.of(Guest.class, "firstName", String.class, MethodHandles.lookup())
+			.notBlank(NullPointerException.class, "First name cannot be empty or null")
+			.compile();
+	private static final FieldRule LAST_NAME = FieldRule.of(Guest.class, "lastName", String.class, MethodHandles.lookup())
+			.notBlank(IllegalArgumentException.class, "Last name cannot be empty or null")
+			.compile();
+	private static final FieldRule EMAIL = FieldRule.of(Guest.class, "email", String.class, MethodHandles.lookup())
+			.notNull(NullPointerException.class, "Email cannot be null")
+			.email(IllegalArgumentException.class, "Email format is invalid")
+			.compile();
+	private static final FieldRule CHECK_IN_DATE = FieldRule.of(Guest.class, "checkInDate", LocalDate.class, MethodHandles.lookup())
+			.notNull(NullPointerException.class, "Check-in date cannot be null")
+			.notInPast(IllegalArgumentException.class, "Check-in date cannot be in the past")
+			.compile();
 	
 	private String firstName;
 	private String lastName;
 	private String email;
-	private LocalDate checkInDate; // check-in (registration) date
+	private int checkInDay; // check-in (registration) date as an epoch day
+	private transient GuestIndex index; // autocomplete index notified by the setters
+	private transient int indexId;
+	private transient int id = IdGenerator.shared().next();
 	
 	/**
 	 * Constructs a new {@code Guest} instance with the provided details.
@@ -55,6 +96,47 @@ public class Guest {
 		return new Guest(firstName, lastName, email, checkInDate);
 	}
 	
+	/**
+	 * Constructor for {@link #restore}; fields are set by the caller.
+	 */
+	private Guest() {
+	}
+	
+	/**
+	 * Recreates a guest from stored data. Unlike the constructor,
+	 * a check-in date in the past is accepted.
+	 *
+	 * @param firstName   the guest's first name
+	 * @param lastName    the guest's last name
+	 * @param email       the guest's email
+	 * @param checkInDate the guest's check-in date
+	 * @return the restored {@code Guest}
+	 * @throws IllegalArgumentException if any value is invalid
+	 * @throws NullPointerException     if any value is {@code null}
+	 */
+	static Guest restore(String firstName, String lastName, String email, LocalDate checkInDate) {
+		Guest guest = new Guest();
+		guest.setFirstName(firstName);
+		guest.setLastName(lastName);
+		guest.setEmail(email);
+		if (!Utils.validateObject(checkInDate)) {
+			throw new NullPointerException("Check-in date cannot be null");
+		}
+		guest.checkInDay = Math.toIntExact(checkInDate.toEpochDay());
+		return guest;
+	}
+	
+	/**
+	 * Returns the id of the guest: unique in this process and, unlike
+	 * {@link #hashCode()}, not changed by the setters, so it can key maps.
+	 * A deserialized copy gets a new id.
+	 *
+	 * @return the id
+	 */
+	public long getId() {
+		return id;
+	}
+
 	/** 
 	 * Returns the guest's first name.
 	 *
@@ -70,10 +152,13 @@ public class Guest {
 	 * @throws IllegalArgumentException if {@code firstName} is empty or blank
 	 */
 	public void setFirstName(String firstName) {
-		if (!Utils.validateObject(firstName) || !Utils.validateString(firstName)) {
-			throw new NullPointerException("First name cannot be empty or null");
-		}
-	    this.firstName = firstName;
+		FIRST_NAME.check(this, firstName);
+		String old = this.firstName;
+	    this.firstName = NAMES.intern(firstName);
+	    if (index != null) {
+	    	index.changed(this, GuestIndex.Field.FIRST_NAME, old);
+	    }
+	    AuditTrail.changed(this, AuditTrail.Field.GUEST_FIRST_NAME, old, firstName);
 	}
 	
 	/** 
@@ -91,10 +176,13 @@ public class Guest {
 	 * @throws IllegalArgumentException if {@code lastName} is empty or blank
 	 */
 	public void setLastName(String lastName) {
-		if (!Utils.validateObject(lastName) || !Utils.validateString(lastName)) {
-			throw new IllegalArgumentException("Last name cannot be empty or null");
-		}
-	    this.lastName = lastName;
+		LAST_NAME.check(this, lastName);
+		String old = this.lastName;
+	    this.lastName = NAMES.intern(lastName);
+	    if (index != null) {
+	    	index.changed(this, GuestIndex.Field.LAST_NAME, old);
+	    }
+	    AuditTrail.changed(this, AuditTrail.Field.GUEST_LAST_NAME, old, lastName);
 	}
 	
 	/** 
@@ -112,13 +200,13 @@ public class Guest {
 	 * @throws IllegalArgumentException if {@code email} does not match a valid format
 	 */
 	public void setEmail(String email) {
-		if (!Utils.validateObject(email)) {
-			throw new NullPointerException("Email cannot be null");
-		}
-		else if (!Utils.validateEmail(email)) {
-			throw new IllegalArgumentException("Email format is invalid");
-		}
+		EMAIL.check(this, email);
+		String old = this.email;
 	    this.email = email;
+	    if (index != null) {
+	    	index.changed(this, GuestIndex.Field.EMAIL, old);
+	    }
+	    AuditTrail.changed(this, AuditTrail.Field.GUEST_EMAIL, old, email);
 	}
 	
 	/** 
@@ -126,7 +214,7 @@ public class Guest {
 	 *
 	 * @return the check-in date
 	 */
-	public LocalDate getCheckInDate() { return checkInDate; }
+	public LocalDate getCheckInDate() { return LocalDate.ofEpochDay(checkInDay); }
 	 
 	/**
 	 * Sets the guest's check-in date.
@@ -136,13 +224,39 @@ public class Guest {
 	 * @throws IllegalArgumentException if {@code checkInDate} is in the past
 	 */
 	public void setCheckInDate(LocalDate checkInDate) {
-		if (!Utils.validateObject(checkInDate)) {
-			throw new NullPointerException("Check-in date cannot be null");
-		}
-		else if (!Utils.validateDate(checkInDate, LocalDate.now())) {
-			throw new IllegalArgumentException("Check-in date cannot be in the past");
-		}
-	    this.checkInDate = checkInDate;
+		CHECK_IN_DATE.check(this, checkInDate);
+		int old = this.checkInDay;
+	    this.checkInDay = Math.toIntExact(checkInDate.toEpochDay());
+	    AuditTrail.changed(this, AuditTrail.Field.GUEST_CHECK_IN_DATE, old, checkInDay);
+	}
+
+	/**
+	 * Returns the autocomplete index the guest belongs to.
+	 *
+	 * @return the index, or {@code null}
+	 */
+	GuestIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns the guest's id in its {@link #getIndex() index}.
+	 *
+	 * @return the id
+	 */
+	int getIndexId() {
+		return indexId;
+	}
+
+	/**
+	 * Sets the index notified about changes of the names and email.
+	 *
+	 * @param index the index, or {@code null}
+	 * @param id    the guest's id in the index
+	 */
+	void setIndex(GuestIndex index, int id) {
+		this.index = index;
+		this.indexId = id;
 	}
 
 	/**
@@ -157,7 +271,7 @@ public class Guest {
 		if (this == obj) { return true; }
 		if (obj == null || getClass() != obj.getClass()) { return false; }
 		Guest other = (Guest) obj;
-		return Objects.equals(checkInDate, other.checkInDate)
+		return checkInDay == other.checkInDay
 				&& Objects.equals(email, other.email)
 				&& Objects.equals(firstName, other.firstName)
 				&& Objects.equals(lastName, other.lastName);
@@ -171,7 +285,22 @@ public class Guest {
 	 */
 	@Override
 	public int hashCode() {
-		return Objects.hash(checkInDate, email, firstName, lastName);
+		return Objects.hash(getCheckInDate(), email, firstName, lastName);
+	}
+
+	/**
+	 * Writes the guest's fields into the writer without building intermediate strings.
+	 *
+	 * @param out the writer
+	 */
+	@Override
+	public void formatTo(FieldWriter out) {
+		out.begin("Guest");
+		out.field("firstName", firstName);
+		out.field("lastName", lastName);
+		out.field("email", email);
+		out.field("checkInDate", getCheckInDate());
+		out.end();
 	}
 
 	/**
@@ -183,6 +312,37 @@ public class Guest {
 	@Override
 	public String toString() {
 		return "Guest [firstName=" + firstName + ", lastName=" + lastName 
-				+ ", email=" + email + ", checkInDate=" + checkInDate + "]";
+				+ ", email=" + email + ", checkInDate=" + getCheckInDate() + "]";
+	}
+
+	/**
+	 * Writes the guest in its original serialized form, with the check-in date as a {@code LocalDate}.
+	 *
+	 * @param out the stream
+	 * @throws IOException if the stream fails
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("firstName", firstName);
+		fields.put("lastName", lastName);
+		fields.put("email", email);
+		fields.put("checkInDate", getCheckInDate());
+		out.writeFields();
+	}
+
+	/**
+	 * Reads a guest written by {@link #writeObject}.
+	 *
+	 * @param in the stream
+	 * @throws IOException            if the stream fails
+	 * @throws ClassNotFoundException if a field's class can't be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		firstName = NAMES.intern((String) fields.get("firstName", null));
+		lastName = NAMES.intern((String) fields.get("lastName", null));
+		email = (String) fields.get("email", null);
+		checkInDay = Math.toIntExact(((LocalDate) fields.get("checkInDate", null)).toEpochDay());
+		id = IdGenerator.shared().next();
 	}
 }
@@ -0,0 +1,364 @@
+package ua.hotel_managment;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import ua.util.HeavyHitters;
+import ua.util.HyperLogLog;
+import ua.util.LongObjectMap;
+import ua.util.TDigest;
+import ua.util.Utils;
+
+/**
+ * Streaming guest and service analytics of a {@link Hotel} over any number of
+ * years, in memory that doesn't grow with the number of guests or services:
+ * <ul>
+ * <li>distinct guests per month, by e-mail, in a {@link HyperLogLog} per month
+ * (4 KiB each with the default precision);</li>
+ * <li>the most used services per room type, in a {@link HeavyHitters} per type;</li>
+ * <li>the distribution of invoice totals, in a {@link TDigest}.</li>
+ * </ul>
+ * The sketches are updated from {@link HotelListener} events. A guest counts in
+ * every month in which the stay has a night; a service counts once when it is
+ * first seen on a reservation, under the type of the reservation's room at that
+ * time; an invoice total counts once when the invoice is added. The sketches only
+ * grow: cancelling, archiving or recalculating doesn't take anything back, so they
+ * describe the demand seen rather than the current bookings. Only which
+ * reservations and invoices were counted is remembered, and it is forgotten when
+ * they leave the hotel.
+ * <p>
+ * Analytics of several hotels, or of the same hotel on several days, are combined
+ * with {@link #merge(GuestAnalytics)} if they use the same parameters.
+ */
+public class GuestAnalytics implements HotelListener {
+
+	/** Precision of the distinct-guest sketches, about 1.6% error. */
+	public static final int DEFAULT_PRECISION = 12;
+
+	/** Number of services kept per room type. */
+	public static final int DEFAULT_TOP_K = 10;
+
+	private final int precision;
+	private final int topK;
+	private final double compression;
+
+	private final TreeMap<YearMonth, HyperLogLog> guestsByMonth = new TreeMap<>();
+	private final Map<String, HeavyHitters> servicesByType = new HashMap<>();
+	private final TDigest invoiceTotals;
+
+	private final LongObjectMap<Integer> countedServices = new LongObjectMap<>(); // by reservation id
+	private final LongObjectMap<Boolean> countedInvoices = new LongObjectMap<>(); // by invoice id
+
+	/**
+	 * Constructs empty analytics with the default parameters. Use {@link #attach(Hotel)} to follow a hotel.
+	 */
+	public GuestAnalytics() {
+		this(DEFAULT_PRECISION, DEFAULT_TOP_K, TDigest.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * Constructs empty analytics.
+	 *
+	 * @param precision   precision of the distinct-guest sketches
+	 * @param topK        number of services kept per room type
+	 * @param compression compression of the invoice total digest
+	 * @throws IllegalArgumentException if a parameter is out of range
+	 */
+	public GuestAnalytics(int precision, int topK, double compression) {
+		new HyperLogLog(precision); // validates the precision
+		if (!Utils.validatePositiveNumber(topK)) {
+			throw new IllegalArgumentException("Top k must be positive.");
+		}
+		this.precision = precision;
+		this.topK = topK;
+		this.compression = compression;
+		this.invoiceTotals = new TDigest(compression);
+	}
+
+	/**
+	 * Creates analytics of the current reservations and invoices of the hotel
+	 * and keeps them up to date with every later change.
+	 *
+	 * @param hotel the hotel to follow
+	 * @return analytics registered as a listener of the hotel
+	 * @throws NullPointerException if {@code hotel} is {@code null}
+	 */
+	public static GuestAnalytics attach(Hotel hotel) {
+		return attach(hotel, new GuestAnalytics());
+	}
+
+	/**
+	 * Counts the current reservations and invoices of the hotel into the analytics
+	 * and keeps them up to date with every later change.
+	 *
+	 * @param hotel     the hotel to follow
+	 * @param analytics empty or previously merged analytics
+	 * @return {@code analytics}, registered as a listener of the hotel
+	 * @throws NullPointerException if an argument is {@code null}
+	 */
+	public static GuestAnalytics attach(Hotel hotel, GuestAnalytics analytics) {
+		if (!Utils.validateObject(hotel) || !Utils.validateObject(analytics)) {
+			throw new NullPointerException("Hotel and analytics can't be null.");
+		}
+		synchronized (hotel) {
+			for (Reservation reservation : hotel.getReservations()) {
+				analytics.reservationBooked(reservation);
+			}
+			for (Invoice invoice : hotel.getInvoices()) {
+				analytics.invoiceChanged(invoice);
+			}
+			hotel.addListener(analytics);
+			return analytics;
+		}
+	}
+
+	/**
+	 * Counts the guest in the months of the stay and the reservation's services.
+	 *
+	 * @param reservation the booked reservation
+	 */
+	@Override
+	public synchronized void reservationBooked(Reservation reservation) {
+		String email = reservation.getGuest().getEmail().toLowerCase(Locale.ROOT);
+		int startDay = reservation.getStartDay();
+		YearMonth last = YearMonth.from(LocalDate.ofEpochDay(Math.max(startDay, reservation.getEndDay() - 1)));
+		for (YearMonth month = YearMonth.from(LocalDate.ofEpochDay(startDay)); !month.isAfter(last);
+				month = month.plusMonths(1)) {
+			guestsByMonth.computeIfAbsent(month, m -> new HyperLogLog(precision)).add(email);
+		}
+		countServices(reservation);
+	}
+
+	/**
+	 * Counts the guest and the services added since the reservation was last seen.
+	 *
+	 * @param reservation the changed reservation
+	 */
+	@Override
+	public synchronized void reservationChanged(Reservation reservation) {
+		reservationBooked(reservation);
+	}
+
+	/**
+	 * Forgets which services of the reservation were counted; the counts stay.
+	 *
+	 * @param reservation the cancelled reservation
+	 */
+	@Override
+	public synchronized void reservationCancelled(Reservation reservation) {
+		countedServices.remove(reservation.getId());
+	}
+
+	/**
+	 * Forgets which services of the reservation and which of its invoices were counted; the counts stay.
+	 *
+	 * @param reservation the archived reservation
+	 * @param invoices    its invoices
+	 */
+	@Override
+	public synchronized void reservationArchived(Reservation reservation, List<Invoice> invoices) {
+		countedServices.remove(reservation.getId());
+		for (Invoice invoice : invoices) {
+			countedInvoices.remove(invoice.getId());
+		}
+	}
+
+	/**
+	 * Adds the total of a new invoice to the distribution; recalculations are ignored.
+	 *
+	 * @param invoice the added or recalculated invoice
+	 */
+	@Override
+	public synchronized void invoiceChanged(Invoice invoice) {
+		if (countedInvoices.put(invoice.getId(), Boolean.TRUE) == null) {
+			invoiceTotals.add(invoice.getTotalAmount());
+		}
+	}
+
+	/**
+	 * Returns the estimated number of distinct guests staying in a month.
+	 *
+	 * @param month the month
+	 * @return the estimate, 0 if nobody stayed
+	 * @throws NullPointerException if {@code month} is {@code null}
+	 */
+	public synchronized long getUniqueGuests(YearMonth month) {
+		if (!Utils.validateObject(month)) {
+			throw new NullPointerException("Month can't be null.");
+		}
+		HyperLogLog guests = guestsByMonth.get(month);
+		return guests == null ? 0 : guests.estimate();
+	}
+
+	/**
+	 * Returns the estimated number of distinct guests staying in a range of months,
+	 * each guest counted once however many months they stayed in.
+	 *
+	 * @param from the first month
+	 * @param to   the last month, inclusive
+	 * @return the estimate
+	 * @throws NullPointerException     if a month is {@code null}
+	 * @throws IllegalArgumentException if {@code to} is before {@code from}
+	 */
+	public synchronized long getUniqueGuests(YearMonth from, YearMonth to) {
+		if (!Utils.validateObject(from) || !Utils.validateObject(to)) {
+			throw new NullPointerException("Months can't be null.");
+		}
+		if (to.isBefore(from)) {
+			throw new IllegalArgumentException("Last month can't be before the first one.");
+		}
+		HyperLogLog union = new HyperLogLog(precision);
+		for (HyperLogLog guests : guestsByMonth.subMap(from, true, to, true).values()) {
+			union.merge(guests);
+		}
+		return union.estimate();
+	}
+
+	/**
+	 * Returns the most used services of a room type, most used first.
+	 *
+	 * @param roomType the room type
+	 * @return new list of at most {@code topK} services with their estimated counts
+	 * @throws NullPointerException if {@code roomType} is {@code null}
+	 */
+	public synchronized List<HeavyHitters.Entry> getTopServices(String roomType) {
+		if (!Utils.validateObject(roomType)) {
+			throw new NullPointerException("Room type can't be null.");
+		}
+		HeavyHitters services = servicesByType.get(roomType);
+		return services == null ? List.of() : services.top();
+	}
+
+	/**
+	 * Returns the most used services over all room types, most used first.
+	 *
+	 * @return new list of at most {@code topK} services with their estimated counts
+	 */
+	public synchronized List<HeavyHitters.Entry> getTopServices() {
+		HeavyHitters all = new HeavyHitters(topK);
+		for (HeavyHitters services : servicesByType.values()) {
+			all.merge(services);
+		}
+		return all.top();
+	}
+
+	/**
+	 * Returns the estimated number of times a service was used with a room type.
+	 *
+	 * @param roomType    the room type
+	 * @param serviceName name of the service
+	 * @return the estimate, never below the true count
+	 * @throws NullPointerException if an argument is {@code null}
+	 */
+	public synchronized long getServiceCount(String roomType, String serviceName) {
+		if (!Utils.validateObject(roomType) || !Utils.validateObject(serviceName)) {
+			throw new NullPointerException("Room type and service name can't be null.");
+		}
+		HeavyHitters services = servicesByType.get(roomType);
+		return services == null ? 0 : services.estimate(serviceName);
+	}
+
+	/**
+	 * Returns the estimated invoice total at a quantile, e.g. 0.5 for the median.
+	 *
+	 * @param q the quantile, from 0 to 1
+	 * @return the estimate, or {@code NaN} if there are no invoices
+	 * @throws IllegalArgumentException if {@code q} is out of range
+	 */
+	public synchronized double getInvoiceTotalQuantile(double q) {
+		return invoiceTotals.quantile(q);
+	}
+
+	/**
+	 * Returns the number of invoice totals in the distribution.
+	 *
+	 * @return number of invoices
+	 */
+	public synchronized long getInvoiceCount() {
+		return invoiceTotals.getCount();
+	}
+
+	/**
+	 * Returns the approximate memory of the sketches, not counting the service names.
+	 *
+	 * @return number of bytes
+	 */
+	public synchronized long getSketchSizeInBytes() {
+		long size = invoiceTotals.getSizeInBytes();
+		for (HyperLogLog guests : guestsByMonth.values()) {
+			size += guests.getSizeInBytes();
+		}
+		for (HeavyHitters services : servicesByType.values()) {
+			size += services.getSizeInBytes();
+		}
+		return size;
+	}
+
+	/**
+	 * Adds the counts of other analytics, e.g. of another hotel or day, to these.
+	 * The other analytics are not changed.
+	 *
+	 * @param other the other analytics
+	 * @throws NullPointerException     if {@code other} is {@code null}
+	 * @throws IllegalArgumentException if the parameters differ
+	 */
+	public void merge(GuestAnalytics other) {
+		if (!Utils.validateObject(other)) {
+			throw new NullPointerException("Analytics can't be null.");
+		}
+		if (other.precision != precision || other.topK != topK || other.compression != compression) {
+			throw new IllegalArgumentException("Analytics with different parameters can't be merged.");
+		}
+		// copy first, so that the two locks are never held together
+		Map<YearMonth, HyperLogLog> guests = new HashMap<>();
+		Map<String, HeavyHitters> services = new HashMap<>();
+		TDigest totals;
+		synchronized (other) {
+			other.guestsByMonth.forEach((month, sketch) -> guests.put(month, sketch.copy()));
+			other.servicesByType.forEach((type, sketch) -> services.put(type, sketch.copy()));
+			totals = other.invoiceTotals.copy();
+		}
+		synchronized (this) {
+			guests.forEach((month, sketch) -> guestsByMonth.merge(month, sketch, (mine, theirs) -> {
+				mine.merge(theirs);
+				return mine;
+			}));
+			services.forEach((type, sketch) -> servicesByType.merge(type, sketch, (mine, theirs) -> {
+				mine.merge(theirs);
+				return mine;
+			}));
+			invoiceTotals.merge(totals);
+		}
+	}
+
+	/**
+	 * Returns a string representation of the analytics.
+	 *
+	 * @return formatted string
+	 */
+	@Override
+	public synchronized String toString() {
+		return "GuestAnalytics [months=" + guestsByMonth.size() + ", roomTypes=" + servicesByType.size()
+				+ ", invoices=" + invoiceTotals.getCount() + "]";
+	}
+
+	/** Counts the services past those already counted for the reservation. */
+	private void countServices(Reservation reservation) {
+		List<Service> services = reservation.services();
+		Integer counted = countedServices.get(reservation.getId());
+		int from = counted == null ? 0 : counted;
+		if (from < services.size()) {
+			HeavyHitters top = servicesByType.computeIfAbsent(reservation.getRoom().getType(),
+					type -> new HeavyHitters(topK));
+			for (int i = from; i < services.size(); i++) {
+				top.add(services.get(i).getName());
+			}
+		}
+		countedServices.put(reservation.getId(), services.size());
+	}
+}
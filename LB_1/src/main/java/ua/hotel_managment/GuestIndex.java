@@ -0,0 +1,454 @@
+package ua.hotel_managment;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import ua.util.Utils;
+
+/**
+ * Case-insensitive prefix index over the last names, first names and emails
+ * of guests, for front-desk autocomplete.
+ * <p>
+ * The index stores no keys of its own. A key is a reference {@code guestId * 3 + field},
+ * and the sorted base run is a plain {@code int[]} of references ordered by the
+ * case-folded field values, which are read from the guests when comparing.
+ * So a guest costs 12 bytes in the base run plus its slot in the guest list.
+ * A prefix query is a binary search for the first matching reference followed
+ * by a walk through the matching range.
+ * <p>
+ * New keys go to a small sorted delta set that is merged into the base run when
+ * it grows past a fraction of the base. When a guest's name or email changes
+ * (the {@link Guest} setters notify the index) or a guest is removed, the value
+ * its base reference was sorted by is remembered, so the base run stays sorted;
+ * the old reference is skipped by queries and dropped by the next merge.
+ * <p>
+ * A guest can belong to one index at a time. The index is thread-safe.
+ */
+public class GuestIndex {
+
+	/** Indexed fields of a guest. */
+	public enum Field {
+		LAST_NAME, FIRST_NAME, EMAIL
+	}
+
+	private static final int FIELD_COUNT = Field.values().length;
+
+	/** Minimal delta size that triggers a merge. */
+	private static final int MIN_DELTA = 4096;
+
+	/** Guests by id; removed guests are cleared by the next merge. */
+	private final List<Guest> guests = new ArrayList<>();
+	private final BitSet removed = new BitSet();
+	private int removedCount;
+
+	/** References of the base run, sorted by folded value and then by reference. */
+	private int[] base = new int[0];
+
+	/** Values that changed or removed base references were sorted by. */
+	private final Map<Integer, String> frozen = new HashMap<>();
+
+	/** Keys added since the last merge. */
+	private final TreeSet<Entry> delta = new TreeSet<>();
+
+	/**
+	 * Constructs an empty index.
+	 */
+	public GuestIndex() {
+	}
+
+	/**
+	 * Factory method for creating an empty {@code GuestIndex}.
+	 *
+	 * @return a new {@code GuestIndex}
+	 */
+	public static GuestIndex create() {
+		return new GuestIndex();
+	}
+
+	/**
+	 * Adds a guest to the index.
+	 *
+	 * @param guest the guest
+	 * @throws NullPointerException  if {@code guest} is {@code null}
+	 * @throws IllegalStateException if the guest already belongs to an index
+	 */
+	public synchronized void add(Guest guest) {
+		int id = register(guest);
+		for (int field = 0; field < FIELD_COUNT; field++) {
+			int reference = id * FIELD_COUNT + field;
+			delta.add(new Entry(fold(value(reference)), reference));
+		}
+		mergeIfNeeded();
+	}
+
+	/**
+	 * Adds many guests at once. Faster than adding them one by one:
+	 * the new keys are sorted once and merged into the base run.
+	 *
+	 * @param added the guests
+	 * @throws NullPointerException  if the collection or a guest is {@code null}
+	 * @throws IllegalStateException if a guest already belongs to an index
+	 */
+	public synchronized void addAll(Collection<Guest> added) {
+		if (!Utils.validateObject(added)) {
+			throw new NullPointerException("Guests can't be null.");
+		}
+		int[] references = new int[added.size() * FIELD_COUNT];
+		int count = 0;
+		for (Guest guest : added) {
+			int id = register(guest);
+			for (int field = 0; field < FIELD_COUNT; field++) {
+				references[count++] = id * FIELD_COUNT + field;
+			}
+		}
+		sort(references);
+		merge(references);
+	}
+
+	/**
+	 * Removes a guest from the index.
+	 *
+	 * @param guest the guest
+	 * @return {@code true} if the guest was in this index
+	 */
+	public synchronized boolean remove(Guest guest) {
+		if (guest == null || guest.getIndex() != this) {
+			return false;
+		}
+		int id = guest.getIndexId();
+		for (int field = 0; field < FIELD_COUNT; field++) {
+			int reference = id * FIELD_COUNT + field;
+			frozen.putIfAbsent(reference, value(reference));
+		}
+		removed.set(id);
+		removedCount++;
+		guest.setIndex(null, 0);
+		mergeIfNeeded();
+		return true;
+	}
+
+	/**
+	 * Returns the number of guests in the index.
+	 *
+	 * @return number of guests
+	 */
+	public synchronized int size() {
+		return guests.size() - removedCount;
+	}
+
+	/**
+	 * Returns up to {@code limit} guests whose last name, first name or email starts
+	 * with the prefix, ignoring case. Guests are ordered by the matching value;
+	 * a guest matching in several fields is returned once.
+	 *
+	 * @param prefix the typed prefix
+	 * @param limit  maximal number of guests (positive number)
+	 * @return the matching guests
+	 * @throws NullPointerException     if {@code prefix} is {@code null}
+	 * @throws IllegalArgumentException if {@code limit} is not positive
+	 */
+	public List<Guest> suggest(String prefix, int limit) {
+		return suggest(null, prefix, limit);
+	}
+
+	/**
+	 * Returns up to {@code limit} guests whose value of the given field starts
+	 * with the prefix, ignoring case, ordered by that value.
+	 *
+	 * @param field  the field to search, or {@code null} for all fields
+	 * @param prefix the typed prefix
+	 * @param limit  maximal number of guests (positive number)
+	 * @return the matching guests
+	 * @throws NullPointerException     if {@code prefix} is {@code null}
+	 * @throws IllegalArgumentException if {@code limit} is not positive
+	 */
+	public synchronized List<Guest> suggest(Field field, String prefix, int limit) {
+		if (!Utils.validateObject(prefix)) {
+			throw new NullPointerException("Prefix can't be null.");
+		}
+		if (!Utils.validatePositiveNumber(limit)) {
+			throw new IllegalArgumentException("Limit must be positive.");
+		}
+		String folded = fold(prefix);
+		List<Guest> result = new ArrayList<>(Math.min(limit, 64));
+		int i = lowerBound(folded);
+		Iterator<Entry> added = delta.tailSet(new Entry(folded, -1)).iterator();
+		Entry next = nextMatching(added, folded);
+		while (result.size() < limit) {
+			boolean inBase = i < base.length && startsWithFolded(baseValue(base[i]), folded);
+			if (!inBase && next == null) {
+				break;
+			}
+			int order = !inBase ? 1 : next == null ? -1 : compareFolded(baseValue(base[i]), next.value);
+			int reference;
+			if (order < 0 || (order == 0 && base[i] < next.reference)) {
+				reference = base[i++];
+				if (frozen.containsKey(reference)) {
+					continue;
+				}
+			} else {
+				reference = next.reference;
+				boolean current = isCurrent(next);
+				next = nextMatching(added, folded);
+				if (!current) {
+					continue;
+				}
+			}
+			if (field != null && reference % FIELD_COUNT != field.ordinal()) {
+				continue;
+			}
+			Guest guest = guests.get(reference / FIELD_COUNT);
+			if (!containsSame(result, guest)) {
+				result.add(guest);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Called by the {@link Guest} setters after a name or email changed.
+	 *
+	 * @param guest    the changed guest
+	 * @param field    the changed field
+	 * @param oldValue the value before the change
+	 */
+	synchronized void changed(Guest guest, Field field, String oldValue) {
+		if (guest.getIndex() != this) {
+			return;
+		}
+		int reference = guest.getIndexId() * FIELD_COUNT + field.ordinal();
+		// a reference added after the last merge isn't in the base run; freezing it is harmless
+		frozen.putIfAbsent(reference, oldValue);
+		delta.add(new Entry(fold(value(reference)), reference));
+		mergeIfNeeded();
+	}
+
+	private int register(Guest guest) {
+		if (!Utils.validateObject(guest)) {
+			throw new NullPointerException("Guest can't be null.");
+		}
+		if (guest.getIndex() != null) {
+			throw new IllegalStateException("Guest already belongs to an index.");
+		}
+		int id = guests.size();
+		guests.add(guest);
+		guest.setIndex(this, id);
+		return id;
+	}
+
+	private void mergeIfNeeded() {
+		int threshold = Math.max(MIN_DELTA, base.length / 8);
+		if (delta.size() > threshold || frozen.size() > threshold) {
+			merge(new int[0]);
+		}
+	}
+
+	/**
+	 * Rebuilds the base run from its current references, the current delta
+	 * keys and the sorted extra references.
+	 */
+	private void merge(int[] extra) {
+		int[] kept = new int[base.length];
+		int keptCount = 0;
+		for (int reference : base) {
+			if (!frozen.containsKey(reference)) {
+				kept[keptCount++] = reference;
+			}
+		}
+		int[] fresh = new int[delta.size()];
+		int freshCount = 0;
+		for (Entry entry : delta) {
+			if (isCurrent(entry)) {
+				fresh[freshCount++] = entry.reference;
+			}
+		}
+		frozen.clear();
+		delta.clear();
+		for (int id = removed.nextSetBit(0); id >= 0; id = removed.nextSetBit(id + 1)) {
+			guests.set(id, null);
+		}
+		// all remaining references are now sorted by their current values
+		int[] merged = mergeSorted(kept, keptCount, fresh, freshCount);
+		base = mergeSorted(merged, merged.length, extra, extra.length);
+	}
+
+	private int[] mergeSorted(int[] a, int aCount, int[] b, int bCount) {
+		int[] result = new int[aCount + bCount];
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while (i < aCount && j < bCount) {
+			result[k++] = compareReferences(a[i], b[j]) <= 0 ? a[i++] : b[j++];
+		}
+		while (i < aCount) {
+			result[k++] = a[i++];
+		}
+		while (j < bCount) {
+			result[k++] = b[j++];
+		}
+		return result;
+	}
+
+	/**
+	 * Bottom-up merge sort of references by their current values. The values are
+	 * folded once into a temporary array, so comparisons don't fold them again.
+	 */
+	private void sort(int[] references) {
+		int length = references.length;
+		String[] keys = new String[length];
+		for (int i = 0; i < length; i++) {
+			keys[i] = fold(value(references[i]));
+		}
+		int[] from = references;
+		int[] to = new int[length];
+		String[] fromKeys = keys;
+		String[] toKeys = new String[length];
+		for (int width = 1; width < length; width *= 2) {
+			for (int start = 0; start < length; start += 2 * width) {
+				int middle = Math.min(start + width, length);
+				int end = Math.min(start + 2 * width, length);
+				int i = start;
+				int j = middle;
+				for (int k = start; k < end; k++) {
+					boolean left = j >= end || (i < middle && compareKeys(fromKeys[i], from[i], fromKeys[j], from[j]) <= 0);
+					int source = left ? i++ : j++;
+					to[k] = from[source];
+					toKeys[k] = fromKeys[source];
+				}
+			}
+			int[] swap = from;
+			from = to;
+			to = swap;
+			String[] swapKeys = fromKeys;
+			fromKeys = toKeys;
+			toKeys = swapKeys;
+		}
+		if (from != references) {
+			System.arraycopy(from, 0, references, 0, length);
+		}
+	}
+
+	private static int compareKeys(String a, int aReference, String b, int bReference) {
+		int result = a.compareTo(b);
+		return result != 0 ? result : Integer.compare(aReference, bReference);
+	}
+
+	/** Returns the index of the first base reference whose value is not less than the prefix. */
+	private int lowerBound(String folded) {
+		int low = 0;
+		int high = base.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compareFolded(baseValue(base[middle]), folded) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	private Entry nextMatching(Iterator<Entry> entries, String folded) {
+		if (entries.hasNext()) {
+			Entry entry = entries.next();
+			if (entry.value.startsWith(folded)) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	/** Checks that a delta key still has the guest's current value. */
+	private boolean isCurrent(Entry entry) {
+		return !removed.get(entry.reference / FIELD_COUNT) && entry.value.equals(fold(value(entry.reference)));
+	}
+
+	private int compareReferences(int a, int b) {
+		int result = compareFolded(value(a), value(b));
+		return result != 0 ? result : Integer.compare(a, b);
+	}
+
+	/** Returns the value a base reference is sorted by. */
+	private String baseValue(int reference) {
+		String value = frozen.get(reference);
+		return value != null ? value : value(reference);
+	}
+
+	/** Returns the current value of a reference. */
+	private String value(int reference) {
+		Guest guest = guests.get(reference / FIELD_COUNT);
+		return switch (reference % FIELD_COUNT) {
+			case 0 -> guest.getLastName();
+			case 1 -> guest.getFirstName();
+			default -> guest.getEmail();
+		};
+	}
+
+	private static boolean containsSame(List<Guest> list, Guest guest) {
+		for (Guest added : list) {
+			if (added == guest) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Lower-cases every character; locale-independent. */
+	static String fold(String value) {
+		char[] chars = new char[value.length()];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = Character.toLowerCase(value.charAt(i));
+		}
+		return new String(chars);
+	}
+
+	/** Compares two strings as if both were folded, without creating them. */
+	static int compareFolded(String a, String b) {
+		int length = Math.min(a.length(), b.length());
+		for (int i = 0; i < length; i++) {
+			char x = Character.toLowerCase(a.charAt(i));
+			char y = Character.toLowerCase(b.charAt(i));
+			if (x != y) {
+				return x - y;
+			}
+		}
+		return a.length() - b.length();
+	}
+
+	/** Checks if the folded value starts with the folded prefix. */
+	private static boolean startsWithFolded(String value, String folded) {
+		if (value.length() < folded.length()) {
+			return false;
+		}
+		for (int i = 0; i < folded.length(); i++) {
+			if (Character.toLowerCase(value.charAt(i)) != folded.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** A key added since the last merge: the folded value and the reference. */
+	private static final class Entry implements Comparable<Entry> {
+
+		final String value;
+		final int reference;
+
+		Entry(String value, int reference) {
+			this.value = value;
+			this.reference = reference;
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			int result = compareFolded(value, other.value);
+			return result != 0 ? result : Integer.compare(reference, other.reference);
+		}
+	}
+}
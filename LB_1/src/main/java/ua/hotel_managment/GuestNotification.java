@@ -0,0 +1,90 @@
+package ua.hotel_managment;
+
+import java.util.List;
+
+import ua.util.Utils;
+
+/**
+ * A message to a guest about one or more changes of their reservations,
+ * e.g. a booking confirmation. Immutable.
+ *
+ * @see GuestNotifier
+ */
+public final class GuestNotification {
+
+	private final String recipient;
+	private final String guestName;
+	private final List<String> changes;
+
+	/**
+	 * Constructs a notification.
+	 *
+	 * @param recipient the email address of the guest
+	 * @param guestName the name to address the guest with
+	 * @param changes   one line per change, e.g. {@code Booked: room 101, 2026-10-20 to 2026-10-23}
+	 * @throws NullPointerException     if an argument is {@code null}
+	 * @throws IllegalArgumentException if there are no changes
+	 */
+	public GuestNotification(String recipient, String guestName, List<String> changes) {
+		if (!Utils.validateObject(recipient) || !Utils.validateObject(guestName) || !Utils.validateObject(changes)) {
+			throw new NullPointerException("Recipient, guest name and changes can't be null.");
+		}
+		if (changes.isEmpty()) {
+			throw new IllegalArgumentException("A notification needs at least one change.");
+		}
+		this.recipient = recipient;
+		this.guestName = guestName;
+		this.changes = List.copyOf(changes);
+	}
+
+	/**
+	 * Returns the email address of the guest.
+	 *
+	 * @return the recipient
+	 */
+	public String getRecipient() {
+		return recipient;
+	}
+
+	/**
+	 * Returns the changes the message reports, one line each.
+	 *
+	 * @return unmodifiable list of changes
+	 */
+	public List<String> getChanges() {
+		return changes;
+	}
+
+	/**
+	 * Returns the subject of the message.
+	 *
+	 * @return the subject
+	 */
+	public String getSubject() {
+		return changes.size() == 1 ? "Your reservation" : changes.size() + " updates to your reservations";
+	}
+
+	/**
+	 * Returns the text of the message, with lines separated by {@code \n}.
+	 *
+	 * @return the body
+	 */
+	public String getBody() {
+		StringBuilder body = new StringBuilder(64 + changes.size() * 48);
+		body.append("Dear ").append(guestName).append(",\n\n");
+		for (String change : changes) {
+			body.append(change).append('\n');
+		}
+		return body.append("\nKind regards,\nThe hotel\n").toString();
+	}
+
+	/**
+	 * Returns a string representation of the notification.
+	 *
+	 * @return recipient and number of changes
+	 */
+	@Override
+	public String toString() {
+		return "GuestNotification [recipient=" + recipient + ", changes=" + changes.size() + "]";
+	}
+}
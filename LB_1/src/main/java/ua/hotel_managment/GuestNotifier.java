@@ -0,0 +1,615 @@
+package ua.hotel_managment;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import ua.util.Utils;
+
+/**
+ * Sends guests a message about every booking, change and cancellation of
+ * their reservations, without slowing the booking down.
+ * <p>
+ * The listener only copies the event into a bounded queue; when the queue is
+ * full, the event is dropped and counted ({@link #getDroppedCount()}), so booking
+ * never waits for mail. A dispatcher thread collects the events per recipient for
+ * a short window: a booking followed by changes becomes one confirmation with the
+ * final dates, a booking cancelled within the window is not reported at all, and
+ * several reservations of one guest become one message. When its window ends,
+ * a guest's message joins a batch, and batches are handed to the
+ * {@link NotificationTransport} by virtual threads, at most a fixed number at once.
+ * <p>
+ * A batch that fails is sent again after an exponential backoff with jitter
+ * (0.5, 1, 2, 4 ... seconds by default), up to a maximal number of attempts;
+ * after that its messages are counted as failed.
+ * Thread-safe.
+ */
+public class GuestNotifier implements HotelListener, AutoCloseable {
+
+	/** Default time events of one guest are collected for. */
+	public static final Duration DEFAULT_WINDOW = Duration.ofSeconds(2);
+
+	/** Default number of events the queue holds. */
+	public static final int DEFAULT_CAPACITY = 10_000;
+
+	/** Default maximal number of messages per batch. */
+	public static final int DEFAULT_BATCH_SIZE = 50;
+
+	/** Default maximal number of batches sent at once. */
+	public static final int DEFAULT_WORKERS = 16;
+
+	/** Default number of attempts to send a batch. */
+	public static final int DEFAULT_ATTEMPTS = 5;
+
+	/** Default wait before the first retry; it doubles with every further one. */
+	public static final Duration DEFAULT_BACKOFF = Duration.ofMillis(500);
+
+	/** Longest wait for new events, so {@link #close()} is noticed. */
+	private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+	/** Settings of a notifier; created with {@link GuestNotifier#builder}. */
+	public static final class Builder {
+		private final NotificationTransport transport;
+		private Duration window = DEFAULT_WINDOW;
+		private int capacity = DEFAULT_CAPACITY;
+		private int batchSize = DEFAULT_BATCH_SIZE;
+		private int workers = DEFAULT_WORKERS;
+		private int attempts = DEFAULT_ATTEMPTS;
+		private Duration backoff = DEFAULT_BACKOFF;
+
+		private Builder(NotificationTransport transport) {
+			this.transport = transport;
+		}
+
+		/**
+		 * Sets the time events of one guest are collected for before their message is sent.
+		 *
+		 * @param window the window; zero sends every event on its own, unless events queue up
+		 * @return this builder
+		 * @throws NullPointerException     if {@code window} is {@code null}
+		 * @throws IllegalArgumentException if {@code window} is negative
+		 */
+		public Builder window(Duration window) {
+			if (!Utils.validateObject(window)) {
+				throw new NullPointerException("Window can't be null.");
+			}
+			if (window.isNegative()) {
+				throw new IllegalArgumentException("Window can't be negative.");
+			}
+			this.window = window;
+			return this;
+		}
+
+		/**
+		 * Sets the number of events the queue holds; further events are dropped.
+		 *
+		 * @param capacity the capacity
+		 * @return this builder
+		 * @throws IllegalArgumentException if {@code capacity} is not positive
+		 */
+		public Builder capacity(int capacity) {
+			if (!Utils.validatePositiveNumber(capacity)) {
+				throw new IllegalArgumentException("Capacity must be positive.");
+			}
+			this.capacity = capacity;
+			return this;
+		}
+
+		/**
+		 * Sets the maximal number of messages per batch.
+		 *
+		 * @param batchSize the batch size
+		 * @return this builder
+		 * @throws IllegalArgumentException if {@code batchSize} is not positive
+		 */
+		public Builder batchSize(int batchSize) {
+			if (!Utils.validatePositiveNumber(batchSize)) {
+				throw new IllegalArgumentException("Batch size must be positive.");
+			}
+			this.batchSize = batchSize;
+			return this;
+		}
+
+		/**
+		 * Sets the maximal number of batches sent at once, each by its own virtual thread.
+		 *
+		 * @param workers number of concurrent batches
+		 * @return this builder
+		 * @throws IllegalArgumentException if {@code workers} is not positive
+		 */
+		public Builder workers(int workers) {
+			if (!Utils.validatePositiveNumber(workers)) {
+				throw new IllegalArgumentException("Number of workers must be positive.");
+			}
+			this.workers = workers;
+			return this;
+		}
+
+		/**
+		 * Sets how often a batch is sent before its messages are given up.
+		 *
+		 * @param attempts number of attempts, including the first
+		 * @param backoff  wait before the first retry; it doubles with every further one
+		 * @return this builder
+		 * @throws NullPointerException     if {@code backoff} is {@code null}
+		 * @throws IllegalArgumentException if {@code attempts} is not positive or {@code backoff} is negative
+		 */
+		public Builder retries(int attempts, Duration backoff) {
+			if (!Utils.validateObject(backoff)) {
+				throw new NullPointerException("Backoff can't be null.");
+			}
+			if (!Utils.validatePositiveNumber(attempts) || backoff.isNegative()) {
+				throw new IllegalArgumentException("Attempts must be positive and backoff not negative.");
+			}
+			this.attempts = attempts;
+			this.backoff = backoff;
+			return this;
+		}
+
+		/**
+		 * Starts a notifier for the future events of a hotel.
+		 *
+		 * @param hotel the hotel
+		 * @return the notifier, registered as a listener of the hotel
+		 * @throws NullPointerException if {@code hotel} is {@code null}
+		 */
+		public GuestNotifier attach(Hotel hotel) {
+			if (!Utils.validateObject(hotel)) {
+				throw new NullPointerException("Hotel can't be null.");
+			}
+			GuestNotifier notifier = new GuestNotifier(hotel, this);
+			hotel.addListener(notifier);
+			return notifier;
+		}
+	}
+
+	/** Kinds of events, in the words of the message. */
+	enum Change {
+		BOOKED("Booked"),
+		CHANGED("Changed"),
+		CANCELLED("Cancelled");
+
+		final String text;
+
+		Change(String text) {
+			this.text = text;
+		}
+	}
+
+	/** An event, with the values of the reservation when it happened. */
+	private static final class Event {
+		final Change change;
+		final Reservation reservation;
+		final String recipient;
+		final String guestName;
+		final int roomNumber;
+		final LocalDate startDate;
+		final LocalDate endDate;
+
+		Event(Change change, Reservation reservation) {
+			Guest guest = reservation.getGuest();
+			this.change = change;
+			this.reservation = reservation;
+			this.recipient = guest.getEmail();
+			this.guestName = guest.getFirstName() + " " + guest.getLastName();
+			this.roomNumber = reservation.getRoom().getRoomNumber();
+			this.startDate = reservation.getStartDate();
+			this.endDate = reservation.getEndDate();
+		}
+
+		Event(Event event, Change change) {
+			this.change = change;
+			this.reservation = event.reservation;
+			this.recipient = event.recipient;
+			this.guestName = event.guestName;
+			this.roomNumber = event.roomNumber;
+			this.startDate = event.startDate;
+			this.endDate = event.endDate;
+		}
+
+		String describe() {
+			return change.text + ": room " + roomNumber + ", " + startDate + " to " + endDate;
+		}
+	}
+
+	/** Events of one recipient waiting for the end of the window, at most one per reservation. */
+	private static final class Pending {
+		final long due;
+		final List<Event> events = new ArrayList<>(2);
+
+		Pending(long due) {
+			this.due = due;
+		}
+	}
+
+	private final Hotel hotel;
+	private final NotificationTransport transport;
+	private final long windowNanos;
+	private final int batchSize;
+	private final int attempts;
+	private final long backoffNanos;
+	private final BlockingQueue<Event> queue;
+	private final Map<String, Pending> pending = new LinkedHashMap<>(); // by recipient, oldest first; dispatcher only
+	private final Semaphore permits;
+	private final ExecutorService senders;
+	private final Thread dispatcher;
+
+	private final LongAdder queued = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final AtomicInteger peakQueueSize = new AtomicInteger();
+	private final LongAdder coalesced = new LongAdder();
+	private final LongAdder sent = new LongAdder();
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder retries = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final AtomicInteger inFlight = new AtomicInteger(); // messages handed to senders, not yet done
+	private volatile Exception lastFailure;
+	private volatile boolean closed;
+
+	private GuestNotifier(Hotel hotel, Builder builder) {
+		this.hotel = hotel;
+		this.transport = builder.transport;
+		this.windowNanos = builder.window.toNanos();
+		this.batchSize = builder.batchSize;
+		this.attempts = builder.attempts;
+		this.backoffNanos = builder.backoff.toNanos();
+		this.queue = new ArrayBlockingQueue<>(builder.capacity);
+		this.permits = new Semaphore(builder.workers);
+		this.senders = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("guest-notifier-", 0).factory());
+		this.dispatcher = Utils.startDaemon("guest-notifier", this::dispatch);
+	}
+
+	/**
+	 * Returns a builder for a notifier that sends through the given transport.
+	 *
+	 * @param transport the transport
+	 * @return the builder, with default settings
+	 * @throws NullPointerException if {@code transport} is {@code null}
+	 */
+	public static Builder builder(NotificationTransport transport) {
+		if (!Utils.validateObject(transport)) {
+			throw new NullPointerException("Transport can't be null.");
+		}
+		return new Builder(transport);
+	}
+
+	/**
+	 * Starts a notifier with the default settings.
+	 *
+	 * @param hotel     the hotel
+	 * @param transport the transport
+	 * @return the notifier, registered as a listener of the hotel
+	 * @throws NullPointerException if an argument is {@code null}
+	 * @see #builder(NotificationTransport)
+	 */
+	public static GuestNotifier attach(Hotel hotel, NotificationTransport transport) {
+		return builder(transport).attach(hotel);
+	}
+
+	/**
+	 * Queues a booking confirmation.
+	 *
+	 * @param reservation the booked reservation
+	 */
+	@Override
+	public void reservationBooked(Reservation reservation) {
+		offer(new Event(Change.BOOKED, reservation));
+	}
+
+	/**
+	 * Queues a change notice.
+	 *
+	 * @param reservation the changed reservation
+	 */
+	@Override
+	public void reservationChanged(Reservation reservation) {
+		offer(new Event(Change.CHANGED, reservation));
+	}
+
+	/**
+	 * Queues a cancellation notice.
+	 *
+	 * @param reservation the cancelled reservation
+	 */
+	@Override
+	public void reservationCancelled(Reservation reservation) {
+		offer(new Event(Change.CANCELLED, reservation));
+	}
+
+	/** Queues an event, or drops it if the queue is full. Called under the hotel's lock. */
+	private void offer(Event event) {
+		if (closed || !queue.offer(event)) {
+			dropped.increment();
+			return;
+		}
+		queued.increment();
+		int size = queue.size();
+		if (size > peakQueueSize.get()) {
+			peakQueueSize.accumulateAndGet(size, Math::max);
+		}
+	}
+
+	/** Body of the dispatcher thread: collects events and hands out batches until closed and empty. */
+	private void dispatch() {
+		List<Event> events = new ArrayList<>();
+		List<GuestNotification> batch = new ArrayList<>(batchSize);
+		try {
+			while (true) {
+				boolean last = closed;
+				Event event = queue.poll(waitNanos(), TimeUnit.NANOSECONDS);
+				if (event != null) {
+					collect(event);
+					queue.drainTo(events);
+					for (Event queuedEvent : events) {
+						collect(queuedEvent);
+					}
+					events.clear();
+				}
+				long now = System.nanoTime();
+				for (Iterator<Pending> it = pending.values().iterator(); it.hasNext();) {
+					Pending next = it.next();
+					if (!last && next.due - now > 0) {
+						break; // the rest was collected later
+					}
+					it.remove();
+					if (!next.events.isEmpty()) {
+						batch.add(toNotification(next));
+						if (batch.size() == batchSize) {
+							submit(batch);
+							batch = new ArrayList<>(batchSize);
+						}
+					}
+				}
+				if (!batch.isEmpty()) {
+					submit(batch);
+					batch = new ArrayList<>(batchSize);
+				}
+				if (last && queue.isEmpty() && pending.isEmpty()) {
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/** Returns the time until the window of the oldest recipient ends. */
+	private long waitNanos() {
+		if (pending.isEmpty()) {
+			return IDLE_NANOS;
+		}
+		long wait = pending.values().iterator().next().due - System.nanoTime();
+		return Math.max(0, Math.min(wait, IDLE_NANOS));
+	}
+
+	/**
+	 * Adds an event to the pending events of its recipient, merging it with an
+	 * earlier event of the same reservation.
+	 */
+	private void collect(Event event) {
+		Pending next = pending.get(event.recipient);
+		if (next == null) {
+			next = new Pending(System.nanoTime() + windowNanos);
+			pending.put(event.recipient, next);
+		}
+		List<Event> events = next.events;
+		for (int i = 0; i < events.size(); i++) {
+			Event earlier = events.get(i);
+			if (earlier.reservation != event.reservation) {
+				continue;
+			}
+			coalesced.increment();
+			if (earlier.change == Change.BOOKED && event.change == Change.CANCELLED) {
+				events.remove(i); // the guest never heard of it
+			} else if (earlier.change == Change.BOOKED) {
+				events.set(i, new Event(event, Change.BOOKED)); // a confirmation with the final values
+			} else {
+				events.set(i, event);
+			}
+			return;
+		}
+		if (!events.isEmpty()) {
+			coalesced.increment();
+		}
+		events.add(event);
+	}
+
+	private static GuestNotification toNotification(Pending pending) {
+		List<String> changes = new ArrayList<>(pending.events.size());
+		for (Event event : pending.events) {
+			changes.add(event.describe());
+		}
+		Event last = pending.events.get(pending.events.size() - 1);
+		return new GuestNotification(last.recipient, last.guestName, changes);
+	}
+
+	/** Hands a batch to a virtual thread, waiting while all workers are busy. */
+	private void submit(List<GuestNotification> batch) throws InterruptedException {
+		permits.acquire();
+		inFlight.addAndGet(batch.size());
+		senders.execute(() -> {
+			try {
+				send(batch);
+			} finally {
+				inFlight.addAndGet(-batch.size());
+				permits.release();
+			}
+		});
+	}
+
+	/** Sends a batch, retrying with exponential backoff. Runs on a virtual thread. */
+	private void send(List<GuestNotification> batch) {
+		for (int attempt = 1;; attempt++) {
+			try {
+				transport.send(batch);
+				sent.add(batch.size());
+				batches.increment();
+				return;
+			} catch (Exception e) {
+				lastFailure = e;
+				if (attempt == attempts) {
+					failed.add(batch.size());
+					return;
+				}
+			}
+			retries.increment();
+			long delay = backoffNanos << Math.min(attempt - 1, 16);
+			try {
+				TimeUnit.NANOSECONDS.sleep(delay + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				failed.add(batch.size());
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of events accepted into the queue.
+	 *
+	 * @return number of events
+	 */
+	public long getQueuedCount() {
+		return queued.sum();
+	}
+
+	/**
+	 * Returns the number of events dropped because the queue was full.
+	 *
+	 * @return number of dropped events
+	 */
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Returns the number of events waiting in the queue.
+	 *
+	 * @return queue size
+	 */
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	/**
+	 * Returns the largest number of events the queue has held.
+	 *
+	 * @return peak queue size
+	 */
+	public int getPeakQueueSize() {
+		return peakQueueSize.get();
+	}
+
+	/**
+	 * Returns the number of events merged into a message with another event.
+	 *
+	 * @return number of coalesced events
+	 */
+	public long getCoalescedCount() {
+		return coalesced.sum();
+	}
+
+	/**
+	 * Returns the number of messages delivered.
+	 *
+	 * @return number of sent messages
+	 */
+	public long getSentCount() {
+		return sent.sum();
+	}
+
+	/**
+	 * Returns the number of batches delivered.
+	 *
+	 * @return number of batches
+	 */
+	public long getBatchCount() {
+		return batches.sum();
+	}
+
+	/**
+	 * Returns the number of times a batch was sent again after a failure.
+	 *
+	 * @return number of retries
+	 */
+	public long getRetryCount() {
+		return retries.sum();
+	}
+
+	/**
+	 * Returns the number of messages given up after the last attempt.
+	 *
+	 * @return number of failed messages
+	 */
+	public long getFailedCount() {
+		return failed.sum();
+	}
+
+	/**
+	 * Returns the number of messages handed to senders and not yet delivered or given up.
+	 *
+	 * @return number of messages in flight
+	 */
+	public int getInFlightCount() {
+		return inFlight.get();
+	}
+
+	/**
+	 * Returns the last error of the transport.
+	 *
+	 * @return the error, or {@code null}
+	 */
+	public Exception getLastFailure() {
+		return lastFailure;
+	}
+
+	/**
+	 * Stops listening to the hotel, sends the collected events without waiting
+	 * for their windows, and waits until every batch is delivered or given up.
+	 * Does nothing if the notifier is already closed.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			hotel.removeListener(this);
+			// listeners are called under the hotel's lock, so no event is being queued after this
+			synchronized (hotel) {
+				closed = true;
+			}
+		}
+		try {
+			dispatcher.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		senders.close();
+	}
+
+	/**
+	 * Returns a string representation of the notifier's statistics.
+	 *
+	 * @return formatted string with statistics
+	 */
+	@Override
+	public String toString() {
+		return "GuestNotifier [queued=" + getQueuedCount() + ", dropped=" + getDroppedCount() + ", peakQueue="
+				+ getPeakQueueSize() + ", coalesced=" + getCoalescedCount() + ", sent=" + getSentCount() + ", batches="
+				+ getBatchCount() + ", retries=" + getRetryCount() + ", failed=" + getFailedCount() + "]";
+	}
+}
@@ -0,0 +1,452 @@
+package ua.hotel_managment;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import ua.util.IntIntMap;
+import ua.util.LongObjectMap;
+import ua.util.Utils;
+
+/**
+ * Represents a hotel: the set of its rooms, the reservations booked for them
+ * and the issued invoices. All booking operations are synchronized on the hotel,
+ * so a group of reservations can be checked and booked atomically.
+ * Changes are reported to registered {@link HotelListener}s.
+ */
+public class Hotel {
+
+	/** Rooms of the hotel in the order they were added. */
+	private final List<Room> rooms = new ArrayList<>();
+
+	/** Positions of the rooms in {@link #rooms} by room number; checked on use, as numbers can change. */
+	private final IntIntMap roomPositions = new IntIntMap(-1);
+
+	/** Reservations per room, by {@link Room#getId() room id}. */
+	private final LongObjectMap<List<Reservation>> reservationsByRoom = new LongObjectMap<>();
+
+	/** Invoices issued by the hotel. */
+	private final List<Invoice> invoices = new ArrayList<>();
+
+	/** Listeners notified about every change. */
+	private final List<HotelListener> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Constructs an empty hotel without rooms.
+	 */
+	public Hotel() {
+	}
+
+	/**
+	 * Factory method for creating an empty {@code Hotel}.
+	 *
+	 * @return a new {@code Hotel} instance
+	 */
+	public static Hotel create() {
+		return new Hotel();
+	}
+
+	/**
+	 * Registers a listener that is notified about every later change.
+	 *
+	 * @param listener the listener
+	 * @throws NullPointerException if {@code listener} is {@code null}
+	 */
+	public void addListener(HotelListener listener) {
+		if (!Utils.validateObject(listener)) {
+			throw new NullPointerException("Listener can't be null.");
+		}
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes a previously registered listener.
+	 *
+	 * @param listener the listener
+	 */
+	public void removeListener(HotelListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Adds a room to the hotel.
+	 *
+	 * @param room the room to add
+	 * @throws NullPointerException     if {@code room} is {@code null}
+	 * @throws IllegalArgumentException if a room with the same number already exists
+	 */
+	public synchronized void addRoom(Room room) {
+		if (!Utils.validateObject(room)) {
+			throw new NullPointerException("Room can't be null.");
+		}
+		if (findRoom(room.getRoomNumber()) != null) {
+			throw new IllegalArgumentException("Room " + room.getRoomNumber() + " already exists.");
+		}
+		roomPositions.put(room.getRoomNumber(), rooms.size());
+		rooms.add(room);
+		reservationsByRoom.put(room.getId(), new ArrayList<>());
+		for (HotelListener listener : listeners) {
+			listener.roomAdded(room);
+		}
+	}
+
+	/**
+	 * Notifies the listeners that a room of this hotel was changed through its setters.
+	 *
+	 * @param room the changed room
+	 * @throws IllegalArgumentException if the room doesn't belong to this hotel
+	 */
+	public synchronized void updateRoom(Room room) {
+		reservationsOf(room); // throws if the room belongs to another hotel
+		indexRoomNumbers(); // the number may have changed
+		for (HotelListener listener : listeners) {
+			listener.roomChanged(room);
+		}
+	}
+
+	/**
+	 * Returns the room with the given number. A room renumbered through its
+	 * setter is found by the new number once the change is reported with
+	 * {@link #updateRoom(Room)}.
+	 *
+	 * @param roomNumber the room's number
+	 * @return the room, or {@code null} if the hotel has no such room
+	 */
+	public synchronized Room findRoom(int roomNumber) {
+		int position = roomPositions.get(roomNumber);
+		if (position >= 0 && rooms.get(position).getRoomNumber() != roomNumber) {
+			// renumbered through the setter and not reported yet
+			indexRoomNumbers();
+			position = roomPositions.get(roomNumber);
+		}
+		return position < 0 ? null : rooms.get(position);
+	}
+
+	/** Rebuilds the positions of the rooms by number. */
+	private void indexRoomNumbers() {
+		roomPositions.clear();
+		for (int i = rooms.size() - 1; i >= 0; i--) {
+			roomPositions.put(rooms.get(i).getRoomNumber(), i);
+		}
+	}
+
+	/**
+	 * Returns a snapshot of all rooms of the hotel.
+	 *
+	 * @return a list of rooms
+	 */
+	public synchronized List<Room> getRooms() {
+		return new ArrayList<>(rooms);
+	}
+
+	/**
+	 * Returns a snapshot of all booked reservations.
+	 *
+	 * @return a list of reservations
+	 */
+	public synchronized List<Reservation> getReservations() {
+		List<Reservation> result = new ArrayList<>();
+		for (Room room : rooms) {
+			result.addAll(reservationsByRoom.get(room.getId()));
+		}
+		return result;
+	}
+
+	/**
+	 * Checks whether the room is free for every night in {@code [startDate, endDate)}.
+	 *
+	 * @param room      the room to check
+	 * @param startDate the first night
+	 * @param endDate   the check-out date
+	 * @return {@code true} if no booked reservation overlaps the given dates
+	 * @throws IllegalArgumentException if the room doesn't belong to this hotel
+	 */
+	public synchronized boolean isAvailable(Room room, LocalDate startDate, LocalDate endDate) {
+		for (Reservation booked : reservationsOf(room)) {
+			if (overlaps(booked, startDate, endDate)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns all rooms that are free for the given dates.
+	 *
+	 * @param startDate the first night
+	 * @param endDate   the check-out date
+	 * @return a list of free rooms
+	 */
+	public synchronized List<Room> findAvailableRooms(LocalDate startDate, LocalDate endDate) {
+		List<Room> result = new ArrayList<>();
+		for (Room room : rooms) {
+			if (isAvailable(room, startDate, endDate)) {
+				result.add(room);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Books a single reservation.
+	 *
+	 * @param reservation the reservation to book
+	 * @throws NullPointerException     if {@code reservation} is {@code null}
+	 * @throws IllegalArgumentException if the reserved room doesn't belong to this hotel
+	 * @throws IllegalStateException    if the room is already booked for these dates
+	 */
+	public synchronized void book(Reservation reservation) {
+		bookAll(List.of(reservation));
+	}
+
+	/**
+	 * Books all given reservations atomically: either every reservation
+	 * is booked, or none of them is.
+	 *
+	 * @param reservations the reservations to book
+	 * @throws NullPointerException     if the list or any reservation is {@code null}
+	 * @throws IllegalArgumentException if any reserved room doesn't belong to this hotel
+	 * @throws IllegalStateException    if any room is already booked, or the
+	 *                                  reservations overlap each other
+	 */
+	public synchronized void bookAll(List<Reservation> reservations) {
+		if (!Utils.validateObject(reservations)) {
+			throw new NullPointerException("Reservations list can't be null");
+		}
+		for (int i = 0; i < reservations.size(); i++) {
+			Reservation reservation = reservations.get(i);
+			if (!Utils.validateObject(reservation)) {
+				throw new NullPointerException("Reservation can't be null");
+			}
+			if (!isAvailable(reservation.getRoom(), reservation.getStartDate(), reservation.getEndDate())) {
+				throw new IllegalStateException("Room " + reservation.getRoom().getRoomNumber()
+						+ " is already booked for these dates.");
+			}
+			for (int j = 0; j < i; j++) {
+				Reservation other = reservations.get(j);
+				if (other.getRoom() == reservation.getRoom()
+						&& overlaps(other, reservation.getStartDate(), reservation.getEndDate())) {
+					throw new IllegalStateException("Room " + reservation.getRoom().getRoomNumber()
+							+ " is booked twice in the same request.");
+				}
+			}
+		}
+		for (Reservation reservation : reservations) {
+			reservationsByRoom.get(reservation.getRoom().getId()).add(reservation);
+		}
+		for (Reservation reservation : reservations) {
+			for (HotelListener listener : listeners) {
+				listener.reservationBooked(reservation);
+			}
+		}
+	}
+
+	/**
+	 * Notifies the listeners that a booked reservation was changed through its setters,
+	 * e.g. after services were added. The availability of the new dates is not checked again.
+	 *
+	 * @param reservation the changed reservation
+	 * @throws IllegalArgumentException if the reservation isn't booked in this hotel
+	 */
+	public synchronized void updateReservation(Reservation reservation) {
+		if (!Utils.validateObject(reservation) || !containsReservation(reservation)) {
+			throw new IllegalArgumentException("Reservation isn't booked in this hotel.");
+		}
+		for (HotelListener listener : listeners) {
+			listener.reservationChanged(reservation);
+		}
+	}
+
+	/**
+	 * Cancels a booked reservation.
+	 *
+	 * @param reservation the reservation to cancel
+	 * @return {@code true} if the reservation was booked and is now cancelled
+	 */
+	public synchronized boolean cancel(Reservation reservation) {
+		if (!Utils.validateObject(reservation)) {
+			return false;
+		}
+		List<Reservation> booked = reservationsByRoom.get(reservation.getRoom().getId());
+		if (booked == null) {
+			return false;
+		}
+		for (int i = 0; i < booked.size(); i++) {
+			if (booked.get(i) == reservation) {
+				booked.remove(i);
+				for (HotelListener listener : listeners) {
+					listener.reservationCancelled(reservation);
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds an invoice to the hotel and calculates its total amount.
+	 *
+	 * @param invoice the invoice to add
+	 * @throws NullPointerException if {@code invoice} is {@code null}
+	 */
+	public synchronized void addInvoice(Invoice invoice) {
+		if (!Utils.validateObject(invoice)) {
+			throw new NullPointerException("Invoice can't be null.");
+		}
+		invoices.add(invoice);
+		invoice.calculateTotalAmount();
+		for (HotelListener listener : listeners) {
+			listener.invoiceChanged(invoice);
+		}
+	}
+
+	/**
+	 * Recalculates the total amount of an invoice of this hotel,
+	 * e.g. after services were added to its reservation.
+	 *
+	 * @param invoice the invoice to recalculate
+	 * @throws IllegalArgumentException if the invoice doesn't belong to this hotel
+	 */
+	public synchronized void updateInvoice(Invoice invoice) {
+		if (!containsInvoice(invoice)) {
+			throw new IllegalArgumentException("Invoice doesn't belong to this hotel.");
+		}
+		invoice.calculateTotalAmount();
+		for (HotelListener listener : listeners) {
+			listener.invoiceChanged(invoice);
+		}
+	}
+
+	/**
+	 * Adds an invoice restored from stored data, or notifies the listeners that a
+	 * restored invoice of this hotel changed. Unlike {@link #addInvoice} and
+	 * {@link #updateInvoice}, the total amount is kept as stored. Used by
+	 * {@link HotelReplica}. The caller must hold the hotel's lock.
+	 *
+	 * @param invoice the restored invoice
+	 * @param added   {@code true} if the invoice is new to this hotel
+	 */
+	void restoreInvoice(Invoice invoice, boolean added) {
+		if (added) {
+			invoices.add(invoice);
+		}
+		for (HotelListener listener : listeners) {
+			listener.invoiceChanged(invoice);
+		}
+	}
+
+	/**
+	 * Returns a snapshot of all invoices of the hotel.
+	 *
+	 * @return a list of invoices
+	 */
+	public synchronized List<Invoice> getInvoices() {
+		return new ArrayList<>(invoices);
+	}
+
+	/**
+	 * Checks if the invoice (the same instance) was added to this hotel.
+	 *
+	 * @param invoice the invoice
+	 * @return {@code true} if the invoice belongs to this hotel
+	 */
+	private boolean containsInvoice(Invoice invoice) {
+		for (Invoice added : invoices) {
+			if (added == invoice) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if the reservation (the same instance) is booked in this hotel.
+	 *
+	 * @param reservation the reservation
+	 * @return {@code true} if the reservation is booked
+	 */
+	private boolean containsReservation(Reservation reservation) {
+		List<Reservation> booked = reservationsByRoom.get(reservation.getRoom().getId());
+		if (booked != null) {
+			for (Reservation candidate : booked) {
+				if (candidate == reservation) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Removes reservations that were written to an archive, with their invoices,
+	 * and notifies the listeners. The caller must hold the hotel's lock.
+	 *
+	 * @param archived the booked reservations
+	 * @param invoices their invoices by reservation id; reservations without invoices may be missing
+	 */
+	void removeArchived(List<Reservation> archived, LongObjectMap<List<Invoice>> invoices) {
+		LongObjectMap<Object> removed = new LongObjectMap<>(archived.size());
+		for (Reservation reservation : archived) {
+			removed.put(reservation.getId(), reservation);
+			List<Invoice> ofReservation = invoices.get(reservation.getId());
+			if (ofReservation != null) {
+				for (Invoice invoice : ofReservation) {
+					removed.put(invoice.getId(), invoice);
+				}
+			}
+		}
+		for (Room room : rooms) {
+			reservationsByRoom.get(room.getId()).removeIf(booked -> removed.containsKey(booked.getId()));
+		}
+		this.invoices.removeIf(invoice -> removed.containsKey(invoice.getId()));
+		for (Reservation reservation : archived) {
+			List<Invoice> ofReservation = invoices.get(reservation.getId());
+			for (HotelListener listener : listeners) {
+				listener.reservationArchived(reservation, ofReservation == null ? List.of() : ofReservation);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of booked reservations.
+	 * The caller must hold the hotel's lock.
+	 *
+	 * @return number of reservations
+	 */
+	int reservationCount() {
+		int count = 0;
+		for (Room room : rooms) {
+			count += reservationsByRoom.get(room.getId()).size();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the live list of reservations of a room.
+	 * The caller must hold the hotel's lock while using the list.
+	 *
+	 * @param room the room
+	 * @return the reservations of the room
+	 * @throws IllegalArgumentException if the room doesn't belong to this hotel
+	 */
+	List<Reservation> reservationsOf(Room room) {
+		List<Reservation> booked = room == null ? null : reservationsByRoom.get(room.getId());
+		if (booked == null) {
+			throw new IllegalArgumentException("Room doesn't belong to this hotel.");
+		}
+		return booked;
+	}
+
+	/**
+	 * Checks if a reservation occupies any night in {@code [startDate, endDate)}.
+	 *
+	 * @param reservation the booked reservation
+	 * @param startDate   the first night
+	 * @param endDate     the check-out date
+	 * @return {@code true} if the dates overlap
+	 */
+	static boolean overlaps(Reservation reservation, LocalDate startDate, LocalDate endDate) {
+		return reservation.getStartDay() < endDate.toEpochDay() && startDate.toEpochDay() < reservation.getEndDay();
+	}
+}
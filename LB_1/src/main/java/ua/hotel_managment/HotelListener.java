@@ -0,0 +1,74 @@
+package ua.hotel_managment;
+
+import java.util.List;
+
+/**
+ * Receives notifications about changes in a {@link Hotel}.
+ * Methods are called synchronously while the hotel's lock is held,
+ * so implementations must be fast and must not call back into another hotel.
+ * All methods do nothing by default.
+ */
+public interface HotelListener {
+
+	/**
+	 * Called after a room was added to the hotel.
+	 *
+	 * @param room the added room
+	 */
+	default void roomAdded(Room room) {
+	}
+
+	/**
+	 * Called after a room of the hotel was changed through its setters
+	 * and the change was reported with {@link Hotel#updateRoom(Room)}.
+	 *
+	 * @param room the changed room
+	 */
+	default void roomChanged(Room room) {
+	}
+
+	/**
+	 * Called after a reservation was booked.
+	 *
+	 * @param reservation the booked reservation
+	 */
+	default void reservationBooked(Reservation reservation) {
+	}
+
+	/**
+	 * Called after a booked reservation was changed through its setters (dates, services)
+	 * and the change was reported with {@link Hotel#updateReservation(Reservation)}.
+	 *
+	 * @param reservation the changed reservation
+	 */
+	default void reservationChanged(Reservation reservation) {
+	}
+
+	/**
+	 * Called after a reservation was cancelled.
+	 *
+	 * @param reservation the cancelled reservation
+	 */
+	default void reservationCancelled(Reservation reservation) {
+	}
+
+	/**
+	 * Called after a past reservation was moved out of the hotel, together with
+	 * its invoices, into a {@link ReservationArchive}. The stay is not cancelled:
+	 * aggregates should keep counting it, but references to the reservation and
+	 * the invoices should be dropped, so they can be garbage collected.
+	 *
+	 * @param reservation the archived reservation
+	 * @param invoices    its invoices, which left the hotel too; possibly empty
+	 */
+	default void reservationArchived(Reservation reservation, List<Invoice> invoices) {
+	}
+
+	/**
+	 * Called after an invoice was added or its total amount was recalculated.
+	 *
+	 * @param invoice the changed invoice
+	 */
+	default void invoiceChanged(Invoice invoice) {
+	}
+}
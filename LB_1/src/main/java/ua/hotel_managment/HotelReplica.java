@@ -0,0 +1,302 @@
+package ua.hotel_managment;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import ua.util.LongObjectMap;
+import ua.util.Utils;
+
+/**
+ * Read replica of a primary {@link Hotel}: receives the primary's {@link ChangeLog}
+ * from a {@link ReplicationServer} and applies it, in order, to its own hotel.
+ * Reads (availability, reservations, invoices, listeners such as
+ * {@link HotelStatistics}) go to {@link #getHotel()}; the replica's hotel must
+ * not be changed directly.
+ * <p>
+ * The replica remembers the last applied sequence number. When the connection
+ * breaks it reconnects with growing delays and continues from the next entry,
+ * so no change is lost or applied twice.
+ */
+public class HotelReplica implements AutoCloseable {
+
+	private static final long MIN_RETRY_MILLIS = 100;
+	private static final long MAX_RETRY_MILLIS = 2000;
+
+	private final SocketAddress primary;
+	private final Hotel hotel = Hotel.create();
+	private final List<Room> rooms = new ArrayList<>();
+	private final LongObjectMap<Reservation> reservations = new LongObjectMap<>();
+	private final LongObjectMap<Invoice> invoices = new LongObjectMap<>();
+	private final BinaryCodec codec = new BinaryCodec();
+	private final Thread worker;
+
+	private volatile SocketChannel channel;
+	private volatile boolean closed;
+	private volatile boolean connected;
+	private volatile long appliedSequence;
+	private volatile long primarySequence;
+	private volatile long lagMillis;
+	private volatile int reconnects;
+	private volatile RuntimeException failure;
+
+	private HotelReplica(SocketAddress primary) {
+		this.primary = primary;
+		this.worker = Utils.startDaemon("replica-" + primary, this::run);
+	}
+
+	/**
+	 * Creates a replica and starts following the primary in the background.
+	 *
+	 * @param primary address of the primary's {@link ReplicationServer}
+	 * @return the replica
+	 * @throws NullPointerException if {@code primary} is {@code null}
+	 */
+	public static HotelReplica connect(SocketAddress primary) {
+		if (!Utils.validateObject(primary)) {
+			throw new NullPointerException("Primary address can't be null.");
+		}
+		return new HotelReplica(primary);
+	}
+
+	/**
+	 * Returns the replicated hotel. Use it for reads only.
+	 *
+	 * @return the replica's hotel
+	 */
+	public Hotel getHotel() {
+		return hotel;
+	}
+
+	/**
+	 * Returns the sequence number of the last applied log entry.
+	 *
+	 * @return the applied sequence number, 0 before the first entry
+	 */
+	public long getAppliedSequence() {
+		return appliedSequence;
+	}
+
+	/**
+	 * Returns how many entries of the primary's log are not applied yet,
+	 * as of the last frame received from the primary.
+	 *
+	 * @return replication lag in entries
+	 */
+	public long getLagEntries() {
+		return Math.max(primarySequence - appliedSequence, 0);
+	}
+
+	/**
+	 * Returns the time between recording the last applied entry on the primary
+	 * and applying it here. It drops to 0 when a heartbeat shows that the replica
+	 * has applied the whole log.
+	 *
+	 * @return replication lag in milliseconds
+	 */
+	public long getLagMillis() {
+		return lagMillis;
+	}
+
+	/**
+	 * Returns whether the replica is currently connected to the primary.
+	 *
+	 * @return {@code true} if connected
+	 */
+	public boolean isConnected() {
+		return connected;
+	}
+
+	/**
+	 * Returns how many times the replica connected again after losing the connection.
+	 *
+	 * @return number of reconnects
+	 */
+	public int getReconnects() {
+		return reconnects;
+	}
+
+	/**
+	 * Returns the error that stopped the replica, e.g. an entry that couldn't be applied,
+	 * or an {@link IllegalStateException} if the primary's log no longer holds the
+	 * next entry (see {@link ChangeLog#truncate(long)}).
+	 *
+	 * @return the error, or {@code null} if the replica is running or was closed
+	 */
+	public RuntimeException getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Waits until the entry with the given sequence number is applied,
+	 * e.g. to read a change just made on the primary.
+	 *
+	 * @param sequence      the sequence number, see {@link ChangeLog#getLastSequence()}
+	 * @param timeoutMillis maximal waiting time
+	 * @return {@code true} if the entry is applied
+	 * @throws InterruptedException if the thread was interrupted
+	 */
+	public boolean awaitSequence(long sequence, long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		synchronized (this) {
+			while (appliedSequence < sequence) {
+				long left = deadline - System.currentTimeMillis();
+				if (left <= 0) {
+					return false;
+				}
+				wait(left);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Disconnects and stops following the primary. The replicated data stays readable.
+	 *
+	 * @throws IOException if the connection can't be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		SocketChannel current = channel;
+		if (current != null) {
+			current.close();
+		}
+		worker.interrupt();
+	}
+
+	/** Connects, applies entries, and reconnects after failures until closed. */
+	private void run() {
+		long retry = MIN_RETRY_MILLIS;
+		boolean first = true;
+		while (!closed) {
+			try (SocketChannel opened = SocketChannel.open(primary)) {
+				channel = opened;
+				if (!first) {
+					reconnects++;
+				}
+				first = false;
+				connected = true;
+				retry = MIN_RETRY_MILLIS;
+				follow(opened);
+			} catch (IOException e) {
+				// primary unavailable or connection lost: retry below
+			} catch (RuntimeException e) {
+				// an entry couldn't be applied or was dropped; continuing would diverge from the primary
+				failure = e;
+				return;
+			} finally {
+				connected = false;
+			}
+			try {
+				Thread.sleep(retry);
+			} catch (InterruptedException e) {
+				return;
+			}
+			retry = Math.min(retry * 2, MAX_RETRY_MILLIS);
+		}
+	}
+
+	/** Requests the entries after the applied one and applies them as they arrive. */
+	private void follow(SocketChannel opened) throws IOException {
+		DataOutputStream out = new DataOutputStream(Channels.newOutputStream(opened));
+		out.writeLong(appliedSequence + 1);
+		out.flush();
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(opened)));
+		byte[] entry = new byte[4096];
+		while (!closed) {
+			long sequence = in.readLong();
+			long timestamp = in.readLong();
+			long last = in.readLong();
+			int length = in.readInt();
+			if (entry.length < length) {
+				entry = new byte[Math.max(length, entry.length * 2)];
+			}
+			in.readFully(entry, 0, length);
+			primarySequence = last;
+			if (sequence == ReplicationServer.OUT_OF_RANGE) {
+				// reconnecting wouldn't help: the primary can't send the missing entries
+				throw new IllegalStateException("Entry " + (appliedSequence + 1) + " is not in the primary's log, "
+						+ "which holds entries " + timestamp + " to " + last + "; the replica must be recreated.");
+			}
+			if (sequence == 0) {
+				if (appliedSequence >= last) {
+					lagMillis = 0;
+				}
+				continue;
+			}
+			if (sequence != appliedSequence + 1) {
+				throw new IOException("Expected entry " + (appliedSequence + 1) + " but got " + sequence);
+			}
+			apply(ByteBuffer.wrap(entry, 0, length));
+			lagMillis = System.currentTimeMillis() - timestamp;
+			synchronized (this) {
+				appliedSequence = sequence;
+				notifyAll();
+			}
+		}
+	}
+
+	/** Applies one entry written by {@link ChangeLog}. */
+	private void apply(ByteBuffer entry) {
+		byte type = entry.get();
+		long id = BinaryCodec.readVarLong(entry);
+		codec.reset();
+		synchronized (hotel) {
+			switch (type) {
+				case ChangeLog.ROOM_ADDED -> {
+					Room room = (Room) codec.decode(entry);
+					rooms.add(room);
+					hotel.addRoom(room);
+				}
+				case ChangeLog.ROOM_CHANGED -> {
+					Room values = (Room) codec.decode(entry);
+					Room room = rooms.get((int) id - 1);
+					room.setRoomNumber(values.getRoomNumber());
+					room.setType(values.getType());
+					room.setCapacity(values.getCapacity());
+					room.setPrice(values.getPrice());
+					hotel.updateRoom(room);
+				}
+				case ChangeLog.RESERVATION_BOOKED -> {
+					Room room = rooms.get((int) BinaryCodec.readVarLong(entry) - 1);
+					Reservation values = (Reservation) codec.decode(entry);
+					Reservation reservation = Reservation.restore(values.getGuest(), room,
+							values.getStartDate(), values.getEndDate(), values.services());
+					reservations.put(id, reservation);
+					hotel.book(reservation);
+				}
+				case ChangeLog.RESERVATION_CHANGED -> {
+					Reservation values = (Reservation) codec.decode(entry);
+					Reservation reservation = reservations.get(id);
+					reservation.restore(values.getStartDate(), values.getEndDate(), values.services());
+					hotel.updateReservation(reservation);
+				}
+				case ChangeLog.RESERVATION_CANCELLED -> hotel.cancel(reservations.remove(id));
+				case ChangeLog.INVOICE_CHANGED -> {
+					Reservation reservation = reservations.get(BinaryCodec.readVarLong(entry));
+					LocalDate issueDate = LocalDate.ofEpochDay(BinaryCodec.readVarLong(entry));
+					double total = entry.getDouble();
+					Invoice invoice = invoices.get(id);
+					boolean added = invoice == null;
+					if (added) {
+						invoice = Invoice.restore(reservation, total, issueDate);
+						invoices.put(id, invoice);
+					} else {
+						invoice.restore(total, issueDate);
+					}
+					hotel.restoreInvoice(invoice, added);
+				}
+				default -> throw new IllegalArgumentException("Unknown log entry type " + type);
+			}
+		}
+	}
+}
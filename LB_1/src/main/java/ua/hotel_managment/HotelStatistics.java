@@ -0,0 +1,509 @@
+package ua.hotel_managment;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ua.util.LongObjectMap;
+import ua.util.Utils;
+
+/**
+ * Materialized occupancy and revenue aggregates of a {@link Hotel}:
+ * rooms sold and room revenue per day, per room type and day and per month,
+ * and invoice revenue per month of issue.
+ * <p>
+ * The aggregates are updated incrementally from {@link HotelListener} events,
+ * so dashboard queries cost O(1) for a single day or month and O(days) for a
+ * date range, independently of the number of reservations.
+ * A reservation contributes the room's price to every night in
+ * {@code [startDate, endDate)}. Its contribution is remembered at booking time,
+ * so cancelling removes exactly what was added.
+ * {@link #rebuild(Hotel)} computes the same numbers from scratch, from the
+ * reservations and invoices still in the hotel (archived ones stay in the
+ * incremental totals only).
+ */
+public class HotelStatistics implements HotelListener {
+
+	/** Allowed rounding difference between incremental and rebuilt amounts. */
+	private static final double EPSILON = 1e-6;
+
+	/** Lock taken first by {@link #isConsistentWith} when both statistics have the same identity hash code. */
+	private static final Object TIE_LOCK = new Object();
+
+	/** Rooms sold and room revenue of one day or month. */
+	private static final class Totals {
+		int roomsSold;
+		double roomRevenue;
+	}
+
+	/** Contribution of one booked reservation. */
+	private static final class Booked {
+		final long startDay;
+		final long endDay;
+		final long roomId;
+		final double price;
+		final String type;
+
+		Booked(Reservation reservation) {
+			this(reservation.getStartDay(), reservation.getEndDay(), reservation.getRoom());
+		}
+
+		Booked(long startDay, long endDay, Room room) {
+			this.startDay = startDay;
+			this.endDay = endDay;
+			this.roomId = room.getId();
+			this.price = room.getPrice();
+			this.type = room.getType();
+		}
+	}
+
+	/** Contribution of one invoice. */
+	private static final class Issued {
+		final YearMonth month;
+		final double amount;
+
+		Issued(Invoice invoice) {
+			this.month = YearMonth.from(invoice.getIssueDate());
+			this.amount = invoice.getTotalAmount();
+		}
+	}
+
+	private final Map<Long, Totals> byDay = new HashMap<>();
+	private final Map<String, Map<Long, Totals>> byTypeAndDay = new HashMap<>();
+	private final Map<YearMonth, Totals> byMonth = new HashMap<>();
+	private final Map<YearMonth, Double> invoiceRevenueByMonth = new HashMap<>();
+	private final Map<String, Integer> roomsByType = new HashMap<>();
+	private int roomCount;
+
+	private final LongObjectMap<String> roomTypes = new LongObjectMap<>(); // by room id
+	private final LongObjectMap<Booked> booked = new LongObjectMap<>(); // by reservation id
+	private final LongObjectMap<Issued> issued = new LongObjectMap<>(); // by invoice id
+
+	/**
+	 * Constructs empty statistics. Use {@link #attach(Hotel)} to follow a hotel.
+	 */
+	public HotelStatistics() {
+	}
+
+	/**
+	 * Creates statistics for the current state of the hotel and keeps them
+	 * up to date with every later change.
+	 *
+	 * @param hotel the hotel to follow
+	 * @return statistics registered as a listener of the hotel
+	 * @throws NullPointerException if {@code hotel} is {@code null}
+	 */
+	public static HotelStatistics attach(Hotel hotel) {
+		if (!Utils.validateObject(hotel)) {
+			throw new NullPointerException("Hotel can't be null.");
+		}
+		synchronized (hotel) {
+			HotelStatistics statistics = rebuild(hotel);
+			hotel.addListener(statistics);
+			return statistics;
+		}
+	}
+
+	/**
+	 * Computes the statistics from scratch by scanning all rooms,
+	 * reservations and invoices of the hotel. The result is not attached.
+	 *
+	 * @param hotel the hotel to scan
+	 * @return new statistics
+	 * @throws NullPointerException if {@code hotel} is {@code null}
+	 */
+	public static HotelStatistics rebuild(Hotel hotel) {
+		if (!Utils.validateObject(hotel)) {
+			throw new NullPointerException("Hotel can't be null.");
+		}
+		HotelStatistics statistics = new HotelStatistics();
+		synchronized (hotel) {
+			for (Room room : hotel.getRooms()) {
+				statistics.roomAdded(room);
+			}
+			for (Reservation reservation : hotel.getReservations()) {
+				statistics.reservationBooked(reservation);
+			}
+			for (Invoice invoice : hotel.getInvoices()) {
+				statistics.invoiceChanged(invoice);
+			}
+		}
+		return statistics;
+	}
+
+	/**
+	 * Counts the room as available on every day.
+	 *
+	 * @param room the added room
+	 */
+	@Override
+	public synchronized void roomAdded(Room room) {
+		roomCount++;
+		roomsByType.merge(room.getType(), 1, Integer::sum);
+		roomTypes.put(room.getId(), room.getType());
+	}
+
+	/**
+	 * Moves the room to its current type and moves the nights of its reservations
+	 * to the current type and price. Scans the booked reservations, which is
+	 * acceptable for a change as rare as a room's type or price.
+	 *
+	 * @param room the changed room
+	 */
+	@Override
+	public synchronized void roomChanged(Room room) {
+		String previousType = roomTypes.put(room.getId(), room.getType());
+		if (previousType != null && !previousType.equals(room.getType())) {
+			if (roomsByType.merge(previousType, -1, Integer::sum) == 0) {
+				roomsByType.remove(previousType);
+			}
+			roomsByType.merge(room.getType(), 1, Integer::sum);
+		}
+		List<Long> stale = new ArrayList<>();
+		booked.forEach((id, contribution) -> {
+			if (contribution.roomId == room.getId()
+					&& (contribution.price != room.getPrice() || !contribution.type.equals(room.getType()))) {
+				stale.add(id);
+			}
+		});
+		for (long id : stale) {
+			Booked previous = booked.get(id);
+			Booked current = new Booked(previous.startDay, previous.endDay, room);
+			apply(previous, -1);
+			apply(current, 1);
+			booked.put(id, current);
+		}
+	}
+
+	/**
+	 * Adds the reservation's nights to the daily, per-type and monthly totals.
+	 *
+	 * @param reservation the booked reservation
+	 */
+	@Override
+	public synchronized void reservationBooked(Reservation reservation) {
+		Booked contribution = new Booked(reservation);
+		if (booked.put(reservation.getId(), contribution) == null) {
+			apply(contribution, 1);
+		}
+	}
+
+	/**
+	 * Replaces the reservation's previous contribution with its current dates and room price.
+	 *
+	 * @param reservation the changed reservation
+	 */
+	@Override
+	public synchronized void reservationChanged(Reservation reservation) {
+		reservationCancelled(reservation);
+		reservationBooked(reservation);
+	}
+
+	/**
+	 * Removes the nights that were added when the reservation was booked.
+	 *
+	 * @param reservation the cancelled reservation
+	 */
+	@Override
+	public synchronized void reservationCancelled(Reservation reservation) {
+		Booked contribution = booked.remove(reservation.getId());
+		if (contribution != null) {
+			apply(contribution, -1);
+		}
+	}
+
+	/**
+	 * Forgets the contributions of the archived reservation and its invoices,
+	 * which can't change any more, but keeps them in the totals.
+	 *
+	 * @param reservation the archived reservation
+	 * @param invoices    its invoices
+	 */
+	@Override
+	public synchronized void reservationArchived(Reservation reservation, List<Invoice> invoices) {
+		booked.remove(reservation.getId());
+		for (Invoice invoice : invoices) {
+			issued.remove(invoice.getId());
+		}
+	}
+
+	/**
+	 * Replaces the invoice's previous amount with its current total.
+	 *
+	 * @param invoice the added or recalculated invoice
+	 */
+	@Override
+	public synchronized void invoiceChanged(Invoice invoice) {
+		Issued previous = issued.put(invoice.getId(), new Issued(invoice));
+		if (previous != null) {
+			invoiceRevenueByMonth.merge(previous.month, -previous.amount, Double::sum);
+		}
+		invoiceRevenueByMonth.merge(YearMonth.from(invoice.getIssueDate()), invoice.getTotalAmount(), Double::sum);
+	}
+
+	/**
+	 * Returns the number of rooms of the hotel.
+	 *
+	 * @return number of rooms
+	 */
+	public synchronized int getRoomCount() {
+		return roomCount;
+	}
+
+	/**
+	 * Returns the number of rooms sold for the night of the given date.
+	 *
+	 * @param date the date
+	 * @return number of occupied rooms
+	 */
+	public synchronized int getRoomsSold(LocalDate date) {
+		Totals totals = byDay.get(date.toEpochDay());
+		return totals == null ? 0 : totals.roomsSold;
+	}
+
+	/**
+	 * Returns the share of occupied rooms for the night of the given date.
+	 *
+	 * @param date the date
+	 * @return occupancy rate from 0 to 1
+	 */
+	public synchronized double getOccupancyRate(LocalDate date) {
+		return roomCount == 0 ? 0 : (double) getRoomsSold(date) / roomCount;
+	}
+
+	/**
+	 * Returns the share of occupied rooms of the given type for the night of the given date.
+	 *
+	 * @param type the room type
+	 * @param date the date
+	 * @return occupancy rate from 0 to 1
+	 */
+	public synchronized double getOccupancyRate(String type, LocalDate date) {
+		Integer rooms = roomsByType.get(type);
+		Map<Long, Totals> days = byTypeAndDay.get(type);
+		if (rooms == null || days == null) {
+			return 0;
+		}
+		Totals totals = days.get(date.toEpochDay());
+		return totals == null ? 0 : (double) totals.roomsSold / rooms;
+	}
+
+	/**
+	 * Returns the occupancy rate over the nights in {@code [from, to)}.
+	 *
+	 * @param from the first night
+	 * @param to   the day after the last night
+	 * @return occupancy rate from 0 to 1
+	 */
+	public synchronized double getOccupancyRate(LocalDate from, LocalDate to) {
+		long days = to.toEpochDay() - from.toEpochDay();
+		if (roomCount == 0 || days <= 0) {
+			return 0;
+		}
+		return (double) sum(from, to).roomsSold / (roomCount * days);
+	}
+
+	/**
+	 * Returns the average daily rate (room revenue per sold room) over {@code [from, to)}.
+	 *
+	 * @param from the first night
+	 * @param to   the day after the last night
+	 * @return ADR, or 0 if no rooms were sold
+	 */
+	public synchronized double getAverageDailyRate(LocalDate from, LocalDate to) {
+		Totals totals = sum(from, to);
+		return totals.roomsSold == 0 ? 0 : totals.roomRevenue / totals.roomsSold;
+	}
+
+	/**
+	 * Returns the room revenue per available room over {@code [from, to)}.
+	 *
+	 * @param from the first night
+	 * @param to   the day after the last night
+	 * @return RevPAR, or 0 if the hotel has no rooms
+	 */
+	public synchronized double getRevPar(LocalDate from, LocalDate to) {
+		long days = to.toEpochDay() - from.toEpochDay();
+		if (roomCount == 0 || days <= 0) {
+			return 0;
+		}
+		return sum(from, to).roomRevenue / (roomCount * days);
+	}
+
+	/**
+	 * Returns the number of room nights sold in the month.
+	 *
+	 * @param month the month
+	 * @return number of room nights
+	 */
+	public synchronized int getRoomsSold(YearMonth month) {
+		Totals totals = byMonth.get(month);
+		return totals == null ? 0 : totals.roomsSold;
+	}
+
+	/**
+	 * Returns the room revenue of the nights in the month.
+	 *
+	 * @param month the month
+	 * @return room revenue
+	 */
+	public synchronized double getRoomRevenue(YearMonth month) {
+		Totals totals = byMonth.get(month);
+		return totals == null ? 0 : totals.roomRevenue;
+	}
+
+	/**
+	 * Returns the sum of totals of invoices issued in the month.
+	 *
+	 * @param month the month
+	 * @return invoice revenue
+	 */
+	public synchronized double getInvoiceRevenue(YearMonth month) {
+		return invoiceRevenueByMonth.getOrDefault(month, 0.0);
+	}
+
+	/**
+	 * Checks if these statistics hold the same numbers as the other ones,
+	 * e.g. incrementally maintained statistics against {@link #rebuild(Hotel)}.
+	 *
+	 * @param other statistics to compare with
+	 * @return {@code true} if all aggregates match
+	 */
+	public boolean isConsistentWith(HotelStatistics other) {
+		int thisHash = System.identityHashCode(this);
+		int otherHash = System.identityHashCode(other);
+		// lock in a fixed order to avoid a deadlock with a concurrent reverse call
+		if (thisHash < otherHash) {
+			synchronized (this) {
+				synchronized (other) {
+					return sameAggregates(other);
+				}
+			}
+		}
+		if (thisHash > otherHash) {
+			synchronized (other) {
+				synchronized (this) {
+					return sameAggregates(other);
+				}
+			}
+		}
+		// equal hashes give no order, so such calls take a shared lock first
+		synchronized (TIE_LOCK) {
+			synchronized (this) {
+				synchronized (other) {
+					return sameAggregates(other);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compares all aggregates with the other statistics.
+	 * The caller must hold the locks of both.
+	 *
+	 * @param other statistics to compare with
+	 * @return {@code true} if all aggregates match
+	 */
+	private boolean sameAggregates(HotelStatistics other) {
+		if (roomCount != other.roomCount || !roomsByType.equals(other.roomsByType)) {
+			return false;
+		}
+		if (!sameTotals(byDay, other.byDay) || !sameTotals(byMonth, other.byMonth)) {
+			return false;
+		}
+		Set<String> types = new HashSet<>(byTypeAndDay.keySet());
+		types.addAll(other.byTypeAndDay.keySet());
+		for (String type : types) {
+			if (!sameTotals(byTypeAndDay.getOrDefault(type, Map.of()),
+					other.byTypeAndDay.getOrDefault(type, Map.of()))) {
+				return false;
+			}
+		}
+		Set<YearMonth> months = new HashSet<>(invoiceRevenueByMonth.keySet());
+		months.addAll(other.invoiceRevenueByMonth.keySet());
+		for (YearMonth month : months) {
+			if (Math.abs(invoiceRevenueByMonth.getOrDefault(month, 0.0)
+					- other.invoiceRevenueByMonth.getOrDefault(month, 0.0)) > EPSILON) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds ({@code sign = 1}) or removes ({@code sign = -1}) a reservation's nights.
+	 *
+	 * @param contribution the reservation's contribution
+	 * @param sign         1 to add, -1 to remove
+	 */
+	private void apply(Booked contribution, int sign) {
+		Map<Long, Totals> typeDays = byTypeAndDay.computeIfAbsent(contribution.type, type -> new HashMap<>());
+		for (long day = contribution.startDay; day < contribution.endDay; day++) {
+			add(byDay, day, sign, contribution.price);
+			add(typeDays, day, sign, contribution.price);
+			add(byMonth, YearMonth.from(LocalDate.ofEpochDay(day)), sign, contribution.price);
+		}
+	}
+
+	/**
+	 * Adds one room night to the totals under the key; drops totals that become empty.
+	 *
+	 * @param totals map of totals
+	 * @param key    day or month
+	 * @param sign   1 to add, -1 to remove
+	 * @param price  price of the night
+	 */
+	private static <K> void add(Map<K, Totals> totals, K key, int sign, double price) {
+		Totals cell = totals.computeIfAbsent(key, k -> new Totals());
+		cell.roomsSold += sign;
+		cell.roomRevenue += sign * price;
+		if (cell.roomsSold == 0) {
+			totals.remove(key);
+		}
+	}
+
+	/**
+	 * Sums the daily totals over {@code [from, to)}.
+	 *
+	 * @param from the first night
+	 * @param to   the day after the last night
+	 * @return summed totals
+	 */
+	private Totals sum(LocalDate from, LocalDate to) {
+		Totals result = new Totals();
+		for (long day = from.toEpochDay(); day < to.toEpochDay(); day++) {
+			Totals totals = byDay.get(day);
+			if (totals != null) {
+				result.roomsSold += totals.roomsSold;
+				result.roomRevenue += totals.roomRevenue;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Compares two maps of totals, allowing rounding differences in revenue.
+	 *
+	 * @param first  first map
+	 * @param second second map
+	 * @return {@code true} if both maps hold the same totals
+	 */
+	private static <K> boolean sameTotals(Map<K, Totals> first, Map<K, Totals> second) {
+		if (!first.keySet().equals(second.keySet())) {
+			return false;
+		}
+		for (Map.Entry<K, Totals> entry : first.entrySet()) {
+			Totals other = second.get(entry.getKey());
+			if (entry.getValue().roomsSold != other.roomsSold
+					|| Math.abs(entry.getValue().roomRevenue - other.roomRevenue) > EPSILON) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
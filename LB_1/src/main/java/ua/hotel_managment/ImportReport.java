@@ -0,0 +1,128 @@
+package ua.hotel_managment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a {@link BulkImporter} run: counters, throughput
+ * and the list of rejected rows with their line numbers.
+ */
+public class ImportReport {
+
+	/** Maximal number of row errors kept in the report; later ones are only counted. */
+	public static final int MAX_ERRORS = 10_000;
+
+	/** A rejected row. */
+	public static final class RowError {
+		private final long line;
+		private final String message;
+
+		RowError(long line, String message) {
+			this.line = line;
+			this.message = message;
+		}
+
+		/** @return line number in the input file, starting with 1 */
+		public long getLine() { return line; }
+
+		/** @return why the row was rejected */
+		public String getMessage() { return message; }
+
+		/**
+		 * Returns a string representation of the error.
+		 *
+		 * @return line number and message
+		 */
+		@Override
+		public String toString() {
+			return "line " + line + ": " + message;
+		}
+	}
+
+	private long rows;
+	private long guests;
+	private long reservations;
+	private long errorCount;
+	private long bytes;
+	private long nanos;
+	private final List<RowError> errors = new ArrayList<>();
+
+	/**
+	 * Constructs an empty report. Filled by {@link BulkImporter}.
+	 */
+	ImportReport() {
+	}
+
+	void addRows(long count) { rows += count; }
+
+	void addGuests(long count) { guests += count; }
+
+	void addReservations(long count) { reservations += count; }
+
+	void setBytes(long bytes) { this.bytes = bytes; }
+
+	void setNanos(long nanos) { this.nanos = nanos; }
+
+	/**
+	 * Records a rejected row.
+	 *
+	 * @param line    line number in the input file
+	 * @param message why the row was rejected
+	 */
+	void addError(long line, String message) {
+		errorCount++;
+		if (errors.size() < MAX_ERRORS) {
+			errors.add(new RowError(line, message));
+		}
+	}
+
+	/**
+	 * Sorts the kept errors by line number.
+	 */
+	void sortErrors() {
+		errors.sort((first, second) -> Long.compare(first.line, second.line));
+	}
+
+	/** @return number of non-empty data rows read */
+	public long getRows() { return rows; }
+
+	/** @return number of imported guests */
+	public long getGuests() { return guests; }
+
+	/** @return number of booked reservations */
+	public long getReservations() { return reservations; }
+
+	/** @return number of rejected rows */
+	public long getErrorCount() { return errorCount; }
+
+	/** @return unmodifiable list of the first {@value #MAX_ERRORS} rejected rows */
+	public List<RowError> getErrors() { return Collections.unmodifiableList(errors); }
+
+	/** @return size of the input file in bytes */
+	public long getBytes() { return bytes; }
+
+	/** @return duration of the import in milliseconds */
+	public double getMillis() { return nanos / 1e6; }
+
+	/**
+	 * Returns the import throughput.
+	 *
+	 * @return megabytes of input per second
+	 */
+	public double getMegabytesPerSecond() {
+		return nanos == 0 ? 0 : (bytes / 1e6) / (nanos / 1e9);
+	}
+
+	/**
+	 * Returns a string representation of the report without the error list.
+	 *
+	 * @return formatted string with counters and throughput
+	 */
+	@Override
+	public String toString() {
+		return String.format("ImportReport [rows=%d, guests=%d, reservations=%d, errors=%d, bytes=%d, "
+				+ "time=%.1f ms, throughput=%.1f MB/s]", rows, guests, reservations, errorCount, bytes,
+				getMillis(), getMegabytesPerSecond());
+	}
+}
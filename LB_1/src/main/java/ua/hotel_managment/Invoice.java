@@ -1,8 +1,16 @@
 package ua.hotel_managment;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
 import java.time.LocalDate;
 import java.util.Objects;
 
+import ua.util.FieldRule;
+import ua.util.FieldWriter;
+import ua.util.FieldFormattable;
+import ua.util.IdGenerator;
 import ua.util.Utils;
 
 /**
@@ -10,7 +18,17 @@ import ua.util.Utils;
  * An invoice contains the reservation details, 
  * the total amount to be paid, and the issue date.
  */
-public class Invoice {
+public class Invoice implements Serializable, FieldFormattable {
+	
+	private static final long serialVersionUID = 1L;
+
+	private static final FieldRule RESERVATION = FieldRule.of(Invoice.class, "reservation", Reservation.class, MethodHandles.lookup())
+			.notNull(NullPointerException.class, "Reservation can't be null")
+			.compile();
+	private static final FieldRule ISSUE_DATE = FieldRule.of(Invoice.class, "issueDate", LocalDate.class, MethodHandles.lookup())
+			.notNull(NullPointerException.class, "Issue date can't be null")
+			.notInPast(IllegalArgumentException.class, "Issue date can't be in the past")
+			.compile();
 	
 	/** The reservation associated with this invoice. */
 	private Reservation reservation;
@@ -21,6 +39,9 @@ public class Invoice {
 	/** The date the invoice was issued. */
 	private LocalDate issueDate;
 	
+	/** Stable id, see {@link #getId()}. */
+	private transient int id = IdGenerator.shared().next();
+	
 	/**
 	 * Constructor.
 	 * Creates a new Invoice object with the given reservation and issue date.
@@ -56,15 +77,98 @@ public class Invoice {
 		return new Invoice(reservation, issueDate);
 	}
 	
+	/**
+	 * Constructor for {@link #restore}; fields are set by the caller.
+	 */
+	private Invoice() {
+	}
+	
+	/**
+	 * Recreates an invoice from stored data. Unlike the constructor,
+	 * an issue date in the past is accepted and the total amount is kept as stored.
+	 * 
+	 * @param reservation the reservation associated with this invoice
+	 * @param totalAmount the stored total amount
+	 * @param issueDate   the date the invoice was issued
+	 * @return the restored Invoice object
+	 * @throws NullPointerException if the reservation or issue date is null
+	 */
+	static Invoice restore(Reservation reservation, double totalAmount, LocalDate issueDate) {
+		Invoice invoice = new Invoice();
+		invoice.setReservation(reservation);
+		if (!Utils.validateObject(issueDate)) {
+			throw new NullPointerException("Issue date can't be null");
+		}
+		invoice.issueDate = issueDate;
+		invoice.totalAmount = totalAmount;
+		return invoice;
+	}
+	
+	/**
+	 * Replaces the total amount and issue date with stored values, e.g. received
+	 * from a {@link ChangeLog}. Unlike the setter, an issue date in the past is
+	 * accepted, and the total is kept as stored rather than recalculated.
+	 * 
+	 * @param totalAmount the stored total amount
+	 * @param issueDate   the date the invoice was issued
+	 * @throws NullPointerException if the issue date is null
+	 */
+	void restore(double totalAmount, LocalDate issueDate) {
+		if (!Utils.validateObject(issueDate)) {
+			throw new NullPointerException("Issue date can't be null");
+		}
+		LocalDate old = this.issueDate;
+		this.issueDate = issueDate;
+		AuditTrail.changed(this, AuditTrail.Field.INVOICE_ISSUE_DATE, old, issueDate);
+		this.totalAmount = totalAmount;
+	}
+	
 	/**
 	 * Calculates the total amount of the invoice.
 	 * The total includes the room price and all associated services.
 	 */
 	public void calculateTotalAmount() {
-		totalAmount = reservation.getRoom().getPrice();
-		for(Service service : reservation.getServices()) {
-			totalAmount += service.getPrice();
+		totalAmount = computeTotal(reservation);
+	}
+	
+	/**
+	 * Takes the total amount of the invoice from the cache,
+	 * recalculating it only if the reservation or its room changed.
+	 * 
+	 * @param cache the cache of invoice totals
+	 * @throws NullPointerException if the cache is null
+	 */
+	public void calculateTotalAmount(InvoiceTotalCache cache) {
+		if (!Utils.validateObject(cache)) {
+			throw new NullPointerException("Cache can't be null");
+		}
+		totalAmount = cache.getTotal(reservation);
+	}
+	
+	/**
+	 * Calculates the total amount for a reservation:
+	 * the room price and all associated services.
+	 * 
+	 * @param reservation the reservation
+	 * @return the total amount
+	 */
+	static double computeTotal(Reservation reservation) {
+		double total = reservation.getRoom().getPrice();
+		for(Service service : reservation.services()) {
+			total += service.getPrice();
 		}
+		return total;
+	}
+
+	/**
+	 * Returns the id of the invoice: unique in this process and, unlike
+	 * {@link #hashCode()}, not changed by the setters, so it can key maps.
+	 * A deserialized copy gets a new id.
+	 *
+	 * @return the id
+	 */
+	public long getId() {
+		return id;
 	}
 
 	/**
@@ -83,10 +187,10 @@ public class Invoice {
 	 * @throws NullPointerException if the reservation is null
 	 */
 	public void setReservation(Reservation reservation) {
-		if (!Utils.validateObject(reservation)) {
-			throw new NullPointerException("Reservation can't be null");
-		}
+		RESERVATION.check(this, reservation);
+		Reservation old = this.reservation;
 		this.reservation = reservation;
+		AuditTrail.changed(this, AuditTrail.Field.INVOICE_RESERVATION, old, reservation);
 	}
 
 	/**
@@ -115,13 +219,10 @@ public class Invoice {
 	 * @throws IllegalArgumentException if the issue date is in the past
 	 */
 	public void setIssueDate(LocalDate issueDate) {
-		if (!Utils.validateObject(issueDate)) {
-			throw new NullPointerException("Issue date can't be null");
-		}
-		if (!Utils.validateDate(issueDate, LocalDate.now())) {
-			throw new IllegalArgumentException("Issue date can't be in the past");
-		}
+		ISSUE_DATE.check(this, issueDate);
+		LocalDate old = this.issueDate;
 		this.issueDate = issueDate;
+		AuditTrail.changed(this, AuditTrail.Field.INVOICE_ISSUE_DATE, old, issueDate);
 	}
 
 	/**
@@ -159,6 +260,20 @@ public class Invoice {
 				&& Double.doubleToLongBits(totalAmount) == Double.doubleToLongBits(other.totalAmount);
 	}
 
+	/**
+	 * Writes the invoice's fields into the writer without building intermediate strings.
+	 *
+	 * @param out the writer
+	 */
+	@Override
+	public void formatTo(FieldWriter out) {
+		out.begin("Invoice");
+		out.field("reservation", reservation);
+		out.field("totalAmount", totalAmount);
+		out.field("issueDate", issueDate);
+		out.end();
+	}
+
 	/**
 	 * Returns a string representation of the invoice,
 	 * including reservation, total amount, and issue date.
@@ -171,4 +286,16 @@ public class Invoice {
 				+ ", totalAmount=" + totalAmount 
 				+ ", issueDate=" + issueDate + "]";
 	}
+
+	/**
+	 * Reads an invoice and gives it a new id.
+	 *
+	 * @param in the stream
+	 * @throws IOException            if the stream fails
+	 * @throws ClassNotFoundException if a field's class can't be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		id = IdGenerator.shared().next();
+	}
 }
@@ -0,0 +1,215 @@
+package ua.hotel_managment;
+
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.List;
+
+import ua.util.TinyLfuCache;
+import ua.util.Utils;
+
+/**
+ * Converts invoice totals, which are in the base currency of a {@link RateTable},
+ * into the currencies guests are billed in.
+ * <p>
+ * Single conversions (e.g. for display) are cached per invoice, currency and
+ * rate version: an entry is used only while the rates have the version it was
+ * converted with and the invoice has the same total, so a rate update or a
+ * recalculated invoice never returns an old amount.
+ * <p>
+ * {@link #convertTotals} converts a whole batch, e.g. the invoices of a day,
+ * with one rate version: the stored totals and the currency of every invoice are
+ * copied into primitive arrays and converted in one pass of long arithmetic,
+ * without walking the services of the reservations or creating {@link Money}
+ * objects.
+ * Thread-safe.
+ */
+public class InvoiceCurrencyConverter {
+
+	/** Converted totals of one invoice for one rate version and base total. */
+	private static final class Entry {
+		final long version;
+		final double baseTotal;
+		final Money[] totals; // at most a few currencies per invoice
+
+		Entry(long version, double baseTotal, Money[] totals) {
+			this.version = version;
+			this.baseTotal = baseTotal;
+			this.totals = totals;
+		}
+
+		Money find(Currency currency) {
+			for (Money total : totals) {
+				if (total.getCurrency() == currency) {
+					return total;
+				}
+			}
+			return null;
+		}
+	}
+
+	private final RateTable rates;
+	private final TinyLfuCache<Invoice, Entry> cache;
+
+	/**
+	 * Constructs a converter.
+	 *
+	 * @param rates       the exchange rates
+	 * @param maximumSize maximal number of invoices with cached conversions
+	 * @throws NullPointerException     if {@code rates} is {@code null}
+	 * @throws IllegalArgumentException if {@code maximumSize} is not positive
+	 */
+	public InvoiceCurrencyConverter(RateTable rates, int maximumSize) {
+		if (!Utils.validateObject(rates)) {
+			throw new NullPointerException("Rates can't be null.");
+		}
+		this.rates = rates;
+		this.cache = new TinyLfuCache<>(maximumSize);
+	}
+
+	/**
+	 * Factory method for creating an {@code InvoiceCurrencyConverter}.
+	 *
+	 * @param rates       the exchange rates
+	 * @param maximumSize maximal number of invoices with cached conversions
+	 * @return a new {@code InvoiceCurrencyConverter} instance
+	 */
+	public static InvoiceCurrencyConverter create(RateTable rates, int maximumSize) {
+		return new InvoiceCurrencyConverter(rates, maximumSize);
+	}
+
+	/**
+	 * Returns the total of an invoice in the base currency.
+	 *
+	 * @param invoice the invoice
+	 * @return the total
+	 * @throws NullPointerException if {@code invoice} is {@code null}
+	 */
+	public Money getTotal(Invoice invoice) {
+		if (!Utils.validateObject(invoice)) {
+			throw new NullPointerException("Invoice can't be null.");
+		}
+		return Money.of(invoice.getTotalAmount(), rates.current().getBase());
+	}
+
+	/**
+	 * Returns the total of an invoice in a currency, at the current rates.
+	 *
+	 * @param invoice  the invoice
+	 * @param currency the currency
+	 * @return the converted total
+	 * @throws NullPointerException     if an argument is {@code null}
+	 * @throws IllegalArgumentException if there is no rate for the currency
+	 */
+	public Money convert(Invoice invoice, Currency currency) {
+		if (!Utils.validateObject(invoice) || !Utils.validateObject(currency)) {
+			throw new NullPointerException("Invoice and currency can't be null.");
+		}
+		RateTable.Version version = rates.current();
+		double baseTotal = invoice.getTotalAmount();
+		Entry entry = cache.get(invoice);
+		if (entry != null && entry.version == version.getNumber() && entry.baseTotal == baseTotal) {
+			Money total = entry.find(currency);
+			if (total != null) {
+				return total;
+			}
+		} else {
+			entry = null;
+		}
+		long baseMinor = Money.of(baseTotal, version.getBase()).getMinorUnits();
+		Money total = Money.ofMinor(version.fromBase(baseMinor, version.indexOf(currency)), currency);
+		Money[] totals = entry == null ? new Money[1] : Arrays.copyOf(entry.totals, entry.totals.length + 1);
+		totals[totals.length - 1] = total;
+		cache.put(invoice, new Entry(version.getNumber(), baseTotal, totals));
+		return total;
+	}
+
+	/**
+	 * Converts the totals of a batch of invoices at the current rates.
+	 *
+	 * @param invoices   the invoices; their totals must be calculated
+	 * @param currencies the currency of every invoice
+	 * @return the converted totals, in minor units of each invoice's currency
+	 * @see #convertTotals(List, List, RateTable.Version)
+	 */
+	public long[] convertTotals(List<Invoice> invoices, List<Currency> currencies) {
+		return convertTotals(invoices, currencies, rates.current());
+	}
+
+	/**
+	 * Converts the totals of a batch of invoices with the given rates, e.g. the
+	 * version a settlement was agreed on. Every total is rounded half-even to the
+	 * minor unit of its currency, exactly like {@link #convert}.
+	 *
+	 * @param invoices   the invoices; their totals must be calculated
+	 * @param currencies the currency of every invoice
+	 * @param version    the rates
+	 * @return the converted totals, in minor units of each invoice's currency
+	 * @throws NullPointerException     if an argument, invoice or currency is {@code null}
+	 * @throws IllegalArgumentException if the lists differ in size or there is no rate for a currency
+	 */
+	public long[] convertTotals(List<Invoice> invoices, List<Currency> currencies, RateTable.Version version) {
+		if (!Utils.validateObject(invoices) || !Utils.validateObject(currencies) || !Utils.validateObject(version)) {
+			throw new NullPointerException("Invoices, currencies and rates can't be null.");
+		}
+		if (invoices.size() != currencies.size()) {
+			throw new IllegalArgumentException("Every invoice needs one currency.");
+		}
+		int size = invoices.size();
+		long[] totals = new long[size];
+		long unit = Money.unit(version.getBase());
+		int[] indexes = new int[size];
+		Currency last = null;
+		int lastIndex = -1;
+		for (int i = 0; i < size; i++) {
+			totals[i] = (long) Math.rint(invoices.get(i).getTotalAmount() * unit);
+			Currency currency = currencies.get(i);
+			if (currency != last) {
+				if (!Utils.validateObject(currency)) {
+					throw new NullPointerException("Currency can't be null.");
+				}
+				last = currency;
+				lastIndex = version.indexOf(currency);
+			}
+			indexes[i] = lastIndex;
+		}
+		return convert(totals, indexes, version.mantissas(), version.shifts(), new long[size]);
+	}
+
+	/**
+	 * Converts amounts in minor units of the base currency to minor units of their currencies.
+	 *
+	 * @param totals    the amounts in minor base units
+	 * @param indexes   the currency index of every amount
+	 * @param mantissas the rate mantissa of each currency
+	 * @param shifts    the rate shift of each currency
+	 * @param result    receives the converted amounts
+	 * @return {@code result}
+	 * @see RateTable#fromBase(long, long, int)
+	 */
+	static long[] convert(long[] totals, int[] indexes, long[] mantissas, int[] shifts, long[] result) {
+		for (int i = 0; i < totals.length; i++) {
+			int index = indexes[i];
+			result[i] = RateTable.fromBase(totals[i], mantissas[index], shifts[index]);
+		}
+		return result;
+	}
+
+	/** @return number of invoices with cached conversions */
+	public int size() { return cache.size(); }
+
+	/** @return number of conversions that found the invoice in the cache, including outdated entries */
+	public long getHits() { return cache.getHits(); }
+
+	/** @return number of conversions of invoices that weren't cached */
+	public long getMisses() { return cache.getMisses(); }
+
+	/**
+	 * Returns a string representation of the cache statistics.
+	 *
+	 * @return formatted string with statistics
+	 */
+	@Override
+	public String toString() {
+		return "InvoiceCurrencyConverter [size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() + "]";
+	}
+}
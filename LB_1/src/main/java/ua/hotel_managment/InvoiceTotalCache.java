@@ -0,0 +1,139 @@
+package ua.hotel_managment;
+
+import java.util.List;
+
+import ua.util.TinyLfuCache;
+import ua.util.Utils;
+
+/**
+ * Bounded cache of invoice totals keyed by reservation identity.
+ * <p>
+ * Each entry remembers the modification counts of the reservation and of its
+ * room at the time the total was computed. The entry becomes stale exactly when
+ * {@link Reservation#addService(Service)}, {@link Reservation#setServices(List)},
+ * a date setter, {@link Reservation#setRoom(Room)} or a setter of the room
+ * (e.g. {@link Room#setPrice(double)}) is called; a stale entry is recomputed
+ * on the next request. Changes of a {@link Service} object itself, or of the
+ * list returned by {@link Reservation#getServices()} other than adding or
+ * removing items, are not tracked.
+ * <p>
+ * Eviction is size-based and frequency-aware ({@link TinyLfuCache}).
+ */
+public class InvoiceTotalCache {
+
+	/** A computed total together with the state it was computed from. */
+	private static final class Entry {
+		final double total;
+		final int reservationStamp;
+		final Room room;
+		final int roomStamp;
+		final List<Service> services;
+		final int serviceCount;
+
+		Entry(Reservation reservation, double total) {
+			this.total = total;
+			this.reservationStamp = reservation.getModCount();
+			this.room = reservation.getRoom();
+			this.roomStamp = room.getModCount();
+			this.services = reservation.services();
+			this.serviceCount = services.size();
+		}
+
+		boolean isValidFor(Reservation reservation) {
+			return reservationStamp == reservation.getModCount()
+					&& room == reservation.getRoom()
+					&& roomStamp == room.getModCount()
+					&& services == reservation.services()
+					&& serviceCount == services.size();
+		}
+	}
+
+	private final TinyLfuCache<Reservation, Entry> cache;
+	private long invalidations;
+
+	/**
+	 * Constructs an empty cache.
+	 *
+	 * @param maximumSize maximal number of cached totals (positive number)
+	 * @throws IllegalArgumentException if {@code maximumSize} is not positive
+	 */
+	public InvoiceTotalCache(int maximumSize) {
+		this.cache = new TinyLfuCache<>(maximumSize);
+	}
+
+	/**
+	 * Factory method for creating an {@code InvoiceTotalCache}.
+	 *
+	 * @param maximumSize maximal number of cached totals
+	 * @return a new {@code InvoiceTotalCache} instance
+	 */
+	public static InvoiceTotalCache create(int maximumSize) {
+		return new InvoiceTotalCache(maximumSize);
+	}
+
+	/**
+	 * Returns the invoice total for the reservation: the room price
+	 * and all associated services. Computes it if it isn't cached or is stale.
+	 *
+	 * @param reservation the reservation
+	 * @return the total amount
+	 * @throws NullPointerException if {@code reservation} is {@code null}
+	 */
+	public double getTotal(Reservation reservation) {
+		if (!Utils.validateObject(reservation)) {
+			throw new NullPointerException("Reservation can't be null");
+		}
+		Entry entry = cache.get(reservation);
+		if (entry != null) {
+			if (entry.isValidFor(reservation)) {
+				return entry.total;
+			}
+			synchronized (this) {
+				invalidations++;
+			}
+		}
+		entry = new Entry(reservation, Invoice.computeTotal(reservation));
+		cache.put(reservation, entry);
+		return entry.total;
+	}
+
+	/**
+	 * Drops the cached total of the reservation, e.g. after a change
+	 * this cache can't detect.
+	 *
+	 * @param reservation the reservation
+	 */
+	public void invalidate(Reservation reservation) {
+		if (cache.invalidate(reservation)) {
+			synchronized (this) {
+				invalidations++;
+			}
+		}
+	}
+
+	/** @return number of cached totals */
+	public int size() { return cache.size(); }
+
+	/** @return number of requests answered from the cache, including stale entries */
+	public long getHits() { return cache.getHits(); }
+
+	/** @return number of requests for reservations that weren't cached */
+	public long getMisses() { return cache.getMisses(); }
+
+	/** @return number of totals evicted because the cache was full */
+	public long getEvictions() { return cache.getEvictions(); }
+
+	/** @return number of cached totals found stale or dropped explicitly */
+	public synchronized long getInvalidations() { return invalidations; }
+
+	/**
+	 * Returns a string representation of the cache statistics.
+	 *
+	 * @return formatted string with statistics
+	 */
+	@Override
+	public String toString() {
+		return "InvoiceTotalCache [size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses()
+				+ ", evictions=" + getEvictions() + ", invalidations=" + getInvalidations() + "]";
+	}
+}
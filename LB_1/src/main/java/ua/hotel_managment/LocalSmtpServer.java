@@ -0,0 +1,329 @@
+package ua.hotel_managment;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ua.util.Utils;
+
+/**
+ * A minimal SMTP server on the loopback interface that keeps the messages it
+ * receives in memory, a stand-in for the hotel's mail relay in tests and demos.
+ * <p>
+ * It understands {@code HELO}/{@code EHLO}, {@code MAIL}, {@code RCPT},
+ * {@code DATA}, {@code RSET}, {@code NOOP} and {@code QUIT}, and can simulate a
+ * slow network ({@link #setLatency}) and temporary failures ({@link #failNext}).
+ * Every connection is served by its own daemon thread.
+ */
+public class LocalSmtpServer implements AutoCloseable {
+
+	/** A received message. */
+	public static final class Message {
+		private final String sender;
+		private final String recipient;
+		private final String subject;
+		private final String body;
+
+		Message(String sender, String recipient, String subject, String body) {
+			this.sender = sender;
+			this.recipient = recipient;
+			this.subject = subject;
+			this.body = body;
+		}
+
+		/** @return the address from {@code MAIL FROM} */
+		public String getSender() { return sender; }
+
+		/** @return the address from {@code RCPT TO} */
+		public String getRecipient() { return recipient; }
+
+		/** @return the {@code Subject} header, or an empty string */
+		public String getSubject() { return subject; }
+
+		/** @return the text after the headers, lines separated by {@code \n} */
+		public String getBody() { return body; }
+
+		/**
+		 * Returns a string representation of the message.
+		 *
+		 * @return recipient and subject
+		 */
+		@Override
+		public String toString() {
+			return "Message [to=" + recipient + ", subject=" + subject + "]";
+		}
+	}
+
+	private final ServerSocketChannel server;
+	private final InetSocketAddress address;
+	private final List<Message> messages = new CopyOnWriteArrayList<>();
+	private final List<SocketChannel> connections = new CopyOnWriteArrayList<>();
+	private final AtomicInteger failures = new AtomicInteger();
+	private final AtomicLong connectionCount = new AtomicLong();
+	private volatile long latencyMillis;
+	private volatile boolean closed;
+
+	private LocalSmtpServer(ServerSocketChannel server) throws IOException {
+		this.server = server;
+		this.address = (InetSocketAddress) server.getLocalAddress();
+	}
+
+	/**
+	 * Starts a server on a free port of the loopback interface.
+	 *
+	 * @return the running server
+	 * @throws IOException if no port can be bound
+	 */
+	public static LocalSmtpServer start() throws IOException {
+		return start(0);
+	}
+
+	/**
+	 * Starts a server on the loopback interface.
+	 *
+	 * @param port the port, or 0 for a free one
+	 * @return the running server
+	 * @throws IOException              if the port can't be bound
+	 * @throws IllegalArgumentException if {@code port} is out of range
+	 */
+	public static LocalSmtpServer start(int port) throws IOException {
+		if (port < 0 || port > 0xFFFF) {
+			throw new IllegalArgumentException("Port must be between 0 and 65535.");
+		}
+		ServerSocketChannel channel = ServerSocketChannel.open();
+		channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		LocalSmtpServer server = new LocalSmtpServer(channel);
+		Utils.startDaemon("smtp-accept", server::accept);
+		return server;
+	}
+
+	/**
+	 * Returns the bound address, e.g. for an {@link SmtpTransport}.
+	 *
+	 * @return the address
+	 */
+	public InetSocketAddress getAddress() {
+		return address;
+	}
+
+	/**
+	 * Delays the greeting of every new connection, like a remote server
+	 * with a slow network and TLS handshake would.
+	 *
+	 * @param latency the delay
+	 * @throws NullPointerException     if {@code latency} is {@code null}
+	 * @throws IllegalArgumentException if {@code latency} is negative
+	 */
+	public void setLatency(Duration latency) {
+		if (!Utils.validateObject(latency)) {
+			throw new NullPointerException("Latency can't be null.");
+		}
+		if (latency.isNegative()) {
+			throw new IllegalArgumentException("Latency can't be negative.");
+		}
+		latencyMillis = latency.toMillis();
+	}
+
+	/**
+	 * Rejects the next messages with a temporary error ({@code 451}), as a
+	 * busy server does, so retries can be tried out.
+	 *
+	 * @param count number of messages to reject
+	 * @throws IllegalArgumentException if {@code count} is negative
+	 */
+	public void failNext(int count) {
+		if (count < 0) {
+			throw new IllegalArgumentException("Count can't be negative.");
+		}
+		failures.set(count);
+	}
+
+	/**
+	 * Returns the messages received so far, in order of arrival.
+	 *
+	 * @return unmodifiable snapshot of the messages
+	 */
+	public List<Message> getMessages() {
+		return List.copyOf(messages);
+	}
+
+	/**
+	 * Returns the number of messages received so far.
+	 *
+	 * @return number of messages
+	 */
+	public int getMessageCount() {
+		return messages.size();
+	}
+
+	/**
+	 * Returns the number of connections accepted so far.
+	 *
+	 * @return number of connections
+	 */
+	public long getConnectionCount() {
+		return connectionCount.get();
+	}
+
+	/**
+	 * Stops accepting connections and closes the open ones.
+	 *
+	 * @throws IOException if the socket can't be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		server.close();
+		for (SocketChannel connection : connections) {
+			connection.close();
+		}
+	}
+
+	private void accept() {
+		while (!closed) {
+			try {
+				SocketChannel connection = server.accept();
+				connections.add(connection);
+				connectionCount.incrementAndGet();
+				Utils.startDaemon("smtp-" + connection.getRemoteAddress(), () -> serve(connection));
+			} catch (IOException e) {
+				// the server was closed, or a single connection failed
+			}
+		}
+	}
+
+	/** Runs one SMTP session. */
+	private void serve(SocketChannel connection) {
+		try (connection) {
+			BufferedReader in = new BufferedReader(
+					new InputStreamReader(Channels.newInputStream(connection), StandardCharsets.UTF_8));
+			Writer out = new BufferedWriter(
+					new OutputStreamWriter(Channels.newOutputStream(connection), StandardCharsets.UTF_8));
+			if (latencyMillis > 0) {
+				Thread.sleep(latencyMillis);
+			}
+			reply(out, "220 localhost ESMTP");
+			String sender = null;
+			List<String> recipients = new ArrayList<>();
+			String line;
+			while ((line = in.readLine()) != null) {
+				String verb = line.length() < 4 ? line.toUpperCase() : line.substring(0, 4).toUpperCase();
+				switch (verb) {
+				case "HELO":
+				case "EHLO":
+				case "NOOP":
+					reply(out, "250 OK");
+					break;
+				case "RSET":
+					sender = null;
+					recipients.clear();
+					reply(out, "250 OK");
+					break;
+				case "MAIL":
+					if (failures.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+						reply(out, "451 4.3.0 Try again later");
+					} else {
+						sender = address(line);
+						recipients.clear();
+						reply(out, "250 OK");
+					}
+					break;
+				case "RCPT":
+					if (sender == null) {
+						reply(out, "503 MAIL first");
+					} else {
+						recipients.add(address(line));
+						reply(out, "250 OK");
+					}
+					break;
+				case "DATA":
+					if (recipients.isEmpty()) {
+						reply(out, "503 RCPT first");
+						break;
+					}
+					reply(out, "354 End data with <CR><LF>.<CR><LF>");
+					if (!receive(in, sender, recipients)) {
+						return;
+					}
+					sender = null;
+					recipients.clear();
+					reply(out, "250 OK");
+					break;
+				case "QUIT":
+					reply(out, "221 Bye");
+					return;
+				default:
+					reply(out, "500 Unknown command");
+				}
+			}
+		} catch (IOException e) {
+			// the client disconnected, or the server was closed
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			connections.remove(connection);
+		}
+	}
+
+	/**
+	 * Reads the data of a message up to the line with a single dot and stores
+	 * it once for every recipient.
+	 *
+	 * @return {@code false} if the connection ended first
+	 */
+	private boolean receive(BufferedReader in, String sender, List<String> recipients) throws IOException {
+		String subject = "";
+		StringBuilder body = new StringBuilder();
+		boolean headers = true;
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (line.equals(".")) {
+				for (String recipient : recipients) {
+					messages.add(new Message(sender, recipient, subject, body.toString()));
+				}
+				return true;
+			}
+			if (line.startsWith(".")) {
+				line = line.substring(1);
+			}
+			if (headers) {
+				if (line.isEmpty()) {
+					headers = false;
+				} else if (line.regionMatches(true, 0, "Subject:", 0, 8)) {
+					subject = line.substring(8).trim();
+				}
+			} else {
+				body.append(line).append('\n');
+			}
+		}
+		return false;
+	}
+
+	/** Returns the address between the angle brackets of a {@code MAIL} or {@code RCPT} command. */
+	private static String address(String line) {
+		int start = line.indexOf('<');
+		int end = line.indexOf('>', start + 1);
+		return start < 0 || end < 0 ? line.substring(line.indexOf(':') + 1).trim() : line.substring(start + 1, end);
+	}
+
+	private static void reply(Writer out, String reply) throws IOException {
+		out.write(reply);
+		out.write("\r\n");
+		out.flush();
+	}
+}
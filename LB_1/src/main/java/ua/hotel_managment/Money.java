@@ -0,0 +1,165 @@
+package ua.hotel_managment;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+import ua.util.Utils;
+
+/**
+ * An amount of money in a currency, kept as a whole number of minor units
+ * (e.g. cents), so sums are exact. Immutable.
+ */
+public final class Money implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final long[] POWERS_OF_TEN = { 1, 10, 100, 1_000, 10_000 };
+
+	private final long minorUnits;
+	private final Currency currency;
+
+	private Money(long minorUnits, Currency currency) {
+		this.minorUnits = minorUnits;
+		this.currency = currency;
+	}
+
+	/**
+	 * Creates an amount from a number of minor units.
+	 *
+	 * @param minorUnits the amount in minor units of the currency
+	 * @param currency   the currency
+	 * @return the amount
+	 * @throws NullPointerException if {@code currency} is {@code null}
+	 */
+	public static Money ofMinor(long minorUnits, Currency currency) {
+		if (!Utils.validateObject(currency)) {
+			throw new NullPointerException("Currency can't be null.");
+		}
+		return new Money(minorUnits, currency);
+	}
+
+	/**
+	 * Creates an amount, rounding it half-even to the minor unit of the currency.
+	 *
+	 * @param amount   the amount in major units
+	 * @param currency the currency
+	 * @return the amount
+	 * @throws NullPointerException     if {@code currency} is {@code null}
+	 * @throws IllegalArgumentException if {@code amount} is not finite
+	 */
+	public static Money of(double amount, Currency currency) {
+		if (!Utils.validateObject(currency)) {
+			throw new NullPointerException("Currency can't be null.");
+		}
+		if (!Double.isFinite(amount)) {
+			throw new IllegalArgumentException("Amount must be finite.");
+		}
+		return new Money((long) Math.rint(amount * unit(currency)), currency);
+	}
+
+	/**
+	 * Returns the number of minor units in one major unit of a currency,
+	 * e.g. 100 for euros and 1 for yen.
+	 *
+	 * @param currency the currency
+	 * @return minor units per major unit
+	 */
+	static long unit(Currency currency) {
+		return POWERS_OF_TEN[digits(currency)];
+	}
+
+	/**
+	 * Returns the number of minor digits of a currency; currencies without
+	 * minor units (e.g. gold) report -1 digits and are treated as 0.
+	 *
+	 * @param currency the currency
+	 * @return number of minor digits
+	 */
+	static int digits(Currency currency) {
+		return Math.max(currency.getDefaultFractionDigits(), 0);
+	}
+
+	/**
+	 * Returns the amount in minor units.
+	 *
+	 * @return minor units
+	 */
+	public long getMinorUnits() {
+		return minorUnits;
+	}
+
+	/**
+	 * Returns the amount in major units.
+	 *
+	 * @return the amount
+	 */
+	public double getAmount() {
+		return (double) minorUnits / unit(currency);
+	}
+
+	/**
+	 * Returns the currency of the amount.
+	 *
+	 * @return the currency
+	 */
+	public Currency getCurrency() {
+		return currency;
+	}
+
+	/**
+	 * Adds an amount in the same currency.
+	 *
+	 * @param other the amount to add
+	 * @return the sum
+	 * @throws NullPointerException     if {@code other} is {@code null}
+	 * @throws IllegalArgumentException if the currencies differ
+	 */
+	public Money plus(Money other) {
+		if (!Utils.validateObject(other)) {
+			throw new NullPointerException("Amount can't be null.");
+		}
+		if (other.currency != currency) {
+			throw new IllegalArgumentException("Can't add " + other.currency + " to " + currency + ".");
+		}
+		return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+	}
+
+	/**
+	 * Generates a hash code for the amount.
+	 *
+	 * @return the hash code
+	 */
+	@Override
+	public int hashCode() {
+		return Objects.hash(currency, minorUnits);
+	}
+
+	/**
+	 * Compares this amount to another object for equality.
+	 * Two amounts are equal if they have the same currency and number of minor units.
+	 *
+	 * @param obj the object to compare
+	 * @return {@code true} if the amounts are equal, {@code false} otherwise
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) { return true; }
+		if (obj == null || getClass() != obj.getClass()) { return false; }
+		Money other = (Money) obj;
+		return minorUnits == other.minorUnits && currency == other.currency;
+	}
+
+	/**
+	 * Returns the amount with all minor digits and the currency code, e.g. {@code 1234.50 EUR}.
+	 *
+	 * @return formatted amount
+	 */
+	@Override
+	public String toString() {
+		return BigDecimal.valueOf(minorUnits, digits(currency)).setScale(digits(currency), RoundingMode.UNNECESSARY)
+				+ " " + currency.getCurrencyCode();
+	}
+}
@@ -0,0 +1,24 @@
+package ua.hotel_managment;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Delivers guest notifications, e.g. by email ({@link SmtpTransport}).
+ * <p>
+ * A {@link GuestNotifier} calls {@link #send} from several virtual threads
+ * at once, so implementations must be thread-safe. Blocking I/O is fine:
+ * a waiting virtual thread doesn't hold a platform thread.
+ */
+public interface NotificationTransport {
+
+	/**
+	 * Sends a batch of notifications, e.g. over one connection.
+	 * If the method throws, the whole batch is sent again later, so
+	 * notifications delivered before the failure may arrive twice.
+	 *
+	 * @param batch the notifications
+	 * @throws IOException if a notification couldn't be delivered
+	 */
+	void send(List<GuestNotification> batch) throws IOException;
+}
@@ -0,0 +1,292 @@
+package ua.hotel_managment;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+
+import ua.util.Utils;
+
+/**
+ * Versioned exchange rates against the hotel's base currency, the currency
+ * of prices and invoice totals.
+ * <p>
+ * Every update creates a new immutable {@link Version} with the next number;
+ * a conversion uses one version from start to end, so a batch is never converted
+ * with a mix of old and new rates, and results cached for a version stay valid
+ * for that version. Reading the current version is lock-free. Thread-safe.
+ */
+public class RateTable {
+
+	/**
+	 * Immutable set of rates. Currencies are numbered, so rates can be read from
+	 * arrays; every rate is also kept as a decimal, an integer mantissa and a scale,
+	 * so amounts in the base currency are converted exactly, with long arithmetic.
+	 */
+	public static final class Version {
+		private final long number;
+		private final Currency base;
+		private final Currency[] currencies;
+		private final double[] rates; // units of the currency per base unit
+		private final long[] mantissas; // rates[i] == mantissas[i] / 10^scale
+		private final int[] shifts; // digits to drop from base minor units * mantissa
+		private final Map<Currency, Integer> indexes;
+
+		private Version(long number, Currency base, Currency[] currencies, double[] rates) {
+			this.number = number;
+			this.base = base;
+			this.currencies = currencies;
+			this.rates = rates;
+			this.mantissas = new long[rates.length];
+			this.shifts = new int[rates.length];
+			this.indexes = new HashMap<>();
+			for (int i = 0; i < currencies.length; i++) {
+				BigDecimal rate = BigDecimal.valueOf(rates[i]).stripTrailingZeros();
+				if (rate.scale() < 0) {
+					rate = rate.setScale(0);
+				}
+				mantissas[i] = rate.unscaledValue().longValueExact();
+				shifts[i] = rate.scale() + Money.digits(base) - Money.digits(currencies[i]);
+				indexes.put(currencies[i], i);
+			}
+		}
+
+		/**
+		 * Returns the version number; the first version is 1.
+		 *
+		 * @return version number
+		 */
+		public long getNumber() {
+			return number;
+		}
+
+		/**
+		 * Returns the base currency.
+		 *
+		 * @return the base currency
+		 */
+		public Currency getBase() {
+			return base;
+		}
+
+		/**
+		 * Returns the rate of a currency: its units per unit of the base currency.
+		 *
+		 * @param currency the currency
+		 * @return the rate
+		 * @throws IllegalArgumentException if the version has no rate for the currency
+		 */
+		public double getRate(Currency currency) {
+			return rates[indexOf(currency)];
+		}
+
+		/**
+		 * Converts an amount to another currency, rounding half-even to the
+		 * minor unit of the target currency. Amounts in the base currency are
+		 * converted exactly; others go through the base currency with 16
+		 * significant digits.
+		 *
+		 * @param amount the amount
+		 * @param to     the target currency
+		 * @return the converted amount
+		 * @throws NullPointerException     if an argument is {@code null}
+		 * @throws IllegalArgumentException if the version has no rate for a currency
+		 */
+		public Money convert(Money amount, Currency to) {
+			if (!Utils.validateObject(amount) || !Utils.validateObject(to)) {
+				throw new NullPointerException("Amount and currency can't be null.");
+			}
+			Currency from = amount.getCurrency();
+			if (from == to) {
+				return amount;
+			}
+			int index = indexOf(to);
+			if (from == base) {
+				return Money.ofMinor(fromBase(amount.getMinorUnits(), index), to);
+			}
+			BigDecimal major = BigDecimal.valueOf(amount.getMinorUnits(), Money.digits(from))
+					.divide(BigDecimal.valueOf(getRate(from)), MathContext.DECIMAL64)
+					.multiply(BigDecimal.valueOf(rates[index]));
+			return Money.ofMinor(
+					major.setScale(Money.digits(to), RoundingMode.HALF_EVEN).unscaledValue().longValueExact(), to);
+		}
+
+		/**
+		 * Returns the number of a currency in this version.
+		 *
+		 * @param currency the currency
+		 * @return the index of its rate
+		 * @throws IllegalArgumentException if the version has no rate for the currency
+		 */
+		int indexOf(Currency currency) {
+			Integer index = indexes.get(currency);
+			if (index == null) {
+				throw new IllegalArgumentException("No exchange rate for " + currency + ".");
+			}
+			return index;
+		}
+
+		/**
+		 * Converts minor units of the base currency to minor units of the currency with the given index.
+		 *
+		 * @param baseMinor the amount in minor units of the base currency
+		 * @param index     the index of the currency
+		 * @return the converted amount, rounded half-even
+		 */
+		long fromBase(long baseMinor, int index) {
+			return RateTable.fromBase(baseMinor, mantissas[index], shifts[index]);
+		}
+
+		/**
+		 * Returns the rate mantissas by currency index, for {@link RateTable#fromBase}.
+		 *
+		 * @return the mantissas; not to be modified
+		 */
+		long[] mantissas() {
+			return mantissas;
+		}
+
+		/**
+		 * Returns the rate shifts by currency index, for {@link RateTable#fromBase}.
+		 *
+		 * @return the shifts; not to be modified
+		 */
+		int[] shifts() {
+			return shifts;
+		}
+	}
+
+	/** Rates are rounded to this precision, so their mantissas stay below 10^9. */
+	private static final MathContext RATE_PRECISION = new MathContext(9, RoundingMode.HALF_EVEN);
+
+	private static final long[] POWERS_OF_TEN = new long[19];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private volatile Version current;
+
+	/**
+	 * Constructs a table with only the base currency.
+	 *
+	 * @param base the base currency
+	 * @throws NullPointerException if {@code base} is {@code null}
+	 */
+	public RateTable(Currency base) {
+		if (!Utils.validateObject(base)) {
+			throw new NullPointerException("Base currency can't be null.");
+		}
+		this.current = new Version(1, base, new Currency[] { base }, new double[] { 1 });
+	}
+
+	/**
+	 * Factory method for creating a {@code RateTable}.
+	 *
+	 * @param base the base currency
+	 * @return a new {@code RateTable} instance
+	 */
+	public static RateTable create(Currency base) {
+		return new RateTable(base);
+	}
+
+	/**
+	 * Returns the current rates.
+	 *
+	 * @return the current version
+	 */
+	public Version current() {
+		return current;
+	}
+
+	/**
+	 * Sets the rate of one currency.
+	 *
+	 * @param currency the currency
+	 * @param rate     units of the currency per unit of the base currency
+	 * @return the new version
+	 * @throws NullPointerException     if {@code currency} is {@code null}
+	 * @throws IllegalArgumentException if {@code rate} is not a positive number, or the currency is the base
+	 * @see #update(Map)
+	 */
+	public Version setRate(Currency currency, double rate) {
+		return update(Map.of(currency, rate));
+	}
+
+	/**
+	 * Sets the rates of several currencies at once; other rates are kept.
+
+	 * Rates are rounded half-even to 9 significant digits.
+	 *
+	 * @param rates units of each currency per unit of the base currency
+	 * @return the new version
+	 * @throws NullPointerException     if {@code rates} or a currency is {@code null}
+	 * @throws IllegalArgumentException if a rate is not a positive number, or a currency is the base
+	 */
+	public synchronized Version update(Map<Currency, Double> rates) {
+		if (!Utils.validateObject(rates)) {
+			throw new NullPointerException("Rates can't be null.");
+		}
+		Version old = current;
+		Currency[] currencies = Arrays.copyOf(old.currencies, old.currencies.length + rates.size());
+		double[] values = Arrays.copyOf(old.rates, currencies.length);
+		int size = old.currencies.length;
+		for (Map.Entry<Currency, Double> entry : rates.entrySet()) {
+			Currency currency = entry.getKey();
+			Double rate = entry.getValue();
+			if (!Utils.validateObject(currency) || !Utils.validateObject(rate)) {
+				throw new NullPointerException("Currency and rate can't be null.");
+			}
+			if (!(rate > 0) || Double.isInfinite(rate)) {
+				throw new IllegalArgumentException("Rate of " + currency + " must be a positive number.");
+			}
+			if (currency == old.base) {
+				throw new IllegalArgumentException("Rate of the base currency is always 1.");
+			}
+			Integer index = old.indexes.get(currency);
+			double rounded = new BigDecimal(rate).round(RATE_PRECISION).doubleValue();
+			if (index == null) {
+				currencies[size] = currency;
+				values[size++] = rounded;
+			} else {
+				values[index] = rounded;
+			}
+		}
+		current = new Version(old.number + 1, old.base, Arrays.copyOf(currencies, size),
+				Arrays.copyOf(values, size));
+		return current;
+	}
+
+	/**
+	 * Converts minor units of the base currency to minor units of another
+	 * currency, {@code baseMinor * mantissa / 10^shift}, rounded half-even.
+	 * Exact; products beyond {@code long}, i.e. amounts of billions, are
+	 * computed with {@link BigDecimal}.
+	 *
+	 * @param baseMinor the amount in minor units of the base currency
+	 * @param mantissa  the mantissa of the rate
+	 * @param shift     decimal digits to drop from the product, negative to append zeros
+	 * @return the converted amount
+	 */
+	static long fromBase(long baseMinor, long mantissa, int shift) {
+		long product = baseMinor * mantissa;
+		if (Math.multiplyHigh(baseMinor, mantissa) != product >> 63 || shift < 0 || shift >= POWERS_OF_TEN.length) {
+			return BigDecimal.valueOf(baseMinor).multiply(BigDecimal.valueOf(mantissa)).scaleByPowerOfTen(-shift)
+					.setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+		}
+		long divisor = POWERS_OF_TEN[shift];
+		long quotient = product / divisor;
+		long remainder = Math.abs(product - quotient * divisor);
+		long rest = divisor - remainder;
+		if (remainder > rest || remainder == rest && (quotient & 1) != 0) {
+			quotient += product < 0 ? -1 : 1;
+		}
+		return quotient;
+	}
+}
@@ -0,0 +1,183 @@
+package ua.hotel_managment;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import ua.util.Utils;
+
+/**
+ * Streams a {@link ChangeLog} to {@link HotelReplica}s over a local socket:
+ * a TCP address such as {@code localhost:7400}, or a Unix domain socket file.
+ * <p>
+ * A replica connects and sends the sequence number of the first entry it needs
+ * (8 bytes). The server then sends every entry from that number on, in order,
+ * and waits for new ones. Each frame is
+ * <pre>
+ * sequence (8) | time recorded on the primary (8) | last sequence of the log (8) | length (4) | entry
+ * </pre>
+ * When no entries arrive, a heartbeat frame with sequence 0 and no entry is sent,
+ * so replicas can tell how far behind they are even when idle.
+ * <p>
+ * If the requested entry is no longer in the log (see {@link ChangeLog#truncate(long)})
+ * or is past the end of it, the server sends one error frame with sequence
+ * {@link #OUT_OF_RANGE}, the first sequence still in the log in place of the time,
+ * and the last sequence, then closes the connection.
+ * Every replica is served by its own daemon thread.
+ */
+public class ReplicationServer implements AutoCloseable {
+
+	/** Interval of heartbeat frames when the log doesn't change. */
+	static final long HEARTBEAT_MILLIS = 500;
+
+	/** Sequence number of the error frame sent for an entry that isn't in the log. */
+	static final long OUT_OF_RANGE = -1;
+
+	private final ChangeLog log;
+	private final ServerSocketChannel server;
+	private final SocketAddress address;
+	private final List<SocketChannel> replicas = new CopyOnWriteArrayList<>();
+	private volatile boolean closed;
+
+	private ReplicationServer(ChangeLog log, ServerSocketChannel server) throws IOException {
+		this.log = log;
+		this.server = server;
+		this.address = server.getLocalAddress();
+	}
+
+	/**
+	 * Starts serving the log on the given address.
+	 *
+	 * @param log     the log to stream
+	 * @param address a TCP address, or a {@link UnixDomainSocketAddress} (the file must not exist)
+	 * @return the running server
+	 * @throws IOException          if the address can't be bound
+	 * @throws NullPointerException if an argument is {@code null}
+	 */
+	public static ReplicationServer start(ChangeLog log, SocketAddress address) throws IOException {
+		if (!Utils.validateObject(log) || !Utils.validateObject(address)) {
+			throw new NullPointerException("Log and address can't be null.");
+		}
+		ServerSocketChannel channel = address instanceof UnixDomainSocketAddress
+				? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+				: ServerSocketChannel.open();
+		channel.bind(address);
+		ReplicationServer server = new ReplicationServer(log, channel);
+		Utils.startDaemon("replication-accept", server::accept);
+		return server;
+	}
+
+	/**
+	 * Returns the bound address, e.g. with the port chosen for port 0.
+	 *
+	 * @return the address
+	 */
+	public SocketAddress getAddress() {
+		return address;
+	}
+
+	/**
+	 * Returns the number of connected replicas.
+	 *
+	 * @return number of replicas
+	 */
+	public int getReplicaCount() {
+		return replicas.size();
+	}
+
+	/**
+	 * Stops accepting replicas and disconnects the connected ones.
+	 *
+	 * @throws IOException if the socket can't be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		server.close();
+		for (SocketChannel replica : replicas) {
+			replica.close();
+		}
+		if (address instanceof UnixDomainSocketAddress unix) {
+			Files.deleteIfExists(unix.getPath());
+		}
+	}
+
+	private void accept() {
+		while (!closed) {
+			try {
+				SocketChannel replica = server.accept();
+				replicas.add(replica);
+				Utils.startDaemon("replication-" + replica.getRemoteAddress(), () -> serve(replica));
+			} catch (IOException e) {
+				// the server was closed, or a single connection failed
+			}
+		}
+	}
+
+	/** Sends entries to one replica until it disconnects. */
+	private void serve(SocketChannel replica) {
+		try (replica) {
+			DataInputStream in = new DataInputStream(Channels.newInputStream(replica));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(replica)));
+			long next = in.readLong();
+			if (next > log.getLastSequence() + 1) {
+				// e.g. the replica followed an earlier primary
+				writeOutOfRange(out, log.getFirstSequence(), log.getLastSequence());
+				return;
+			}
+			while (!closed) {
+				if (!log.awaitEntry(next, HEARTBEAT_MILLIS)) {
+					writeFrame(out, 0, System.currentTimeMillis(), log.getLastSequence(), null);
+				}
+				long last = log.getLastSequence();
+				for (; next <= last; next++) {
+					byte[] entry;
+					long timestamp;
+					synchronized (log) {
+						entry = log.entry(next);
+						timestamp = entry == null ? 0 : log.timestamp(next);
+					}
+					if (entry == null) {
+						writeOutOfRange(out, log.getFirstSequence(), last);
+						return;
+					}
+					writeFrame(out, next, timestamp, last, entry);
+				}
+				out.flush();
+			}
+		} catch (IOException e) {
+			// the replica disconnected; it reconnects with its own offset
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			replicas.remove(replica);
+		}
+	}
+
+	/** Tells the replica that the requested entry isn't in the log. */
+	private static void writeOutOfRange(DataOutputStream out, long first, long last) throws IOException {
+		writeFrame(out, OUT_OF_RANGE, first, last, null);
+		out.flush();
+	}
+
+	private static void writeFrame(DataOutputStream out, long sequence, long timestamp, long last, byte[] entry)
+			throws IOException {
+		out.writeLong(sequence);
+		out.writeLong(timestamp);
+		out.writeLong(last);
+		out.writeInt(entry == null ? 0 : entry.length);
+		if (entry != null) {
+			out.write(entry);
+		}
+	}
+}
@@ -1,24 +1,80 @@
 package ua.hotel_managment;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
-import ua.util.Utils;
+import ua.util.FieldRule;
+import ua.util.FieldWriter;
+import ua.util.FieldFormattable;
+import ua.util.IdGenerator;
 
 /**
  * Represents a reservation in the hotel system.
  * A reservation contains information about the guest,
  * the room, optional services, and the start/end dates.
  */
-public class Reservation {
+public class Reservation implements Serializable, FieldFormattable {
+	
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Serialized form of the original fields, with the dates as {@code LocalDate}s
+	 * and the services as an {@code ArrayList}, whatever list was set.
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("guest", Guest.class),
+			new ObjectStreamField("room", Room.class),
+			new ObjectStreamField("services", List.class),
+			new ObjectStreamField("startDate", LocalDate.class),
+			new ObjectStreamField("endDate", LocalDate.class),
+			new ObjectStreamField("modCount", int.class) };
+
+	/**
+	 * Services of every reservation without services; replaced by a list of its own
+	 * on the first {@link #addService} or {@link #getServices}.
+	 */
+	private static final List<Service> NO_SERVICES = Collections.emptyList();
+
+	private static final FieldRule GUEST = FieldRule.of(Reservation.class, "guest", Guest.class, MethodHandles.lookup())
+			.notNull(NullPointerException.class, "Guest can't be null.")
+			.compile();
+	private static final FieldRule ROOM = FieldRule.of(Reservation.class, "room", Room.class, MethodHandles.lookup())
+			.notNull(NullPointerException.class, "Room can't be null.")
+			.compile();
+	private static final FieldRule START_DATE = FieldRule.of(Reservation.class, "startDate", LocalDate.class, MethodHandles.lookup())
+			.notNull(NullPointerException.class, "Start date can't be null")
+			.notInPast(IllegalArgumentException.class, "Start date can't be in the past")
+			.compile();
+	private static final FieldRule START_DATE_NOT_NULL = FieldRule.of(Reservation.class, "startDate", LocalDate.class, MethodHandles.lookup())
+			.notNull(NullPointerException.class, "Start date can't be null")
+			.compile();
+	private static final FieldRule END_DATE = FieldRule.of(Reservation.class, "endDate", LocalDate.class, MethodHandles.lookup())
+			.notNull(NullPointerException.class, "End date can't be null")
+			.notBefore("startDate", IllegalArgumentException.class, "End date can't be before start date")
+			.compile();
+	private static final FieldRule SERVICES = FieldRule.of(Reservation.class, "services", List.class, MethodHandles.lookup())
+			.notNull(NullPointerException.class, "Services list can't be null")
+			.compile();
+	private static final FieldRule SERVICE = FieldRule.of(Reservation.class, "service", Service.class, MethodHandles.lookup())
+			.notNull(NullPointerException.class, "Service can't be null")
+			.compile();
 	
 	private Guest guest;
 	private Room room;
-	private List<Service> services;
-	private LocalDate startDate;
-	private LocalDate endDate;
+	private List<Service> services = NO_SERVICES;
+	private int startDay; // start date as an epoch day
+	private int endDay; // end date as an epoch day
+	private int modCount; // incremented by every setter, see InvoiceTotalCache
+	private transient int id = IdGenerator.shared().next();
 	
 	/**
 	 * Constructs a new {@code Reservation}.
@@ -37,7 +93,6 @@ public class Reservation {
 			setRoom(room);
 			setStartDate(startDate);
 			setEndDate(endDate);
-			this.services = new ArrayList<>();
 		} catch (IllegalArgumentException e) {
 			throw new IllegalArgumentException("Invalid reservation value. " + e);
 		} catch (NullPointerException e) {
@@ -60,6 +115,45 @@ public class Reservation {
 		return new Reservation(guest, room, startDate, endDate);
 	}
 
+	/**
+	 * Constructor for {@link #restore}; fields are set by the caller.
+	 */
+	private Reservation() {
+	}
+
+	/**
+	 * Recreates a reservation from stored data. Unlike the constructor,
+	 * a start date in the past is accepted.
+	 *
+	 * @param guest     the guest making the reservation
+	 * @param room      the reserved room
+	 * @param startDate the start date of the reservation
+	 * @param endDate   the end date of the reservation
+	 * @param services  the services of the reservation
+	 * @return the restored {@code Reservation}
+	 * @throws IllegalArgumentException if the end date is before the start date
+	 * @throws NullPointerException     if any value is {@code null}
+	 */
+	static Reservation restore(Guest guest, Room room, LocalDate startDate, LocalDate endDate,
+			List<Service> services) {
+		Reservation reservation = new Reservation();
+		reservation.setGuest(guest);
+		reservation.setRoom(room);
+		reservation.restore(startDate, endDate, services);
+		return reservation;
+	}
+
+	/**
+	 * Returns the id of the reservation: unique in this process and, unlike
+	 * {@link #hashCode()}, not changed by the setters, so it can key maps.
+	 * A deserialized copy gets a new id.
+	 *
+	 * @return the id
+	 */
+	public long getId() {
+		return id;
+	}
+
 	/**
 	 * Returns the guest of this reservation.
 	 *
@@ -76,10 +170,11 @@ public class Reservation {
 	 * @throws NullPointerException if {@code guest} is {@code null}
 	 */
 	public void setGuest(Guest guest) {
-		if (!Utils.validateObject(guest)) {
-			throw new NullPointerException("Guest can't be null.");
-		}
+		GUEST.check(this, guest);
+		Guest old = this.guest;
 		this.guest = guest;
+		modCount++;
+		AuditTrail.changed(this, AuditTrail.Field.RESERVATION_GUEST, old, guest);
 	}
 
 	/**
@@ -98,10 +193,11 @@ public class Reservation {
 	 * @throws NullPointerException if {@code room} is {@code null}
 	 */
 	public void setRoom(Room room) {
-		if (!Utils.validateObject(room)) {
-			throw new NullPointerException("Room can't be null.");
-		}
+		ROOM.check(this, room);
+		Room old = this.room;
 		this.room = room;
+		modCount++;
+		AuditTrail.changed(this, AuditTrail.Field.RESERVATION_ROOM, old, room);
 	}
 
 	/**
@@ -110,7 +206,7 @@ public class Reservation {
 	 * @return the start date
 	 */
 	public LocalDate getStartDate() {
-		return startDate;
+		return LocalDate.ofEpochDay(startDay);
 	}
 
 	/**
@@ -121,13 +217,11 @@ public class Reservation {
 	 * @throws IllegalArgumentException if {@code startDate} is in the past
 	 */
 	public void setStartDate(LocalDate startDate) {
-		if (!Utils.validateObject(startDate)) {
-			throw new NullPointerException("Start date can't be null");
-		}
-		if (!Utils.validateDate(startDate, LocalDate.now())) {
-			throw new IllegalArgumentException("Start date can't be in the past");
-		}
-		this.startDate = startDate;
+		START_DATE.check(this, startDate);
+		int old = this.startDay;
+		this.startDay = Math.toIntExact(startDate.toEpochDay());
+		modCount++;
+		AuditTrail.changed(this, AuditTrail.Field.RESERVATION_START_DATE, old, startDay);
 	}
 
 	/**
@@ -136,7 +230,7 @@ public class Reservation {
 	 * @return the end date
 	 */
 	public LocalDate getEndDate() {
-		return endDate;
+		return LocalDate.ofEpochDay(endDay);
 	}
 
 	/**
@@ -144,27 +238,40 @@ public class Reservation {
 	 *
 	 * @param endDate the reservation end date
 	 * @throws NullPointerException     if {@code endDate} is {@code null}
-	 * @throws IllegalArgumentException if {@code endDate} is before {@link #startDate}
+	 * @throws IllegalArgumentException if {@code endDate} is before {@link #getStartDate() the start date}
 	 */
 	public void setEndDate(LocalDate endDate) {
-		if (!Utils.validateObject(endDate)) {
-			throw new NullPointerException("End date can't be null");
-		}
-		if (!Utils.validateDate(endDate, startDate)) {
-			throw new IllegalArgumentException("End date can't be before start date");
-		}
-		this.endDate = endDate;
+		END_DATE.check(this, endDate);
+		int old = this.endDay;
+		this.endDay = Math.toIntExact(endDate.toEpochDay());
+		modCount++;
+		AuditTrail.changed(this, AuditTrail.Field.RESERVATION_END_DATE, old, endDay);
 	}
 
 	/**
 	 * Returns the list of services associated with this reservation.
+	 * The list can be changed; a reservation without services gets its own
+	 * empty list on the first call.
 	 *
 	 * @return a list of services
 	 */
 	public List<Service> getServices() {
+		if (services == NO_SERVICES) {
+			services = new ArrayList<>(2);
+		}
 	    return services;
 	}
 
+	/**
+	 * Returns the services for reading, without giving a reservation that has
+	 * none a list of its own, unlike {@link #getServices()}.
+	 *
+	 * @return the services; must not be changed
+	 */
+	List<Service> services() {
+		return services;
+	}
+
 	/**
 	 * Replaces the current list of services with a new one.
 	 *
@@ -172,10 +279,11 @@ public class Reservation {
 	 * @throws NullPointerException if {@code services} is {@code null}
 	 */
 	public void setServices(List<Service> services) {
-		if (!Utils.validateObject(services)) {
-			throw new NullPointerException("Services list can't be null");
-		}
+		SERVICES.check(this, services);
+		List<Service> old = this.services;
 	    this.services = services;
+	    modCount++;
+	    AuditTrail.changed(this, AuditTrail.Field.RESERVATION_SERVICES, old, services);
 	}
 
 	/**
@@ -185,10 +293,63 @@ public class Reservation {
 	 * @throws NullPointerException if {@code service} is {@code null}
 	 */
 	public void addService(Service service) {
-		if (!Utils.validateObject(service)) {
-			throw new NullPointerException("Service can't be null");
+		SERVICE.check(this, service);
+		if (services == NO_SERVICES) {
+			services = new ArrayList<>(2);
 		}
 	    this.services.add(service);
+	    modCount++;
+	    AuditTrail.changed(this, AuditTrail.Field.RESERVATION_SERVICE_ADDED, null, service);
+	}
+
+	/**
+	 * Replaces the dates and services with stored values, e.g. received from
+	 * a {@link ChangeLog}. Unlike the setters, a start date in the past is accepted.
+	 *
+	 * @param startDate the start date of the reservation
+	 * @param endDate   the end date of the reservation
+	 * @param services  the services of the reservation
+	 * @throws IllegalArgumentException if the end date is before the start date
+	 * @throws NullPointerException     if any value is {@code null}
+	 */
+	void restore(LocalDate startDate, LocalDate endDate, List<Service> services) {
+		START_DATE_NOT_NULL.check(this, startDate);
+		int old = this.startDay;
+		this.startDay = Math.toIntExact(startDate.toEpochDay());
+		AuditTrail.changed(this, AuditTrail.Field.RESERVATION_START_DATE, old, startDay);
+		setEndDate(endDate);
+		setServices(services);
+		if (services.isEmpty()) {
+			this.services = NO_SERVICES;
+		}
+	}
+
+	/**
+	 * Returns the number of changes made through the setters.
+	 * Used to detect that cached values computed from this reservation are stale.
+	 *
+	 * @return modification count
+	 */
+	int getModCount() {
+		return modCount;
+	}
+
+	/**
+	 * Returns the start date as an epoch day, without creating a {@code LocalDate}.
+	 *
+	 * @return start date as an epoch day
+	 */
+	int getStartDay() {
+		return startDay;
+	}
+
+	/**
+	 * Returns the end date as an epoch day, without creating a {@code LocalDate}.
+	 *
+	 * @return end date as an epoch day
+	 */
+	int getEndDay() {
+		return endDay;
 	}
 
 	/**
@@ -198,7 +359,7 @@ public class Reservation {
 	 */
 	@Override
 	public int hashCode() {
-		return Objects.hash(endDate, guest, room, startDate);
+		return Objects.hash(getEndDate(), guest, room, getStartDate());
 	}
 
 	/**
@@ -214,10 +375,26 @@ public class Reservation {
 		if (this == obj) { return true; }
 		if (obj == null || getClass() != obj.getClass()) { return false; }
 		Reservation other = (Reservation) obj;
-		return Objects.equals(endDate, other.endDate) 
+		return endDay == other.endDay
 				&& Objects.equals(guest, other.guest)
 				&& Objects.equals(room, other.room) 
-				&& Objects.equals(startDate, other.startDate);
+				&& startDay == other.startDay;
+	}
+
+	/**
+	 * Writes the reservation's fields into the writer without building intermediate strings.
+	 *
+	 * @param out the writer
+	 */
+	@Override
+	public void formatTo(FieldWriter out) {
+		out.begin("Reservation");
+		out.field("guest", guest);
+		out.field("room", room);
+		out.field("startDate", getStartDate());
+		out.field("endDate", getEndDate());
+		out.field("services", services);
+		out.end();
 	}
 
 	/**
@@ -228,6 +405,44 @@ public class Reservation {
 	@Override
 	public String toString() {
 		return "Reservation [guest=" + guest + ", room=" + room 
-				+ ", startDate=" + startDate + ", endDate=" + endDate + "]";
+				+ ", startDate=" + getStartDate() + ", endDate=" + getEndDate() + "]";
+	}
+
+	/**
+	 * Writes the reservation in its original serialized form, with the dates as {@code LocalDate}s
+	 * and a copy of the services, since the list set by {@link #setServices} may not be serializable.
+	 *
+	 * @param out the stream
+	 * @throws IOException if the stream fails
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("guest", guest);
+		fields.put("room", room);
+		fields.put("services", new ArrayList<>(services));
+		fields.put("startDate", getStartDate());
+		fields.put("endDate", getEndDate());
+		fields.put("modCount", modCount);
+		out.writeFields();
+	}
+
+	/**
+	 * Reads a reservation written by {@link #writeObject}.
+	 *
+	 * @param in the stream
+	 * @throws IOException            if the stream fails
+	 * @throws ClassNotFoundException if a field's class can't be found
+	 */
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		guest = (Guest) fields.get("guest", null);
+		room = (Room) fields.get("room", null);
+		List<Service> stored = (List<Service>) fields.get("services", null);
+		services = stored == null || stored.isEmpty() ? NO_SERVICES : stored;
+		startDay = Math.toIntExact(((LocalDate) fields.get("startDate", null)).toEpochDay());
+		endDay = Math.toIntExact(((LocalDate) fields.get("endDate", null)).toEpochDay());
+		modCount = fields.get("modCount", 0);
+		id = IdGenerator.shared().next();
 	}
 }
@@ -0,0 +1,1050 @@
+package ua.hotel_managment;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import ua.util.LongObjectMap;
+import ua.util.TinyLfuCache;
+import ua.util.Utils;
+
+/**
+ * Tiered storage of a {@link Hotel}: stays that ended longer ago than a given
+ * age are moved out of the hotel, with their invoices, into compressed immutable
+ * segment files, so the heap holds only current and future stays.
+ * <p>
+ * A background thread migrates the stays once per interval, and {@link #migrate()}
+ * does it on demand. A migration writes segments of at most a fixed number of
+ * stays, sorted by start date and room number, in blocks of about
+ * {@link #DEFAULT_BLOCK_SIZE} bytes, each compressed with Deflate on its own.
+ * Every stay is a {@link BinaryCodec} stream of its own (the reservation and its
+ * invoices) after its dates and room number, so a read skips the stays that don't
+ * match without decoding them; Deflate removes the repeated strings instead of the
+ * codec's string table. The end of a segment holds a sparse index (start date and
+ * room of the first stay of every block, and where the block is) and the dates
+ * the segment covers; only this index is kept in memory.
+ * <p>
+ * The stays are encoded while holding the hotel's lock, then compressed and
+ * written without it. They leave the hotel ({@link HotelListener#reservationArchived})
+ * only if none of them was changed, cancelled or invoiced meanwhile; otherwise the
+ * segment is deleted and the next migration tries again.
+ * <p>
+ * {@link #find} and {@link #findInvoices} read both tiers: the reservations still
+ * in the hotel, and archived ones decoded from the blocks that can hold the dates.
+ * A stay overlaps {@code [from, to)} only if it starts before {@code to} and no
+ * earlier than {@code from} minus the longest stay of its segment. Blocks that were
+ * read are kept decompressed in a {@link TinyLfuCache} (see {@link #getHitRate()}).
+ * Archived reservations are returned as copies, with copies of their guest and room
+ * as they were archived; changing them changes nothing.
+ * Thread-safe.
+ */
+public class ReservationArchive implements HotelListener, AutoCloseable {
+
+	/** Default time after the end of a stay when it is archived. */
+	public static final Period DEFAULT_AGE = Period.ofDays(30);
+
+	/** Default time between two migrations. */
+	public static final Duration DEFAULT_INTERVAL = Duration.ofHours(1);
+
+	/** Default size of a block before compression, in bytes. */
+	public static final int DEFAULT_BLOCK_SIZE = 32 * 1024;
+
+	/** Default maximal number of stays in a segment. */
+	public static final int DEFAULT_SEGMENT_SIZE = 10_000;
+
+	/** Default number of decompressed blocks kept in memory. */
+	public static final int DEFAULT_CACHE_SIZE = 512;
+
+	private static final int MAGIC = 0x48534547; // "HSEG"
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 8;
+	private static final int INDEX_ENTRY_SIZE = 24;
+	private static final int TRAILER_SIZE = 44;
+	private static final String PREFIX = "segment-";
+	private static final String SUFFIX = ".hseg";
+
+	/** Room number that matches every room; real numbers are positive. */
+	private static final int ANY_ROOM = 0;
+
+	/** Order of the stays in a segment. */
+	private static final Comparator<Reservation> BY_DATE_AND_ROOM = Comparator
+			.comparingInt(Reservation::getStartDay)
+			.thenComparingInt(reservation -> reservation.getRoom().getRoomNumber());
+
+	/** Settings of an archive; created with {@link ReservationArchive#builder}. */
+	public static final class Builder {
+		private final Path directory;
+		private Period age = DEFAULT_AGE;
+		private Duration interval = DEFAULT_INTERVAL;
+		private int blockSize = DEFAULT_BLOCK_SIZE;
+		private int segmentSize = DEFAULT_SEGMENT_SIZE;
+		private int cacheSize = DEFAULT_CACHE_SIZE;
+		private Clock clock = Clock.systemDefaultZone();
+
+		private Builder(Path directory) {
+			this.directory = directory;
+		}
+
+		/**
+		 * Sets the time after the end of a stay when it is archived.
+		 *
+		 * @param age the age; zero archives a stay on its check-out date
+		 * @return this builder
+		 * @throws NullPointerException     if {@code age} is {@code null}
+		 * @throws IllegalArgumentException if {@code age} is negative
+		 */
+		public Builder age(Period age) {
+			if (!Utils.validateObject(age)) {
+				throw new NullPointerException("Age can't be null.");
+			}
+			if (age.isNegative()) {
+				throw new IllegalArgumentException("Age can't be negative.");
+			}
+			this.age = age;
+			return this;
+		}
+
+		/**
+		 * Sets the time between two migrations of the background thread.
+		 *
+		 * @param interval the interval
+		 * @return this builder
+		 * @throws NullPointerException     if {@code interval} is {@code null}
+		 * @throws IllegalArgumentException if {@code interval} is not positive
+		 */
+		public Builder interval(Duration interval) {
+			if (!Utils.validateObject(interval)) {
+				throw new NullPointerException("Interval can't be null.");
+			}
+			if (interval.isNegative() || interval.isZero()) {
+				throw new IllegalArgumentException("Interval must be positive.");
+			}
+			this.interval = interval;
+			return this;
+		}
+
+		/**
+		 * Sets the size of a block before compression. Larger blocks compress
+		 * better, smaller ones are decoded faster when only a few stays are read.
+		 *
+		 * @param blockSize the size in bytes
+		 * @return this builder
+		 * @throws IllegalArgumentException if {@code blockSize} is not positive
+		 */
+		public Builder blockSize(int blockSize) {
+			if (!Utils.validatePositiveNumber(blockSize)) {
+				throw new IllegalArgumentException("Block size must be positive.");
+			}
+			this.blockSize = blockSize;
+			return this;
+		}
+
+		/**
+		 * Sets the maximal number of stays in a segment, which bounds the time
+		 * a migration holds the hotel's lock.
+		 *
+		 * @param segmentSize number of stays
+		 * @return this builder
+		 * @throws IllegalArgumentException if {@code segmentSize} is not positive
+		 */
+		public Builder segmentSize(int segmentSize) {
+			if (!Utils.validatePositiveNumber(segmentSize)) {
+				throw new IllegalArgumentException("Segment size must be positive.");
+			}
+			this.segmentSize = segmentSize;
+			return this;
+		}
+
+		/**
+		 * Sets the number of decompressed blocks kept in memory.
+		 *
+		 * @param cacheSize number of blocks
+		 * @return this builder
+		 * @throws IllegalArgumentException if {@code cacheSize} is not positive
+		 */
+		public Builder cacheSize(int cacheSize) {
+			if (!Utils.validatePositiveNumber(cacheSize)) {
+				throw new IllegalArgumentException("Cache size must be positive.");
+			}
+			this.cacheSize = cacheSize;
+			return this;
+		}
+
+		/**
+		 * Sets the clock that tells the current date.
+		 *
+		 * @param clock the clock
+		 * @return this builder
+		 * @throws NullPointerException if {@code clock} is {@code null}
+		 */
+		public Builder clock(Clock clock) {
+			if (!Utils.validateObject(clock)) {
+				throw new NullPointerException("Clock can't be null.");
+			}
+			this.clock = clock;
+			return this;
+		}
+
+		/**
+		 * Opens the segments in the directory, creating it if needed, and starts
+		 * archiving the stays of a hotel. The first migration runs right away.
+		 *
+		 * @param hotel the hotel
+		 * @return the archive, registered as a listener of the hotel
+		 * @throws NullPointerException if {@code hotel} is {@code null}
+		 * @throws IOException          if the directory or a segment can't be read
+		 */
+		public ReservationArchive attach(Hotel hotel) throws IOException {
+			if (!Utils.validateObject(hotel)) {
+				throw new NullPointerException("Hotel can't be null.");
+			}
+			ReservationArchive archive = new ReservationArchive(hotel, this);
+			hotel.addListener(archive);
+			archive.migrator = Utils.startDaemon("reservation-archive", archive::run);
+			return archive;
+		}
+	}
+
+	/** Where a block is, and the start date and room of its first stay. */
+	private static final class Block {
+		final Segment segment;
+		final int firstStartDay;
+		final int firstRoom;
+		final long offset;
+		final int length;
+		final int rawLength;
+
+		Block(Segment segment, ByteBuffer index) {
+			this.segment = segment;
+			this.firstStartDay = index.getInt();
+			this.firstRoom = index.getInt();
+			this.offset = index.getLong();
+			this.length = index.getInt();
+			this.rawLength = index.getInt();
+		}
+	}
+
+	/** An open segment file with its sparse index. */
+	private static final class Segment {
+		final Path file;
+		final FileChannel channel;
+		final Block[] blocks;
+		final int minStartDay;
+		final int maxEndDay;
+		final int maxNights;
+		final long reservations;
+		final long invoices;
+		final long size;
+		final long rawSize;
+
+		/** Reads the trailer and the index; the caller closes the channel if this fails. */
+		Segment(Path file, FileChannel channel) throws IOException {
+			this.file = file;
+			this.channel = channel;
+			this.size = channel.size();
+			if (size < HEADER_SIZE + TRAILER_SIZE) {
+				throw corrupt(file);
+			}
+			ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+			ByteBuffer trailer = readFully(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+			if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION || trailer.getInt(TRAILER_SIZE - 4) != MAGIC) {
+				throw corrupt(file);
+			}
+			long indexOffset = trailer.getLong();
+			int blockCount = trailer.getInt();
+			this.minStartDay = trailer.getInt();
+			this.maxEndDay = trailer.getInt();
+			this.maxNights = trailer.getInt();
+			this.reservations = trailer.getLong();
+			this.invoices = trailer.getLong();
+			if (blockCount < 0 || indexOffset + (long) blockCount * INDEX_ENTRY_SIZE + TRAILER_SIZE != size) {
+				throw corrupt(file);
+			}
+			ByteBuffer index = readFully(channel, indexOffset, blockCount * INDEX_ENTRY_SIZE);
+			this.blocks = new Block[blockCount];
+			long raw = 0;
+			for (int i = 0; i < blockCount; i++) {
+				blocks[i] = new Block(this, index);
+				raw += blocks[i].rawLength;
+			}
+			this.rawSize = raw;
+		}
+	}
+
+	/** Stays of one migration, encoded into blocks while holding the hotel's lock. */
+	private static final class Batch {
+		final List<Reservation> reservations;
+		final int[] modCounts;
+		final LongObjectMap<Reservation> byId;
+		final LongObjectMap<List<Invoice>> invoices = new LongObjectMap<>();
+		final List<byte[]> blocks = new ArrayList<>();
+		final List<int[]> firstKeys = new ArrayList<>(); // start day and room of the first stay of every block
+		int minStartDay = Integer.MAX_VALUE;
+		int maxEndDay = Integer.MIN_VALUE;
+		int maxNights;
+		long invoiceCount;
+		boolean conflict; // set by the listener methods, under the hotel's lock
+
+		Batch(List<Reservation> reservations) {
+			this.reservations = reservations;
+			this.modCounts = new int[reservations.size()];
+			this.byId = new LongObjectMap<>(reservations.size());
+			for (int i = 0; i < modCounts.length; i++) {
+				Reservation reservation = reservations.get(i);
+				modCounts[i] = reservation.getModCount();
+				byId.put(reservation.getId(), reservation);
+			}
+		}
+	}
+
+	private final Hotel hotel;
+	private final Path directory;
+	private final Period age;
+	private final long intervalMillis;
+	private final int blockSize;
+	private final int segmentSize;
+	private final Clock clock;
+	private final TinyLfuCache<Block, byte[]> cache;
+	private final BinaryCodec codec = new BinaryCodec(); // migrations only
+	private ByteBuffer buffer; // migrations only
+	private final Object migrationLock = new Object();
+	private Thread migrator;
+
+	/** Open segments, oldest first; replaced as a whole while holding the hotel's lock. */
+	private volatile Segment[] segments;
+	private long nextSegment; // guarded by migrationLock
+	private Batch pending; // guarded by the hotel's lock
+
+	private final LongAdder migrated = new LongAdder();
+	private final LongAdder conflicts = new LongAdder();
+	private final LongAdder blockReads = new LongAdder();
+	private final LongAdder bytesRead = new LongAdder();
+	private volatile Exception lastFailure;
+	private volatile boolean closed;
+
+	private ReservationArchive(Hotel hotel, Builder builder) throws IOException {
+		this.hotel = hotel;
+		this.directory = builder.directory;
+		this.age = builder.age;
+		this.intervalMillis = builder.interval.toMillis();
+		this.blockSize = builder.blockSize;
+		this.segmentSize = builder.segmentSize;
+		this.clock = builder.clock;
+		this.cache = new TinyLfuCache<>(builder.cacheSize);
+		this.buffer = ByteBuffer.allocate(blockSize * 2);
+		Files.createDirectories(directory);
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*")) {
+			for (Path file : stream) {
+				String name = file.getFileName().toString();
+				if (name.endsWith(SUFFIX)) {
+					files.add(file);
+				} else if (name.endsWith(SUFFIX + ".tmp")) {
+					Files.delete(file); // left by a migration that didn't finish
+				}
+			}
+		}
+		files.sort(null); // the numbers have a fixed width
+		List<Segment> opened = new ArrayList<>();
+		try {
+			for (Path file : files) {
+				opened.add(open(file));
+				String name = file.getFileName().toString();
+				nextSegment = Math.max(nextSegment,
+						Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())) + 1);
+			}
+		} catch (IOException | RuntimeException e) {
+			for (Segment segment : opened) {
+				segment.channel.close();
+			}
+			throw e;
+		}
+		this.segments = opened.toArray(new Segment[0]);
+	}
+
+	/**
+	 * Returns a builder for an archive that keeps its segments in the given directory.
+	 *
+	 * @param directory the directory
+	 * @return the builder, with default settings
+	 * @throws NullPointerException if {@code directory} is {@code null}
+	 */
+	public static Builder builder(Path directory) {
+		if (!Utils.validateObject(directory)) {
+			throw new NullPointerException("Directory can't be null.");
+		}
+		return new Builder(directory);
+	}
+
+	/**
+	 * Starts archiving the stays of a hotel with the default settings.
+	 *
+	 * @param hotel     the hotel
+	 * @param directory the directory of the segments
+	 * @return the archive, registered as a listener of the hotel
+	 * @throws NullPointerException if an argument is {@code null}
+	 * @throws IOException          if the directory or a segment can't be read
+	 * @see #builder(Path)
+	 */
+	public static ReservationArchive attach(Hotel hotel, Path directory) throws IOException {
+		return builder(directory).attach(hotel);
+	}
+
+	/**
+	 * Moves every stay that ended at least the configured age ago out of the
+	 * hotel into new segments. Called by the background thread once per interval.
+	 *
+	 * @return number of archived reservations
+	 * @throws IOException           if a segment can't be written
+	 * @throws IllegalStateException if the archive is closed
+	 */
+	public int migrate() throws IOException {
+		synchronized (migrationLock) {
+			if (closed) {
+				throw new IllegalStateException("Archive is closed.");
+			}
+			long lastDay = LocalDate.now(clock).minus(age).toEpochDay();
+			int total = 0;
+			while (true) {
+				Batch batch;
+				synchronized (hotel) {
+					batch = collect(lastDay);
+					pending = batch;
+				}
+				if (batch == null) {
+					return total;
+				}
+				Segment segment;
+				try {
+					segment = write(batch);
+				} finally {
+					synchronized (hotel) {
+						pending = null;
+					}
+				}
+				if (!commit(batch, segment)) {
+					segment.channel.close();
+					Files.deleteIfExists(segment.file);
+					conflicts.increment();
+					return total;
+				}
+				migrated.add(batch.reservations.size());
+				total += batch.reservations.size();
+			}
+		}
+	}
+
+	/**
+	 * Returns the reservations that overlap {@code [from, to)}, from the hotel
+	 * and from the archive, in no particular order.
+	 *
+	 * @param from the first night
+	 * @param to   the check-out date
+	 * @return new list of reservations; archived ones are copies
+	 * @throws NullPointerException if a date is {@code null}
+	 * @throws IOException          if a segment can't be read
+	 */
+	public List<Reservation> find(LocalDate from, LocalDate to) throws IOException {
+		return find(ANY_ROOM, from, to);
+	}
+
+	/**
+	 * Returns the reservations of a room that overlap {@code [from, to)}, from
+	 * the hotel and from the archive, in no particular order.
+	 *
+	 * @param roomNumber the room's number; archived stays count with the number the room had then
+	 * @param from       the first night
+	 * @param to         the check-out date
+	 * @return new list of reservations; archived ones are copies
+	 * @throws NullPointerException if a date is {@code null}
+	 * @throws IOException          if a segment can't be read
+	 */
+	public List<Reservation> find(int roomNumber, LocalDate from, LocalDate to) throws IOException {
+		long fromDay = firstDay(from, to);
+		long toDay = to.toEpochDay();
+		List<Reservation> result = new ArrayList<>();
+		Segment[] visible;
+		synchronized (hotel) {
+			Room room = roomNumber == ANY_ROOM ? null : hotel.findRoom(roomNumber);
+			List<Reservation> booked = room != null ? hotel.reservationsOf(room)
+					: roomNumber == ANY_ROOM ? hotel.getReservations() : List.of();
+			for (Reservation reservation : booked) {
+				if (matches(reservation, roomNumber, fromDay, toDay)) {
+					result.add(reservation);
+				}
+			}
+			visible = segments;
+		}
+		scan(visible, roomNumber, fromDay, toDay, (reservation, invoices) -> result.add(reservation));
+		return result;
+	}
+
+	/**
+	 * Returns the invoices of the reservations that overlap {@code [from, to)},
+	 * from the hotel and from the archive, in no particular order.
+	 *
+	 * @param from the first night
+	 * @param to   the check-out date
+	 * @return new list of invoices; archived ones are copies, with copies of their reservations
+	 * @throws NullPointerException if a date is {@code null}
+	 * @throws IOException          if a segment can't be read
+	 */
+	public List<Invoice> findInvoices(LocalDate from, LocalDate to) throws IOException {
+		long fromDay = firstDay(from, to);
+		long toDay = to.toEpochDay();
+		List<Invoice> result = new ArrayList<>();
+		Segment[] visible;
+		synchronized (hotel) {
+			for (Invoice invoice : hotel.getInvoices()) {
+				if (matches(invoice.getReservation(), ANY_ROOM, fromDay, toDay)) {
+					result.add(invoice);
+				}
+			}
+			visible = segments;
+		}
+		scan(visible, ANY_ROOM, fromDay, toDay, (reservation, invoices) -> result.addAll(invoices));
+		return result;
+	}
+
+	/**
+	 * Marks the stays being migrated as stale if the reservation is one of them.
+	 *
+	 * @param reservation the changed reservation
+	 */
+	@Override
+	public void reservationChanged(Reservation reservation) {
+		changed(reservation);
+	}
+
+	/**
+	 * Marks the stays being migrated as stale if the reservation is one of them.
+	 *
+	 * @param reservation the cancelled reservation
+	 */
+	@Override
+	public void reservationCancelled(Reservation reservation) {
+		changed(reservation);
+	}
+
+	/**
+	 * Marks the stays being migrated as stale if the invoice belongs to one of them.
+	 *
+	 * @param invoice the added or recalculated invoice
+	 */
+	@Override
+	public void invoiceChanged(Invoice invoice) {
+		changed(invoice.getReservation());
+	}
+
+	/**
+	 * Returns the number of segment files.
+	 *
+	 * @return number of segments
+	 */
+	public int getSegmentCount() {
+		return segments.length;
+	}
+
+	/**
+	 * Returns the number of archived reservations, including those of segments
+	 * written before the archive was opened.
+	 *
+	 * @return number of reservations on disk
+	 */
+	public long getArchivedCount() {
+		long count = 0;
+		for (Segment segment : segments) {
+			count += segment.reservations;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of archived invoices.
+	 *
+	 * @return number of invoices on disk
+	 */
+	public long getArchivedInvoiceCount() {
+		long count = 0;
+		for (Segment segment : segments) {
+			count += segment.invoices;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of reservations moved out of the hotel since the archive was opened.
+	 *
+	 * @return number of migrated reservations
+	 */
+	public long getMigratedCount() {
+		return migrated.sum();
+	}
+
+	/**
+	 * Returns the number of segments discarded because their stays changed while they were written.
+	 *
+	 * @return number of conflicts
+	 */
+	public long getConflictCount() {
+		return conflicts.sum();
+	}
+
+	/**
+	 * Returns the size of the segment files.
+	 *
+	 * @return number of bytes on disk
+	 */
+	public long getDiskSize() {
+		long size = 0;
+		for (Segment segment : segments) {
+			size += segment.size;
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the size of the blocks of the segments before compression.
+	 *
+	 * @return number of encoded bytes
+	 */
+	public long getRawSize() {
+		long size = 0;
+		for (Segment segment : segments) {
+			size += segment.rawSize;
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the number of blocks read from disk.
+	 *
+	 * @return number of block reads
+	 */
+	public long getBlockReadCount() {
+		return blockReads.sum();
+	}
+
+	/**
+	 * Returns the number of compressed bytes read from disk.
+	 *
+	 * @return number of bytes read
+	 */
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	/**
+	 * Returns the number of blocks found in the cache.
+	 *
+	 * @return number of cache hits
+	 */
+	public long getCacheHits() {
+		return cache.getHits();
+	}
+
+	/**
+	 * Returns the number of blocks that weren't in the cache.
+	 *
+	 * @return number of cache misses
+	 */
+	public long getCacheMisses() {
+		return cache.getMisses();
+	}
+
+	/**
+	 * Returns the share of block requests answered from the cache.
+	 *
+	 * @return hit rate from 0 to 1
+	 */
+	public double getHitRate() {
+		return cache.getHitRate();
+	}
+
+	/**
+	 * Returns the last error of the background thread.
+	 *
+	 * @return the error, or {@code null}
+	 */
+	public Exception getLastFailure() {
+		return lastFailure;
+	}
+
+	/**
+	 * Stops the background thread, waiting for a running migration, stops
+	 * listening to the hotel and closes the segment files. Archived stays stay
+	 * on disk and are found again by an archive opened on the same directory.
+	 * Does nothing if the archive is already closed.
+	 *
+	 * @throws IOException if a segment file can't be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			notifyAll();
+		}
+		try {
+			migrator.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (migrationLock) {
+			hotel.removeListener(this);
+			for (Segment segment : segments) {
+				segment.channel.close();
+			}
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Returns a string representation of the archive's statistics.
+	 *
+	 * @return formatted string with statistics
+	 */
+	@Override
+	public String toString() {
+		return String.format("ReservationArchive [segments=%d, reservations=%d, invoices=%d, disk=%d, raw=%d, "
+				+ "migrated=%d, conflicts=%d, blockReads=%d, hitRate=%.3f]", getSegmentCount(), getArchivedCount(),
+				getArchivedInvoiceCount(), getDiskSize(), getRawSize(), getMigratedCount(), getConflictCount(),
+				getBlockReadCount(), getHitRate());
+	}
+
+	/** Migrates once per interval until the archive is closed. */
+	private void run() {
+		while (!closed) {
+			try {
+				migrate();
+			} catch (IOException | RuntimeException e) {
+				if (!closed) {
+					lastFailure = e;
+				}
+			}
+			synchronized (this) {
+				long deadline = System.currentTimeMillis() + intervalMillis;
+				for (long left = intervalMillis; !closed && left > 0; left = deadline - System.currentTimeMillis()) {
+					try {
+						wait(left);
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	/** Flags the pending batch if the reservation is in it; called under the hotel's lock. */
+	private void changed(Reservation reservation) {
+		if (pending != null && pending.byId.containsKey(reservation.getId())) {
+			pending.conflict = true;
+		}
+	}
+
+	/**
+	 * Encodes the oldest stays that ended on or before the given day, at most
+	 * one segment of them. The caller holds the hotel's lock.
+	 *
+	 * @return the batch, or {@code null} if no stay is due
+	 */
+	private Batch collect(long lastDay) {
+		List<Reservation> due = new ArrayList<>();
+		for (Reservation reservation : hotel.getReservations()) {
+			if (reservation.getEndDay() <= lastDay) {
+				due.add(reservation);
+			}
+		}
+		if (due.isEmpty()) {
+			return null;
+		}
+		due.sort(BY_DATE_AND_ROOM);
+		Batch batch = new Batch(new ArrayList<>(due.subList(0, Math.min(due.size(), segmentSize))));
+		for (Invoice invoice : hotel.getInvoices()) {
+			long reservationId = invoice.getReservation().getId();
+			if (batch.byId.containsKey(reservationId)) {
+				List<Invoice> invoices = batch.invoices.get(reservationId);
+				if (invoices == null) {
+					invoices = new ArrayList<>(1);
+					batch.invoices.put(reservationId, invoices);
+				}
+				invoices.add(invoice);
+				batch.invoiceCount++;
+			}
+		}
+		int first = 0;
+		while (first < batch.reservations.size()) {
+			try {
+				first = encodeBlock(batch, first);
+			} catch (BufferOverflowException e) {
+				// a stay larger than the buffer; the block is encoded again
+				buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+			}
+		}
+		return batch;
+	}
+
+	/**
+	 * Encodes stays into one block until it reaches the block size.
+	 *
+	 * @return index of the first stay of the next block
+	 */
+	private int encodeBlock(Batch batch, int first) {
+		buffer.clear();
+		int next = first;
+		do {
+			Reservation reservation = batch.reservations.get(next++);
+			BinaryCodec.writeVarLong(buffer, reservation.getStartDay());
+			BinaryCodec.writeVarLong(buffer, reservation.getEndDay() - reservation.getStartDay());
+			BinaryCodec.writeVarLong(buffer, reservation.getRoom().getRoomNumber());
+			int lengthPosition = buffer.position();
+			buffer.putInt(0);
+			codec.reset();
+			codec.writeHeader(buffer);
+			codec.encode(reservation, buffer);
+			List<Invoice> invoices = batch.invoices.get(reservation.getId());
+			BinaryCodec.writeVarLong(buffer, invoices == null ? 0 : invoices.size());
+			if (invoices != null) {
+				for (Invoice invoice : invoices) {
+					codec.writeInvoiceFields(invoice, buffer);
+				}
+			}
+			buffer.putInt(lengthPosition, buffer.position() - lengthPosition - 4);
+		} while (next < batch.reservations.size() && buffer.position() < blockSize);
+		batch.blocks.add(Arrays.copyOf(buffer.array(), buffer.position()));
+		Reservation head = batch.reservations.get(first);
+		batch.firstKeys.add(new int[] { head.getStartDay(), head.getRoom().getRoomNumber() });
+		for (int i = first; i < next; i++) {
+			Reservation reservation = batch.reservations.get(i);
+			batch.minStartDay = Math.min(batch.minStartDay, reservation.getStartDay());
+			batch.maxEndDay = Math.max(batch.maxEndDay, reservation.getEndDay());
+			batch.maxNights = Math.max(batch.maxNights, reservation.getEndDay() - reservation.getStartDay());
+		}
+		return next;
+	}
+
+	/** Compresses the blocks into a new segment file and opens it. */
+	private Segment write(Batch batch) throws IOException {
+		Path file = directory.resolve(String.format("%s%08d%s", PREFIX, nextSegment++, SUFFIX));
+		Path temporary = directory.resolve(file.getFileName() + ".tmp");
+		Deflater deflater = new Deflater();
+		try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			writeFully(out, ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION).flip());
+			ByteBuffer index = ByteBuffer.allocate(batch.blocks.size() * INDEX_ENTRY_SIZE + TRAILER_SIZE);
+			byte[] compressed = new byte[blockSize];
+			long offset = HEADER_SIZE;
+			for (int i = 0; i < batch.blocks.size(); i++) {
+				byte[] raw = batch.blocks.get(i);
+				deflater.reset();
+				deflater.setInput(raw);
+				deflater.finish();
+				int length = 0;
+				while (!deflater.finished()) {
+					if (length == compressed.length) {
+						compressed = Arrays.copyOf(compressed, compressed.length * 2);
+					}
+					length += deflater.deflate(compressed, length, compressed.length - length);
+				}
+				writeFully(out, ByteBuffer.wrap(compressed, 0, length));
+				int[] key = batch.firstKeys.get(i);
+				index.putInt(key[0]).putInt(key[1]).putLong(offset).putInt(length).putInt(raw.length);
+				offset += length;
+			}
+			index.putLong(offset).putInt(batch.blocks.size()).putInt(batch.minStartDay).putInt(batch.maxEndDay)
+					.putInt(batch.maxNights).putLong(batch.reservations.size()).putLong(batch.invoiceCount)
+					.putInt(MAGIC);
+			writeFully(out, index.flip());
+			out.force(true);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		} finally {
+			deflater.end();
+		}
+		Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+		return open(file);
+	}
+
+	/**
+	 * Publishes the segment and removes its stays from the hotel, unless one
+	 * of them changed since it was encoded.
+	 *
+	 * @return {@code true} if the stays were archived
+	 */
+	private boolean commit(Batch batch, Segment segment) {
+		synchronized (hotel) {
+			if (batch.conflict) {
+				return false;
+			}
+			for (int i = 0; i < batch.modCounts.length; i++) {
+				if (batch.reservations.get(i).getModCount() != batch.modCounts[i]) {
+					return false; // changed through a setter without being reported
+				}
+			}
+			Segment[] published = Arrays.copyOf(segments, segments.length + 1);
+			published[segments.length] = segment;
+			segments = published;
+			hotel.removeArchived(batch.reservations, batch.invoices);
+			return true;
+		}
+	}
+
+	/** Passes the archived stays that overlap the days to the visitor. */
+	private void scan(Segment[] visible, int roomNumber, long fromDay, long toDay,
+			BiConsumer<Reservation, List<Invoice>> visitor) throws IOException {
+		for (Segment segment : visible) {
+			if (segment.minStartDay >= toDay || segment.maxEndDay <= fromDay) {
+				continue;
+			}
+			Block[] blocks = segment.blocks;
+			long lowestStart = fromDay - segment.maxNights;
+			// the last block that starts before the lowest key may still hold it
+			int first = 0;
+			int low = 0;
+			int high = blocks.length - 1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				Block block = blocks[middle];
+				if (block.firstStartDay < lowestStart
+						|| block.firstStartDay == lowestStart && block.firstRoom < roomNumber) {
+					first = middle;
+					low = middle + 1;
+				} else {
+					high = middle - 1;
+				}
+			}
+			for (int i = first; i < blocks.length && blocks[i].firstStartDay < toDay; i++) {
+				if (!decode(read(blocks[i]), roomNumber, fromDay, toDay, visitor)) {
+					break;
+				}
+			}
+		}
+	}
+
+	/** Returns the decompressed block, from the cache or from disk. */
+	private byte[] read(Block block) throws IOException {
+		byte[] raw = cache.get(block);
+		if (raw != null) {
+			return raw;
+		}
+		ByteBuffer compressed = readFully(block.segment.channel, block.offset, block.length);
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed.array());
+			raw = new byte[block.rawLength];
+			if (inflater.inflate(raw) != raw.length || !inflater.finished()) {
+				throw corrupt(block.segment.file);
+			}
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt segment " + block.segment.file, e);
+		} finally {
+			inflater.end();
+		}
+		blockReads.increment();
+		bytesRead.add(block.length);
+		cache.put(block, raw);
+		return raw;
+	}
+
+	/**
+	 * Decodes the stays of a block that overlap the days and passes them to the visitor.
+	 *
+	 * @return {@code false} if a stay starting on or after {@code toDay} was reached
+	 */
+	private static boolean decode(byte[] raw, int roomNumber, long fromDay, long toDay,
+			BiConsumer<Reservation, List<Invoice>> visitor) {
+		ByteBuffer in = ByteBuffer.wrap(raw);
+		BinaryCodec codec = null;
+		while (in.hasRemaining()) {
+			long startDay = BinaryCodec.readVarLong(in);
+			long endDay = startDay + BinaryCodec.readVarLong(in);
+			long room = BinaryCodec.readVarLong(in);
+			int length = in.getInt();
+			if (startDay >= toDay) {
+				return false;
+			}
+			if (endDay <= fromDay || roomNumber != ANY_ROOM && room != roomNumber) {
+				in.position(in.position() + length);
+				continue;
+			}
+			if (codec == null) {
+				codec = new BinaryCodec();
+			}
+			codec.reset();
+			codec.readHeader(in);
+			Reservation reservation = (Reservation) codec.decode(in);
+			int count = (int) BinaryCodec.readVarLong(in);
+			List<Invoice> invoices = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				invoices.add(codec.readInvoiceFields(reservation, in));
+			}
+			visitor.accept(reservation, invoices);
+		}
+		return true;
+	}
+
+	private static boolean matches(Reservation reservation, int roomNumber, long fromDay, long toDay) {
+		return reservation.getStartDay() < toDay && fromDay < reservation.getEndDay()
+				&& (roomNumber == ANY_ROOM || reservation.getRoom().getRoomNumber() == roomNumber);
+	}
+
+	/** Checks the dates of a query and returns the first day. */
+	private static long firstDay(LocalDate from, LocalDate to) {
+		if (!Utils.validateObject(from) || !Utils.validateObject(to)) {
+			throw new NullPointerException("Dates can't be null.");
+		}
+		return from.toEpochDay();
+	}
+
+	private static Segment open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			return new Segment(file, channel);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of " + channel);
+			}
+		}
+		return buffer.flip();
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private static IOException corrupt(Path file) {
+		return new IOException("Corrupt segment " + file);
+	}
+}
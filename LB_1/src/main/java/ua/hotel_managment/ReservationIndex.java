@@ -0,0 +1,235 @@
+package ua.hotel_managment;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import ua.util.LongObjectMap;
+import ua.util.Utils;
+
+/**
+ * Indexes of the reservations of a {@link Hotel} by guest and by start date,
+ * used by {@link ReservationQuery} to avoid scanning all reservations.
+ * (Reservations by room are kept by the hotel itself.)
+ * <p>
+ * A reservation overlaps {@code [from, to)} only if it starts before {@code to}
+ * and no earlier than {@code from} minus the longest stay, so a date range is
+ * answered from the start dates in that window.
+ * <p>
+ * The index follows the hotel as a listener; changes of booked reservations
+ * must be reported with {@link Hotel#updateReservation(Reservation)}.
+ * Methods other than {@link #attach} and {@link #query} must be called
+ * while holding the hotel's lock.
+ */
+public class ReservationIndex implements HotelListener {
+
+	/** Where a reservation is indexed, so it can be removed after its values changed. */
+	private static final class Entry {
+		final Guest guest;
+		final int startDay;
+
+		Entry(Guest guest, int startDay) {
+			this.guest = guest;
+			this.startDay = startDay;
+		}
+	}
+
+	private final Hotel hotel;
+	private final Map<Guest, List<Reservation>> byGuest = new IdentityHashMap<>();
+	private final NavigableMap<Integer, List<Reservation>> byStartDay = new TreeMap<>();
+	private final LongObjectMap<Entry> entries = new LongObjectMap<>(); // by reservation id
+	private int maxNights; // longest stay ever indexed; never shrinks
+
+	private ReservationIndex(Hotel hotel) {
+		this.hotel = hotel;
+	}
+
+	/**
+	 * Indexes the reservations of a hotel and keeps following it.
+	 *
+	 * @param hotel the hotel
+	 * @return the index, registered as a listener of the hotel
+	 * @throws NullPointerException if {@code hotel} is {@code null}
+	 */
+	public static ReservationIndex attach(Hotel hotel) {
+		if (!Utils.validateObject(hotel)) {
+			throw new NullPointerException("Hotel can't be null.");
+		}
+		ReservationIndex index = new ReservationIndex(hotel);
+		synchronized (hotel) {
+			for (Reservation reservation : hotel.getReservations()) {
+				index.add(reservation);
+			}
+			hotel.addListener(index);
+		}
+		return index;
+	}
+
+	/**
+	 * Starts a query over the hotel's reservations that may use this index.
+	 *
+	 * @return a new query
+	 */
+	public ReservationQuery query() {
+		return new ReservationQuery(hotel, this, null);
+	}
+
+	/**
+	 * Returns the hotel this index follows.
+	 *
+	 * @return the hotel
+	 */
+	public Hotel getHotel() {
+		return hotel;
+	}
+
+	/**
+	 * Indexes a booked reservation.
+	 *
+	 * @param reservation the booked reservation
+	 */
+	@Override
+	public void reservationBooked(Reservation reservation) {
+		add(reservation);
+	}
+
+	/**
+	 * Moves the reservation to its current guest and start date.
+	 *
+	 * @param reservation the changed reservation
+	 */
+	@Override
+	public void reservationChanged(Reservation reservation) {
+		remove(reservation);
+		add(reservation);
+	}
+
+	/**
+	 * Removes the reservation from the index.
+	 *
+	 * @param reservation the cancelled reservation
+	 */
+	@Override
+	public void reservationCancelled(Reservation reservation) {
+		remove(reservation);
+	}
+
+	/**
+	 * Removes the reservation from the index; queries see the in-memory reservations only.
+	 *
+	 * @param reservation the archived reservation
+	 * @param invoices    its invoices
+	 */
+	@Override
+	public void reservationArchived(Reservation reservation, List<Invoice> invoices) {
+		remove(reservation);
+	}
+
+	/**
+	 * Returns the live list of reservations of a guest (the same instance).
+	 *
+	 * @param guest the guest
+	 * @return the reservations, possibly empty
+	 */
+	List<Reservation> ofGuest(Guest guest) {
+		return byGuest.getOrDefault(guest, List.of());
+	}
+
+	/**
+	 * Returns the guests with an email, ignoring case.
+	 *
+	 * @param email the email
+	 * @return the guests, possibly empty
+	 */
+	List<Guest> guestsWithEmail(String email) {
+		List<Guest> guests = new ArrayList<>();
+		for (Guest guest : byGuest.keySet()) {
+			if (guest.getEmail().equalsIgnoreCase(email)) {
+				guests.add(guest);
+			}
+		}
+		return guests;
+	}
+
+	/**
+	 * Counts the reservations that may overlap {@code [from, to)}, i.e. those
+	 * {@link #addOverlapping} would add.
+	 *
+	 * @param from the first night
+	 * @param to   the check-out date
+	 * @return number of candidates
+	 */
+	int countOverlapping(LocalDate from, LocalDate to) {
+		int count = 0;
+		for (List<Reservation> starting : window(from, to).values()) {
+			count += starting.size();
+		}
+		return count;
+	}
+
+	/**
+	 * Adds the reservations that may overlap {@code [from, to)}: all that do,
+	 * and some that end before {@code from}.
+	 *
+	 * @param from   the first night
+	 * @param to     the check-out date
+	 * @param result receives the candidates
+	 */
+	void addOverlapping(LocalDate from, LocalDate to, List<Reservation> result) {
+		for (List<Reservation> starting : window(from, to).values()) {
+			result.addAll(starting);
+		}
+	}
+
+	/**
+	 * Returns the number of indexed reservations.
+	 *
+	 * @return number of reservations
+	 */
+	int size() {
+		return entries.size();
+	}
+
+	private NavigableMap<Integer, List<Reservation>> window(LocalDate from, LocalDate to) {
+		long first = from.toEpochDay() - maxNights;
+		long last = to.toEpochDay();
+		if (first >= last) {
+			return new TreeMap<>();
+		}
+		return byStartDay.subMap((int) Math.max(first, Integer.MIN_VALUE), true,
+				(int) Math.min(last, Integer.MAX_VALUE), false);
+	}
+
+	private void add(Reservation reservation) {
+		Entry entry = new Entry(reservation.getGuest(), reservation.getStartDay());
+		entries.put(reservation.getId(), entry);
+		byGuest.computeIfAbsent(entry.guest, guest -> new ArrayList<>()).add(reservation);
+		byStartDay.computeIfAbsent(entry.startDay, day -> new ArrayList<>()).add(reservation);
+		maxNights = Math.max(maxNights, reservation.getEndDay() - reservation.getStartDay());
+	}
+
+	private void remove(Reservation reservation) {
+		Entry entry = entries.remove(reservation.getId());
+		if (entry != null) {
+			removeFrom(byGuest, entry.guest, reservation);
+			removeFrom(byStartDay, entry.startDay, reservation);
+		}
+	}
+
+	private static <K> void removeFrom(Map<K, List<Reservation>> map, K key, Reservation reservation) {
+		List<Reservation> list = map.get(key);
+		for (int i = 0; i < list.size(); i++) {
+			if (list.get(i) == reservation) {
+				list.remove(i);
+				break;
+			}
+		}
+		if (list.isEmpty()) {
+			map.remove(key);
+		}
+	}
+}
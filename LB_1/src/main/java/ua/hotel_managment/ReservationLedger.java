@@ -0,0 +1,432 @@
+package ua.hotel_managment;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ua.util.Utils;
+
+/**
+ * Append-only ledger that keeps reservations outside the Java heap.
+ * <p>
+ * Every reservation is a fixed-width row in direct memory:
+ * <pre>
+ * offset  size  field
+ *      0     4  guest id (index in the guest table)
+ *      4     4  room number
+ *      8     4  start date (epoch day)
+ *     12     4  end date (epoch day)
+ *     16     4  offset of the first service line
+ *     20     2  number of service lines
+ *     22     1  status
+ * </pre>
+ * Service lines (service id and price) live in a second off-heap area. Guests,
+ * rooms and services are stored once on the heap and referenced by id, so the
+ * garbage collector sees a few large buffers instead of millions of
+ * {@link Reservation}, {@link LocalDate} and {@link ArrayList} objects.
+ * <p>
+ * Rows are read through a reusable {@link Cursor}, which reads the fields
+ * straight from memory, so a scan allocates nothing per row. A {@link Reservation}
+ * object is created only by {@link #materialize(int)}. Statuses can be changed
+ * in place; other fields are never modified.
+ * <p>
+ * A ledger is not thread-safe; guard it externally when it is shared.
+ */
+public class ReservationLedger {
+
+	/** Life-cycle status of a ledger row. */
+	public enum Status {
+		BOOKED, CHECKED_IN, CHECKED_OUT, CANCELLED, NO_SHOW
+	}
+
+	static final int ROW_BYTES = 24;
+	private static final int GUEST = 0;
+	private static final int ROOM = 4;
+	private static final int START = 8;
+	private static final int END = 12;
+	private static final int SERVICE_OFFSET = 16;
+	private static final int SERVICE_COUNT = 20;
+	private static final int STATUS = 22;
+
+	private static final int LINE_BYTES = 8;
+	private static final int LINE_SERVICE = 0;
+	private static final int LINE_PRICE = 4;
+
+	/** Rows and service lines are allocated in chunks of this many entries. */
+	private static final int CHUNK_SHIFT = 16;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	private static final Status[] STATUSES = Status.values();
+
+	private ByteBuffer[] rows = new ByteBuffer[4];
+	private ByteBuffer[] lines = new ByteBuffer[4];
+	private int size;
+	private int lineCount;
+
+	private final List<Guest> guests = new ArrayList<>();
+	private final Map<Guest, Integer> guestIds = new IdentityHashMap<>();
+	private final List<Service> services = new ArrayList<>();
+	private final Map<Service, Integer> serviceIds = new IdentityHashMap<>();
+	private final Map<Integer, Room> rooms = new HashMap<>();
+
+	/**
+	 * Constructs an empty ledger.
+	 */
+	public ReservationLedger() {
+	}
+
+	/**
+	 * Factory method for creating an empty ledger.
+	 *
+	 * @return a new {@code ReservationLedger}
+	 */
+	public static ReservationLedger create() {
+		return new ReservationLedger();
+	}
+
+	/**
+	 * Appends a reservation as a new {@link Status#BOOKED} row.
+	 * The guest, room and services are registered on first use;
+	 * the reservation object itself is not kept.
+	 *
+	 * @param reservation the reservation
+	 * @return the row index
+	 * @throws NullPointerException     if {@code reservation} is {@code null}
+	 * @throws IllegalArgumentException if the reservation has more service lines than a row can hold
+	 *                                  or another room with the same number was appended before
+	 */
+	public int append(Reservation reservation) {
+		if (!Utils.validateObject(reservation)) {
+			throw new NullPointerException("Reservation can't be null");
+		}
+		List<Service> lineServices = reservation.services();
+		if (lineServices.size() > Character.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many services in one reservation.");
+		}
+		Room room = reservation.getRoom();
+		Room known = rooms.putIfAbsent(room.getRoomNumber(), room);
+		if (known != null && known != room) {
+			throw new IllegalArgumentException("Another room has number " + room.getRoomNumber());
+		}
+		int firstLine = lineCount;
+		for (Service service : lineServices) {
+			appendLine(idOf(service), service.getPrice());
+		}
+		int row = size;
+		ByteBuffer chunk = rowChunk(row);
+		int base = (row & CHUNK_MASK) * ROW_BYTES;
+		chunk.putInt(base + GUEST, idOf(reservation.getGuest()));
+		chunk.putInt(base + ROOM, room.getRoomNumber());
+		chunk.putInt(base + START, reservation.getStartDay());
+		chunk.putInt(base + END, reservation.getEndDay());
+		chunk.putInt(base + SERVICE_OFFSET, firstLine);
+		chunk.putChar(base + SERVICE_COUNT, (char) lineServices.size());
+		chunk.put(base + STATUS, (byte) Status.BOOKED.ordinal());
+		size++;
+		return row;
+	}
+
+	/**
+	 * Returns the number of rows.
+	 *
+	 * @return the row count
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the status of a row.
+	 *
+	 * @param row the row index
+	 * @return the status
+	 * @throws IndexOutOfBoundsException if there is no such row
+	 */
+	public Status getStatus(int row) {
+		return STATUSES[rows[chunkIndex(row)].get((row & CHUNK_MASK) * ROW_BYTES + STATUS)];
+	}
+
+	/**
+	 * Changes the status of a row in place.
+	 *
+	 * @param row    the row index
+	 * @param status the new status
+	 * @throws NullPointerException      if {@code status} is {@code null}
+	 * @throws IndexOutOfBoundsException if there is no such row
+	 */
+	public void setStatus(int row, Status status) {
+		if (!Utils.validateObject(status)) {
+			throw new NullPointerException("Status can't be null");
+		}
+		rows[chunkIndex(row)].put((row & CHUNK_MASK) * ROW_BYTES + STATUS, (byte) status.ordinal());
+	}
+
+	/**
+	 * Returns the guest with the given id.
+	 *
+	 * @param guestId the id stored in a row
+	 * @return the guest
+	 */
+	public Guest getGuest(int guestId) {
+		return guests.get(guestId);
+	}
+
+	/**
+	 * Returns the id of a guest, or -1 if no row references the guest.
+	 *
+	 * @param guest the guest
+	 * @return the guest id
+	 */
+	public int findGuestId(Guest guest) {
+		Integer id = guestIds.get(guest);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Creates a {@link Reservation} object from a row. The result has the same guest,
+	 * room and service objects as the appended reservation, but is a new object;
+	 * its changes are not written back.
+	 *
+	 * @param row the row index
+	 * @return the reservation
+	 * @throws IndexOutOfBoundsException if there is no such row
+	 */
+	public Reservation materialize(int row) {
+		ByteBuffer chunk = rows[chunkIndex(row)];
+		int base = (row & CHUNK_MASK) * ROW_BYTES;
+		int firstLine = chunk.getInt(base + SERVICE_OFFSET);
+		int count = chunk.getChar(base + SERVICE_COUNT);
+		List<Service> lineServices = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			int line = firstLine + i;
+			lineServices.add(services.get(lines[line >>> CHUNK_SHIFT].getInt((line & CHUNK_MASK) * LINE_BYTES
+					+ LINE_SERVICE)));
+		}
+		return Reservation.restore(guests.get(chunk.getInt(base + GUEST)), rooms.get(chunk.getInt(base + ROOM)),
+				LocalDate.ofEpochDay(chunk.getInt(base + START)), LocalDate.ofEpochDay(chunk.getInt(base + END)),
+				lineServices);
+	}
+
+	/**
+	 * Returns a cursor positioned before the first row.
+	 * Rows appended while the cursor is used are visited as well.
+	 *
+	 * @return a new cursor
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * Returns the number of bytes of direct memory held by the ledger.
+	 *
+	 * @return allocated off-heap bytes
+	 */
+	public long offHeapBytes() {
+		long bytes = 0;
+		for (ByteBuffer chunk : rows) {
+			bytes += chunk == null ? 0 : chunk.capacity();
+		}
+		for (ByteBuffer chunk : lines) {
+			bytes += chunk == null ? 0 : chunk.capacity();
+		}
+		return bytes;
+	}
+
+	private int idOf(Guest guest) {
+		Integer id = guestIds.get(guest);
+		if (id == null) {
+			id = guests.size();
+			guests.add(guest);
+			guestIds.put(guest, id);
+		}
+		return id;
+	}
+
+	private int idOf(Service service) {
+		Integer id = serviceIds.get(service);
+		if (id == null) {
+			id = services.size();
+			services.add(service);
+			serviceIds.put(service, id);
+		}
+		return id;
+	}
+
+	private void appendLine(int serviceId, int price) {
+		int index = lineCount >>> CHUNK_SHIFT;
+		if (index == lines.length) {
+			lines = Arrays.copyOf(lines, lines.length * 2);
+		}
+		if (lines[index] == null) {
+			lines[index] = ByteBuffer.allocateDirect(CHUNK_SIZE * LINE_BYTES).order(ByteOrder.nativeOrder());
+		}
+		int base = (lineCount & CHUNK_MASK) * LINE_BYTES;
+		lines[index].putInt(base + LINE_SERVICE, serviceId);
+		lines[index].putInt(base + LINE_PRICE, price);
+		lineCount++;
+	}
+
+	/** Returns the chunk for a new row, allocating it if needed. */
+	private ByteBuffer rowChunk(int row) {
+		int index = row >>> CHUNK_SHIFT;
+		if (index == rows.length) {
+			rows = Arrays.copyOf(rows, rows.length * 2);
+		}
+		if (rows[index] == null) {
+			rows[index] = ByteBuffer.allocateDirect(CHUNK_SIZE * ROW_BYTES).order(ByteOrder.nativeOrder());
+		}
+		return rows[index];
+	}
+
+	private int chunkIndex(int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("No row " + row);
+		}
+		return row >>> CHUNK_SHIFT;
+	}
+
+	/**
+	 * Flyweight over the rows of the ledger. The getters read the current row
+	 * directly from memory; nothing is allocated while moving or reading.
+	 * <pre>
+	 * ReservationLedger.Cursor cursor = ledger.cursor();
+	 * while (cursor.next()) {
+	 *     if (cursor.getStatus() == Status.BOOKED) {
+	 *         nights += cursor.getEndDay() - cursor.getStartDay();
+	 *     }
+	 * }
+	 * </pre>
+	 */
+	public final class Cursor {
+
+		private int row = -1;
+		private ByteBuffer chunk;
+		private int base;
+
+		private Cursor() {
+		}
+
+		/**
+		 * Moves to the next row.
+		 *
+		 * @return {@code false} if there are no more rows
+		 */
+		public boolean next() {
+			if (row + 1 >= size) {
+				return false;
+			}
+			row++;
+			chunk = rows[row >>> CHUNK_SHIFT];
+			base = (row & CHUNK_MASK) * ROW_BYTES;
+			return true;
+		}
+
+		/**
+		 * Returns the index of the current row.
+		 *
+		 * @return the row index
+		 */
+		public int getRow() {
+			return row;
+		}
+
+		/**
+		 * Returns the guest id of the current row, see {@link ReservationLedger#getGuest(int)}.
+		 *
+		 * @return the guest id
+		 */
+		public int getGuestId() {
+			return chunk.getInt(base + GUEST);
+		}
+
+		/**
+		 * Returns the room number of the current row.
+		 *
+		 * @return the room number
+		 */
+		public int getRoomNumber() {
+			return chunk.getInt(base + ROOM);
+		}
+
+		/**
+		 * Returns the start date of the current row as an epoch day.
+		 *
+		 * @return the start day
+		 */
+		public long getStartDay() {
+			return chunk.getInt(base + START);
+		}
+
+		/**
+		 * Returns the end date of the current row as an epoch day.
+		 *
+		 * @return the end day
+		 */
+		public long getEndDay() {
+			return chunk.getInt(base + END);
+		}
+
+		/**
+		 * Returns the number of service lines of the current row.
+		 *
+		 * @return the service count
+		 */
+		public int getServiceCount() {
+			return chunk.getChar(base + SERVICE_COUNT);
+		}
+
+		/**
+		 * Returns the sum of the service prices of the current row.
+		 *
+		 * @return the services total
+		 */
+		public long getServicesTotal() {
+			int first = chunk.getInt(base + SERVICE_OFFSET);
+			int count = chunk.getChar(base + SERVICE_COUNT);
+			long total = 0;
+			for (int line = first; line < first + count; line++) {
+				total += lines[line >>> CHUNK_SHIFT].getInt((line & CHUNK_MASK) * LINE_BYTES + LINE_PRICE);
+			}
+			return total;
+		}
+
+		/**
+		 * Returns the status of the current row.
+		 *
+		 * @return the status
+		 */
+		public Status getStatus() {
+			return STATUSES[chunk.get(base + STATUS)];
+		}
+
+		/**
+		 * Changes the status of the current row in place.
+		 *
+		 * @param status the new status
+		 * @throws NullPointerException if {@code status} is {@code null}
+		 */
+		public void setStatus(Status status) {
+			if (!Utils.validateObject(status)) {
+				throw new NullPointerException("Status can't be null");
+			}
+			chunk.put(base + STATUS, (byte) status.ordinal());
+		}
+
+		/**
+		 * Creates a {@link Reservation} object from the current row.
+		 *
+		 * @return the reservation
+		 */
+		public Reservation materialize() {
+			return ReservationLedger.this.materialize(row);
+		}
+	}
+}
@@ -0,0 +1,550 @@
+package ua.hotel_managment;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import ua.util.Utils;
+
+/**
+ * Fluent query over reservations, e.g.
+ * <pre>
+ * index.query().overlapping(from, to).roomType("Suite").withService("Spa").list();
+ * </pre>
+ * Conditions are only collected; nothing is read until a terminal operation
+ * ({@link #list}, {@link #count}, {@link #forEach}). Then a planner picks the
+ * access path with the fewest candidates:
+ * <ul>
+ * <li>the hotel's reservations of one room ({@link #roomNumber}) or of the rooms
+ * of a type ({@link #roomType});</li>
+ * <li>with a {@link ReservationIndex}, the reservations of the guest
+ * ({@link #guest}, {@link #guestEmail}) or those starting in the date window
+ * ({@link #overlapping});</li>
+ * <li>otherwise all reservations.</li>
+ * </ul>
+ * The candidates are copied under the hotel's lock and the remaining conditions
+ * are checked outside it, in parallel if {@link #parallel()} was requested and
+ * there are at least {@link #DEFAULT_PARALLEL_THRESHOLD} candidates.
+ * {@link #explain()} describes the plan without running it.
+ * <p>
+ * A query over a plain collection ({@link #from(Collection)}) always scans it.
+ * Conditions of the same kind replace each other, except {@link #withService},
+ * which requires all given services. Queries are not thread-safe, but may be
+ * run any number of times.
+ */
+public class ReservationQuery {
+
+	/** Default number of candidates from which a parallel query runs in parallel. */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 20_000;
+
+	/** Access paths, in the order they are preferred when their estimates are equal. */
+	enum Path {
+		ROOM_NUMBER, GUEST, ROOM_TYPE, DATE_RANGE, SCAN
+	}
+
+	/** The chosen access path and its estimated number of candidates. */
+	private static final class Plan {
+		final Path path;
+		final int candidates;
+		final int total;
+		final String considered;
+
+		Plan(Path path, int candidates, int total, String considered) {
+			this.path = path;
+			this.candidates = candidates;
+			this.total = total;
+			this.considered = considered;
+		}
+	}
+
+	/** A condition and its description for {@link #explain()}. */
+	private static final class Condition {
+		final Path servedBy; // access path that returns exactly the matching reservations, or null
+		final String description;
+		final Predicate<Reservation> test;
+
+		Condition(Path servedBy, String description, Predicate<Reservation> test) {
+			this.servedBy = servedBy;
+			this.description = description;
+			this.test = test;
+		}
+	}
+
+	private final Hotel hotel;
+	private final ReservationIndex index;
+	private final Collection<Reservation> source;
+
+	private LocalDate from;
+	private LocalDate to;
+	private int roomNumber; // 0 if not queried
+	private String roomType;
+	private Guest guest;
+	private String guestEmail;
+	private final List<String> services = new ArrayList<>();
+	private double minPrice = Double.NEGATIVE_INFINITY;
+	private double maxPrice = Double.POSITIVE_INFINITY;
+	private boolean parallel;
+	private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+	private long limit = Long.MAX_VALUE;
+
+	ReservationQuery(Hotel hotel, ReservationIndex index, Collection<Reservation> source) {
+		this.hotel = hotel;
+		this.index = index;
+		this.source = source;
+	}
+
+	/**
+	 * Starts a query over the reservations of a hotel, using only the hotel's
+	 * reservations per room. Use {@link ReservationIndex#query()} to use
+	 * the guest and date indexes too.
+	 *
+	 * @param hotel the hotel
+	 * @return a new query
+	 * @throws NullPointerException if {@code hotel} is {@code null}
+	 */
+	public static ReservationQuery from(Hotel hotel) {
+		if (!Utils.validateObject(hotel)) {
+			throw new NullPointerException("Hotel can't be null.");
+		}
+		return new ReservationQuery(hotel, null, null);
+	}
+
+	/**
+	 * Starts a query over a collection of reservations. The collection is
+	 * read when the query runs.
+	 *
+	 * @param reservations the reservations
+	 * @return a new query
+	 * @throws NullPointerException if {@code reservations} is {@code null}
+	 */
+	public static ReservationQuery from(Collection<Reservation> reservations) {
+		if (!Utils.validateObject(reservations)) {
+			throw new NullPointerException("Reservations can't be null.");
+		}
+		return new ReservationQuery(null, null, reservations);
+	}
+
+	/**
+	 * Keeps reservations that occupy a night in {@code [from, to)}.
+	 *
+	 * @param from the first night
+	 * @param to   the check-out date
+	 * @return this query
+	 * @throws NullPointerException     if a date is {@code null}
+	 * @throws IllegalArgumentException if {@code to} is not after {@code from}
+	 */
+	public ReservationQuery overlapping(LocalDate from, LocalDate to) {
+		if (!Utils.validateObject(from) || !Utils.validateObject(to)) {
+			throw new NullPointerException("Dates can't be null.");
+		}
+		if (!to.isAfter(from)) {
+			throw new IllegalArgumentException("End date must be after start date.");
+		}
+		this.from = from;
+		this.to = to;
+		return this;
+	}
+
+	/**
+	 * Keeps reservations of the room with a number.
+	 *
+	 * @param roomNumber the room's number
+	 * @return this query
+	 * @throws IllegalArgumentException if {@code roomNumber} is not positive
+	 */
+	public ReservationQuery roomNumber(int roomNumber) {
+		if (!Utils.validatePositiveNumber(roomNumber)) {
+			throw new IllegalArgumentException("Room number must be positive.");
+		}
+		this.roomNumber = roomNumber;
+		return this;
+	}
+
+	/**
+	 * Keeps reservations of rooms of a type.
+	 *
+	 * @param type the room type
+	 * @return this query
+	 * @throws NullPointerException if {@code type} is {@code null}
+	 */
+	public ReservationQuery roomType(String type) {
+		if (!Utils.validateObject(type)) {
+			throw new NullPointerException("Room type can't be null.");
+		}
+		this.roomType = type;
+		return this;
+	}
+
+	/**
+	 * Keeps reservations of a guest (the same instance).
+	 *
+	 * @param guest the guest
+	 * @return this query
+	 * @throws NullPointerException if {@code guest} is {@code null}
+	 */
+	public ReservationQuery guest(Guest guest) {
+		if (!Utils.validateObject(guest)) {
+			throw new NullPointerException("Guest can't be null.");
+		}
+		this.guest = guest;
+		return this;
+	}
+
+	/**
+	 * Keeps reservations of guests with an email, ignoring case.
+	 *
+	 * @param email the email
+	 * @return this query
+	 * @throws NullPointerException if {@code email} is {@code null}
+	 */
+	public ReservationQuery guestEmail(String email) {
+		if (!Utils.validateObject(email)) {
+			throw new NullPointerException("Email can't be null.");
+		}
+		this.guestEmail = email;
+		return this;
+	}
+
+	/**
+	 * Keeps reservations that include a service with a name.
+	 *
+	 * @param name the service's name
+	 * @return this query
+	 * @throws NullPointerException if {@code name} is {@code null}
+	 */
+	public ReservationQuery withService(String name) {
+		if (!Utils.validateObject(name)) {
+			throw new NullPointerException("Service name can't be null.");
+		}
+		services.add(name);
+		return this;
+	}
+
+	/**
+	 * Keeps reservations whose invoice total (room price and services)
+	 * is in {@code [min, max]}.
+	 *
+	 * @param min the lowest total
+	 * @param max the highest total
+	 * @return this query
+	 * @throws IllegalArgumentException if {@code min} is greater than {@code max}
+	 */
+	public ReservationQuery priceBetween(double min, double max) {
+		if (!(min <= max)) {
+			throw new IllegalArgumentException("Minimal price can't be greater than maximal price.");
+		}
+		this.minPrice = min;
+		this.maxPrice = max;
+		return this;
+	}
+
+	/**
+	 * Returns at most a number of reservations; the query stops as soon as it has them.
+	 *
+	 * @param limit maximal number of reservations
+	 * @return this query
+	 * @throws IllegalArgumentException if {@code limit} is not positive
+	 */
+	public ReservationQuery limit(long limit) {
+		if (!Utils.validatePositiveNumber(limit)) {
+			throw new IllegalArgumentException("Limit must be positive.");
+		}
+		this.limit = limit;
+		return this;
+	}
+
+	/**
+	 * Checks the conditions in parallel when there are at least
+	 * {@link #DEFAULT_PARALLEL_THRESHOLD} candidates.
+	 *
+	 * @return this query
+	 */
+	public ReservationQuery parallel() {
+		return parallel(DEFAULT_PARALLEL_THRESHOLD);
+	}
+
+	/**
+	 * Checks the conditions in parallel when there are at least {@code threshold} candidates.
+	 *
+	 * @param threshold the minimal number of candidates
+	 * @return this query
+	 * @throws IllegalArgumentException if {@code threshold} is not positive
+	 */
+	public ReservationQuery parallel(int threshold) {
+		if (!Utils.validatePositiveNumber(threshold)) {
+			throw new IllegalArgumentException("Threshold must be positive.");
+		}
+		this.parallel = true;
+		this.parallelThreshold = threshold;
+		return this;
+	}
+
+	/**
+	 * Runs the query.
+	 *
+	 * @return the matching reservations, in the order of the access path
+	 */
+	public List<Reservation> list() {
+		return run().toList();
+	}
+
+	/**
+	 * Runs the query and counts the matching reservations.
+	 *
+	 * @return number of matching reservations
+	 */
+	public long count() {
+		return run().count();
+	}
+
+	/**
+	 * Runs the query and hands every matching reservation to the action,
+	 * in the order of the access path.
+	 *
+	 * @param action the action
+	 * @throws NullPointerException if {@code action} is {@code null}
+	 */
+	public void forEach(Consumer<? super Reservation> action) {
+		if (!Utils.validateObject(action)) {
+			throw new NullPointerException("Action can't be null.");
+		}
+		run().forEachOrdered(action);
+	}
+
+	/**
+	 * Describes how the query would run: the chosen access path, the estimated
+	 * candidates, the other paths considered, the conditions checked per
+	 * candidate and whether they are checked in parallel.
+	 *
+	 * @return the plan, one item per line
+	 */
+	public String explain() {
+		List<Condition> conditions = conditions();
+		Plan plan;
+		if (hotel != null) {
+			synchronized (hotel) {
+				plan = plan();
+			}
+		} else {
+			plan = plan();
+		}
+		StringBuilder out = new StringBuilder();
+		out.append("access: ").append(plan.path).append(describe(plan.path))
+				.append(" (").append(plan.candidates).append(" of ").append(plan.total).append(" reservations)\n");
+		out.append("considered: ").append(plan.considered).append('\n');
+		for (Condition condition : conditions) {
+			if (condition.servedBy != plan.path) {
+				out.append("filter: ").append(condition.description).append('\n');
+			}
+		}
+		if (limit != Long.MAX_VALUE) {
+			out.append("limit: ").append(limit).append('\n');
+		}
+		out.append("parallel: ").append(!parallel ? "no (not requested)"
+				: plan.candidates >= parallelThreshold ? "yes" : "no (fewer than " + parallelThreshold + " candidates)");
+		return out.toString();
+	}
+
+	/** Plans the query, copies the candidates and returns the stream that checks them. */
+	private Stream<Reservation> run() {
+		List<Condition> conditions = conditions();
+		List<Reservation> candidates;
+		Path path;
+		if (hotel != null) {
+			synchronized (hotel) {
+				path = plan().path;
+				candidates = candidates(path);
+			}
+		} else {
+			path = Path.SCAN;
+			candidates = new ArrayList<>(source);
+		}
+		Predicate<Reservation> filter = reservation -> true;
+		for (Condition condition : conditions) {
+			if (condition.servedBy != path) {
+				filter = filter.and(condition.test);
+			}
+		}
+		Stream<Reservation> stream = parallel && candidates.size() >= parallelThreshold
+				? candidates.parallelStream() : candidates.stream();
+		stream = stream.filter(filter);
+		return limit == Long.MAX_VALUE ? stream : stream.limit(limit);
+	}
+
+	/** Conditions of the query, cheapest first. */
+	private List<Condition> conditions() {
+		List<Condition> conditions = new ArrayList<>();
+		if (roomNumber > 0) {
+			int number = roomNumber;
+			conditions.add(new Condition(Path.ROOM_NUMBER, "roomNumber = " + number,
+					reservation -> reservation.getRoom().getRoomNumber() == number));
+		}
+		if (roomType != null) {
+			String type = roomType;
+			conditions.add(new Condition(Path.ROOM_TYPE, "roomType = " + type,
+					reservation -> reservation.getRoom().getType().equals(type)));
+		}
+		if (from != null) {
+			// the date index returns candidates that may end before the range
+			long first = from.toEpochDay();
+			long last = to.toEpochDay();
+			conditions.add(new Condition(null, "overlaps [" + from + ", " + to + ")",
+					reservation -> reservation.getStartDay() < last && first < reservation.getEndDay()));
+		}
+		if (guest != null) {
+			Guest wanted = guest;
+			conditions.add(new Condition(Path.GUEST, "guest = " + wanted.getEmail(),
+					reservation -> reservation.getGuest() == wanted));
+		}
+		if (guestEmail != null) {
+			String email = guestEmail;
+			conditions.add(new Condition(guest == null ? Path.GUEST : null, "guestEmail = " + email,
+					reservation -> reservation.getGuest().getEmail().equalsIgnoreCase(email)));
+		}
+		for (String name : services) {
+			conditions.add(new Condition(null, "hasService " + name, reservation -> hasService(reservation, name)));
+		}
+		if (minPrice != Double.NEGATIVE_INFINITY || maxPrice != Double.POSITIVE_INFINITY) {
+			double min = minPrice;
+			double max = maxPrice;
+			conditions.add(new Condition(null, "total in [" + min + ", " + max + "]", reservation -> {
+				double total = Invoice.computeTotal(reservation);
+				return total >= min && total <= max;
+			}));
+		}
+		return conditions;
+	}
+
+	/** Estimates the candidates of every usable access path and picks the smallest. */
+	private Plan plan() {
+		if (hotel == null) {
+			int size = source.size();
+			return new Plan(Path.SCAN, size, size, "SCAN " + size);
+		}
+		int total = index != null ? index.size() : hotel.reservationCount();
+		Path best = Path.SCAN;
+		int bestCount = total;
+		StringBuilder considered = new StringBuilder();
+		for (Path path : Path.values()) {
+			int count = estimate(path, total);
+			if (count < 0) {
+				continue;
+			}
+			if (considered.length() > 0) {
+				considered.append(", ");
+			}
+			considered.append(path).append(' ').append(count);
+			if (count < bestCount) {
+				best = path;
+				bestCount = count;
+			}
+		}
+		return new Plan(best, bestCount, total, considered.toString());
+	}
+
+	/** Returns the number of candidates of an access path, or -1 if it can't be used. */
+	private int estimate(Path path, int total) {
+		switch (path) {
+		case ROOM_NUMBER:
+			if (roomNumber == 0) {
+				return -1;
+			}
+			Room room = hotel.findRoom(roomNumber);
+			return room == null ? 0 : hotel.reservationsOf(room).size();
+		case ROOM_TYPE:
+			if (roomType == null) {
+				return -1;
+			}
+			int ofType = 0;
+			for (Room typed : roomsOfType()) {
+				ofType += hotel.reservationsOf(typed).size();
+			}
+			return ofType;
+		case GUEST:
+			if (index == null || (guest == null && guestEmail == null)) {
+				return -1;
+			}
+			int ofGuests = 0;
+			for (Guest matching : guests()) {
+				ofGuests += index.ofGuest(matching).size();
+			}
+			return ofGuests;
+		case DATE_RANGE:
+			return index == null || from == null ? -1 : index.countOverlapping(from, to);
+		default:
+			return total;
+		}
+	}
+
+	/** Copies the candidates of an access path. Called with the hotel's lock held. */
+	private List<Reservation> candidates(Path path) {
+		List<Reservation> candidates = new ArrayList<>();
+		switch (path) {
+		case ROOM_NUMBER:
+			Room room = hotel.findRoom(roomNumber);
+			if (room != null) {
+				candidates.addAll(hotel.reservationsOf(room));
+			}
+			break;
+		case ROOM_TYPE:
+			for (Room typed : roomsOfType()) {
+				candidates.addAll(hotel.reservationsOf(typed));
+			}
+			break;
+		case GUEST:
+			for (Guest matching : guests()) {
+				candidates.addAll(index.ofGuest(matching));
+			}
+			break;
+		case DATE_RANGE:
+			index.addOverlapping(from, to, candidates);
+			break;
+		default:
+			candidates = hotel.getReservations();
+		}
+		return candidates;
+	}
+
+	private List<Room> roomsOfType() {
+		List<Room> rooms = new ArrayList<>();
+		for (Room room : hotel.getRooms()) {
+			if (room.getType().equals(roomType)) {
+				rooms.add(room);
+			}
+		}
+		return rooms;
+	}
+
+	/** Guests whose reservations the GUEST path returns. */
+	private List<Guest> guests() {
+		return guest != null ? List.of(guest) : index.guestsWithEmail(guestEmail);
+	}
+
+	private String describe(Path path) {
+		switch (path) {
+		case ROOM_NUMBER:
+			return " " + roomNumber;
+		case ROOM_TYPE:
+			return " " + roomType;
+		case GUEST:
+			return " " + (guest != null ? guest.getEmail() : guestEmail);
+		case DATE_RANGE:
+			return " [" + from + ", " + to + ")";
+		default:
+			return "";
+		}
+	}
+
+	private static boolean hasService(Reservation reservation, String name) {
+		for (Service service : reservation.services()) {
+			if (service.getName().equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
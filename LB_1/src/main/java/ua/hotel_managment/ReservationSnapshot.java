@@ -0,0 +1,57 @@
+package ua.hotel_managment;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Immutable copy of a {@link Reservation}'s fields at some point in time.
+ * Published by {@link SnapshotStore} on every change of the reservation.
+ * The guest and the services are shared with the live model and are not versioned.
+ */
+public final class ReservationSnapshot {
+
+	private final Guest guest;
+	private final int roomNumber;
+	private final LocalDate startDate;
+	private final LocalDate endDate;
+	private final List<Service> services;
+
+	/**
+	 * Copies the current fields of the reservation.
+	 *
+	 * @param reservation the reservation to copy
+	 */
+	ReservationSnapshot(Reservation reservation) {
+		this.guest = reservation.getGuest();
+		this.roomNumber = reservation.getRoom().getRoomNumber();
+		this.startDate = reservation.getStartDate();
+		this.endDate = reservation.getEndDate();
+		this.services = List.copyOf(reservation.services());
+	}
+
+	/** @return the guest of the reservation */
+	public Guest getGuest() { return guest; }
+
+	/** @return number of the reserved room */
+	public int getRoomNumber() { return roomNumber; }
+
+	/** @return the start date */
+	public LocalDate getStartDate() { return startDate; }
+
+	/** @return the end date */
+	public LocalDate getEndDate() { return endDate; }
+
+	/** @return unmodifiable list of services */
+	public List<Service> getServices() { return services; }
+
+	/**
+	 * Returns a string representation of the snapshot.
+	 *
+	 * @return formatted string with the reservation's details
+	 */
+	@Override
+	public String toString() {
+		return "ReservationSnapshot [guest=" + guest + ", roomNumber=" + roomNumber
+				+ ", startDate=" + startDate + ", endDate=" + endDate + ", services=" + services + "]";
+	}
+}
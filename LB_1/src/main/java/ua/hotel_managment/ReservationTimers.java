@@ -0,0 +1,394 @@
+package ua.hotel_managment;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import ua.util.LongObjectMap;
+import ua.util.TimingWheel;
+import ua.util.TimingWheel.Timeout;
+import ua.util.Utils;
+
+/**
+ * Time-driven actions of the reservations of a {@link Hotel}:
+ * <ul>
+ * <li>a new reservation is a hold; unless it is confirmed (an invoice is issued,
+ * or {@link #confirm} is called) within the hold time, 15 minutes by default, it expires;</li>
+ * <li>unless the guest checks in ({@link #checkIn}) by the end of the start date, the
+ * reservation is a no-show;</li>
+ * <li>at noon of the end date the guest checks out.</li>
+ * </ul>
+ * What happens then is decided by {@link Actions}; by default expired holds and
+ * no-shows are cancelled, which frees their rooms.
+ * <p>
+ * The timers live in a {@link TimingWheel} with a tick of one second, so millions
+ * of them cost a few objects each, and scheduling and cancelling are O(1).
+ * Timers follow the reservation: {@link Hotel#updateReservation} moves them when the
+ * dates change, and cancelling the reservation removes them. Expired timers are
+ * handed to the actions in batches.
+ * <p>
+ * Time comes from a {@link Clock}. {@link #start()} checks the timers every second;
+ * with a {@link ua.util.VirtualClock} tests instead move the clock and call
+ * {@link #runDue()}, which processes days of timers at once.
+ * Thread-safe.
+ */
+public class ReservationTimers implements HotelListener, AutoCloseable {
+
+	/** Default time to confirm a new reservation. */
+	public static final Duration DEFAULT_HOLD = Duration.ofMinutes(15);
+
+	/** Time of day when guests check out. */
+	public static final LocalTime CHECK_OUT_TIME = LocalTime.NOON;
+
+	private static final long TICK_MILLIS = 1000;
+
+	/**
+	 * Actions for expired timers. Every method gets a batch of reservations
+	 * and is called without holding the timers' lock.
+	 */
+	public interface Actions {
+
+		/**
+		 * Called for reservations that weren't confirmed in time. Cancels them by default.
+		 *
+		 * @param hotel        the hotel
+		 * @param reservations the expired holds
+		 */
+		default void holdsExpired(Hotel hotel, List<Reservation> reservations) {
+			for (Reservation reservation : reservations) {
+				hotel.cancel(reservation);
+			}
+		}
+
+		/**
+		 * Called for reservations whose guest didn't check in on the start date.
+		 * Cancels them by default.
+		 *
+		 * @param hotel        the hotel
+		 * @param reservations the no-shows
+		 */
+		default void noShows(Hotel hotel, List<Reservation> reservations) {
+			for (Reservation reservation : reservations) {
+				hotel.cancel(reservation);
+			}
+		}
+
+		/**
+		 * Called for reservations that reached the check-out time. Does nothing by default.
+		 *
+		 * @param hotel        the hotel
+		 * @param reservations the reservations to check out
+		 */
+		default void checkOuts(Hotel hotel, List<Reservation> reservations) {
+		}
+	}
+
+	/** Timers of one reservation; a timer is {@code null} once it is no longer needed. */
+	private static final class State {
+		final Reservation reservation;
+		Timeout<State> hold;
+		Timeout<State> noShow;
+		Timeout<State> checkOut;
+
+		State(Reservation reservation) {
+			this.reservation = reservation;
+		}
+	}
+
+	private final Hotel hotel;
+	private final Clock clock;
+	private final Duration hold;
+	private final Actions actions;
+	private final TimingWheel<State> wheel;
+	private final LongObjectMap<State> states = new LongObjectMap<>(); // by reservation id
+
+	private volatile Thread ticker;
+	private volatile RuntimeException failure;
+
+	private ReservationTimers(Hotel hotel, Clock clock, Duration hold, Actions actions) {
+		this.hotel = hotel;
+		this.clock = clock;
+		this.hold = hold;
+		this.actions = actions;
+		this.wheel = new TimingWheel<>(clock.millis() / TICK_MILLIS);
+	}
+
+	/**
+	 * Starts the timers of a hotel with the default hold time and actions.
+	 *
+	 * @param hotel the hotel
+	 * @param clock the time source
+	 * @return the timers, registered as a listener of the hotel
+	 * @throws NullPointerException if an argument is {@code null}
+	 * @see #attach(Hotel, Clock, Duration, Actions)
+	 */
+	public static ReservationTimers attach(Hotel hotel, Clock clock) {
+		return attach(hotel, clock, DEFAULT_HOLD, new Actions() {
+		});
+	}
+
+	/**
+	 * Starts the timers of a hotel. Reservations already booked are treated as
+	 * confirmed: they get only the no-show and check-out timers.
+	 * The timers are processed by {@link #start()} or {@link #runDue()}.
+	 *
+	 * @param hotel   the hotel
+	 * @param clock   the time source
+	 * @param hold    time to confirm a new reservation
+	 * @param actions actions for expired timers
+	 * @return the timers, registered as a listener of the hotel
+	 * @throws NullPointerException     if an argument is {@code null}
+	 * @throws IllegalArgumentException if {@code hold} is negative
+	 */
+	public static ReservationTimers attach(Hotel hotel, Clock clock, Duration hold, Actions actions) {
+		if (!Utils.validateObject(hotel) || !Utils.validateObject(clock) || !Utils.validateObject(hold)
+				|| !Utils.validateObject(actions)) {
+			throw new NullPointerException("Hotel, clock, hold time and actions can't be null.");
+		}
+		if (hold.isNegative()) {
+			throw new IllegalArgumentException("Hold time can't be negative.");
+		}
+		ReservationTimers timers = new ReservationTimers(hotel, clock, hold, actions);
+		synchronized (hotel) {
+			for (Reservation reservation : hotel.getReservations()) {
+				timers.track(reservation, false);
+			}
+			hotel.addListener(timers);
+		}
+		return timers;
+	}
+
+	/**
+	 * Starts a daemon thread that processes due timers every second.
+	 *
+	 * @throws IllegalStateException if the timers were already started
+	 */
+	public synchronized void start() {
+		if (ticker != null) {
+			throw new IllegalStateException("Timers are already started.");
+		}
+		ticker = Utils.startDaemon("reservation-timers", this::tick);
+	}
+
+	/**
+	 * Processes all timers due at the clock's current time, in batches per action.
+	 *
+	 * @return number of expired timers
+	 */
+	public int runDue() {
+		List<Reservation> holds = new ArrayList<>();
+		List<Reservation> noShows = new ArrayList<>();
+		List<Reservation> checkOuts = new ArrayList<>();
+		List<Timeout<State>> expired = new ArrayList<>();
+		synchronized (this) {
+			wheel.advanceTo(clock.millis() / TICK_MILLIS, expired);
+			for (Timeout<State> timeout : expired) {
+				State state = timeout.getValue();
+				if (timeout == state.hold) {
+					state.hold = null;
+					holds.add(state.reservation);
+				} else if (timeout == state.noShow) {
+					state.noShow = null;
+					noShows.add(state.reservation);
+				} else if (timeout == state.checkOut) {
+					state.checkOut = null;
+					checkOuts.add(state.reservation);
+				}
+				if (state.hold == null && state.noShow == null && state.checkOut == null) {
+					untrack(state.reservation);
+				}
+			}
+		}
+		if (!holds.isEmpty()) {
+			actions.holdsExpired(hotel, holds);
+		}
+		if (!noShows.isEmpty()) {
+			actions.noShows(hotel, noShows);
+		}
+		if (!checkOuts.isEmpty()) {
+			actions.checkOuts(hotel, checkOuts);
+		}
+		return expired.size();
+	}
+
+	/**
+	 * Confirms a reservation, e.g. after payment, so its hold doesn't expire.
+	 *
+	 * @param reservation the reservation
+	 * @return {@code true} if the reservation had a pending hold
+	 */
+	public synchronized boolean confirm(Reservation reservation) {
+		State state = reservation == null ? null : states.get(reservation.getId());
+		if (state == null || state.hold == null) {
+			return false;
+		}
+		wheel.cancel(state.hold);
+		state.hold = null;
+		return true;
+	}
+
+	/**
+	 * Records the guest's arrival, so the reservation isn't a no-show.
+	 *
+	 * @param reservation the reservation
+	 * @return {@code true} if the reservation was waiting for the guest
+	 */
+	public synchronized boolean checkIn(Reservation reservation) {
+		State state = reservation == null ? null : states.get(reservation.getId());
+		if (state == null || state.noShow == null) {
+			return false;
+		}
+		wheel.cancel(state.noShow);
+		state.noShow = null;
+		return true;
+	}
+
+	/**
+	 * Returns the number of pending timers.
+	 *
+	 * @return number of timers
+	 */
+	public int getScheduledCount() {
+		return wheel.size();
+	}
+
+	/**
+	 * Returns the last error thrown by an action on the background thread.
+	 *
+	 * @return the error, or {@code null}
+	 */
+	public RuntimeException getFailure() {
+		return failure;
+	}
+
+	/**
+	 * Stops the background thread and stops following the hotel.
+	 * Pending timers are kept but no longer processed.
+	 */
+	@Override
+	public void close() {
+		hotel.removeListener(this);
+		Thread current = ticker;
+		if (current != null) {
+			current.interrupt();
+		}
+	}
+
+	/**
+	 * Starts the hold, no-show and check-out timers of a new reservation.
+	 *
+	 * @param reservation the booked reservation
+	 */
+	@Override
+	public synchronized void reservationBooked(Reservation reservation) {
+		track(reservation, true);
+	}
+
+	/**
+	 * Moves the timers to the reservation's current dates.
+	 *
+	 * @param reservation the changed reservation
+	 */
+	@Override
+	public synchronized void reservationChanged(Reservation reservation) {
+		State state = states.get(reservation.getId());
+		if (state == null) {
+			return;
+		}
+		if (state.noShow != null) {
+			wheel.reschedule(state.noShow, noShowTick(reservation));
+		}
+		if (state.checkOut != null) {
+			wheel.reschedule(state.checkOut, checkOutTick(reservation));
+		}
+	}
+
+	/**
+	 * Removes all timers of the reservation.
+	 *
+	 * @param reservation the cancelled reservation
+	 */
+	@Override
+	public synchronized void reservationCancelled(Reservation reservation) {
+		State state = states.get(reservation.getId());
+		if (state != null) {
+			wheel.cancel(state.hold);
+			wheel.cancel(state.noShow);
+			wheel.cancel(state.checkOut);
+			untrack(reservation);
+		}
+	}
+
+	/**
+	 * Removes the timers of the archived reservation, if any are left.
+	 *
+	 * @param reservation the archived reservation
+	 * @param invoices    its invoices
+	 */
+	@Override
+	public void reservationArchived(Reservation reservation, List<Invoice> invoices) {
+		reservationCancelled(reservation);
+	}
+
+	/**
+	 * Confirms the hold of the invoiced reservation.
+	 *
+	 * @param invoice the added or recalculated invoice
+	 */
+	@Override
+	public void invoiceChanged(Invoice invoice) {
+		confirm(invoice.getReservation());
+	}
+
+	private void track(Reservation reservation, boolean withHold) {
+		if (states.containsKey(reservation.getId())) {
+			return;
+		}
+		State state = new State(reservation);
+		if (withHold) {
+			state.hold = wheel.schedule(state, toTick(clock.millis() + hold.toMillis()));
+		}
+		state.noShow = wheel.schedule(state, noShowTick(reservation));
+		state.checkOut = wheel.schedule(state, checkOutTick(reservation));
+		states.put(reservation.getId(), state);
+	}
+
+	private void untrack(Reservation reservation) {
+		states.remove(reservation.getId());
+	}
+
+	/** The guest must arrive by the end of the start date. */
+	private long noShowTick(Reservation reservation) {
+		LocalDate next = reservation.getStartDate().plusDays(1);
+		return toTick(next.atStartOfDay(clock.getZone()).toInstant().toEpochMilli());
+	}
+
+	private long checkOutTick(Reservation reservation) {
+		return toTick(reservation.getEndDate().atTime(CHECK_OUT_TIME).atZone(clock.getZone()).toInstant().toEpochMilli());
+	}
+
+	/** Rounds up, so a timer never fires before its time. */
+	private static long toTick(long millis) {
+		return (millis + TICK_MILLIS - 1) / TICK_MILLIS;
+	}
+
+	/** Body of the background thread. */
+	private void tick() {
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				runDue();
+			} catch (RuntimeException e) {
+				// keep the other timers running
+				failure = e;
+			}
+			try {
+				Thread.sleep(TICK_MILLIS);
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+}
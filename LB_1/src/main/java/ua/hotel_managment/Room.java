@@ -1,19 +1,61 @@
 package ua.hotel_managment;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
 import java.util.Objects;
 
-import ua.util.Utils;
+import ua.util.FieldRule;
+import ua.util.FieldWriter;
+import ua.util.FieldFormattable;
+import ua.util.IdGenerator;
+import ua.util.StringDictionary;
 
 /**
  * Represents a hotel room with details such as room number, type of room, capacity and price.
  * Provides validation for input data through setters.
  */
-public class Room {
+public class Room implements Serializable, FieldFormattable {
+	
+	private static final long serialVersionUID = 1L;
+
+	/** Serialized form of the original fields. */
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("roomNumber", int.class),
+			new ObjectStreamField("type", String.class),
+			new ObjectStreamField("capacity", int.class),
+			new ObjectStreamField("price", double.class),
+			new ObjectStreamField("modCount", int.class) };
+
+	/**
+	 * Room types; a hotel has a handful of them, so rooms share one instance of each.
+	 * The dictionary is bounded, so a stream of distinct types can't grow it forever:
+	 * types past the bound are kept by their rooms as plain strings.
+	 */
+	private static final StringDictionary TYPES = new StringDictionary(4096);
+
+	private static final FieldRule ROOM_NUMBER = FieldRule.of(Room.class, "roomNumber", int.class, MethodHandles.lookup())
+			.positive(IllegalArgumentException.class, "Room number must be positive.")
+			.compile();
+	private static final FieldRule TYPE = FieldRule.of(Room.class, "type", String.class, MethodHandles.lookup())
+			.notBlank(NullPointerException.class, "Type must be not empty.")
+			.compile();
+	private static final FieldRule CAPACITY = FieldRule.of(Room.class, "capacity", int.class, MethodHandles.lookup())
+			.positive(IllegalArgumentException.class, "Capacity must be positive number")
+			.compile();
+	private static final FieldRule PRICE = FieldRule.of(Room.class, "price", double.class, MethodHandles.lookup())
+			.positive(IllegalArgumentException.class, "Price must be positive number.")
+			.compile();
 	
 	private int roomNumber;
-	private String type;
+	private String type; // the instance from TYPES, if it has room
 	private int capacity; // maximal count of people in the room
 	private double price;
+	private int modCount; // incremented by every setter, see InvoiceTotalCache
+	private transient int id = IdGenerator.shared().next();
 	
 	
 	/**
@@ -51,6 +93,17 @@ public class Room {
 		return new Room(roomNumber, type, capacity, price);
 	}
 
+	/**
+	 * Returns the id of the room: unique in this process and, unlike
+	 * {@link #hashCode()}, not changed by the setters, so it can key maps.
+	 * A deserialized copy gets a new id.
+	 *
+	 * @return the id
+	 */
+	public long getId() {
+		return id;
+	}
+
 	/**
 	 * Returns number of the room.
 	 * 
@@ -67,10 +120,11 @@ public class Room {
 	 * @throws IllegalArgumentException if the room's number is not positive.
 	 */
 	public void setRoomNumber(int roomNumber) {
-		if(!Utils.validatePositiveNumber(roomNumber)) {
-			throw new IllegalArgumentException("Room number must be positive.");
-		}
+		ROOM_NUMBER.check(this, roomNumber);
+		int old = this.roomNumber;
 		this.roomNumber = roomNumber;
+		modCount++;
+		AuditTrail.changed(this, AuditTrail.Field.ROOM_NUMBER, old, roomNumber);
 	}
 	
 	/**
@@ -89,10 +143,11 @@ public class Room {
 	 * @throws NullPointerException if the room's type is empty.
 	 */
 	public void setType(String type) {
-		if(!Utils.validateObject(type) || !Utils.validateString(type)) {
-			throw new NullPointerException("Type must be not empty.");
-		}
-		this.type = type;
+		TYPE.check(this, type);
+		String old = this.type;
+		this.type = TYPES.intern(type);
+		modCount++;
+		AuditTrail.changed(this, AuditTrail.Field.ROOM_TYPE, old, type);
 	}
 	
 	/**
@@ -111,10 +166,11 @@ public class Room {
 	 * @throws IllegalArgumentException if the room's capacity is not positive.
 	 */
 	public void setCapacity(int capacity) {
-		if(!Utils.validatePositiveNumber(capacity)) {
-			throw new IllegalArgumentException("Capacity must be positive number");
-		}
+		CAPACITY.check(this, capacity);
+		int old = this.capacity;
 		this.capacity = capacity;
+		modCount++;
+		AuditTrail.changed(this, AuditTrail.Field.ROOM_CAPACITY, old, capacity);
 	}
 	
 	/**
@@ -133,10 +189,22 @@ public class Room {
 	 * @throws IllegalArgumentException if the room's price is not positive.
 	 */
 	public void setPrice(double price) {
-		if(!Utils.validatePositiveNumber(price)) {
-			throw new IllegalArgumentException("Price must be positive number.");
-		}
+		PRICE.check(this, price);
+		double old = this.price;
 		this.price = price;
+		modCount++;
+		AuditTrail.changed(this, AuditTrail.Field.ROOM_PRICE, Double.doubleToRawLongBits(old),
+				Double.doubleToRawLongBits(price));
+	}
+
+	/**
+	 * Returns the number of changes made through the setters.
+	 * Used to detect that cached values computed from this room are stale.
+	 *
+	 * @return modification count
+	 */
+	int getModCount() {
+		return modCount;
 	}
 
 	/**
@@ -147,7 +215,7 @@ public class Room {
 	 */
 	@Override
 	public int hashCode() {
-		return Objects.hash(capacity, price, roomNumber, type);
+		return Objects.hash(capacity, price, roomNumber, getType());
 	}
 
 	/**
@@ -170,7 +238,22 @@ public class Room {
 		}
 		Room other = (Room) obj;
 		return capacity == other.capacity && Double.doubleToLongBits(price) == Double.doubleToLongBits(other.price)
-				&& roomNumber == other.roomNumber && Objects.equals(type, other.type);
+				&& roomNumber == other.roomNumber && type.equals(other.type);
+	}
+
+	/**
+	 * Writes the room's fields into the writer without building intermediate strings.
+	 *
+	 * @param out the writer
+	 */
+	@Override
+	public void formatTo(FieldWriter out) {
+		out.begin("Room");
+		out.field("roomNumber", roomNumber);
+		out.field("type", getType());
+		out.field("capacity", capacity);
+		out.field("price", price);
+		out.end();
 	}
 
 	/**
@@ -181,9 +264,40 @@ public class Room {
 	 */
 	@Override
 	public String toString() {
-		return "Room [roomNumber=" + roomNumber + ", type=" + type + ", capacity=" + capacity + ", price=" + price
+		return "Room [roomNumber=" + roomNumber + ", type=" + getType() + ", capacity=" + capacity + ", price=" + price
 				+ "]";
 	}
-	
-	
+
+	/**
+	 * Writes the room in its original serialized form.
+	 *
+	 * @param out the stream
+	 * @throws IOException if the stream fails
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("roomNumber", roomNumber);
+		fields.put("type", type);
+		fields.put("capacity", capacity);
+		fields.put("price", price);
+		fields.put("modCount", modCount);
+		out.writeFields();
+	}
+
+	/**
+	 * Reads a room written by {@link #writeObject} and shares its type through the dictionary.
+	 *
+	 * @param in the stream
+	 * @throws IOException            if the stream fails
+	 * @throws ClassNotFoundException never, the fields are primitives and strings
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		roomNumber = fields.get("roomNumber", 0);
+		type = TYPES.intern((String) fields.get("type", null));
+		capacity = fields.get("capacity", 0);
+		price = fields.get("price", 0.0);
+		modCount = fields.get("modCount", 0);
+		id = IdGenerator.shared().next();
+	}
 }
@@ -0,0 +1,48 @@
+package ua.hotel_managment;
+
+/**
+ * Immutable copy of a {@link Room}'s fields at some point in time.
+ * Published by {@link SnapshotStore} on every change of the room.
+ */
+public final class RoomSnapshot {
+
+	private final int roomNumber;
+	private final String type;
+	private final int capacity;
+	private final double price;
+
+	/**
+	 * Copies the current fields of the room.
+	 *
+	 * @param room the room to copy
+	 */
+	RoomSnapshot(Room room) {
+		this.roomNumber = room.getRoomNumber();
+		this.type = room.getType();
+		this.capacity = room.getCapacity();
+		this.price = room.getPrice();
+	}
+
+	/** @return room's number */
+	public int getRoomNumber() { return roomNumber; }
+
+	/** @return room's type */
+	public String getType() { return type; }
+
+	/** @return room's capacity */
+	public int getCapacity() { return capacity; }
+
+	/** @return room's price */
+	public double getPrice() { return price; }
+
+	/**
+	 * Returns a string representation of the snapshot.
+	 *
+	 * @return formatted string with the room's details
+	 */
+	@Override
+	public String toString() {
+		return "RoomSnapshot [roomNumber=" + roomNumber + ", type=" + type + ", capacity=" + capacity
+				+ ", price=" + price + "]";
+	}
+}
@@ -1,14 +1,27 @@
 package ua.hotel_managment;
 
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
 import java.util.Objects;
-import ua.util.Utils;
+import ua.util.FieldRule;
+import ua.util.FieldWriter;
+import ua.util.FieldFormattable;
 
 /**
  * Represents an additional service in the hotel,
  * such as cleaning, breakfast, or spa access.
  * Each service has a name and a price.
  */
-public class Service {
+public class Service implements Serializable, FieldFormattable {
+	
+	private static final long serialVersionUID = 1L;
+
+	private static final FieldRule NAME = FieldRule.of(Service.class, "name", String.class, MethodHandles.lookup())
+			.notBlank(NullPointerException.class, "Name cannot be empty")
+			.compile();
+	private static final FieldRule PRICE = FieldRule.of(Service.class, "price", int.class, MethodHandles.lookup())
+			.nonNegative(IllegalArgumentException.class, "Price can't be negative")
+			.compile();
 	
     /** Name of the service (e.g., "Breakfast", "Cleaning") */
 	private String name;
@@ -62,10 +75,10 @@ public class Service {
 	 * @throws NullPointerException if the name is null, empty, or whitespace
 	 */
 	public void setName(String name) {
-		if (!Utils.validateObject(name) || !Utils.validateString(name)) {
-			throw new NullPointerException("Name cannot be empty");
-		}
+		NAME.check(this, name);
+		String old = this.name;
 		this.name = name;
+		AuditTrail.changed(this, AuditTrail.Field.SERVICE_NAME, old, name);
 	}
 
 	/**
@@ -84,10 +97,10 @@ public class Service {
 	 * @throws IllegalArgumentException if the price is negative
 	 */
 	public void setPrice(int price) {
-		if (Utils.validateNegativeNumber(price)) {
-			throw new IllegalArgumentException("Price can't be negative");
-		}
+		PRICE.check(this, price);
+		int old = this.price;
 		this.price = price;
+		AuditTrail.changed(this, AuditTrail.Field.SERVICE_PRICE, old, price);
 	}
 
 	/**
@@ -120,6 +133,19 @@ public class Service {
 		return Objects.equals(name, other.name) && price == other.price;
 	}
 
+	/**
+	 * Writes the service's fields into the writer without building intermediate strings.
+	 *
+	 * @param out the writer
+	 */
+	@Override
+	public void formatTo(FieldWriter out) {
+		out.begin("Service");
+		out.field("name", name);
+		out.field("price", price);
+		out.end();
+	}
+
 	/**
 	 * Returns a string representation of the service object,
 	 * including its name and price.
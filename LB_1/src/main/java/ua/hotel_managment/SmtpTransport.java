@@ -0,0 +1,125 @@
+package ua.hotel_managment;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import ua.util.Utils;
+
+/**
+ * Sends guest notifications as plain-text emails to an SMTP server, e.g. the
+ * hotel's relay or a {@link LocalSmtpServer}. Every batch is sent over one
+ * connection, so the handshake is paid once per batch instead of once per message.
+ * Thread-safe: every call opens its own connection.
+ */
+public class SmtpTransport implements NotificationTransport {
+
+	/** Timeout of connecting and of every reply. */
+	static final int TIMEOUT_MILLIS = 10_000;
+
+	private final InetSocketAddress server;
+	private final String sender;
+
+	/**
+	 * Constructs a transport.
+	 *
+	 * @param server the SMTP server
+	 * @param sender the address the messages are sent from
+	 * @throws NullPointerException if an argument is {@code null}
+	 */
+	public SmtpTransport(InetSocketAddress server, String sender) {
+		if (!Utils.validateObject(server) || !Utils.validateObject(sender)) {
+			throw new NullPointerException("Server and sender can't be null.");
+		}
+		this.server = server;
+		this.sender = sender;
+	}
+
+	/**
+	 * Factory method for creating an {@code SmtpTransport}.
+	 *
+	 * @param server the SMTP server
+	 * @param sender the address the messages are sent from
+	 * @return a new {@code SmtpTransport} instance
+	 */
+	public static SmtpTransport create(InetSocketAddress server, String sender) {
+		return new SmtpTransport(server, sender);
+	}
+
+	/**
+	 * Sends the notifications in one SMTP session.
+	 *
+	 * @param batch the notifications
+	 * @throws IOException if the server can't be reached or rejects a message
+	 */
+	@Override
+	public void send(List<GuestNotification> batch) throws IOException {
+		try (Socket socket = new Socket()) {
+			socket.connect(server, TIMEOUT_MILLIS);
+			socket.setSoTimeout(TIMEOUT_MILLIS);
+			BufferedReader in = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+			expect(in, 220);
+			command(in, out, "HELO localhost", 250);
+			for (GuestNotification notification : batch) {
+				command(in, out, "MAIL FROM:<" + header(sender) + ">", 250);
+				command(in, out, "RCPT TO:<" + header(notification.getRecipient()) + ">", 250);
+				command(in, out, "DATA", 354);
+				out.write("From: " + header(sender) + "\r\n");
+				out.write("To: " + header(notification.getRecipient()) + "\r\n");
+				out.write("Subject: " + header(notification.getSubject()) + "\r\n\r\n");
+				for (String line : notification.getBody().split("\n")) {
+					// a line starting with a dot is sent with one more, so it can't end the data
+					out.write(line.startsWith(".") ? "." + line : line);
+					out.write("\r\n");
+				}
+				command(in, out, ".", 250);
+			}
+			command(in, out, "QUIT", 221);
+		}
+	}
+
+	private static void command(BufferedReader in, Writer out, String command, int expected) throws IOException {
+		out.write(command);
+		out.write("\r\n");
+		out.flush();
+		expect(in, expected);
+	}
+
+	/** Reads a reply, which may span several lines ({@code 250-...}), and checks its code. */
+	private static void expect(BufferedReader in, int expected) throws IOException {
+		String line;
+		do {
+			line = in.readLine();
+			if (line == null) {
+				throw new IOException("SMTP server closed the connection.");
+			}
+		} while (line.length() > 3 && line.charAt(3) == '-');
+		if (!line.startsWith(Integer.toString(expected))) {
+			throw new IOException("SMTP server replied: " + line);
+		}
+	}
+
+	/** Removes line breaks, so a value can't add headers or commands. */
+	private static String header(String value) {
+		return value.replace('\r', ' ').replace('\n', ' ');
+	}
+
+	/**
+	 * Returns a string representation of the transport.
+	 *
+	 * @return server and sender
+	 */
+	@Override
+	public String toString() {
+		return "SmtpTransport [server=" + server + ", sender=" + sender + "]";
+	}
+}
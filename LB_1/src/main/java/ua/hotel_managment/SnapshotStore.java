@@ -0,0 +1,501 @@
+package ua.hotel_managment;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import ua.util.Utils;
+
+/**
+ * Multi-version store of rooms and reservations.
+ * <p>
+ * Writers change rooms and reservations through the store (for example
+ * {@link #setPrice(Room, double)} or {@link #addService(Reservation, Service)}).
+ * Every change is applied to the live object and published as a new immutable
+ * {@link RoomSnapshot} or {@link ReservationSnapshot} with the next version number.
+ * Writers are serialized by the store's lock.
+ * <p>
+ * Readers call {@link #open()} and get a {@link Snapshot} that sees the state
+ * of one committed version. Reading takes no locks and never waits for writers.
+ * Old versions are unlinked when a key is written again, or by {@link #reclaim()},
+ * once no open snapshot can see them; the garbage collector frees them afterwards.
+ */
+public class SnapshotStore implements HotelListener {
+
+	/** One version of a value; {@code value == null} marks a deleted key. */
+	private static final class Version<V> {
+		final long version;
+		final V value;
+		volatile Version<V> older;
+
+		Version(long version, V value, Version<V> older) {
+			this.version = version;
+			this.value = value;
+			this.older = older;
+		}
+	}
+
+	/** Newest version of every room, keyed by the store's internal id. */
+	private final Map<Long, Version<RoomSnapshot>> rooms = new ConcurrentHashMap<>();
+
+	/** Newest version of every reservation, keyed by the store's internal id. */
+	private final Map<Long, Version<ReservationSnapshot>> reservations = new ConcurrentHashMap<>();
+
+	/** Snapshots that are currently open. */
+	private final Set<Snapshot> active = ConcurrentHashMap.newKeySet();
+
+	/** Internal ids of live objects; guarded by the store's lock. */
+	private final Map<Object, Long> ids = new IdentityHashMap<>();
+	private long nextId;
+
+	/** The newest version visible to new snapshots. */
+	private volatile long committed;
+
+	/**
+	 * Constructs an empty store. Use {@link #attach(Hotel)} to follow a hotel.
+	 */
+	public SnapshotStore() {
+	}
+
+	/**
+	 * Creates a store holding the current rooms and reservations of the hotel
+	 * and keeps it up to date with later bookings, changes and cancellations.
+	 *
+	 * @param hotel the hotel to follow
+	 * @return store registered as a listener of the hotel
+	 * @throws NullPointerException if {@code hotel} is {@code null}
+	 */
+	public static SnapshotStore attach(Hotel hotel) {
+		if (!Utils.validateObject(hotel)) {
+			throw new NullPointerException("Hotel can't be null.");
+		}
+		SnapshotStore store = new SnapshotStore();
+		synchronized (hotel) {
+			for (Room room : hotel.getRooms()) {
+				store.roomAdded(room);
+			}
+			for (Reservation reservation : hotel.getReservations()) {
+				store.reservationBooked(reservation);
+			}
+			hotel.addListener(store);
+		}
+		return store;
+	}
+
+	/**
+	 * Publishes the first version of the room.
+	 *
+	 * @param room the added room
+	 */
+	@Override
+	public synchronized void roomAdded(Room room) {
+		publish(rooms, room, new RoomSnapshot(room));
+	}
+
+	/**
+	 * Publishes the first version of the reservation.
+	 *
+	 * @param reservation the booked reservation
+	 */
+	@Override
+	public synchronized void reservationBooked(Reservation reservation) {
+		publish(reservations, reservation, new ReservationSnapshot(reservation));
+	}
+
+	/**
+	 * Publishes the new version of a room changed through the hotel, and new
+	 * versions of its reservations if its number changed.
+	 *
+	 * @param room the changed room
+	 */
+	@Override
+	public synchronized void roomChanged(Room room) {
+		Long id = ids.get(room);
+		if (id == null) {
+			return;
+		}
+		int previousNumber = rooms.get(id).value.getRoomNumber();
+		publish(rooms, room, new RoomSnapshot(room));
+		if (room.getRoomNumber() != previousNumber) {
+			List<Reservation> moved = new ArrayList<>();
+			for (Object object : ids.keySet()) {
+				if (object instanceof Reservation && ((Reservation) object).getRoom() == room) {
+					moved.add((Reservation) object);
+				}
+			}
+			for (Reservation reservation : moved) {
+				publish(reservations, reservation, new ReservationSnapshot(reservation));
+			}
+		}
+	}
+
+	/**
+	 * Publishes the new version of a reservation changed through the hotel.
+	 *
+	 * @param reservation the changed reservation
+	 */
+	@Override
+	public synchronized void reservationChanged(Reservation reservation) {
+		if (ids.containsKey(reservation)) {
+			publish(reservations, reservation, new ReservationSnapshot(reservation));
+		}
+	}
+
+	/**
+	 * Publishes the deletion of the reservation.
+	 *
+	 * @param reservation the cancelled reservation
+	 */
+	@Override
+	public synchronized void reservationCancelled(Reservation reservation) {
+		if (ids.containsKey(reservation)) {
+			publish(reservations, reservation, null);
+			ids.remove(reservation);
+		}
+	}
+
+	/**
+	 * Publishes the deletion of the reservation, which left the hotel for its archive.
+	 *
+	 * @param reservation the archived reservation
+	 * @param invoices    its invoices
+	 */
+	@Override
+	public void reservationArchived(Reservation reservation, List<Invoice> invoices) {
+		reservationCancelled(reservation);
+	}
+
+	/**
+	 * Changes the room and publishes its new version.
+	 *
+	 * @param room   the room of this store
+	 * @param change the change applied to the live room
+	 * @throws IllegalArgumentException if the room isn't in this store
+	 */
+	public synchronized void update(Room room, Consumer<Room> change) {
+		requireKnown(room);
+		change.accept(room);
+		publish(rooms, room, new RoomSnapshot(room));
+	}
+
+	/**
+	 * Changes the reservation and publishes its new version.
+	 *
+	 * @param reservation the reservation of this store
+	 * @param change      the change applied to the live reservation
+	 * @throws IllegalArgumentException if the reservation isn't in this store
+	 */
+	public synchronized void update(Reservation reservation, Consumer<Reservation> change) {
+		requireKnown(reservation);
+		change.accept(reservation);
+		publish(reservations, reservation, new ReservationSnapshot(reservation));
+	}
+
+	/**
+	 * Sets the room's price and publishes its new version.
+	 *
+	 * @param room  the room of this store
+	 * @param price the new price
+	 * @throws IllegalArgumentException if the price is invalid or the room isn't in this store
+	 */
+	public void setPrice(Room room, double price) {
+		update(room, r -> r.setPrice(price));
+	}
+
+	/**
+	 * Sets the reservation's start date and publishes its new version.
+	 *
+	 * @param reservation the reservation of this store
+	 * @param startDate   the new start date
+	 * @throws IllegalArgumentException if the date is invalid or the reservation isn't in this store
+	 */
+	public void setStartDate(Reservation reservation, LocalDate startDate) {
+		update(reservation, r -> r.setStartDate(startDate));
+	}
+
+	/**
+	 * Sets the reservation's end date and publishes its new version.
+	 *
+	 * @param reservation the reservation of this store
+	 * @param endDate     the new end date
+	 * @throws IllegalArgumentException if the date is invalid or the reservation isn't in this store
+	 */
+	public void setEndDate(Reservation reservation, LocalDate endDate) {
+		update(reservation, r -> r.setEndDate(endDate));
+	}
+
+	/**
+	 * Adds a service to the reservation and publishes its new version.
+	 *
+	 * @param reservation the reservation of this store
+	 * @param service     the service to add
+	 * @throws IllegalArgumentException if the reservation isn't in this store
+	 */
+	public void addService(Reservation reservation, Service service) {
+		update(reservation, r -> r.addService(service));
+	}
+
+	/**
+	 * Opens a snapshot of the newest committed version. Doesn't block.
+	 * The snapshot must be closed so its versions can be reclaimed.
+	 *
+	 * @return an open snapshot
+	 */
+	public Snapshot open() {
+		while (true) {
+			long version = committed;
+			Snapshot snapshot = new Snapshot(version);
+			active.add(snapshot);
+			// a writer that read 'committed' before our registration
+			// may have reclaimed above 'version'; register again
+			if (committed == version) {
+				return snapshot;
+			}
+			active.remove(snapshot);
+		}
+	}
+
+	/**
+	 * Returns the newest committed version.
+	 *
+	 * @return version number
+	 */
+	public long getCommittedVersion() {
+		return committed;
+	}
+
+	/**
+	 * Returns the number of currently open snapshots.
+	 *
+	 * @return number of open snapshots
+	 */
+	public int getOpenSnapshots() {
+		return active.size();
+	}
+
+	/**
+	 * Unlinks all versions that no open snapshot can see.
+	 *
+	 * @return number of unlinked versions
+	 */
+	public synchronized int reclaim() {
+		long horizon = horizon();
+		int reclaimed = 0;
+		reclaimed += reclaimAll(rooms, horizon);
+		reclaimed += reclaimAll(reservations, horizon);
+		return reclaimed;
+	}
+
+	/**
+	 * Publishes a new version of the object's value. Must hold the store's lock.
+	 *
+	 * @param chains the chains of the object's kind
+	 * @param object the live object
+	 * @param value  the new value, or {@code null} to delete
+	 */
+	private <V> void publish(Map<Long, Version<V>> chains, Object object, V value) {
+		Long id = ids.get(object);
+		if (id == null) {
+			id = nextId++;
+			ids.put(object, id);
+		}
+		long version = committed + 1;
+		Version<V> newest = new Version<>(version, value, chains.get(id));
+		chains.put(id, newest);
+		committed = version;
+		reclaim(newest, horizon());
+	}
+
+	/**
+	 * Returns the oldest version any open or opening snapshot can see.
+	 *
+	 * @return the reclaim horizon
+	 */
+	private long horizon() {
+		long horizon = committed;
+		for (Snapshot snapshot : active) {
+			horizon = Math.min(horizon, snapshot.version);
+		}
+		return horizon;
+	}
+
+	/**
+	 * Unlinks the versions of one chain that are older than the newest
+	 * version visible at the horizon.
+	 *
+	 * @param newest  head of the chain
+	 * @param horizon the reclaim horizon
+	 * @return number of unlinked versions
+	 */
+	private static <V> int reclaim(Version<V> newest, long horizon) {
+		Version<V> node = newest;
+		while (node != null && node.version > horizon) {
+			node = node.older;
+		}
+		if (node == null) {
+			return 0;
+		}
+		int count = 0;
+		for (Version<V> old = node.older; old != null; old = old.older) {
+			count++;
+		}
+		node.older = null;
+		return count;
+	}
+
+	/**
+	 * Reclaims every chain and removes deleted keys no snapshot can see.
+	 *
+	 * @param chains  the chains of one kind
+	 * @param horizon the reclaim horizon
+	 * @return number of unlinked versions
+	 */
+	private static <V> int reclaimAll(Map<Long, Version<V>> chains, long horizon) {
+		int count = 0;
+		Iterator<Version<V>> iterator = chains.values().iterator();
+		while (iterator.hasNext()) {
+			Version<V> newest = iterator.next();
+			count += reclaim(newest, horizon);
+			if (newest.value == null && newest.version <= horizon) {
+				iterator.remove();
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Checks that the object was published to this store. Must hold the store's lock.
+	 *
+	 * @param object the live object
+	 * @throws IllegalArgumentException if the object isn't in this store
+	 */
+	private void requireKnown(Object object) {
+		if (!Utils.validateObject(object) || !ids.containsKey(object)) {
+			throw new IllegalArgumentException("Object doesn't belong to this store.");
+		}
+	}
+
+	/**
+	 * Returns the value visible at the given version.
+	 *
+	 * @param newest  head of the chain
+	 * @param version the snapshot's version
+	 * @return the value, or {@code null} if the key didn't exist or was deleted
+	 */
+	private static <V> V visible(Version<V> newest, long version) {
+		for (Version<V> node = newest; node != null; node = node.older) {
+			if (node.version <= version) {
+				return node.value;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Point-in-time view of the store. Reads are lock-free and always
+	 * return the same data, whatever writers do meanwhile.
+	 */
+	public final class Snapshot implements AutoCloseable {
+
+		private final long version;
+
+		/**
+		 * Constructs a snapshot of the given version. Used by {@link SnapshotStore#open()}.
+		 *
+		 * @param version the committed version
+		 */
+		private Snapshot(long version) {
+			this.version = version;
+		}
+
+		/**
+		 * Returns the version this snapshot sees.
+		 *
+		 * @return version number
+		 */
+		public long getVersion() {
+			return version;
+		}
+
+		/**
+		 * Returns all rooms as of this snapshot.
+		 *
+		 * @return a list of room snapshots
+		 */
+		public List<RoomSnapshot> getRooms() {
+			return collect(rooms);
+		}
+
+		/**
+		 * Returns the room with the given number as of this snapshot.
+		 *
+		 * @param roomNumber the room's number
+		 * @return the room snapshot, or {@code null} if there is no such room
+		 */
+		public RoomSnapshot getRoom(int roomNumber) {
+			for (RoomSnapshot room : getRooms()) {
+				if (room.getRoomNumber() == roomNumber) {
+					return room;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Returns all reservations as of this snapshot.
+		 *
+		 * @return a list of reservation snapshots
+		 */
+		public List<ReservationSnapshot> getReservations() {
+			return collect(reservations);
+		}
+
+		/**
+		 * Returns the reservations of one room as of this snapshot.
+		 *
+		 * @param roomNumber the room's number
+		 * @return a list of reservation snapshots
+		 */
+		public List<ReservationSnapshot> getReservations(int roomNumber) {
+			List<ReservationSnapshot> result = new ArrayList<>();
+			for (ReservationSnapshot reservation : getReservations()) {
+				if (reservation.getRoomNumber() == roomNumber) {
+					result.add(reservation);
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * Closes the snapshot so that its versions can be reclaimed.
+		 */
+		@Override
+		public void close() {
+			active.remove(this);
+		}
+
+		/**
+		 * Collects the values of all chains visible at this snapshot's version.
+		 *
+		 * @param chains the chains of one kind
+		 * @return the visible values
+		 */
+		private <V> List<V> collect(Map<Long, Version<V>> chains) {
+			List<V> result = new ArrayList<>();
+			for (Version<V> newest : chains.values()) {
+				V value = visible(newest, version);
+				if (value != null) {
+					result.add(value);
+				}
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package ua.hotel_managment;
+
+import java.time.LocalDate;
+
+/**
+ * One result of a {@link FlexibleDateSearch}: a free room for a window
+ * of consecutive nights and the price of the whole stay.
+ */
+public class StayOption {
+
+	private final Room room;
+	private final LocalDate startDate;
+	private final LocalDate endDate;
+	private final double totalPrice;
+
+	/**
+	 * Constructs a new {@code StayOption}. Used by {@link FlexibleDateSearch}.
+	 *
+	 * @param room       the free room
+	 * @param startDate  the first night
+	 * @param endDate    the check-out date
+	 * @param totalPrice price of all nights
+	 */
+	StayOption(Room room, LocalDate startDate, LocalDate endDate, double totalPrice) {
+		this.room = room;
+		this.startDate = startDate;
+		this.endDate = endDate;
+		this.totalPrice = totalPrice;
+	}
+
+	/** @return the free room */
+	public Room getRoom() { return room; }
+
+	/** @return the first night of the stay */
+	public LocalDate getStartDate() { return startDate; }
+
+	/** @return the check-out date */
+	public LocalDate getEndDate() { return endDate; }
+
+	/** @return price of all nights of the stay */
+	public double getTotalPrice() { return totalPrice; }
+
+	/**
+	 * Creates a reservation for this option. It still has to be booked
+	 * with {@link Hotel#book(Reservation)}, which fails if the room was taken meanwhile.
+	 *
+	 * @param guest the guest
+	 * @return a new reservation
+	 * @throws NullPointerException     if {@code guest} is {@code null}
+	 * @throws IllegalArgumentException if the start date is already in the past
+	 */
+	public Reservation toReservation(Guest guest) {
+		return Reservation.create(guest, room, startDate, endDate);
+	}
+
+	/**
+	 * Returns a string representation of the option.
+	 *
+	 * @return formatted string with option details
+	 */
+	@Override
+	public String toString() {
+		return "StayOption [room=" + room.getRoomNumber() + ", startDate=" + startDate
+				+ ", endDate=" + endDate + ", totalPrice=" + totalPrice + "]";
+	}
+}
@@ -0,0 +1,194 @@
+package ua.util;
+
+import java.io.Serializable;
+
+/**
+ * Count-Min sketch: estimates how often each string was added in a fixed table
+ * of {@code width * depth} counters, however many distinct strings there are.
+ * <p>
+ * Every row maps a string to one counter by its own hash, and the estimate is the
+ * smallest of the string's counters. Collisions only add to a counter, so the
+ * estimate is never below the true count and, with probability
+ * {@code 1 - 2^-depth}, exceeds it by at most {@code e / width} of the total.
+ * Additions use the conservative update, which raises only the counters below the
+ * new estimate and keeps the overestimate of frequent strings smaller still.
+ * <p>
+ * Two sketches of the same dimensions are merged by summing their counters, which
+ * stays an upper bound of the combined counts, so shards or days can be counted
+ * separately and combined. Not thread-safe.
+ */
+public class CountMinSketch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int width;
+    private final int depth;
+    private final long[] counters; // row after row
+    private long total;
+
+    /**
+     * Constructs an empty sketch.
+     *
+     * @param width number of counters per row, rounded up to a power of two
+     * @param depth number of rows
+     * @throws IllegalArgumentException if a dimension is not positive or the table is too large
+     */
+    public CountMinSketch(int width, int depth) {
+        if (!Utils.validatePositiveNumber(width) || !Utils.validatePositiveNumber(depth)) {
+            throw new IllegalArgumentException("Width and depth must be positive.");
+        }
+        if (width > 1 << 30 || (long) Integer.highestOneBit(width) * 2 * depth > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Sketch of " + width + " x " + depth + " counters is too large.");
+        }
+        this.width = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+        this.depth = depth;
+        this.counters = new long[this.width * depth];
+    }
+
+    /**
+     * Adds one occurrence of a string.
+     *
+     * @param item the string
+     * @return the new estimate of the string
+     * @throws NullPointerException if {@code item} is {@code null}
+     */
+    public long add(CharSequence item) {
+        return add(item, 1);
+    }
+
+    /**
+     * Adds occurrences of a string.
+     *
+     * @param item  the string
+     * @param count number of occurrences
+     * @return the new estimate of the string
+     * @throws NullPointerException     if {@code item} is {@code null}
+     * @throws IllegalArgumentException if {@code count} is negative
+     */
+    public long add(CharSequence item, long count) {
+        if (!Utils.validateObject(item)) {
+            throw new NullPointerException("Item can't be null.");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("Count can't be negative.");
+        }
+        long hash = Hashing.hash(item);
+        long estimate = estimate(hash) + count;
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        int mask = width - 1;
+        for (int row = 0; row < depth; row++) {
+            int cell = row * width + ((h1 + row * h2) & mask);
+            if (counters[cell] < estimate) {
+                counters[cell] = estimate;
+            }
+        }
+        total += count;
+        return estimate;
+    }
+
+    /**
+     * Returns the estimated number of occurrences of a string, never less than the true one.
+     *
+     * @param item the string
+     * @return the estimate
+     * @throws NullPointerException if {@code item} is {@code null}
+     */
+    public long estimate(CharSequence item) {
+        if (!Utils.validateObject(item)) {
+            throw new NullPointerException("Item can't be null.");
+        }
+        return estimate(Hashing.hash(item));
+    }
+
+    /**
+     * Returns the number of occurrences added, including those of merged sketches.
+     *
+     * @return the total count
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Adds the counts of another sketch to this one.
+     *
+     * @param other the other sketch
+     * @throws NullPointerException     if {@code other} is {@code null}
+     * @throws IllegalArgumentException if the dimensions differ
+     */
+    public void merge(CountMinSketch other) {
+        if (!Utils.validateObject(other)) {
+            throw new NullPointerException("Sketch can't be null.");
+        }
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Sketches of " + width + " x " + depth + " and " + other.width
+                    + " x " + other.depth + " counters can't be merged.");
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += other.counters[i];
+        }
+        total += other.total;
+    }
+
+    /**
+     * Returns an independent copy of this sketch.
+     *
+     * @return the copy
+     */
+    public CountMinSketch copy() {
+        CountMinSketch copy = new CountMinSketch(width, depth);
+        System.arraycopy(counters, 0, copy.counters, 0, counters.length);
+        copy.total = total;
+        return copy;
+    }
+
+    /**
+     * Returns the number of counters per row.
+     *
+     * @return the width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return the depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the size of the counters.
+     *
+     * @return number of bytes
+     */
+    public int getSizeInBytes() {
+        return counters.length * Long.BYTES;
+    }
+
+    /**
+     * Returns a string representation of the sketch.
+     *
+     * @return formatted string
+     */
+    @Override
+    public String toString() {
+        return "CountMinSketch [width=" + width + ", depth=" + depth + ", total=" + total + "]";
+    }
+
+    /** Returns the smallest counter of a hash; rows index by double hashing. */
+    private long estimate(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        int mask = width - 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row * width + ((h1 + row * h2) & mask)]);
+        }
+        return estimate;
+    }
+}
@@ -0,0 +1,17 @@
+package ua.util;
+
+/**
+ * An object that can write its fields into a {@link FieldWriter}
+ * without building intermediate strings.
+ */
+public interface FieldFormattable {
+
+    /**
+     * Writes this object as {@code Name [field=value, ...]}.
+     * Implementations call {@link FieldWriter#begin(String)}, the field methods
+     * and {@link FieldWriter#end()}; the writer applies field selection and depth limits.
+     *
+     * @param out the writer
+     */
+    void formatTo(FieldWriter out);
+}
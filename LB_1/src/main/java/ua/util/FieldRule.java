@@ -0,0 +1,282 @@
+package ua.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Validation rules of one field, declared once and compiled into a single
+ * {@link MethodHandle} chain. Classes declare their rules in static fields,
+ * so the chain is built at class initialization:
+ * <pre>
+ * private static final FieldRule EMAIL = FieldRule.of(Guest.class, "email", String.class, MethodHandles.lookup())
+ *         .notNull(NullPointerException.class, "Email cannot be null")
+ *         .email(IllegalArgumentException.class, "Email format is invalid")
+ *         .compile();
+ *
+ * public void setEmail(String email) {
+ *     EMAIL.check(this, email);
+ *     this.email = email;
+ * }
+ * </pre>
+ * Checks run in the declared order; the first failing check throws its exception
+ * with its message. The checks use the non-allocating methods of {@link ValidationHelper},
+ * so a passing check creates no objects. Numeric fields are checked through
+ * {@link #check(Object, double)} to avoid boxing.
+ */
+public final class FieldRule {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final String field;
+    private final MethodHandle chain;
+
+    private FieldRule(String field, MethodHandle chain) {
+        this.field = field;
+        this.chain = chain;
+    }
+
+    /**
+     * Starts declaring the rules of a field.
+     *
+     * @param owner  the class that owns the field
+     * @param field  the field name, used for cross-field rules and messages
+     * @param type   the field type; {@code int} and {@code double} fields are numeric
+     * @param lookup lookup of the owner class, used to call its getters
+     * @return the builder
+     */
+    public static Builder of(Class<?> owner, String field, Class<?> type, MethodHandles.Lookup lookup) {
+        return new Builder(owner, field, type, lookup);
+    }
+
+    /**
+     * Returns the name of the checked field.
+     *
+     * @return the field name
+     */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Checks a value of an object field.
+     *
+     * @param owner the object whose field is set (used by cross-field rules)
+     * @param value the new value
+     * @throws RuntimeException the declared exception of the first failing check
+     */
+    public void check(Object owner, Object value) {
+        try {
+            chain.invokeExact(owner, value);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Validation of " + field + " failed.", e);
+        }
+    }
+
+    /**
+     * Checks a value of a numeric field.
+     *
+     * @param owner the object whose field is set
+     * @param value the new value
+     * @throws RuntimeException the declared exception of the first failing check
+     */
+    public void check(Object owner, double value) {
+        try {
+            chain.invokeExact(owner, value);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Validation of " + field + " failed.", e);
+        }
+    }
+
+    /**
+     * Collects the checks of a field and compiles them into a {@link FieldRule}.
+     */
+    public static final class Builder {
+
+        private final Class<?> owner;
+        private final String field;
+        private final Class<?> valueType;
+        private final MethodHandles.Lookup lookup;
+        private final List<MethodHandle> tests = new ArrayList<>();
+        private final List<MethodHandle> failures = new ArrayList<>();
+
+        private Builder(Class<?> owner, String field, Class<?> type, MethodHandles.Lookup lookup) {
+            if (ValidationHelper.isObjectNull(owner) || ValidationHelper.isObjectNull(field)
+                    || ValidationHelper.isObjectNull(type) || ValidationHelper.isObjectNull(lookup)) {
+                throw new NullPointerException("Rule arguments can't be null.");
+            }
+            this.owner = owner;
+            this.field = field;
+            this.valueType = type == int.class || type == long.class || type == double.class
+                    ? double.class
+                    : Object.class;
+            this.lookup = lookup;
+        }
+
+        /**
+         * The value must not be {@code null}.
+         *
+         * @param exception the exception thrown on failure
+         * @param message   the exception message
+         * @return this builder
+         */
+        public Builder notNull(Class<? extends RuntimeException> exception, String message) {
+            return add(helper("nonNull", Objects.class, Object.class), exception, message);
+        }
+
+        /**
+         * The value must be a string with at least one non-space character.
+         *
+         * @param exception the exception thrown on failure (also for {@code null})
+         * @param message   the exception message
+         * @return this builder
+         */
+        public Builder notBlank(Class<? extends RuntimeException> exception, String message) {
+            notNull(exception, message);
+            return add(helper("isNotEmpty", ValidationHelper.class, String.class), exception, message);
+        }
+
+        /**
+         * The value must be a string in a basic email format.
+         *
+         * @param exception the exception thrown on failure
+         * @param message   the exception message
+         * @return this builder
+         */
+        public Builder email(Class<? extends RuntimeException> exception, String message) {
+            return add(helper("isValidEmail", ValidationHelper.class, String.class), exception, message);
+        }
+
+        /**
+         * The numeric value must be greater than zero.
+         *
+         * @param exception the exception thrown on failure
+         * @param message   the exception message
+         * @return this builder
+         */
+        public Builder positive(Class<? extends RuntimeException> exception, String message) {
+            return add(helper("isPositiveNumber", ValidationHelper.class, double.class), exception, message);
+        }
+
+        /**
+         * The numeric value must not be negative.
+         *
+         * @param exception the exception thrown on failure
+         * @param message   the exception message
+         * @return this builder
+         */
+        public Builder nonNegative(Class<? extends RuntimeException> exception, String message) {
+            MethodHandle negative = helper("isNegativeNumber", ValidationHelper.class, double.class);
+            MethodHandle not = helper("not", FieldRule.class, boolean.class);
+            return add(MethodHandles.filterReturnValue(negative, not), exception, message);
+        }
+
+        /**
+         * The date must be today or later.
+         *
+         * @param exception the exception thrown on failure
+         * @param message   the exception message
+         * @return this builder
+         */
+        public Builder notInPast(Class<? extends RuntimeException> exception, String message) {
+            return add(helper("isNotInPast", ValidationHelper.class, LocalDate.class), exception, message);
+        }
+
+        /**
+         * The date must not be before another date property of the owner,
+         * read through its public getter (e.g. {@code "startDate"} reads {@code getStartDate()}).
+         *
+         * @param property  the other property
+         * @param exception the exception thrown on failure
+         * @param message   the exception message
+         * @return this builder
+         */
+        public Builder notBefore(String property, Class<? extends RuntimeException> exception, String message) {
+            MethodHandle getter;
+            try {
+                getter = lookup.findVirtual(owner, "get" + Character.toUpperCase(property.charAt(0))
+                        + property.substring(1), MethodType.methodType(LocalDate.class));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("No getter for " + property, e);
+            }
+            // (LocalDate value, LocalDate threshold) -> (LocalDate value, Owner owner) -> (Owner, LocalDate)
+            MethodHandle compare = MethodHandles.filterArguments(
+                    helper("isValidCompareDate", ValidationHelper.class, LocalDate.class, LocalDate.class), 1, getter);
+            MethodHandle test = MethodHandles.permuteArguments(compare,
+                    MethodType.methodType(boolean.class, owner, LocalDate.class), 1, 0);
+            tests.add(test.asType(MethodType.methodType(boolean.class, Object.class, valueType)));
+            failures.add(thrower(exception, message));
+            return this;
+        }
+
+        /**
+         * Compiles the declared checks into one method handle chain.
+         *
+         * @return the compiled rule
+         */
+        public FieldRule compile() {
+            MethodHandle chain = MethodHandles.empty(MethodType.methodType(void.class, Object.class, valueType));
+            for (int i = tests.size() - 1; i >= 0; i--) {
+                chain = MethodHandles.guardWithTest(tests.get(i), chain, failures.get(i));
+            }
+            return new FieldRule(field, chain);
+        }
+
+        /**
+         * Adds a single-argument test that ignores the owner.
+         *
+         * @param test      {@code (value) -> boolean}
+         * @param exception the exception thrown on failure
+         * @param message   the exception message
+         * @return this builder
+         */
+        private Builder add(MethodHandle test, Class<? extends RuntimeException> exception, String message) {
+            MethodHandle withOwner = MethodHandles.dropArguments(test, 0, Object.class);
+            tests.add(withOwner.asType(MethodType.methodType(boolean.class, Object.class, valueType)));
+            failures.add(thrower(exception, message));
+            return this;
+        }
+
+        /**
+         * Builds {@code (owner, value) -> throw new Exception(message)}.
+         *
+         * @param exception the exception type with a {@code (String)} constructor
+         * @param message   the exception message
+         * @return the throwing handle
+         */
+        private MethodHandle thrower(Class<? extends RuntimeException> exception, String message) {
+            MethodHandle constructor;
+            try {
+                constructor = LOOKUP.findConstructor(exception, MethodType.methodType(void.class, String.class));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException(exception.getName() + " has no (String) constructor", e);
+            }
+            MethodHandle create = MethodHandles.insertArguments(
+                    constructor.asType(MethodType.methodType(RuntimeException.class, String.class)), 0, message);
+            MethodHandle raise = MethodHandles.filterReturnValue(create,
+                    MethodHandles.throwException(void.class, RuntimeException.class));
+            return MethodHandles.dropArguments(raise, 0, Object.class, valueType);
+        }
+
+        private static MethodHandle helper(String name, Class<?> type, Class<?>... parameters) {
+            try {
+                return LOOKUP.findStatic(type, name, MethodType.methodType(boolean.class, parameters));
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Missing validation method " + name, e);
+            }
+        }
+    }
+
+    /** Negation used by {@link Builder#nonNegative}. */
+    private static boolean not(boolean value) {
+        return !value;
+    }
+}
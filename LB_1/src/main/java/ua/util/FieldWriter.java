@@ -0,0 +1,375 @@
+package ua.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes {@link FieldFormattable} objects as {@code Name [field=value, ...]}
+ * straight into a caller-supplied {@link Appendable} or {@link ByteBuffer}.
+ * <p>
+ * Numbers and dates are written digit by digit, and nested objects write into
+ * the same target, so formatting an object creates no temporary strings.
+ * The writer can skip fields by name and limits the nesting depth:
+ * objects deeper than the limit are written as {@code Name [...]}.
+ * <p>
+ * A writer is not thread-safe; reuse one per thread with {@link #reset(Appendable)}
+ * or {@link #reset(ByteBuffer)}.
+ */
+public final class FieldWriter {
+
+    /** Default maximal nesting depth. */
+    public static final int DEFAULT_MAX_DEPTH = 8;
+
+    private Appendable text;
+    private ByteBuffer bytes;
+    private int maxDepth = DEFAULT_MAX_DEPTH;
+    private Set<String> included;
+    private final Set<String> excluded = new HashSet<>();
+
+    private int depth;
+    private int skipDepth;
+    private boolean firstField;
+    private final StringBuilder scratch = new StringBuilder(32);
+
+    private FieldWriter() {
+    }
+
+    /**
+     * Creates a writer into an {@link Appendable}, e.g. a {@link StringBuilder}.
+     *
+     * @param target the target
+     * @return a new writer
+     */
+    public static FieldWriter to(Appendable target) {
+        return new FieldWriter().reset(target);
+    }
+
+    /**
+     * Creates a writer into a {@link ByteBuffer}; text is written as UTF-8.
+     *
+     * @param target the target
+     * @return a new writer
+     */
+    public static FieldWriter to(ByteBuffer target) {
+        return new FieldWriter().reset(target);
+    }
+
+    /**
+     * Switches the writer to another {@link Appendable}, keeping the options.
+     *
+     * @param target the target
+     * @return this writer
+     */
+    public FieldWriter reset(Appendable target) {
+        if (ValidationHelper.isObjectNull(target)) {
+            throw new NullPointerException("Target can't be null.");
+        }
+        this.text = target;
+        this.bytes = null;
+        this.depth = 0;
+        this.skipDepth = 0;
+        return this;
+    }
+
+    /**
+     * Switches the writer to another {@link ByteBuffer}, keeping the options.
+     *
+     * @param target the target
+     * @return this writer
+     */
+    public FieldWriter reset(ByteBuffer target) {
+        if (ValidationHelper.isObjectNull(target)) {
+            throw new NullPointerException("Target can't be null.");
+        }
+        this.text = null;
+        this.bytes = target;
+        this.depth = 0;
+        this.skipDepth = 0;
+        return this;
+    }
+
+    /**
+     * Limits the nesting depth. The top-level object has depth 1.
+     *
+     * @param maxDepth maximal depth (positive number)
+     * @return this writer
+     */
+    public FieldWriter maxDepth(int maxDepth) {
+        if (!ValidationHelper.isPositiveNumber(maxDepth)) {
+            throw new IllegalArgumentException("Depth must be positive.");
+        }
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Writes only the fields with the given names (at every depth).
+     *
+     * @param names field names
+     * @return this writer
+     */
+    public FieldWriter include(String... names) {
+        included = Set.of(names);
+        return this;
+    }
+
+    /**
+     * Never writes the fields with the given names (at every depth).
+     *
+     * @param names field names
+     * @return this writer
+     */
+    public FieldWriter exclude(String... names) {
+        excluded.addAll(List.of(names));
+        return this;
+    }
+
+    /**
+     * Writes a whole object.
+     *
+     * @param value the object, may be {@code null}
+     * @return this writer
+     */
+    public FieldWriter write(FieldFormattable value) {
+        if (value == null) {
+            put("null");
+        } else {
+            value.formatTo(this);
+        }
+        return this;
+    }
+
+    /**
+     * Starts an object: writes {@code Name [}.
+     *
+     * @param name the type name
+     */
+    public void begin(String name) {
+        depth++;
+        if (skipDepth > 0) {
+            return;
+        }
+        put(name);
+        put(" [");
+        if (depth > maxDepth) {
+            put("...");
+            skipDepth = depth;
+        }
+        firstField = true;
+    }
+
+    /**
+     * Ends the current object: writes {@code ]}.
+     */
+    public void end() {
+        if (skipDepth == 0 || skipDepth == depth) {
+            put(']');
+            skipDepth = 0;
+        }
+        depth--;
+        firstField = false;
+    }
+
+    /**
+     * Writes a string field.
+     *
+     * @param name  the field name
+     * @param value the value
+     */
+    public void field(String name, CharSequence value) {
+        if (startField(name)) {
+            put(value == null ? "null" : value);
+        }
+    }
+
+    /**
+     * Writes an integer field.
+     *
+     * @param name  the field name
+     * @param value the value
+     */
+    public void field(String name, long value) {
+        if (startField(name)) {
+            putLong(value);
+        }
+    }
+
+    /**
+     * Writes a floating-point field in the same form as {@link Double#toString(double)}.
+     *
+     * @param name  the field name
+     * @param value the value
+     */
+    public void field(String name, double value) {
+        if (startField(name)) {
+            putDouble(value);
+        }
+    }
+
+    /**
+     * Writes a date field as {@code yyyy-MM-dd}.
+     *
+     * @param name  the field name
+     * @param value the value
+     */
+    public void field(String name, LocalDate value) {
+        if (startField(name)) {
+            if (value == null) {
+                put("null");
+                return;
+            }
+            putLong(value.getYear());
+            put('-');
+            putTwoDigits(value.getMonthValue());
+            put('-');
+            putTwoDigits(value.getDayOfMonth());
+        }
+    }
+
+    /**
+     * Writes a nested object field.
+     *
+     * @param name  the field name
+     * @param value the nested object
+     */
+    public void field(String name, FieldFormattable value) {
+        if (startField(name)) {
+            int level = depth;
+            write(value);
+            depth = level;
+            firstField = false;
+        }
+    }
+
+    /**
+     * Writes a list field as {@code [item, item]}.
+     *
+     * @param name   the field name
+     * @param values the items
+     */
+    public void field(String name, List<? extends FieldFormattable> values) {
+        if (startField(name)) {
+            put('[');
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    put(", ");
+                }
+                write(values.get(i));
+            }
+            put(']');
+            firstField = false;
+        }
+    }
+
+    /**
+     * Writes {@code , name=} if the field is selected.
+     *
+     * @param name the field name
+     * @return {@code true} if the value should be written
+     */
+    private boolean startField(String name) {
+        if (skipDepth > 0 || excluded.contains(name) || (included != null && !included.contains(name))) {
+            return false;
+        }
+        if (!firstField) {
+            put(", ");
+        }
+        firstField = false;
+        put(name);
+        put('=');
+        return true;
+    }
+
+    private void putLong(long value) {
+        if (text instanceof StringBuilder builder) {
+            builder.append(value);
+            return;
+        }
+        if (value < 0) {
+            put('-');
+            if (value == Long.MIN_VALUE) {
+                put("9223372036854775808");
+                return;
+            }
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            put((char) ('0' + (value / divisor) % 10));
+        }
+    }
+
+    /**
+     * Writes a double like {@link Double#toString(double)}. Amounts with at most
+     * two decimals (prices) are written digit by digit; other values go through
+     * {@link StringBuilder#append(double)}, which allocates a little.
+     */
+    private void putDouble(double value) {
+        long cents = Math.round(value * 100);
+        if (value != 0 && Math.abs(value) < 1e7 && cents / 100.0 == value) {
+            if (cents < 0) {
+                put('-');
+                cents = -cents;
+            }
+            putLong(cents / 100);
+            put('.');
+            long fraction = cents % 100;
+            if (fraction % 10 == 0) {
+                put((char) ('0' + fraction / 10));
+            } else {
+                putTwoDigits((int) fraction);
+            }
+            return;
+        }
+        scratch.setLength(0);
+        scratch.append(value);
+        put(scratch);
+    }
+
+    private void putTwoDigits(int value) {
+        put((char) ('0' + value / 10));
+        put((char) ('0' + value % 10));
+    }
+
+    private void put(CharSequence value) {
+        if (text != null) {
+            try {
+                text.append(value);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            put(value.charAt(i));
+        }
+    }
+
+    private void put(char c) {
+        if (text != null) {
+            try {
+                text.append(c);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else if (c < 0x80) {
+            bytes.put((byte) c);
+        } else if (c < 0x800) {
+            bytes.put((byte) (0xC0 | (c >> 6)));
+            bytes.put((byte) (0x80 | (c & 0x3F)));
+        } else {
+            // surrogate pairs are written as two 3-byte sequences
+            bytes.put((byte) (0xE0 | (c >> 12)));
+            bytes.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            bytes.put((byte) (0x80 | (c & 0x3F)));
+        }
+    }
+}
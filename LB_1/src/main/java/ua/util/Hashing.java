@@ -0,0 +1,30 @@
+package ua.util;
+
+/**
+ * 64-bit hash of strings for the sketches, which need more bits and a better
+ * spread than {@link String#hashCode()} gives.
+ */
+final class Hashing {
+
+    private Hashing() {
+    }
+
+    /**
+     * Returns the FNV-1a hash of the characters, finished with the MurmurHash3
+     * mixer so that all bits depend on all characters.
+     *
+     * @param value the characters
+     * @return the hash
+     */
+    static long hash(CharSequence value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,298 @@
+package ua.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the {@code k} most frequent strings of a stream in fixed memory: a
+ * {@link CountMinSketch} estimates the count of every string, and a min-heap of
+ * {@code k} candidates holds the strings with the largest estimates seen so far.
+ * <p>
+ * When a string is added, its new estimate either updates its place in the heap,
+ * fills a free place, or replaces the smallest candidate if it is larger. The
+ * counts of {@link #top()} are estimates and never below the true ones. Merging
+ * sums the sketches and picks the top {@code k} of both candidate sets by their
+ * merged estimates. Not thread-safe.
+ */
+public class HeavyHitters implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Number of counters per row of the sketch. */
+    public static final int DEFAULT_WIDTH = 2048;
+
+    /** Number of rows of the sketch. */
+    public static final int DEFAULT_DEPTH = 4;
+
+    /** A string with its estimated count. */
+    public static final class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String item;
+        private final long count;
+
+        Entry(String item, long count) {
+            this.item = item;
+            this.count = count;
+        }
+
+        /**
+         * Returns the string.
+         *
+         * @return the string
+         */
+        public String getItem() {
+            return item;
+        }
+
+        /**
+         * Returns the estimated count, never below the true one.
+         *
+         * @return the count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns a string representation of the entry.
+         *
+         * @return formatted string
+         */
+        @Override
+        public String toString() {
+            return item + "=" + count;
+        }
+    }
+
+    private final int capacity;
+    private final CountMinSketch sketch;
+    // min-heap of candidates by count, with the heap position of each
+    private final String[] items;
+    private final long[] counts;
+    private final HashMap<String, Integer> positions = new HashMap<>();
+    private int size;
+
+    /**
+     * Constructs an empty tracker with a sketch of the default dimensions.
+     *
+     * @param k number of strings to keep
+     * @throws IllegalArgumentException if {@code k} is not positive
+     */
+    public HeavyHitters(int k) {
+        this(k, new CountMinSketch(DEFAULT_WIDTH, DEFAULT_DEPTH));
+    }
+
+    /**
+     * Constructs an empty tracker.
+     *
+     * @param k      number of strings to keep
+     * @param sketch empty sketch that counts the strings
+     * @throws NullPointerException     if {@code sketch} is {@code null}
+     * @throws IllegalArgumentException if {@code k} is not positive or the sketch is not empty
+     */
+    public HeavyHitters(int k, CountMinSketch sketch) {
+        if (!Utils.validatePositiveNumber(k)) {
+            throw new IllegalArgumentException("K must be positive.");
+        }
+        if (!Utils.validateObject(sketch)) {
+            throw new NullPointerException("Sketch can't be null.");
+        }
+        if (sketch.getTotal() != 0) {
+            throw new IllegalArgumentException("Sketch must be empty.");
+        }
+        this.capacity = k;
+        this.sketch = sketch;
+        this.items = new String[k];
+        this.counts = new long[k];
+    }
+
+    /**
+     * Adds one occurrence of a string.
+     *
+     * @param item the string
+     * @return the new estimate of the string
+     * @throws NullPointerException if {@code item} is {@code null}
+     */
+    public long add(String item) {
+        return add(item, 1);
+    }
+
+    /**
+     * Adds occurrences of a string.
+     *
+     * @param item  the string
+     * @param count number of occurrences
+     * @return the new estimate of the string
+     * @throws NullPointerException     if {@code item} is {@code null}
+     * @throws IllegalArgumentException if {@code count} is negative
+     */
+    public long add(String item, long count) {
+        long estimate = sketch.add(item, count);
+        offer(item, estimate);
+        return estimate;
+    }
+
+    /**
+     * Returns the estimated number of occurrences of a string.
+     *
+     * @param item the string
+     * @return the estimate, never below the true count
+     * @throws NullPointerException if {@code item} is {@code null}
+     */
+    public long estimate(String item) {
+        return sketch.estimate(item);
+    }
+
+    /**
+     * Returns the most frequent strings, most frequent first.
+     *
+     * @return new list of at most {@code k} entries
+     */
+    public List<Entry> top() {
+        List<Entry> top = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            top.add(new Entry(items[i], counts[i]));
+        }
+        top.sort(Comparator.comparingLong(Entry::getCount).reversed().thenComparing(Entry::getItem));
+        return top;
+    }
+
+    /**
+     * Returns the number of occurrences added, including those of merged trackers.
+     *
+     * @return the total count
+     */
+    public long getTotal() {
+        return sketch.getTotal();
+    }
+
+    /**
+     * Returns the number of strings kept.
+     *
+     * @return {@code k}
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Adds the counts of another tracker to this one.
+     *
+     * @param other the other tracker
+     * @throws NullPointerException     if {@code other} is {@code null}
+     * @throws IllegalArgumentException if the sketch dimensions differ
+     */
+    public void merge(HeavyHitters other) {
+        if (!Utils.validateObject(other)) {
+            throw new NullPointerException("Tracker can't be null.");
+        }
+        sketch.merge(other.sketch);
+        Set<String> candidates = new LinkedHashSet<>(positions.keySet());
+        for (int i = 0; i < other.size; i++) {
+            candidates.add(other.items[i]);
+        }
+        positions.clear();
+        size = 0;
+        for (String candidate : candidates) {
+            offer(candidate, sketch.estimate(candidate));
+        }
+    }
+
+    /**
+     * Returns an independent copy of this tracker.
+     *
+     * @return the copy
+     */
+    public HeavyHitters copy() {
+        HeavyHitters copy = new HeavyHitters(capacity, new CountMinSketch(sketch.getWidth(), sketch.getDepth()));
+        copy.sketch.merge(sketch);
+        System.arraycopy(items, 0, copy.items, 0, size);
+        System.arraycopy(counts, 0, copy.counts, 0, size);
+        copy.positions.putAll(positions);
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Returns the approximate size of the sketch and the candidates, not counting the strings themselves.
+     *
+     * @return number of bytes
+     */
+    public int getSizeInBytes() {
+        return sketch.getSizeInBytes() + capacity * (Long.BYTES + 2 * Integer.BYTES + 48);
+    }
+
+    /**
+     * Returns a string representation of the tracker with its top strings.
+     *
+     * @return formatted string
+     */
+    @Override
+    public String toString() {
+        return "HeavyHitters [k=" + capacity + ", total=" + getTotal() + ", top=" + top() + "]";
+    }
+
+    /** Puts a string with its new estimate into the heap if it belongs there. */
+    private void offer(String item, long estimate) {
+        Integer position = positions.get(item);
+        if (position != null) {
+            // estimates only grow, so the candidate can only move down
+            counts[position] = estimate;
+            siftDown(position);
+        } else if (size < capacity) {
+            place(item, estimate, size++);
+            siftUp(size - 1);
+        } else if (estimate > counts[0]) {
+            positions.remove(items[0]);
+            place(item, estimate, 0);
+            siftDown(0);
+        }
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (counts[parent] <= counts[position]) {
+                return;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < size; child++) {
+                if (counts[child] < counts[smallest]) {
+                    smallest = child;
+                }
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        String item = items[a];
+        long count = counts[a];
+        place(items[b], counts[b], a);
+        place(item, count, b);
+    }
+
+    private void place(String item, long count, int position) {
+        items[position] = item;
+        counts[position] = count;
+        positions.put(item, position);
+    }
+}
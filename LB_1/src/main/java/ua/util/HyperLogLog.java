@@ -0,0 +1,215 @@
+package ua.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * HyperLogLog sketch: estimates the number of distinct strings added to it in
+ * a fixed {@code 2^precision} bytes, e.g. 4 KiB for precision 12, however many
+ * strings there are.
+ * <p>
+ * A string's 64-bit hash selects a register by its first {@code precision} bits,
+ * and the register keeps the longest run of leading zeros seen in the remaining
+ * bits. The harmonic mean of the registers gives the estimate, with a relative
+ * standard error of {@code 1.04 / sqrt(2^precision)} (1.6% for precision 12);
+ * small counts use linear counting of the empty registers instead.
+ * <p>
+ * Adding a string again changes nothing, and two sketches of the same precision
+ * are merged by taking the larger register, so the merged sketch is exactly the
+ * sketch of the union: shards or days can be counted separately and combined.
+ * Not thread-safe.
+ */
+public class HyperLogLog implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Smallest supported precision. */
+    public static final int MIN_PRECISION = 4;
+
+    /** Largest supported precision. */
+    public static final int MAX_PRECISION = 18;
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * Constructs an empty sketch.
+     *
+     * @param precision number of index bits, from {@link #MIN_PRECISION} to {@link #MAX_PRECISION}
+     * @throws IllegalArgumentException if {@code precision} is out of range
+     */
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be from " + MIN_PRECISION + " to " + MAX_PRECISION + ".");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Adds a string.
+     *
+     * @param value the string
+     * @return {@code true} if a register changed, i.e. the estimate may have grown
+     * @throws NullPointerException if {@code value} is {@code null}
+     */
+    public boolean add(CharSequence value) {
+        if (!Utils.validateObject(value)) {
+            throw new NullPointerException("Value can't be null.");
+        }
+        long hash = Hashing.hash(value);
+        int index = (int) (hash >>> (64 - precision));
+        // the guard bit caps the rank if all remaining bits are zero
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        if (registers[index] < rank) {
+            registers[index] = rank;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the estimated number of distinct strings added.
+     *
+     * @return the estimate
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int empty = 0;
+        for (byte register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                empty++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && empty > 0) {
+            estimate = m * Math.log((double) m / empty);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Adds the strings of another sketch to this one.
+     *
+     * @param other the other sketch
+     * @throws NullPointerException     if {@code other} is {@code null}
+     * @throws IllegalArgumentException if the precisions differ
+     */
+    public void merge(HyperLogLog other) {
+        if (!Utils.validateObject(other)) {
+            throw new NullPointerException("Sketch can't be null.");
+        }
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Sketches of precision " + precision + " and "
+                    + other.precision + " can't be merged.");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = (byte) Math.max(registers[i], other.registers[i]);
+        }
+    }
+
+    /**
+     * Returns an independent copy of this sketch.
+     *
+     * @return the copy
+     */
+    public HyperLogLog copy() {
+        HyperLogLog copy = new HyperLogLog(precision);
+        System.arraycopy(registers, 0, copy.registers, 0, registers.length);
+        return copy;
+    }
+
+    /**
+     * Checks if nothing was added.
+     *
+     * @return {@code true} if every register is empty
+     */
+    public boolean isEmpty() {
+        for (byte register : registers) {
+            if (register != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of index bits.
+     *
+     * @return the precision
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Returns the relative standard error of the estimate.
+     *
+     * @return the error, e.g. 0.016 for precision 12
+     */
+    public double getStandardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    /**
+     * Returns the size of the registers.
+     *
+     * @return number of bytes
+     */
+    public int getSizeInBytes() {
+        return registers.length;
+    }
+
+    /**
+     * Compares the registers of two sketches.
+     *
+     * @param obj the object to compare
+     * @return {@code true} if both sketches have the same precision and registers
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof HyperLogLog)) {
+            return false;
+        }
+        HyperLogLog other = (HyperLogLog) obj;
+        return precision == other.precision && Arrays.equals(registers, other.registers);
+    }
+
+    /**
+     * Returns a hash code of the registers.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(registers);
+    }
+
+    /**
+     * Returns a string representation of the sketch with its estimate.
+     *
+     * @return formatted string
+     */
+    @Override
+    public String toString() {
+        return "HyperLogLog [precision=" + precision + ", estimate=" + estimate() + "]";
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ua.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates unique positive 32-bit ids without contention.
+ * <p>
+ * Every thread takes a block of consecutive ids from a shared counter and hands
+ * them out on its own, so an id costs a thread-local read and an increment, and
+ * the shared counter is touched once per block. Ids increase within a thread but
+ * are not ordered across threads, and ids left in the block of a finished thread
+ * are never used. The ids are {@code int}s so that every domain object pays only
+ * four bytes for its id; 2<sup>31</sup> ids are about two million blocks of the
+ * default size, which is plenty for one process, and {@link #next()} fails
+ * rather than wrap around once they are used up.
+ * Thread-safe.
+ */
+public final class IdGenerator {
+
+    /** Default number of ids a thread takes at once. */
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private static final IdGenerator SHARED = new IdGenerator(DEFAULT_BLOCK_SIZE);
+
+    private final int blockSize;
+    private final AtomicInteger blocks = new AtomicInteger();
+    /** Next id and end of the block of the current thread. */
+    private final ThreadLocal<int[]> ranges = ThreadLocal.withInitial(() -> new int[2]);
+
+    /**
+     * Constructs a generator whose first id is 1.
+     *
+     * @param blockSize number of ids a thread takes at once
+     * @throws IllegalArgumentException if {@code blockSize} is not positive
+     */
+    public IdGenerator(int blockSize) {
+        if (!Utils.validatePositiveNumber(blockSize)) {
+            throw new IllegalArgumentException("Block size must be positive.");
+        }
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Returns the generator shared by the domain objects.
+     *
+     * @return the shared generator
+     */
+    public static IdGenerator shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns a new id.
+     *
+     * @return an id, greater than 0 and never returned before by this generator
+     * @throws IllegalStateException if all {@code int} ids are used up
+     */
+    public int next() {
+        int[] range = ranges.get();
+        if (range[0] == range[1]) {
+            long start = (long) blocks.getAndIncrement() * blockSize + 1;
+            if (start - 1 + blockSize > Integer.MAX_VALUE) {
+                blocks.decrementAndGet();
+                throw new IllegalStateException("Ids are used up.");
+            }
+            range[0] = (int) start;
+            range[1] = (int) start + blockSize;
+        }
+        return range[0]++;
+    }
+
+    /**
+     * Returns the number of ids taken by threads, used or not.
+     *
+     * @return number of reserved ids
+     */
+    public long getReservedCount() {
+        return (long) blocks.get() * blockSize;
+    }
+}
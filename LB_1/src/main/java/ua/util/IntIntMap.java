@@ -0,0 +1,277 @@
+package ua.util;
+
+import java.util.Arrays;
+
+/**
+ * Map from {@code int} keys to {@code int} values with open addressing, e.g.
+ * from room numbers to positions, or counters per key.
+ * <p>
+ * Works like {@link LongObjectMap}: keys and values in two parallel arrays,
+ * linear probing from a Fibonacci hash, at most half full, removal by shifting
+ * later entries back, and key 0 kept aside. Absent keys read as the missing
+ * value given to the constructor, so no value is boxed.
+ * Not thread-safe.
+ */
+public class IntIntMap {
+
+    private static final int MIN_CAPACITY = 8;
+
+    /** Receives the entries of {@link #forEach}. */
+    @FunctionalInterface
+    public interface Visitor {
+
+        /**
+         * Called for one entry.
+         *
+         * @param key   the key
+         * @param value the value
+         */
+        void visit(int key, int value);
+    }
+
+    private final int missingValue;
+    private int[] keys;
+    private int[] values;
+    private int shift; // 32 - log2(capacity)
+    private int size;
+    private boolean hasZero; // key 0 can't be stored in the table
+    private int zeroValue;
+
+    /**
+     * Constructs an empty map.
+     *
+     * @param missingValue the value returned for absent keys, e.g. -1
+     */
+    public IntIntMap(int missingValue) {
+        this(MIN_CAPACITY / 2, missingValue);
+    }
+
+    /**
+     * Constructs an empty map that holds the given number of entries without growing.
+     *
+     * @param expectedSize expected number of entries
+     * @param missingValue the value returned for absent keys, e.g. -1
+     * @throws IllegalArgumentException if {@code expectedSize} is negative
+     */
+    public IntIntMap(int expectedSize, int missingValue) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size can't be negative.");
+        }
+        this.missingValue = missingValue;
+        allocate(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, expectedSize * 2 - 1)) << 1));
+    }
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param key the key
+     * @return the value, or the missing value if the map has no such key
+     */
+    public int get(int key) {
+        if (key == 0) {
+            return hasZero ? zeroValue : missingValue;
+        }
+        int[] keys = this.keys;
+        int mask = keys.length - 1;
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            int current = keys[slot];
+            if (current == key) {
+                return values[slot];
+            }
+            if (current == 0) {
+                return missingValue;
+            }
+        }
+    }
+
+    /**
+     * Checks if the map has a key.
+     *
+     * @param key the key
+     * @return {@code true} if the key has a value
+     */
+    public boolean containsKey(int key) {
+        if (key == 0) {
+            return hasZero;
+        }
+        int mask = keys.length - 1;
+        for (int slot = slot(key); keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the previous value, or the missing value
+     */
+    public int put(int key, int value) {
+        if (key == 0) {
+            int previous = hasZero ? zeroValue : missingValue;
+            if (!hasZero) {
+                hasZero = true;
+                size++;
+            }
+            zeroValue = value;
+            return previous;
+        }
+        int slot = find(key);
+        if (keys[slot] == key) {
+            int previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        insert(slot, key, value);
+        return missingValue;
+    }
+
+    /**
+     * Adds to the value of a key; an absent key counts from 0.
+     *
+     * @param key   the key
+     * @param delta the amount to add
+     * @return the new value
+     */
+    public int addTo(int key, int delta) {
+        if (key == 0) {
+            put(0, (hasZero ? zeroValue : 0) + delta);
+            return zeroValue;
+        }
+        int slot = find(key);
+        if (keys[slot] == key) {
+            return values[slot] += delta;
+        }
+        insert(slot, key, delta);
+        return delta;
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key the key
+     * @return the removed value, or the missing value
+     */
+    public int remove(int key) {
+        if (key == 0) {
+            if (!hasZero) {
+                return missingValue;
+            }
+            hasZero = false;
+            size--;
+            return zeroValue;
+        }
+        int mask = keys.length - 1;
+        int slot = find(key);
+        if (keys[slot] == 0) {
+            return missingValue;
+        }
+        int previous = values[slot];
+        // shift back the following entries that can't be found past the new hole
+        for (int next = (slot + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                slot = next;
+            }
+        }
+        keys[slot] = 0;
+        size--;
+        return previous;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the map is empty.
+     *
+     * @return {@code true} if the map has no entries
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all entries, keeping the table.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZero = false;
+        size = 0;
+    }
+
+    /**
+     * Passes every entry to a visitor, in no particular order.
+     * The map must not be changed meanwhile.
+     *
+     * @param visitor the visitor
+     */
+    public void forEach(Visitor visitor) {
+        if (hasZero) {
+            visitor.visit(0, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                visitor.visit(keys[i], values[i]);
+            }
+        }
+    }
+
+    private int slot(int key) {
+        return (key * 0x9E3779B9) >>> shift;
+    }
+
+    /** Returns the slot of a key other than 0, or the free slot where it belongs. */
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int slot = slot(key);
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insert(int slot, int key, int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length / 2) {
+            allocate(keys.length * 2);
+        }
+    }
+
+    /** Moves the entries into a table of the given capacity, a power of two. */
+    private void allocate(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        shift = 32 - Integer.numberOfTrailingZeros(capacity);
+        if (oldKeys == null) {
+            return;
+        }
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != 0) {
+                int slot = slot(key);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ua.util;
+
+/**
+ * Log argument that formats a {@link FieldFormattable} only when its
+ * {@link #toString()} is called. Loggers call it only when the message
+ * is actually written, so nothing is formatted when the log level is off:
+ * <pre>
+ * logger.log(Level.FINE, "Issued {0}", LazyFormat.of(invoice, 2));
+ * </pre>
+ */
+public final class LazyFormat {
+
+    private final FieldFormattable value;
+    private final int maxDepth;
+    private final String[] fields;
+
+    private LazyFormat(FieldFormattable value, int maxDepth, String[] fields) {
+        this.value = value;
+        this.maxDepth = maxDepth;
+        this.fields = fields;
+    }
+
+    /**
+     * Wraps the value with the default depth limit and all fields.
+     *
+     * @param value the value to format later
+     * @return the log argument
+     */
+    public static LazyFormat of(FieldFormattable value) {
+        return new LazyFormat(value, FieldWriter.DEFAULT_MAX_DEPTH, null);
+    }
+
+    /**
+     * Wraps the value with a depth limit and an optional field selection.
+     *
+     * @param value    the value to format later
+     * @param maxDepth maximal nesting depth
+     * @param fields   names of the fields to write; all fields if none are given
+     * @return the log argument
+     */
+    public static LazyFormat of(FieldFormattable value, int maxDepth, String... fields) {
+        return new LazyFormat(value, maxDepth, fields.length == 0 ? null : fields);
+    }
+
+    /**
+     * Formats the value.
+     *
+     * @return the formatted value
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(128);
+        FieldWriter writer = FieldWriter.to(sb).maxDepth(maxDepth);
+        if (fields != null) {
+            writer.include(fields);
+        }
+        writer.write(value);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,274 @@
+package ua.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Map from {@code long} keys to objects with open addressing, e.g. from the ids
+ * of domain objects to their data.
+ * <p>
+ * Keys and values are stored in two parallel arrays and found by linear probing
+ * from a Fibonacci hash of the key, so a lookup reads a few adjacent longs instead
+ * of following a boxed {@code Long} and an entry node, and an entry takes 12 to
+ * 48 bytes of table (about 21 on average) instead of about 64 in a
+ * {@code HashMap<Long, V>}. The table is at most
+ * half full; removed entries are filled by shifting later entries back, so
+ * lookups never wade through tombstones. Key 0 marks a free slot and is kept
+ * aside. Values can't be {@code null}.
+ * Not thread-safe.
+ *
+ * @param <V> type of values
+ */
+public class LongObjectMap<V> {
+
+    private static final int MIN_CAPACITY = 8;
+
+    /** Receives the entries of {@link #forEach}. */
+    @FunctionalInterface
+    public interface Visitor<V> {
+
+        /**
+         * Called for one entry.
+         *
+         * @param key   the key
+         * @param value the value
+         */
+        void visit(long key, V value);
+    }
+
+    private long[] keys;
+    private Object[] values;
+    private int shift; // 64 - log2(capacity)
+    private int size;
+    private V zeroValue; // value of key 0, which can't be stored in the table
+
+    /**
+     * Constructs an empty map.
+     */
+    public LongObjectMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * Constructs an empty map that holds the given number of entries without growing.
+     *
+     * @param expectedSize expected number of entries
+     * @throws IllegalArgumentException if {@code expectedSize} is negative
+     */
+    public LongObjectMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size can't be negative.");
+        }
+        allocate(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, expectedSize * 2 - 1)) << 1));
+    }
+
+    /**
+     * Returns the value of a key.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if the map has no such key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) {
+            return zeroValue;
+        }
+        long[] keys = this.keys;
+        int mask = keys.length - 1;
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long current = keys[slot];
+            if (current == key) {
+                return (V) values[slot];
+            }
+            if (current == 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Checks if the map has a key.
+     *
+     * @param key the key
+     * @return {@code true} if the key has a value
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the previous value, or {@code null}
+     * @throws NullPointerException if {@code value} is {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (!Utils.validateObject(value)) {
+            throw new NullPointerException("Value can't be null.");
+        }
+        if (key == 0) {
+            V previous = zeroValue;
+            zeroValue = value;
+            if (previous == null) {
+                size++;
+            }
+            return previous;
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key);
+        for (; keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > keys.length / 2) {
+            allocate(keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Sets the value of a key unless it has one.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the present value, or {@code null} if {@code value} was added
+     * @throws NullPointerException if {@code value} is {@code null}
+     */
+    public V putIfAbsent(long key, V value) {
+        V present = get(key);
+        return present != null ? present : put(key, value);
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key the key
+     * @return the removed value, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0) {
+            V previous = zeroValue;
+            if (previous != null) {
+                zeroValue = null;
+                size--;
+            }
+            return previous;
+        }
+        int mask = keys.length - 1;
+        int slot = slot(key);
+        for (; keys[slot] != key; slot = (slot + 1) & mask) {
+            if (keys[slot] == 0) {
+                return null;
+            }
+        }
+        V previous = (V) values[slot];
+        // shift back the following entries that can't be found past the new hole
+        for (int next = (slot + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                slot = next;
+            }
+        }
+        keys[slot] = 0;
+        values[slot] = null;
+        size--;
+        return previous;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if the map is empty.
+     *
+     * @return {@code true} if the map has no entries
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all entries, keeping the table.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        zeroValue = null;
+        size = 0;
+    }
+
+    /**
+     * Passes every entry to a visitor, in no particular order.
+     * The map must not be changed meanwhile.
+     *
+     * @param visitor the visitor
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitor<? super V> visitor) {
+        if (zeroValue != null) {
+            visitor.visit(0, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0) {
+                visitor.visit(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the values, in no particular order.
+     *
+     * @return new list of values
+     */
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        forEach((key, value) -> result.add(value));
+        return result;
+    }
+
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    /** Moves the entries into a table of the given capacity, a power of two. */
+    private void allocate(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        if (oldKeys == null) {
+            return;
+        }
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int slot = slot(key);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
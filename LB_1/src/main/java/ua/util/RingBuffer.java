@@ -0,0 +1,248 @@
+package ua.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded queue of preallocated, reusable entries for passing events from
+ * producers to a single consumer thread without allocating or locking.
+ * <p>
+ * A producer claims a sequence number with {@link #tryNext()} or {@link #next()},
+ * fills the entry {@link #get returned} for it and {@link #publish publishes} it.
+ * The consumer takes published entries in sequence order with {@link #drain}.
+ * Entries are reused once the consumer has passed them, so the ring never
+ * allocates after construction.
+ * <p>
+ * With several producers a claim is one compare-and-set; with a single producer
+ * it is a plain write. The claim and consume counters are padded to separate
+ * cache lines, so producers and the consumer don't invalidate each other's line
+ * on every event.
+ *
+ * @param <E> type of entries
+ */
+public class RingBuffer<E> {
+
+    /** Cache-line padding before the value of a {@link Sequence}. */
+    abstract static class LeftPadding {
+        long p01, p02, p03, p04, p05, p06, p07;
+    }
+
+    /** The value of a {@link Sequence}. */
+    abstract static class Value extends LeftPadding {
+        volatile long value;
+    }
+
+    /** A counter alone on its cache line. */
+    static final class Sequence extends Value {
+        long p11, p12, p13, p14, p15, p16, p17;
+
+        private static final VarHandle VALUE;
+
+        static {
+            try {
+                VALUE = MethodHandles.lookup().findVarHandle(Value.class, "value", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        Sequence(long initial) {
+            value = initial;
+        }
+
+        long get() {
+            return value;
+        }
+
+        long getPlain() {
+            return (long) VALUE.get(this);
+        }
+
+        void setPlain(long newValue) {
+            VALUE.set(this, newValue);
+        }
+
+        void setRelease(long newValue) {
+            VALUE.setRelease(this, newValue);
+        }
+
+        boolean compareAndSet(long expected, long newValue) {
+            return VALUE.compareAndSet(this, expected, newValue);
+        }
+    }
+
+    private static final VarHandle PUBLISHED = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final int SPINS = 100;
+    private static final long PARK_NANOS = 50_000;
+
+    private final Object[] entries;
+    private final int[] published; // lap of the sequence last published into each entry
+    private final int mask;
+    private final int shift;
+    private final boolean multiProducer;
+
+    private final Sequence claimed = new Sequence(-1);
+    private final Sequence consumed = new Sequence(-1);
+    private final Sequence consumedCache = new Sequence(-1); // producers' last look at consumed
+
+    /**
+     * Constructs a ring with preallocated entries.
+     *
+     * @param capacity      number of entries, a power of two
+     * @param factory       creates the entries
+     * @param multiProducer {@code true} if several threads may claim entries concurrently
+     * @throws IllegalArgumentException if {@code capacity} is not a positive power of two
+     * @throws NullPointerException     if {@code factory} is {@code null}
+     */
+    public RingBuffer(int capacity, Supplier<? extends E> factory, boolean multiProducer) {
+        if (!Utils.validatePositiveNumber(capacity) || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two.");
+        }
+        if (!Utils.validateObject(factory)) {
+            throw new NullPointerException("Factory can't be null.");
+        }
+        this.entries = new Object[capacity];
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = factory.get();
+        }
+        this.published = new int[capacity];
+        Arrays.fill(published, -1);
+        this.mask = capacity - 1;
+        this.shift = Integer.numberOfTrailingZeros(capacity);
+        this.multiProducer = multiProducer;
+    }
+
+    /**
+     * Claims the next entry if the ring has room.
+     *
+     * @return the sequence number of the claimed entry, or -1 if the ring is full
+     */
+    public long tryNext() {
+        if (!multiProducer) {
+            long next = claimed.getPlain() + 1;
+            if (!hasRoom(next)) {
+                return -1;
+            }
+            claimed.setPlain(next);
+            return next;
+        }
+        long current;
+        long next;
+        do {
+            current = claimed.get();
+            next = current + 1;
+            if (!hasRoom(next)) {
+                return -1;
+            }
+        } while (!claimed.compareAndSet(current, next));
+        return next;
+    }
+
+    /**
+     * Claims the next entry, waiting for the consumer while the ring is full.
+     *
+     * @return the sequence number of the claimed entry
+     */
+    public long next() {
+        for (int attempt = 0;; attempt++) {
+            long sequence = tryNext();
+            if (sequence >= 0) {
+                return sequence;
+            }
+            if (attempt < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Returns the entry of a claimed sequence number.
+     *
+     * @param sequence the sequence number
+     * @return the entry
+     */
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) entries[(int) sequence & mask];
+    }
+
+    /**
+     * Makes a filled entry visible to the consumer.
+     *
+     * @param sequence the sequence number returned by {@link #tryNext()} or {@link #next()}
+     */
+    public void publish(long sequence) {
+        PUBLISHED.setRelease(published, (int) sequence & mask, (int) (sequence >>> shift));
+    }
+
+    /**
+     * Hands published entries to the handler in sequence order and frees them.
+     * Stops at the first entry that is claimed but not yet published.
+     * Must be called by one thread at a time.
+     *
+     * @param handler receives the entries; must not keep them
+     * @param limit   maximal number of entries
+     * @return number of entries handled
+     */
+    public int drain(Consumer<? super E> handler, int limit) {
+        long first = consumed.getPlain() + 1;
+        long last = first - 1;
+        while (last - first + 1 < limit && isPublished(last + 1)) {
+            last++;
+        }
+        for (long sequence = first; sequence <= last; sequence++) {
+            handler.accept(get(sequence));
+        }
+        if (last >= first) {
+            consumed.setRelease(last);
+        }
+        return (int) (last - first + 1);
+    }
+
+    /**
+     * Returns the number of claimed entries the consumer hasn't freed yet.
+     *
+     * @return number of pending entries
+     */
+    public int size() {
+        return (int) (claimed.get() - consumed.get());
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return capacity
+     */
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    /**
+     * Returns the number of entries claimed since construction.
+     *
+     * @return number of claims
+     */
+    public long getClaimedCount() {
+        return claimed.get() + 1;
+    }
+
+    private boolean hasRoom(long sequence) {
+        long wrapPoint = sequence - entries.length;
+        if (wrapPoint <= consumedCache.getPlain()) {
+            return true;
+        }
+        long current = consumed.get();
+        consumedCache.setPlain(current);
+        return wrapPoint <= current;
+    }
+
+    private boolean isPublished(long sequence) {
+        return (int) PUBLISHED.getAcquire(published, (int) sequence & mask) == (int) (sequence >>> shift);
+    }
+}
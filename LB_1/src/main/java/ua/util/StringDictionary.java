@@ -0,0 +1,107 @@
+package ua.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of repeated strings, such as room types or first names.
+ * Every distinct string gets a code, and equal strings share one instance,
+ * so a million objects with the same value refer to one string instead of
+ * holding a million copies.
+ * <p>
+ * The dictionary is bounded: once it holds {@code capacity} strings, new strings
+ * get no code and {@link #intern} returns them unchanged.
+ * Strings are never removed. Thread-safe; only adding a new string locks.
+ */
+public final class StringDictionary {
+
+    private final int capacity;
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] values = new String[16];
+    private int size;
+
+    /**
+     * Constructs an empty dictionary.
+     *
+     * @param capacity maximal number of strings (positive number)
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    public StringDictionary(int capacity) {
+        if (!Utils.validatePositiveNumber(capacity)) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the code of a string, adding it if it is new.
+     *
+     * @param value the string
+     * @return the code, or -1 if the string is new and the dictionary is full
+     * @throws NullPointerException if {@code value} is {@code null}
+     */
+    public int encode(String value) {
+        if (!Utils.validateObject(value)) {
+            throw new NullPointerException("Value can't be null.");
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : add(value);
+    }
+
+    private synchronized int add(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (size == capacity) {
+            return -1;
+        }
+        String[] table = values;
+        if (size == table.length) {
+            table = Arrays.copyOf(table, (int) Math.min((long) table.length * 2, capacity));
+        }
+        table[size] = value;
+        // the volatile write publishes the new string to readers of the table;
+        // the code is published only after it
+        values = table;
+        codes.put(value, size);
+        return size++;
+    }
+
+    /**
+     * Returns the string of a code.
+     *
+     * @param code a code returned by {@link #encode}
+     * @return the string
+     * @throws IndexOutOfBoundsException if the code is unknown
+     */
+    public String decode(int code) {
+        String value = values[code];
+        if (value == null) {
+            throw new IndexOutOfBoundsException("Unknown code " + code);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the shared instance of a string.
+     *
+     * @param value the string
+     * @return an equal string from the dictionary, or {@code value} if the dictionary is full
+     * @throws NullPointerException if {@code value} is {@code null}
+     */
+    public String intern(String value) {
+        int code = encode(value);
+        return code < 0 ? value : values[code];
+    }
+
+    /**
+     * Returns the number of strings in the dictionary.
+     *
+     * @return number of strings
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
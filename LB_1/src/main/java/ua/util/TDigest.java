@@ -0,0 +1,326 @@
+package ua.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Merging t-digest: estimates quantiles of a stream of numbers, e.g. the median
+ * or the 99th percentile, in memory that depends only on the compression.
+ * <p>
+ * The numbers are summarised by at most about {@code compression} centroids, each
+ * a mean with a weight. A centroid may only cover a range of quantiles allowed by
+ * the scale function {@code k(q) = compression / (2 pi) * asin(2q - 1)}, which
+ * keeps centroids small near the tails, so extreme quantiles are estimated much
+ * more precisely than the median. New numbers are buffered and merged into the
+ * centroids in sorted order when the buffer fills. The smallest and largest
+ * number are kept exactly.
+ * <p>
+ * Two digests are merged by merging their centroids the same way, so shards or
+ * days can be summarised separately and combined. Not thread-safe.
+ */
+public class TDigest implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Compression that keeps quantile errors around 1% near the median and far less at the tails. */
+    public static final double DEFAULT_COMPRESSION = 100;
+
+    private final double compression;
+    private double[] means;
+    private double[] weights;
+    private int centroids;
+    private final double[] buffer;
+    private int buffered;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * Constructs an empty digest with the default compression.
+     */
+    public TDigest() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Constructs an empty digest.
+     *
+     * @param compression upper bound of the number of centroids, at least 10
+     * @throws IllegalArgumentException if {@code compression} is below 10 or above 10000
+     */
+    public TDigest(double compression) {
+        if (!(compression >= 10 && compression <= 10_000)) {
+            throw new IllegalArgumentException("Compression must be from 10 to 10000.");
+        }
+        this.compression = compression;
+        int capacity = (int) Math.ceil(compression) + 1;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.buffer = new double[5 * capacity];
+    }
+
+    /**
+     * Adds a number.
+     *
+     * @param value the number
+     * @throws IllegalArgumentException if {@code value} is not a number or infinite
+     */
+    public void add(double value) {
+        if (!Double.isFinite(value)) {
+            throw new IllegalArgumentException("Value must be finite.");
+        }
+        if (buffered == buffer.length) {
+            compress();
+        }
+        buffer[buffered++] = value;
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Returns the estimated value at a quantile.
+     *
+     * @param q the quantile, from 0 to 1, e.g. 0.5 for the median
+     * @return the estimate, or {@code NaN} if the digest is empty
+     * @throws IllegalArgumentException if {@code q} is out of range
+     */
+    public double quantile(double q) {
+        if (!(q >= 0 && q <= 1)) {
+            throw new IllegalArgumentException("Quantile must be from 0 to 1.");
+        }
+        compress();
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (centroids == 1) {
+            return means[0];
+        }
+        double rank = q * count;
+        // each centroid is taken to hold its weight evenly around its mean
+        double left = 0;
+        for (int i = 0; i < centroids; i++) {
+            double middle = left + weights[i] / 2;
+            if (rank < middle) {
+                if (i == 0) {
+                    return interpolate(min, means[0], rank / middle);
+                }
+                double previous = left - weights[i - 1] / 2;
+                return interpolate(means[i - 1], means[i], (rank - previous) / (middle - previous));
+            }
+            left += weights[i];
+        }
+        double last = count - weights[centroids - 1] / 2;
+        return interpolate(means[centroids - 1], max, (rank - last) / (count - last));
+    }
+
+    /**
+     * Returns the estimated fraction of numbers not above a value.
+     *
+     * @param value the value
+     * @return the fraction, from 0 to 1, or {@code NaN} if the digest is empty
+     */
+    public double cdf(double value) {
+        compress();
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (value < min) {
+            return 0;
+        }
+        if (value >= max) {
+            return 1;
+        }
+        double left = 0;
+        double previousMean = min;
+        double previousRank = 0;
+        for (int i = 0; i < centroids; i++) {
+            double middle = left + weights[i] / 2;
+            if (value < means[i]) {
+                double fraction = means[i] == previousMean ? 0 : (value - previousMean) / (means[i] - previousMean);
+                return (previousRank + fraction * (middle - previousRank)) / count;
+            }
+            previousMean = means[i];
+            previousRank = middle;
+            left += weights[i];
+        }
+        double fraction = (value - previousMean) / (max - previousMean);
+        return (previousRank + fraction * (count - previousRank)) / count;
+    }
+
+    /**
+     * Returns the number of numbers added, including those of merged digests.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the smallest number added.
+     *
+     * @return the minimum, or {@code NaN} if the digest is empty
+     */
+    public double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * Returns the largest number added.
+     *
+     * @return the maximum, or {@code NaN} if the digest is empty
+     */
+    public double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * Returns the compression.
+     *
+     * @return the compression
+     */
+    public double getCompression() {
+        return compression;
+    }
+
+    /**
+     * Returns the current number of centroids.
+     *
+     * @return number of centroids
+     */
+    public int getCentroidCount() {
+        compress();
+        return centroids;
+    }
+
+    /**
+     * Returns the size of the centroids and the buffer.
+     *
+     * @return number of bytes
+     */
+    public int getSizeInBytes() {
+        return (means.length + weights.length + buffer.length) * Double.BYTES;
+    }
+
+    /**
+     * Adds the numbers of another digest to this one.
+     *
+     * @param other the other digest
+     * @throws NullPointerException if {@code other} is {@code null}
+     */
+    public void merge(TDigest other) {
+        if (!Utils.validateObject(other)) {
+            throw new NullPointerException("Digest can't be null.");
+        }
+        other.compress();
+        compress();
+        if (other.count == 0) {
+            return;
+        }
+        double[] otherMeans = Arrays.copyOf(other.means, other.centroids);
+        double[] otherWeights = Arrays.copyOf(other.weights, other.centroids);
+        merge(otherMeans, otherWeights, other.centroids, other.count);
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Returns an independent copy of this digest.
+     *
+     * @return the copy
+     */
+    public TDigest copy() {
+        TDigest copy = new TDigest(compression);
+        copy.merge(this);
+        return copy;
+    }
+
+    /**
+     * Returns a string representation of the digest with its quartiles.
+     *
+     * @return formatted string
+     */
+    @Override
+    public String toString() {
+        return "TDigest [count=" + count + ", min=" + getMin() + ", median=" + quantile(0.5) + ", p99="
+                + quantile(0.99) + ", max=" + getMax() + "]";
+    }
+
+    /** Merges the buffered numbers into the centroids. */
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        Arrays.sort(buffer, 0, buffered);
+        double[] ones = new double[buffered];
+        Arrays.fill(ones, 1);
+        int added = buffered;
+        buffered = 0;
+        merge(Arrays.copyOf(buffer, added), ones, added, 0);
+    }
+
+    /**
+     * Merges sorted centroids into the centroids, walking both in order and
+     * joining neighbours while the scale function allows.
+     */
+    private void merge(double[] otherMeans, double[] otherWeights, int otherSize, long addedCount) {
+        long total = count + addedCount;
+        int capacity = Math.max(means.length, (int) Math.ceil(compression) + 1);
+        double[] mergedMeans = new double[capacity];
+        double[] mergedWeights = new double[capacity];
+        int size = 0;
+        double done = 0; // weight of the closed centroids
+        double limit = 0;
+        int i = 0;
+        int j = 0;
+        while (i < centroids || j < otherSize) {
+            double mean;
+            double weight;
+            if (j == otherSize || (i < centroids && means[i] <= otherMeans[j])) {
+                mean = means[i];
+                weight = weights[i++];
+            } else {
+                mean = otherMeans[j];
+                weight = otherWeights[j++];
+            }
+            if (size > 0 && done + mergedWeights[size - 1] + weight <= limit) {
+                double merged = mergedWeights[size - 1] + weight;
+                mergedMeans[size - 1] += (mean - mergedMeans[size - 1]) * weight / merged;
+                mergedWeights[size - 1] = merged;
+            } else {
+                if (size > 0) {
+                    done += mergedWeights[size - 1];
+                }
+                if (size == capacity) {
+                    capacity *= 2;
+                    mergedMeans = Arrays.copyOf(mergedMeans, capacity);
+                    mergedWeights = Arrays.copyOf(mergedWeights, capacity);
+                }
+                mergedMeans[size] = mean;
+                mergedWeights[size] = weight;
+                size++;
+                limit = total * quantileOf(scaleOf(done / total) + 1);
+            }
+        }
+        means = mergedMeans;
+        weights = mergedWeights;
+        centroids = size;
+        count = total;
+    }
+
+    private double scaleOf(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * q - 1);
+    }
+
+    private double quantileOf(double k) {
+        if (k >= compression / 4) {
+            return 1;
+        }
+        return (Math.sin(k * 2 * Math.PI / compression) + 1) / 2;
+    }
+
+    private static double interpolate(double from, double to, double fraction) {
+        return from + (to - from) * Math.max(0, Math.min(1, fraction));
+    }
+}
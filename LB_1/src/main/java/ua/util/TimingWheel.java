@@ -0,0 +1,298 @@
+package ua.util;
+
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: schedules values for a tick (any unit of time,
+ * e.g. seconds) and hands them out in batches once the wheel is advanced past it.
+ * <p>
+ * There are 11 levels of 64 slots; a slot of level {@code L} spans {@code 64^L} ticks.
+ * A timeout is put on the lowest level where its deadline shares the higher digits
+ * (base 64) with the current tick, so scheduling is a few bit operations and a
+ * list insert, and cancelling unlinks the timeout from its slot, both O(1).
+ * When the current tick reaches the start of an occupied slot of a higher level,
+ * its timeouts move to lower levels; on level 0 they expire.
+ * <p>
+ * Every level keeps a 64-bit mask of its occupied slots, so advancing jumps
+ * straight to the next occupied slot: moving the wheel by days costs the number
+ * of occupied slots passed, not the number of ticks.
+ * All methods are synchronized.
+ *
+ * @param <T> type of scheduled values
+ */
+public class TimingWheel<T> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int LEVELS = 11;
+
+    /** Bucket of timeouts that were already due when scheduled. */
+    private static final int DUE = LEVELS * SLOTS;
+    private static final int UNSCHEDULED = -1;
+
+    /** A scheduled value; returned by {@link #schedule} and used to cancel or reschedule it. */
+    public static final class Timeout<T> {
+        private final T value;
+        private long deadline;
+        private int bucket = UNSCHEDULED;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(T value) {
+            this.value = value;
+        }
+
+        /**
+         * Returns the scheduled value.
+         *
+         * @return the value
+         */
+        public T getValue() {
+            return value;
+        }
+
+        /**
+         * Returns the tick the value is scheduled for.
+         *
+         * @return the deadline
+         */
+        public long getDeadline() {
+            return deadline;
+        }
+
+        /**
+         * Checks if the timeout is still waiting in the wheel.
+         *
+         * @return {@code true} if it has neither expired nor been cancelled
+         */
+        public boolean isScheduled() {
+            return bucket != UNSCHEDULED;
+        }
+    }
+
+    private final Timeout<?>[] heads = new Timeout<?>[DUE + 1];
+    private final long[] occupied = new long[LEVELS];
+    private long current;
+    private int size;
+
+    /**
+     * Constructs an empty wheel.
+     *
+     * @param currentTick the current tick; deadlines up to it are already due
+     * @throws IllegalArgumentException if {@code currentTick} is negative
+     */
+    public TimingWheel(long currentTick) {
+        if (currentTick < 0) {
+            throw new IllegalArgumentException("Current tick can't be negative.");
+        }
+        this.current = currentTick;
+    }
+
+    /**
+     * Schedules a value for the given tick. A deadline that isn't after the
+     * current tick expires on the next {@link #advanceTo}.
+     *
+     * @param value    the value
+     * @param deadline the tick
+     * @return the timeout, to cancel or reschedule the value
+     * @throws NullPointerException if {@code value} is {@code null}
+     */
+    public synchronized Timeout<T> schedule(T value, long deadline) {
+        if (!Utils.validateObject(value)) {
+            throw new NullPointerException("Value can't be null.");
+        }
+        Timeout<T> timeout = new Timeout<>(value);
+        timeout.deadline = deadline;
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Moves a timeout to another tick, also if it has expired or was cancelled.
+     *
+     * @param timeout  a timeout of this wheel
+     * @param deadline the new tick
+     * @throws NullPointerException if {@code timeout} is {@code null}
+     */
+    public synchronized void reschedule(Timeout<T> timeout, long deadline) {
+        if (!Utils.validateObject(timeout)) {
+            throw new NullPointerException("Timeout can't be null.");
+        }
+        if (timeout.bucket != UNSCHEDULED) {
+            unlink(timeout);
+        } else {
+            size++;
+        }
+        timeout.deadline = deadline;
+        place(timeout);
+    }
+
+    /**
+     * Cancels a timeout.
+     *
+     * @param timeout the timeout
+     * @return {@code true} if it was scheduled, {@code false} if it has expired or was cancelled
+     */
+    public synchronized boolean cancel(Timeout<T> timeout) {
+        if (timeout == null || timeout.bucket == UNSCHEDULED) {
+            return false;
+        }
+        unlink(timeout);
+        timeout.bucket = UNSCHEDULED;
+        size--;
+        return true;
+    }
+
+    /**
+     * Advances the wheel and collects the timeouts that expire up to the tick,
+     * in the order of their deadlines; timeouts that were already due when
+     * scheduled come first.
+     *
+     * @param tick    the new current tick; an earlier tick only collects the due timeouts
+     * @param expired list the expired timeouts are added to
+     * @return number of expired timeouts
+     */
+    public synchronized int advanceTo(long tick, List<Timeout<T>> expired) {
+        int count = expire(DUE, expired);
+        while (current < tick) {
+            long next = Long.MAX_VALUE;
+            for (int level = 0; level < LEVELS; level++) {
+                int shift = level * BITS;
+                int position = (int) (current >>> shift) & (SLOTS - 1);
+                long later = occupied[level] & (-2L << position);
+                if (later != 0) {
+                    int span = shift + BITS;
+                    long start = span >= Long.SIZE ? 0 : current >>> span << span;
+                    next = Math.min(next, start | ((long) Long.numberOfTrailingZeros(later) << shift));
+                }
+            }
+            if (next > tick) {
+                current = tick;
+                break;
+            }
+            current = next;
+            // slots starting at the new tick, higher levels first, so their timeouts can move down
+            for (int level = LEVELS - 1; level >= 0; level--) {
+                int shift = level * BITS;
+                if ((current & ((1L << shift) - 1)) != 0) {
+                    continue;
+                }
+                int slot = (int) (current >>> shift) & (SLOTS - 1);
+                if ((occupied[level] & (1L << slot)) == 0) {
+                    continue;
+                }
+                int bucket = level * SLOTS + slot;
+                if (level == 0) {
+                    count += expire(bucket, expired);
+                } else {
+                    count += cascade(bucket, expired);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the current tick.
+     *
+     * @return the tick the wheel was last advanced to
+     */
+    public synchronized long getCurrentTick() {
+        return current;
+    }
+
+    /**
+     * Returns the number of scheduled timeouts.
+     *
+     * @return number of timeouts
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Moves the timeouts of a higher-level slot down, or out if they are due. */
+    @SuppressWarnings("unchecked")
+    private int cascade(int bucket, List<Timeout<T>> expired) {
+        Timeout<T> timeout = (Timeout<T>) heads[bucket];
+        heads[bucket] = null;
+        occupied[bucket / SLOTS] &= ~(1L << (bucket % SLOTS));
+        int count = 0;
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            if (timeout.deadline <= current) {
+                timeout.bucket = UNSCHEDULED;
+                size--;
+                expired.add(timeout);
+                count++;
+            } else {
+                place(timeout);
+            }
+            timeout = next;
+        }
+        return count;
+    }
+
+    /** Removes all timeouts of a bucket as expired. */
+    @SuppressWarnings("unchecked")
+    private int expire(int bucket, List<Timeout<T>> expired) {
+        Timeout<T> timeout = (Timeout<T>) heads[bucket];
+        heads[bucket] = null;
+        if (bucket < DUE) {
+            occupied[bucket / SLOTS] &= ~(1L << (bucket % SLOTS));
+        }
+        int count = 0;
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = UNSCHEDULED;
+            expired.add(timeout);
+            count++;
+            timeout = next;
+        }
+        size -= count;
+        return count;
+    }
+
+    private void place(Timeout<T> timeout) {
+        long deadline = timeout.deadline;
+        int bucket;
+        if (deadline <= current) {
+            bucket = DUE;
+        } else {
+            int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(deadline ^ current)) / BITS;
+            int slot = (int) (deadline >>> (level * BITS)) & (SLOTS - 1);
+            bucket = level * SLOTS + slot;
+            occupied[level] |= 1L << slot;
+        }
+        @SuppressWarnings("unchecked")
+        Timeout<T> head = (Timeout<T>) heads[bucket];
+        timeout.bucket = bucket;
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        heads[bucket] = timeout;
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        int bucket = timeout.bucket;
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            heads[bucket] = timeout.next;
+            if (timeout.next == null && bucket < DUE) {
+                occupied[bucket / SLOTS] &= ~(1L << (bucket % SLOTS));
+            }
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+    }
+}
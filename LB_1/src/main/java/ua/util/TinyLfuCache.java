@@ -0,0 +1,354 @@
+package ua.util;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache with the W-TinyLFU eviction policy.
+ * <p>
+ * New entries go to a small LRU window (1% of the capacity). When the window
+ * overflows, its least recently used entry competes with the least recently used
+ * entry of the main segmented LRU, and the one that was requested less often
+ * (according to an aging count-min frequency sketch) is evicted. The main space
+ * is split into probation (20%) and protected (80%) parts.
+ * <p>
+ * Keys are compared by identity, because domain objects are mutable and their
+ * {@code equals}/{@code hashCode} change with their fields.
+ * All methods are synchronized.
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+public class TinyLfuCache<K, V> {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    /** Cache entry, linked into the list of its segment. */
+    private static final class Node<K, V> {
+        final K key;
+        V value;
+        int segment;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /** Doubly linked access-ordered list: head is the least recently used. */
+    private static final class Segment<K, V> {
+        Node<K, V> head;
+        Node<K, V> tail;
+        int size;
+
+        void addLast(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            size++;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            size--;
+        }
+    }
+
+    private final int maximumSize;
+    private final int windowMax;
+    private final int protectedMax;
+    private final Map<K, Node<K, V>> data = new IdentityHashMap<>();
+    private final Segment<K, V> window = new Segment<>();
+    private final Segment<K, V> probation = new Segment<>();
+    private final Segment<K, V> protect = new Segment<>();
+    private final FrequencySketch sketch;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructs an empty cache.
+     *
+     * @param maximumSize maximal number of entries (positive number)
+     * @throws IllegalArgumentException if {@code maximumSize} is not positive
+     */
+    public TinyLfuCache(int maximumSize) {
+        if (!ValidationHelper.isPositiveNumber(maximumSize)) {
+            throw new IllegalArgumentException("Maximum size must be positive.");
+        }
+        this.maximumSize = maximumSize;
+        this.windowMax = Math.max(1, maximumSize / 100);
+        this.protectedMax = (maximumSize - windowMax) * 8 / 10;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * Returns the cached value and records a hit or a miss.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if the key isn't cached
+     */
+    public synchronized V get(K key) {
+        sketch.increment(key);
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        onAccess(node);
+        return node.value;
+    }
+
+    /**
+     * Returns the cached value without recording statistics or access.
+     *
+     * @param key the key
+     * @return the value, or {@code null} if the key isn't cached
+     */
+    public synchronized V peek(K key) {
+        Node<K, V> node = data.get(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Caches the value, evicting another entry if the cache is full.
+     *
+     * @param key   the key
+     * @param value the value
+     * @throws NullPointerException if {@code key} or {@code value} is {@code null}
+     */
+    public synchronized void put(K key, V value) {
+        if (ValidationHelper.isObjectNull(key) || ValidationHelper.isObjectNull(value)) {
+            throw new NullPointerException("Key and value can't be null.");
+        }
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            node.value = value;
+            onAccess(node);
+            return;
+        }
+        node = new Node<>(key, value);
+        node.segment = WINDOW;
+        data.put(key, node);
+        window.addLast(node);
+        if (window.size > windowMax) {
+            Node<K, V> candidate = window.head;
+            window.remove(candidate);
+            candidate.segment = PROBATION;
+            probation.addLast(candidate);
+            if (data.size() > maximumSize) {
+                evict(candidate);
+            }
+        }
+    }
+
+    /**
+     * Removes the key from the cache.
+     *
+     * @param key the key
+     * @return {@code true} if the key was cached
+     */
+    public synchronized boolean invalidate(K key) {
+        Node<K, V> node = data.remove(key);
+        if (node == null) {
+            return false;
+        }
+        segmentOf(node).remove(node);
+        return true;
+    }
+
+    /**
+     * Removes all entries. Statistics are kept.
+     */
+    public synchronized void clear() {
+        data.clear();
+        window.head = window.tail = null;
+        probation.head = probation.tail = null;
+        protect.head = protect.tail = null;
+        window.size = probation.size = protect.size = 0;
+    }
+
+    /** @return number of cached entries */
+    public synchronized int size() { return data.size(); }
+
+    /** @return maximal number of entries */
+    public int getMaximumSize() { return maximumSize; }
+
+    /** @return number of {@link #get(Object)} calls that found a value */
+    public synchronized long getHits() { return hits; }
+
+    /** @return number of {@link #get(Object)} calls that found nothing */
+    public synchronized long getMisses() { return misses; }
+
+    /** @return number of entries evicted because the cache was full */
+    public synchronized long getEvictions() { return evictions; }
+
+    /**
+     * Returns the share of {@link #get(Object)} calls that found a value.
+     *
+     * @return hit rate from 0 to 1
+     */
+    public synchronized double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    /**
+     * Returns a string representation of the cache statistics.
+     *
+     * @return formatted string with size and statistics
+     */
+    @Override
+    public synchronized String toString() {
+        return "TinyLfuCache [size=" + data.size() + ", maximumSize=" + maximumSize + ", hits=" + hits
+                + ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+
+    /**
+     * Moves the node to the most recently used position, promoting
+     * probation entries to the protected segment.
+     *
+     * @param node the accessed node
+     */
+    private void onAccess(Node<K, V> node) {
+        if (node.segment == PROBATION) {
+            probation.remove(node);
+            node.segment = PROTECTED;
+            protect.addLast(node);
+            if (protect.size > protectedMax) {
+                Node<K, V> demoted = protect.head;
+                protect.remove(demoted);
+                demoted.segment = PROBATION;
+                probation.addLast(demoted);
+            }
+        } else {
+            Segment<K, V> segment = segmentOf(node);
+            segment.remove(node);
+            segment.addLast(node);
+        }
+    }
+
+    /**
+     * Evicts either the candidate from the window or the probation victim,
+     * whichever was requested less often.
+     *
+     * @param candidate the entry just moved from the window
+     */
+    private void evict(Node<K, V> candidate) {
+        Node<K, V> victim = probation.head;
+        if (victim == candidate && protect.size > 0) {
+            victim = protect.head;
+        }
+        Node<K, V> evicted = victim != candidate && sketch.frequency(candidate.key) > sketch.frequency(victim.key)
+                ? victim
+                : candidate;
+        segmentOf(evicted).remove(evicted);
+        data.remove(evicted.key);
+        evictions++;
+    }
+
+    /**
+     * Returns the list the node belongs to.
+     *
+     * @param node the node
+     * @return its segment
+     */
+    private Segment<K, V> segmentOf(Node<K, V> node) {
+        switch (node.segment) {
+            case WINDOW:
+                return window;
+            case PROBATION:
+                return probation;
+            default:
+                return protect;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters used to estimate how often a key
+     * was requested. All counters are halved periodically, so old
+     * popularity fades away.
+     */
+    private static final class FrequencySketch {
+
+        private static final int[] SEEDS = { 0x97cb3127, 0xd1b54a33, 0x2c1b3c6d, 0x85ebca6b };
+
+        private final byte[][] rows = new byte[SEEDS.length][];
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int maximumSize) {
+            int width = Integer.highestOneBit(Math.max(16, maximumSize) - 1) << 1;
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = new byte[width];
+            }
+            this.mask = width - 1;
+            this.sampleSize = 10 * Math.max(16, maximumSize);
+        }
+
+        void increment(Object key) {
+            int hash = spread(System.identityHashCode(key));
+            for (int i = 0; i < rows.length; i++) {
+                int index = index(hash, i);
+                if (rows[i][index] < 15) {
+                    rows[i][index]++;
+                }
+            }
+            if (++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = spread(System.identityHashCode(key));
+            int frequency = 15;
+            for (int i = 0; i < rows.length; i++) {
+                frequency = Math.min(frequency, rows[i][index(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private int index(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * SEEDS[row];
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private void reset() {
+            for (byte[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+            additions /= 2;
+        }
+
+        private static int spread(int hash) {
+            hash ^= hash >>> 17;
+            hash *= 0xed5ad4bb;
+            return hash ^ (hash >>> 11);
+        }
+    }
+}
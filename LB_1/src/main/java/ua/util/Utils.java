@@ -5,6 +5,7 @@ import java.time.LocalDate;
 /**
  * Public utility class that provides access to validation methods.
  * It acts as a facade to the internal ValidationHelper class.
+ * It also starts the background threads of the hotel's services.
  */
 public abstract class Utils {
 
@@ -78,4 +79,19 @@ public abstract class Utils {
     public static boolean validateObject(Object o) {
     	return !ValidationHelper.isObjectNull(o);
     }
+
+    /**
+     * Starts a daemon thread, e.g. a background worker or a server's accept loop,
+     * so that it never keeps the JVM alive.
+     *
+     * @param name name of the thread
+     * @param task the code the thread runs
+     * @return the started thread
+     */
+    public static Thread startDaemon(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
 }
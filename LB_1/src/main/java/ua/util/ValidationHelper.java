@@ -1,6 +1,8 @@
 package ua.util;
 
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 
 /**
  * Package-private helper class providing basic validation methods.
@@ -9,6 +11,12 @@ import java.time.LocalDate;
  */
 abstract class ValidationHelper {
 
+    /** Cached epoch day of today, see {@link #isNotInPast(LocalDate)}. */
+    private static volatile long todayEpochDay;
+
+    /** Time in milliseconds when {@link #todayEpochDay} becomes stale. */
+    private static volatile long todayValidUntil;
+
     /**
      * Checks if a string is not null and not empty (ignores whitespace).
      *
@@ -16,17 +24,65 @@ abstract class ValidationHelper {
      * @return true if string is not null and contains non-space characters
      */
     static boolean isNotEmpty(String value) {
-        return !value.trim().isEmpty();
+        // same result as !value.trim().isEmpty(), without copying the string
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
      * Checks if an email has a valid basic format.
+     * Accepts the same strings as the pattern {@code ^[\w.-]+@[\w.-]+\.[a-z]{2,}$},
+     * but scans the characters once instead of compiling a regex on every call.
      *
      * @param email the email string to check
-     * @return true if email matches the basic regex pattern
+     * @return true if email matches the basic format
      */
     static boolean isValidEmail(String email) {
-        return email.matches("^[\\w.-]+@[\\w.-]+\\.[a-z]{2,}$");
+        int at = email.indexOf('@');
+        if (at < 1) {
+            return false;
+        }
+        for (int i = 0; i < at; i++) {
+            if (!isEmailChar(email.charAt(i))) {
+                return false;
+            }
+        }
+        int lastDot = -1;
+        for (int i = at + 1; i < email.length(); i++) {
+            char c = email.charAt(i);
+            if (c == '.') {
+                lastDot = i;
+            } else if (!isEmailChar(c)) {
+                return false;
+            }
+        }
+        // at least one character between '@' and the last dot, at least two letters after it
+        if (lastDot < at + 2 || email.length() - lastDot - 1 < 2) {
+            return false;
+        }
+        for (int i = lastDot + 1; i < email.length(); i++) {
+            char c = email.charAt(i);
+            if (c < 'a' || c > 'z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a character may appear in an email outside the top-level domain:
+     * an ASCII letter, digit, underscore, dot or hyphen.
+     *
+     * @param c the character
+     * @return true if the character is allowed
+     */
+    private static boolean isEmailChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '_' || c == '.' || c == '-';
     }
 
     /**
@@ -40,6 +96,24 @@ abstract class ValidationHelper {
         return !compareDate.isBefore(thresholdDate);
     }
     
+    /**
+     * Checks if the date is today or later.
+     * Today's epoch day is cached until the next midnight, so the check
+     * doesn't create a new {@code LocalDate} on every call.
+     *
+     * @param date the date to validate
+     * @return true if the date is not in the past
+     */
+    static boolean isNotInPast(LocalDate date) {
+        long now = System.currentTimeMillis();
+        if (now >= todayValidUntil) {
+            ZonedDateTime start = LocalDate.now().atStartOfDay(ZoneId.systemDefault());
+            todayEpochDay = start.toLocalDate().toEpochDay();
+            todayValidUntil = start.plusDays(1).toInstant().toEpochMilli();
+        }
+        return date.toEpochDay() >= todayEpochDay;
+    }
+
     /**
      * Checks if a integer number is positive.
      * 
@@ -0,0 +1,113 @@
+package ua.util;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Clock that only moves when told to, for tests and demos that need to
+ * fast-forward time (e.g. days of reservation timers) instantly.
+ * Thread-safe.
+ */
+public final class VirtualClock extends Clock {
+
+    private final ZoneId zone;
+    private volatile Instant instant;
+
+    private VirtualClock(Instant instant, ZoneId zone) {
+        this.instant = instant;
+        this.zone = zone;
+    }
+
+    /**
+     * Creates a clock stopped at the current time in the system time zone.
+     *
+     * @return the clock
+     */
+    public static VirtualClock create() {
+        return new VirtualClock(Instant.now(), ZoneId.systemDefault());
+    }
+
+    /**
+     * Creates a clock stopped at the given time.
+     *
+     * @param instant the start time
+     * @param zone    the time zone
+     * @return the clock
+     * @throws NullPointerException if an argument is {@code null}
+     */
+    public static VirtualClock create(Instant instant, ZoneId zone) {
+        if (!Utils.validateObject(instant) || !Utils.validateObject(zone)) {
+            throw new NullPointerException("Instant and zone can't be null.");
+        }
+        return new VirtualClock(instant, zone);
+    }
+
+    /**
+     * Moves the clock forward.
+     *
+     * @param duration the time to add
+     * @throws NullPointerException     if {@code duration} is {@code null}
+     * @throws IllegalArgumentException if {@code duration} is negative
+     */
+    public synchronized void advance(Duration duration) {
+        if (!Utils.validateObject(duration)) {
+            throw new NullPointerException("Duration can't be null.");
+        }
+        if (duration.isNegative()) {
+            throw new IllegalArgumentException("Clock can't go back.");
+        }
+        instant = instant.plus(duration);
+    }
+
+    /**
+     * Returns the time zone of the clock.
+     *
+     * @return the zone
+     */
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * Returns a clock in another zone that is moved together with this one.
+     *
+     * @param zone the time zone
+     * @return this clock if the zone is the same, otherwise a view of it
+     */
+    @Override
+    public Clock withZone(ZoneId zone) {
+        if (zone.equals(this.zone)) {
+            return this;
+        }
+        VirtualClock source = this;
+        return new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return zone;
+            }
+
+            @Override
+            public Clock withZone(ZoneId other) {
+                return source.withZone(other);
+            }
+
+            @Override
+            public Instant instant() {
+                return source.instant();
+            }
+        };
+    }
+
+    /**
+     * Returns the current time of the clock.
+     *
+     * @return the instant
+     */
+    @Override
+    public Instant instant() {
+        return instant;
+    }
+}